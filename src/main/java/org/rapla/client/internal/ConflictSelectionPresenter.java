@@ -54,6 +54,8 @@ public class ConflictSelectionPresenter implements Presenter
     protected final CalendarSelectionModel model;
     private final Logger logger;
     private Collection<Conflict> conflicts;
+    /** the interval of the calendar when the conflicts were queried, the conflicts after the horizon of the server are only calculated for this interval */
+    private TimeInterval queriedInterval;
     private final CalendarEventBus eventBus;
     private final DialogUiFactoryInterface dialogUiFactory;
     private final ClientFacade facade;
@@ -245,8 +247,29 @@ public class ConflictSelectionPresenter implements Presenter
         }
     }
 
+    /** queries the conflicts again if the interval of the calendar is not within the queried interval */
+    public void calendarIntervalChanged()
+    {
+        final Date start = model.getStartDate();
+        final Date end = model.getEndDate();
+        if (queriedInterval == null || !contains(queriedInterval, start, end))
+        {
+            queryAllConflicts();
+        }
+    }
+
+    private static boolean contains(TimeInterval interval, Date start, Date end)
+    {
+        final boolean startContained = interval.getStart() == null || (start != null && !start.before(interval.getStart()));
+        final boolean endContained = interval.getEnd() == null || (end != null && !end.after(interval.getEnd()));
+        return startContained && endContained;
+    }
+
     protected void queryAllConflicts()  {
-        raplaFacade.getConflicts()
+        final Date start = model.getStartDate();
+        final Date end = model.getEndDate();
+        queriedInterval = new TimeInterval(start, end);
+        raplaFacade.getConflicts(start, end)
                    .thenAccept(conflicts->updateTree(conflicts))
                    .exceptionally(ex -> {
                        logger.error(ex.getMessage(), ex);
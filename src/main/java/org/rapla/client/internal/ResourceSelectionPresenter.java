@@ -20,11 +20,14 @@ import org.rapla.client.dialog.DialogUiFactoryInterface;
 import org.rapla.client.event.CalendarEventBus;
 import org.rapla.client.event.CalendarRefreshEvent;
 import org.rapla.client.internal.ResourceSelectionView.Presenter;
+import org.rapla.entities.Category;
 import org.rapla.entities.Entity;
 import org.rapla.entities.RaplaObject;
 import org.rapla.entities.User;
+import org.rapla.entities.configuration.Preferences;
 import org.rapla.entities.domain.Allocatable;
 import org.rapla.entities.dynamictype.ClassificationFilter;
+import org.rapla.entities.dynamictype.DynamicType;
 import org.rapla.facade.CalendarSelectionModel;
 import org.rapla.facade.ModificationEvent;
 import org.rapla.facade.RaplaFacade;
@@ -154,7 +157,7 @@ public class ResourceSelectionPresenter implements Presenter
 
     public void dataChanged(ModificationEvent evt) throws RaplaException
     {
-        if (evt == null || evt.isModified())
+        if (evt == null || isTreeModified(evt))
         {
             ClassificationFilter[] filter = model.getAllocatableFilter();
             Collection<Object> selectedObjects = new ArrayList<>(model.getSelectedObjects());
@@ -164,6 +167,13 @@ public class ResourceSelectionPresenter implements Presenter
         // ((CalendarModelImpl) model).dataChanged( evt);
     }
 
+    /** returns if the change affects the resource tree. Changes of events only don't */
+    private boolean isTreeModified(ModificationEvent evt)
+    {
+        return evt.isModified(Allocatable.class) || evt.isModified(DynamicType.class) || evt.isModified(Category.class) || evt.isModified(User.class)
+                || evt.isModified(Preferences.class);
+    }
+
     boolean treeListenersEnabled = true;
 
     @Override
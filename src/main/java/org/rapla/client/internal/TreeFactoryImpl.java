@@ -18,6 +18,8 @@ import org.rapla.client.RaplaTreeNode;
 import org.rapla.components.util.Assert;
 import org.rapla.components.util.iterator.FilterIterable;
 import org.rapla.entities.Category;
+import org.rapla.entities.Entity;
+import org.rapla.entities.LastChangedTimestamp;
 import org.rapla.entities.Named;
 import org.rapla.entities.domain.Allocatable;
 import org.rapla.entities.domain.Permission;
@@ -30,14 +32,18 @@ import org.rapla.entities.dynamictype.DynamicType;
 import org.rapla.entities.dynamictype.DynamicTypeAnnotations;
 import org.rapla.entities.dynamictype.SortedClassifiableComparator;
 import org.rapla.entities.dynamictype.internal.DynamicTypeImpl;
+import org.rapla.entities.storage.ReferenceInfo;
 import org.rapla.facade.Conflict;
+import org.rapla.facade.ModificationEvent;
 import org.rapla.facade.RaplaComponent;
 import org.rapla.facade.client.ClientFacade;
 import org.rapla.facade.internal.CalendarModelImpl;
+import org.rapla.facade.internal.ClientFacadeImpl;
 import org.rapla.framework.RaplaException;
 import org.rapla.framework.RaplaLocale;
 import org.rapla.inject.DefaultImplementation;
 import org.rapla.inject.InjectionContext;
+import org.rapla.storage.dbrm.RemoteOperator;
 import org.rapla.logger.Logger;
 
 import javax.inject.Inject;
@@ -47,6 +53,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -67,12 +74,44 @@ public class TreeFactoryImpl extends RaplaComponent implements TreeFactory
 {
     final ClientFacade clientFacade;
     final TreeItemFactory treeItemFactory;
+    /** the names used for sorting by the id of the classifiable. An entry is valid until the classifiable changes, the cache is cleared when types or categories change */
+    private final Map<String, SortKey> sortKeys = new HashMap<>();
+    private Locale sortKeyLocale;
     @Inject
     public TreeFactoryImpl(ClientFacade clientFacade, RaplaResources i18n, RaplaLocale raplaLocale, Logger logger, TreeItemFactory treeItemFactory)
     {
         super(clientFacade.getRaplaFacade(), i18n, raplaLocale, logger);
         this.clientFacade = clientFacade;
         this.treeItemFactory = treeItemFactory;
+        // the sort names must be updated before the other listeners build their trees
+        if (clientFacade instanceof ClientFacadeImpl && clientFacade.getRaplaFacade().getOperator() instanceof RemoteOperator)
+        {
+            ((ClientFacadeImpl) clientFacade).addDirectModificationListener(this::updateSortKeys);
+        }
+        else
+        {
+            clientFacade.addModificationListener(this::updateSortKeys);
+        }
+    }
+
+    /** removes the sort names of removed classifiables. The name format of a type or the names of categories can change all sort names */
+    synchronized void updateSortKeys(ModificationEvent evt)
+    {
+        if (evt.isModified(DynamicType.class) || evt.isModified(Category.class))
+        {
+            sortKeys.clear();
+            return;
+        }
+        for (ReferenceInfo removed : evt.getRemovedReferences())
+        {
+            sortKeys.remove(removed.getId());
+        }
+    }
+
+    /** returns the number of cached sort names. Only used for testing */
+    synchronized int getSortKeyCount()
+    {
+        return sortKeys.size();
     }
 
     class DynamicTypeComperator implements Comparator<DynamicType>
@@ -115,10 +154,76 @@ public class TreeFactoryImpl extends RaplaComponent implements TreeFactory
         }
     }
 
+    static class SortKey
+    {
+        final Date lastChanged;
+        final String name;
+
+        SortKey(Date lastChanged, String name)
+        {
+            this.lastChanged = lastChanged;
+            this.name = name;
+        }
+    }
+
+    /** sorts like the {@link SortedClassifiableComparator} but doesn't format the names of unchanged classifiables again */
+    class CachedNameComparator extends SortedClassifiableComparator
+    {
+        private final Locale locale;
+
+        CachedNameComparator(Locale locale)
+        {
+            super(locale);
+            this.locale = locale;
+        }
+
+        @Override
+        protected int compareNames(Classifiable o1, Classifiable o2)
+        {
+            if (o1.equals(o2))
+                return 0;
+            int result = getSortName(o1, locale).compareTo(getSortName(o2, locale));
+            if (result != 0)
+                return result;
+            else
+                return (o1.hashCode() < o2.hashCode()) ? -1 : 1;
+        }
+    }
+
+    private synchronized String getSortName(Classifiable classifiable, Locale locale)
+    {
+        if (!(classifiable instanceof Entity && classifiable instanceof LastChangedTimestamp))
+        {
+            return formatSortName(classifiable, locale);
+        }
+        if (!locale.equals(sortKeyLocale))
+        {
+            sortKeys.clear();
+            sortKeyLocale = locale;
+        }
+        final String id = ((Entity) classifiable).getId();
+        final Date lastChanged = ((LastChangedTimestamp) classifiable).getLastChanged();
+        SortKey sortKey = sortKeys.get(id);
+        if (sortKey == null || lastChanged == null || !lastChanged.equals(sortKey.lastChanged))
+        {
+            sortKey = new SortKey(lastChanged, formatSortName(classifiable, locale));
+            sortKeys.put(id, sortKey);
+        }
+        return sortKey.name;
+    }
+
+    private String formatSortName(Classifiable classifiable, Locale locale)
+    {
+        if (classifiable instanceof Named)
+        {
+            return ((Named) classifiable).getName(locale);
+        }
+        return classifiable.toString();
+    }
+
     public RaplaTreeNode createClassifiableModel(Allocatable[] classifiables, boolean useCategorizations)
     {
-        @SuppressWarnings({ "rawtypes" })
-        Comparator<Classifiable> comp = new SortedClassifiableComparator(getLocale());
+        Comparator<Classifiable> comp = new CachedNameComparator(getLocale());
         return createClassifiableModel(classifiables, comp, useCategorizations);
     }
 
@@ -447,7 +552,7 @@ public class TreeFactoryImpl extends RaplaComponent implements TreeFactory
         }
         // adds elements to typ folders
         Allocatable[] filtered = getQuery().getAllocatablesWithFilter(filter);
-        Collection<Allocatable> sorted = sorted(filtered, new SortedClassifiableComparator(getLocale()));
+        Collection<Allocatable> sorted = sorted(filtered, new CachedNameComparator(getLocale()));
         addClassifiables(nodeMap, sorted, true);
         return new AllocatableNodes( treeNode, resourcesFiltered);
     }
@@ -594,7 +699,7 @@ public class TreeFactoryImpl extends RaplaComponent implements TreeFactory
             Allocatable allocatable = conflict.getAllocatable();
             allocatables.add(allocatable);
         }
-        Collection<Allocatable> sorted = sorted(allocatables.toArray(new Allocatable[] {}), new SortedClassifiableComparator(getLocale()));
+        Collection<Allocatable> sorted = sorted(allocatables.toArray(new Allocatable[] {}), new CachedNameComparator(getLocale()));
         Map<Classifiable, Collection<RaplaTreeNode>> childMap = addClassifiables(nodeMap, sorted, true);
         for (Iterator<Conflict> it = conflicts.iterator(); it.hasNext(); )
         {
@@ -55,25 +55,13 @@ public class ConflictReservationCheck implements EventCheck
     public Promise<Boolean> check(Collection<Reservation> reservations, PopupContext sourceComponent)
     {
         final List<Conflict> conflictList = new ArrayList<>();
-        Promise<Void> p = null;
-        for (Reservation reservation : reservations)
-        {
-            Promise<Collection<Conflict>> promise = raplaFacade.getConflictsForReservation(reservation);
-            final Promise<Void> resultPromise = promise.thenAccept((conflicts) -> {
-                for (Conflict conflict : conflicts)
-                {
-                    conflictList.add(conflict);
-                }
-            });
-            if (p == null)
-            {
-                p = resultPromise;
-            }
-            else
+        // one request for all reservations
+        Promise<Void> p = raplaFacade.getConflictsForReservations(reservations).thenAccept((conflicts) -> {
+            for (Conflict conflict : conflicts)
             {
-                p = p.thenCombine(resultPromise, (a, b) -> Promise.VOID);
+                conflictList.add(conflict);
             }
-        }
+        });
         return p.thenCompose((dummy)->
         {
             if ( conflictList.isEmpty())
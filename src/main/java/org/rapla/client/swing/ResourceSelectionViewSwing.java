@@ -213,7 +213,16 @@ public class ResourceSelectionViewSwing implements ResourceSelectionView
         try
         {
             treeListenersEnabled = false;
-            treeSelection.exchangeTreeModel(treeModel);
+            final TreeModel currentModel = tree.getModel();
+            if (currentModel instanceof RaplaSwingTreeModel)
+            {
+                // only the changed nodes are updated, so the tree keeps its expansion state and doesn't need a new layout
+                updateModel((RaplaSwingTreeModel) currentModel, (RaplaTreeNode) treeModel.getRoot());
+            }
+            else
+            {
+                treeSelection.exchangeTreeModel(treeModel);
+            }
             updateSelection(selectedObjects);
         }
         catch (Exception ex)
@@ -240,6 +249,19 @@ public class ResourceSelectionViewSwing implements ResourceSelectionView
         return treeModel;
     }
 
+    private void updateModel(RaplaSwingTreeModel model, RaplaTreeNode newRoot)
+    {
+        try
+        {
+            selectionFromProgram = true;
+            model.update(newRoot);
+        }
+        finally
+        {
+            selectionFromProgram = false;
+        }
+    }
+
     protected void updateSelection(Collection<Object> selectedObjects)
     {
         try
@@ -91,6 +91,7 @@ import javax.swing.JTextField;
 import javax.swing.JTree;
 import javax.swing.MenuSelectionManager;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.event.EventListenerList;
@@ -98,6 +99,8 @@ import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import javax.swing.event.PopupMenuEvent;
 import javax.swing.event.PopupMenuListener;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeExpansionListener;
 import javax.swing.plaf.basic.BasicCheckBoxMenuItemUI;
 import javax.swing.plaf.basic.BasicRadioButtonMenuItemUI;
 import javax.swing.table.DefaultTableCellRenderer;
@@ -115,6 +118,7 @@ import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Insets;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -173,6 +177,14 @@ public class AllocatableSelection extends RaplaGUIComponent implements Appointme
     AllocatablesModel selectedModel = new SelectedModel();
 
     Map<Allocatable, Collection<Appointment>> allocatableBindings = new HashMap<>();
+    /** the allocatables with bindings loaded for all appointments. Bindings of the other allocatables are loaded when they become visible */
+    Set<Allocatable> boundAllocatables = new HashSet<>();
+    /** incremented when all bindings are reloaded, so results of older requests are ignored */
+    int bindingsVersion;
+    Map<Allocatable, AllocationRendering> renderingCache = new HashMap<>();
+    /** delay in milliseconds after scrolling or expanding the tree before the bindings of the visible allocatables are requested */
+    static final int VISIBLE_BINDINGS_DELAY = 150;
+    Timer visibleBindingsTimer;
     //	Map<Appointment,Collection<Allocatable>> appointmentMap	= new HashMap<Appointment,Collection<Allocatable>>();
     Appointment[] appointments;
     String[] appointmentStrings;
@@ -264,6 +276,22 @@ public class AllocatableSelection extends RaplaGUIComponent implements Appointme
         completeTable.setDefaultEditor(Allocatable.class, new AppointmentCellEditor2(new AllocationTextField()));
         completeTable.getTree().setCellRenderer(new AllocationTreeCellRenderer(false));
         completeTable.addMouseListener(listener);
+        visibleBindingsTimer = new Timer(VISIBLE_BINDINGS_DELAY, (evt) -> loadVisibleBindings());
+        visibleBindingsTimer.setRepeats(false);
+        leftScrollpane.getViewport().addChangeListener((evt) -> visibleBindingsTimer.restart());
+        completeTable.getTree().addTreeExpansionListener(new TreeExpansionListener()
+        {
+            @Override
+            public void treeExpanded(TreeExpansionEvent event)
+            {
+                visibleBindingsTimer.restart();
+            }
+
+            @Override
+            public void treeCollapsed(TreeExpansionEvent event)
+            {
+            }
+        });
 
         selectedTable = new JTreeTable(selectedModel);
         JScrollPane rightScrollpane = new JScrollPane(selectedTable);
@@ -318,6 +346,7 @@ public class AllocatableSelection extends RaplaGUIComponent implements Appointme
 
     protected void fireAllocationsChanged()
     {
+        visibleBindingsTimer.restart();
         ChangeEvent evt = new ChangeEvent(this);
         Object[] listeners = listenerList.getListenerList();
         for (int i = listeners.length - 2; i >= 0; i -= 2)
@@ -381,6 +410,7 @@ public class AllocatableSelection extends RaplaGUIComponent implements Appointme
     }
 
     private void changeRequestStatus() {
+        renderingCache.clear();
         for (Reservation reservation:mutableReservations) {
             for (Allocatable allocatable:reservation.getAllocatables()) {
                 final RequestStatus status = reservation.getRequestStatus(allocatable);
@@ -407,21 +437,53 @@ public class AllocatableSelection extends RaplaGUIComponent implements Appointme
         this.selectedAppointments = appointments;
     }
 
+    /**
+     * updates the bindings of the passed appointments or reloads all bindings if null is passed.
+     * Only the bindings of the visible allocatables are requested, the others are loaded when they are scrolled into view or expanded.
+     */
     private void updateBindings(Collection<Appointment> appointments)
     {
-        Collection<Allocatable> allAllocatables = new LinkedHashSet<>(completeModel.getAllocatables());
-        for (Reservation r : mutableReservations)
+        final Collection<Allocatable> allocatables;
+        if (appointments == null)
+        {
+            bindingsVersion++;
+            allocatableBindings.clear();
+            boundAllocatables.clear();
+            renderingCache.clear();
+            allocatables = getVisibleAllocatables();
+        }
+        else
+        {
+            allocatables = new ArrayList<>(boundAllocatables);
+        }
+        requestBindings(allocatables, appointments);
+    }
+
+    /** requests the bindings of the visible allocatables that are not loaded yet */
+    private void loadVisibleBindings()
+    {
+        final Collection<Allocatable> allocatables = getVisibleAllocatables();
+        allocatables.removeAll(boundAllocatables);
+        if (!allocatables.isEmpty())
         {
-            allAllocatables.addAll(Arrays.asList(r.getAllocatables()));
+            requestBindings(allocatables, null);
         }
+    }
+
+    /**
+     * requests the bindings of the allocatables for the passed appointments or for all appointments of the reservations if null is passed
+     */
+    private void requestBindings(Collection<Allocatable> allocatables, Collection<Appointment> appointments)
+    {
         List<Appointment> appointmentsWithoutTemplates = new ArrayList<>();
         if (appointments == null)
         {
-            allocatableBindings.clear();
-            for (Allocatable allocatable : allAllocatables)
+            for (Allocatable allocatable : allocatables)
             {
                 allocatableBindings.put(allocatable, new HashSet<>());
+                renderingCache.remove(allocatable);
             }
+            boundAllocatables.addAll(allocatables);
             appointments = new ArrayList<>();
             for (Reservation r : mutableReservations)
             {
@@ -444,14 +506,24 @@ public class AllocatableSelection extends RaplaGUIComponent implements Appointme
                 }
             }
         }
+        if (allocatables.isEmpty())
+        {
+            return;
+        }
 
             //      System.out.println("getting allocated resources");
             final Promise<Map<Allocatable, Collection<Appointment>>> promise = getQuery()
-                    .getAllocatableBindings(allAllocatables, appointmentsWithoutTemplates);
+                    .getAllocatableBindings(allocatables, appointmentsWithoutTemplates);
             final Collection<Appointment> finalApps = appointments;
+            final int version = bindingsVersion;
             promise.thenAccept( (allocatableBindings) -> {
+                if (version != bindingsVersion)
+                {
+                    // all bindings were reloaded in the meantime
+                    return;
+                }
                 //Map<Allocatable, Collection<Appointment>> allocatableBindings = ((Promise<Map<Allocatable, Collection<Appointment>>>) promise)
-                removeFromBindings(finalApps);
+                removeFromBindings(allocatables, finalApps);
                 for (Map.Entry<Allocatable, Collection<Appointment>> entry : allocatableBindings.entrySet())
                 {
                     Allocatable alloc = entry.getKey();
@@ -463,6 +535,7 @@ public class AllocatableSelection extends RaplaGUIComponent implements Appointme
                     }
                     Collection<Appointment> bindings = entry.getValue();
                     list.addAll(bindings);
+                    renderingCache.remove(alloc);
                 }
                 //this.allocatableBindings.putAll(allocatableBindings);
                 completeModel.treeDidChange();
@@ -474,16 +547,64 @@ public class AllocatableSelection extends RaplaGUIComponent implements Appointme
 
     private void removeFromBindings(Collection<Appointment> appointments)
     {
-        for (Collection<Appointment> list : allocatableBindings.values())
+        removeFromBindings(allocatableBindings.keySet(), appointments);
+    }
+
+    private void removeFromBindings(Collection<Allocatable> allocatables, Collection<Appointment> appointments)
+    {
+        for (Allocatable allocatable : allocatables)
         {
+            Collection<Appointment> list = allocatableBindings.get(allocatable);
+            if (list == null)
+            {
+                continue;
+            }
             for (Appointment app : appointments)
             {
-                list.remove(app);
+                if (list.remove(app))
+                {
+                    renderingCache.remove(allocatable);
+                }
             }
         }
 
     }
 
+    /**
+     * returns the allocated resources and the resources in the expanded nodes of the tree that are in the visible area
+     * or one page above or below
+     */
+    private Collection<Allocatable> getVisibleAllocatables()
+    {
+        Collection<Allocatable> result = new LinkedHashSet<>(getAllocated());
+        JTree tree = completeTable.getTree();
+        int rowCount = completeTable.getRowCount();
+        int firstRow = 0;
+        int lastRow = rowCount - 1;
+        Rectangle visibleRect = completeTable.getVisibleRect();
+        if (!visibleRect.isEmpty())
+        {
+            int rowHeight = Math.max(1, completeTable.getRowHeight());
+            int pageRows = visibleRect.height / rowHeight + 1;
+            firstRow = Math.max(0, visibleRect.y / rowHeight - pageRows);
+            lastRow = Math.min(lastRow, (visibleRect.y + visibleRect.height) / rowHeight + pageRows);
+        }
+        for (int i = firstRow; i <= lastRow; i++)
+        {
+            TreePath path = tree.getPathForRow(i);
+            if (path == null)
+            {
+                continue;
+            }
+            Object userObject = ((DefaultMutableTreeNode) path.getLastPathComponent()).getUserObject();
+            if (userObject instanceof Allocatable)
+            {
+                result.add((Allocatable) userObject);
+            }
+        }
+        return result;
+    }
+
     public JComponent getComponent()
     {
         return content;
@@ -572,6 +693,7 @@ public class AllocatableSelection extends RaplaGUIComponent implements Appointme
         Collections.sort(sortedAppointments, new AppointmentStartComparator());
         selectedAppointments = sortedAppointments;
         this.appointments = sortedAppointments.toArray(Appointment.EMPTY_ARRAY);
+        renderingCache.clear();
         this.appointmentStrings = new String[appointments.length];
         this.appointmentIndexStrings = new String[appointments.length];
         for (int i = 0; i < appointments.length; i++)
@@ -696,6 +818,7 @@ public class AllocatableSelection extends RaplaGUIComponent implements Appointme
                     r.addAllocatable(a);
                     if (permissionController.isRequestOnly( a, user, today)) {
                         r.setRequestStatus( a, RequestStatus.CHANGED);
+                        renderingCache.remove(a);
                     }
                     bChanged = true;
                 }
@@ -1264,8 +1387,19 @@ public class AllocatableSelection extends RaplaGUIComponent implements Appointme
         RequestStatus requestStatus;
     }
 
-    // calculates the number of conflicting appointments for this allocatable
+    // returns the number of conflicting appointments for this allocatable. The result is cached until the bindings of the allocatable change
     private AllocationRendering calcConflictingAppointments(Allocatable allocatable)
+    {
+        AllocationRendering result = renderingCache.get(allocatable);
+        if (result == null)
+        {
+            result = createAllocationRendering(allocatable);
+            renderingCache.put(allocatable, result);
+        }
+        return result;
+    }
+
+    private AllocationRendering createAllocationRendering(Allocatable allocatable)
     {
         AllocationRendering result = new AllocationRendering();
         String annotation = allocatable.getAnnotation(ResourceAnnotations.KEY_CONFLICT_CREATION);
@@ -2077,7 +2211,7 @@ public class AllocatableSelection extends RaplaGUIComponent implements Appointme
                 for (Appointment app : restriction)
                 {
                     Collection<Appointment> list = allocatableBindings.get(allocatable);
-                    if (list.contains(app))
+                    if (list != null && list.contains(app))
                     {
                         conflict = true;
                         break;
@@ -2,12 +2,107 @@ package org.rapla.client.swing.internal.view;
 
 import org.rapla.client.RaplaTreeNode;
 
+import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreeNode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 public class RaplaSwingTreeModel extends DefaultTreeModel {
     public RaplaSwingTreeModel(RaplaTreeNode treeNode)
     {
         super((TreeNode) treeNode);
     }
+
+    /**
+     * Changes the tree to the structure of the passed root node. Nodes with an equal user object under the same parent are kept,
+     * so the expansion and selection state of the tree is preserved and only inserted, removed and changed nodes are passed to the listeners.
+     * The nodes of the passed tree are moved into this model.
+     */
+    public void update(RaplaTreeNode newRoot)
+    {
+        final DefaultMutableTreeNode root = (DefaultMutableTreeNode) getRoot();
+        final DefaultMutableTreeNode newRootNode = (DefaultMutableTreeNode) newRoot;
+        if (root == null || !Objects.equals(root.getUserObject(), newRootNode.getUserObject()))
+        {
+            setRoot(newRootNode);
+            return;
+        }
+        merge(root, newRootNode);
+    }
+
+    private void merge(DefaultMutableTreeNode node, DefaultMutableTreeNode newNode)
+    {
+        final Object userObject = newNode.getUserObject();
+        if (node.getUserObject() != userObject)
+        {
+            // a new version of the entity
+            node.setUserObject(userObject);
+            nodeChanged(node);
+        }
+        final List<DefaultMutableTreeNode> newChildren = new ArrayList<>(newNode.getChildCount());
+        final Set<Object> newObjects = new HashSet<>();
+        for (int i = 0; i < newNode.getChildCount(); i++)
+        {
+            final DefaultMutableTreeNode newChild = (DefaultMutableTreeNode) newNode.getChildAt(i);
+            newChildren.add(newChild);
+            newObjects.add(newChild.getUserObject());
+        }
+
+        final Map<Object, DefaultMutableTreeNode> kept = new HashMap<>();
+        final List<DefaultMutableTreeNode> removed = new ArrayList<>();
+        final int childCount = node.getChildCount();
+        final int[] removedIndices = new int[childCount];
+        for (int i = 0; i < childCount; i++)
+        {
+            final DefaultMutableTreeNode child = (DefaultMutableTreeNode) node.getChildAt(i);
+            final Object childObject = child.getUserObject();
+            if (newObjects.contains(childObject) && !kept.containsKey(childObject))
+            {
+                kept.put(childObject, child);
+            }
+            else
+            {
+                removedIndices[removed.size()] = i;
+                removed.add(child);
+            }
+        }
+        if (!removed.isEmpty())
+        {
+            for (DefaultMutableTreeNode child : removed)
+            {
+                node.remove(child);
+            }
+            final int[] indices = new int[removed.size()];
+            System.arraycopy(removedIndices, 0, indices, 0, indices.length);
+            nodesWereRemoved(node, indices, removed.toArray());
+        }
+
+        // the kept children are still in the old order, so only moved children need to be searched
+        for (int i = 0; i < newChildren.size(); i++)
+        {
+            final DefaultMutableTreeNode newChild = newChildren.get(i);
+            final DefaultMutableTreeNode child = kept.remove(newChild.getUserObject());
+            if (child == null)
+            {
+                node.insert(newChild, i);
+                nodesWereInserted(node, new int[] { i });
+                continue;
+            }
+            if (i >= node.getChildCount() || node.getChildAt(i) != child)
+            {
+                final int index = node.getIndex(child);
+                node.remove(index);
+                nodesWereRemoved(node, new int[] { index }, new Object[] { child });
+                node.insert(child, i);
+                nodesWereInserted(node, new int[] { i });
+            }
+            merge(child, newChild);
+        }
+    }
 }
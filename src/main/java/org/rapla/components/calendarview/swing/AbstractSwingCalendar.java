@@ -54,6 +54,8 @@ public abstract class AbstractSwingCalendar extends AbstractCalendar implements
     JPanel jCenter = new JPanel();
     protected JPanel jTitlePanel = new JPanel();
     protected JPanel component = new JPanel();
+    // null if the view has no scroll pane
+    VisibleSlotsUpdater visibleSlotsUpdater;
 
     AbstractSwingCalendar(boolean showScrollPane) {
         jHeader.setLayout(boxLayout1);
@@ -75,6 +77,7 @@ public abstract class AbstractSwingCalendar extends AbstractCalendar implements
             scrollPane.getVerticalScrollBar().setUnitIncrement(10);
             scrollPane.getHorizontalScrollBar().setUnitIncrement(10);
             scrollPane.setBorder(null);
+            visibleSlotsUpdater = new VisibleSlotsUpdater(scrollPane.getViewport());
         } else {
         	component.setLayout(new TableLayout(new double[][] {
                     {TableLayout.PREFERRED,TableLayout.FILL}
@@ -186,6 +189,13 @@ public abstract class AbstractSwingCalendar extends AbstractCalendar implements
         listenerList.remove(listener);
     }
 
+    /** only the blocks of the slots in the visible area of the scroll pane are added as components */
+    void setVisibleSlots(SmallDaySlot[] slots) {
+        if (visibleSlotsUpdater != null) {
+            visibleSlotsUpdater.setSlots(slots);
+        }
+    }
+
     JScrollPane getScrollPane() {
         return scrollPane;
     }
@@ -22,8 +22,11 @@ import java.awt.Graphics;
 import java.awt.Insets;
 import java.awt.Rectangle;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 public class SmallDaySlot extends AbstractDaySlot
 {
@@ -48,6 +51,11 @@ public class SmallDaySlot extends AbstractDaySlot
    private BlockListener blockListener = new BlockListener();
    private String headerText;
 
+    // only the blocks in the visible area are added as components
+    private final Set<SwingBlock> attachedBlocks = Collections.newSetFromMap(new IdentityHashMap<>());
+    // in the coordinates of the parent, null if all blocks are added
+    private Rectangle visibleArea;
+
     public SmallDaySlot(String headerText,int slotxsize,Color headerColor, Color headerBackground
                     ) {
         this.headerColor = headerColor;
@@ -96,14 +104,29 @@ public class SmallDaySlot extends AbstractDaySlot
        (konflikte werden ignoriert).
     */
     public void putBlock(SwingBlock bl)  {
-        add( bl.getView() );
         blocks.add( bl );
+        updateSize();
+    }
+
+    private void attach(SwingBlock bl) {
+        final Component view = bl.getView();
+        add( view );
         // The blockListener can be shared among all blocks,
         // as long as we can only click on one block simultaneously
-        bl.getView().addMouseListener( blockListener );
-        bl.getView().addMouseMotionListener( blockListener );
-        blockViewMapper.put( bl.getView(), bl );
-        updateSize();
+        view.addMouseListener( blockListener );
+        view.addMouseMotionListener( blockListener );
+        blockViewMapper.put( view, bl );
+        attachedBlocks.add( bl );
+    }
+
+    private void detach(SwingBlock bl) {
+        final Component view = bl.getView();
+        remove( view );
+        view.removeMouseListener( blockListener );
+        view.removeMouseMotionListener( blockListener );
+        blockViewMapper.remove( view );
+        attachedBlocks.remove( bl );
+        bl.releaseView();
     }
 
 	public void updateSize() {
@@ -119,13 +142,63 @@ public class SmallDaySlot extends AbstractDaySlot
 	}
 
     private void updateBounds() {
+        updateVisibleBlocks();
+    }
+
+    /** sets the area of the parent in which the views of the blocks are added. The views of the other blocks are removed.
+     * The area is shared by the slots of a view and updated by the {@link VisibleSlotsUpdater}. If the area is null all blocks are added. */
+    public void setVisibleArea(Rectangle visibleArea) {
+        this.visibleArea = visibleArea;
+        updateVisibleBlocks();
+    }
+
+    void updateVisibleBlocks() {
+        if ( !isDisplayable()) {
+            // the views are added when the slot is displayed or printed
+            return;
+        }
+        Rectangle visible = null;
+        if ( visibleArea != null ) {
+            visible = new Rectangle( visibleArea );
+            visible.translate( -getX(), -getY() );
+        }
+        updateVisibleBlocks( visible );
+    }
+
+    private void updateVisibleBlocks(Rectangle visible) {
+        boolean changed = false;
         int y= START_GAP;
-        for (int i=0;i< blocks.size();i++) {
-            SwingBlock bl = (SwingBlock) blocks.get(i);
+        for (Block b:blocks) {
+            SwingBlock bl = (SwingBlock) b;
             int blockHeight = getHeight(bl);
-            bl.getView().setBounds( 1 ,y, slotxsize -1, blockHeight-1);
+            Rectangle bounds = new Rectangle( 1 ,y, slotxsize -1, blockHeight-1);
             y+= blockHeight;
+            boolean dragged = paintDraggingGrid && draggingView == bl;
+            if ( visible == null || visible.intersects( bounds ) || dragged) {
+                if ( !attachedBlocks.contains( bl )) {
+                    attach( bl );
+                    changed = true;
+                }
+                bl.getView().setBounds( bounds );
+            } else if ( attachedBlocks.contains( bl )) {
+                detach( bl );
+                changed = true;
+            }
         }
+        if ( changed ) {
+            repaint();
+        }
+    }
+
+    public void addNotify() {
+        super.addNotify();
+        updateVisibleBlocks();
+    }
+
+    public void setBounds(int x, int y, int width, int height) {
+        super.setBounds( x, y, width, height );
+        // the visible part of the slot changes when the slot is moved in its parent
+        updateVisibleBlocks();
     }
 
     /**
@@ -214,6 +287,10 @@ public class SmallDaySlot extends AbstractDaySlot
     		g.setColor(getForeground());
     	}
 
+		if ( !isDisplayable()) {
+		    // printed without being displayed
+		    updateVisibleBlocks( null );
+		}
 		super.paintChildren(g);
         if (paintDraggingGrid) {
             int height = draggingView.getView().getHeight() - 1;
@@ -23,4 +23,8 @@ public interface SwingBlock extends Block {
 	boolean isMovable();
 	boolean isStartResizable();
 	boolean isEndResizable();
+	/** called when the view is removed from its slot, e.g. because it was scrolled out of the visible area. The next call of getView can return a new view. */
+	default void releaseView()
+	{
+	}
 }
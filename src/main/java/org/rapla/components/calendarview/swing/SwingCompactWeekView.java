@@ -148,6 +148,7 @@ public class SwingCompactWeekView extends AbstractSwingCalendar
     	selectionHandler.clearSelection();
         jCenter.validate();
         jHeader.validate();
+        setVisibleSlots(slots);
         if ( isEditable())
         {
         	updateSize(component.getSize().width);
@@ -178,6 +178,7 @@ public class SwingMonthView extends AbstractSwingCalendar
         selectionHandler.clearSelection();
         jHeader.validate();
         jCenter.validate();
+        setVisibleSlots(slots);
     	if ( isEditable())
         {
         	updateSize(component.getSize().width);
@@ -0,0 +1,90 @@
+/*--------------------------------------------------------------------------*
+ | Copyright (C) 2006 Gereon Fassbender, Christopher Kohlhaas               |
+ |                                                                          |
+ | This program is free software; you can redistribute it and/or modify     |
+ | it under the terms of the GNU General Public License as published by the |
+ | Free Software Foundation. A copy of the license has been included with   |
+ | these distribution in the COPYING file, if not go to www.fsf.org         |
+ |                                                                          |
+ | As a special exception, you are granted the permissions to link this     |
+ | program with every library, which license fulfills the Open Source       |
+ | Definition as published by the Open Source Initiative (OSI).             |
+ *--------------------------------------------------------------------------*/
+package org.rapla.components.calendarview.swing;
+
+import javax.swing.JViewport;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.awt.Rectangle;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Calculates the visible area of the slots of a view once per change of the viewport. The area is the view rectangle plus one page above and below.
+ * It is shared by all slots, but only the slots that intersect the area, or intersected the previous area, update their blocks.
+ */
+class VisibleSlotsUpdater implements ChangeListener
+{
+    private final JViewport viewport;
+    // in the coordinates of the view of the viewport, which is the parent of the slots
+    private final Rectangle visibleArea = new Rectangle();
+    private SmallDaySlot[] slots = new SmallDaySlot[0];
+    private final Set<SmallDaySlot> visibleSlots = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    VisibleSlotsUpdater(JViewport viewport)
+    {
+        this.viewport = viewport;
+        viewport.addChangeListener(this);
+    }
+
+    /** sets the slots of the view after a rebuild */
+    void setSlots(SmallDaySlot[] slots)
+    {
+        this.slots = slots;
+        visibleSlots.clear();
+        updateVisibleArea();
+        for (SmallDaySlot slot : slots)
+        {
+            if (slot != null)
+            {
+                slot.setVisibleArea(visibleArea);
+                if (isVisible(slot))
+                {
+                    visibleSlots.add(slot);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void stateChanged(ChangeEvent e)
+    {
+        updateVisibleArea();
+        for (SmallDaySlot slot : slots)
+        {
+            if (slot == null)
+            {
+                continue;
+            }
+            final boolean visible = isVisible(slot);
+            // a slot that is scrolled out of the area removes its blocks
+            final boolean wasVisible = visible ? !visibleSlots.add(slot) : visibleSlots.remove(slot);
+            if (visible || wasVisible)
+            {
+                slot.updateVisibleBlocks();
+            }
+        }
+    }
+
+    private void updateVisibleArea()
+    {
+        final Rectangle viewRect = viewport.getViewRect();
+        visibleArea.setBounds(viewRect.x, viewRect.y - viewRect.height, viewRect.width, viewRect.height * 3);
+    }
+
+    private boolean isVisible(SmallDaySlot slot)
+    {
+        return slot.getParent() == viewport.getView() && slot.getBounds().intersects(visibleArea);
+    }
+}
@@ -43,13 +43,14 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
-public final class AllocatableImpl extends SimpleEntity implements Allocatable,DynamicTypeDependant, ModifiableTimestamp {
+public final class AllocatableImpl extends SimpleEntity implements Allocatable,DynamicTypeDependant, ModifiableTimestamp, CompiledPermissions.Holder {
     
-    private ClassificationImpl classification;
-    private List<PermissionImpl> permissions = new ArrayList<>();
-    private Date lastChanged;
-    private Date createDate;
-    private Map<String,String> annotations;
+    ClassificationImpl classification;
+    List<PermissionImpl> permissions = new ArrayList<>();
+    private final transient CompiledPermissionsHolder compiledPermissions = new CompiledPermissionsHolder();
+    Date lastChanged;
+    Date createDate;
+    Map<String,String> annotations;
     
     AllocatableImpl() {
         this (null, null);
@@ -174,6 +175,11 @@ public final class AllocatableImpl extends SimpleEntity implements Allocatable,D
         Collection<Permission> casted = uncasted;
         return casted;
     }
+
+    public CompiledPermissions getCompiledPermissions()
+    {
+        return compiledPermissions.get(permissions, isReadOnly());
+    }
     
     @Deprecated
     public Permission[] getPermissions() {
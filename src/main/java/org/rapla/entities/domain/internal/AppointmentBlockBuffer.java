@@ -0,0 +1,194 @@
+package org.rapla.entities.domain.internal;
+
+import org.rapla.entities.domain.Appointment;
+import org.rapla.entities.domain.AppointmentBlock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores the time blocks of appointments in parallel primitive arrays instead of one {@link AppointmentBlock} object per block.
+ * Each block refers to its appointment by an index into the list of appointments of the buffer.
+ * Use it for expanding large numbers of repeating appointments, e.g. for conflict calculation.
+ * The buffer can be reused after {@link #clear()}.
+ */
+public final class AppointmentBlockBuffer
+{
+    private long[] starts;
+    private long[] ends;
+    private int[] appointmentIndices;
+    private boolean[] exceptions;
+    private int size;
+    private final List<Appointment> appointments = new ArrayList<>();
+
+    public AppointmentBlockBuffer()
+    {
+        this(64);
+    }
+
+    public AppointmentBlockBuffer(int initialCapacity)
+    {
+        final int capacity = Math.max(initialCapacity, 1);
+        starts = new long[capacity];
+        ends = new long[capacity];
+        appointmentIndices = new int[capacity];
+        exceptions = new boolean[capacity];
+    }
+
+    /** adds a block. Blocks of the same appointment should be added consecutively, so that the appointment is stored only once.*/
+    public void add(long start, long end, Appointment appointment, boolean isException)
+    {
+        final int lastIndex = appointments.size() - 1;
+        final int appointmentIndex;
+        if (lastIndex >= 0 && appointments.get(lastIndex) == appointment)
+        {
+            appointmentIndex = lastIndex;
+        }
+        else
+        {
+            appointments.add(appointment);
+            appointmentIndex = lastIndex + 1;
+        }
+        if (size == starts.length)
+        {
+            final int capacity = size * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            appointmentIndices = Arrays.copyOf(appointmentIndices, capacity);
+            exceptions = Arrays.copyOf(exceptions, capacity);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        appointmentIndices[size] = appointmentIndex;
+        exceptions[size] = isException;
+        size++;
+    }
+
+    /** adds all blocks of the passed buffer */
+    public void addAll(AppointmentBlockBuffer blocks)
+    {
+        for (int i = 0; i < blocks.size; i++)
+        {
+            add(blocks.starts[i], blocks.ends[i], blocks.getAppointment(i), blocks.exceptions[i]);
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public long getStart(int block)
+    {
+        return starts[block];
+    }
+
+    public long getEnd(int block)
+    {
+        return ends[block];
+    }
+
+    public boolean isException(int block)
+    {
+        return exceptions[block];
+    }
+
+    /** returns the index of the appointment of the block. Blocks of the same appointment have the same index if they were added consecutively.*/
+    public int getAppointmentIndex(int block)
+    {
+        return appointmentIndices[block];
+    }
+
+    public Appointment getAppointment(int block)
+    {
+        return appointments.get(appointmentIndices[block]);
+    }
+
+    public Appointment getAppointmentAt(int appointmentIndex)
+    {
+        return appointments.get(appointmentIndex);
+    }
+
+    public int getAppointmentCount()
+    {
+        return appointments.size();
+    }
+
+    /** creates a block object for the block with the passed index */
+    public AppointmentBlock toBlock(int block)
+    {
+        return new AppointmentBlock(starts[block], ends[block], getAppointment(block), exceptions[block]);
+    }
+
+    /** returns the block indices sorted by start (sortByEnd false) or by end (sortByEnd true)*/
+    public int[] getSortedIndices(boolean sortByEnd)
+    {
+        final long[] keys = sortByEnd ? ends : starts;
+        final int[] indices = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            indices[i] = i;
+        }
+        sort(indices, keys, new int[size], 0, size);
+        return indices;
+    }
+
+    public void clear()
+    {
+        size = 0;
+        appointments.clear();
+    }
+
+    // stable merge sort of the indices by the keys
+    private static void sort(int[] indices, long[] keys, int[] buffer, int from, int to)
+    {
+        final int length = to - from;
+        if (length < 2)
+        {
+            return;
+        }
+        if (length < 16)
+        {
+            for (int i = from + 1; i < to; i++)
+            {
+                final int index = indices[i];
+                final long key = keys[index];
+                int j = i - 1;
+                while (j >= from && keys[indices[j]] > key)
+                {
+                    indices[j + 1] = indices[j];
+                    j--;
+                }
+                indices[j + 1] = index;
+            }
+            return;
+        }
+        final int middle = (from + to) >>> 1;
+        sort(indices, keys, buffer, from, middle);
+        sort(indices, keys, buffer, middle, to);
+        if (keys[indices[middle - 1]] <= keys[indices[middle]])
+        {
+            return;
+        }
+        System.arraycopy(indices, from, buffer, from, length);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++)
+        {
+            if (right >= to || (left < middle && keys[buffer[left]] <= keys[buffer[right]]))
+            {
+                indices[i] = buffer[left++];
+            }
+            else
+            {
+                indices[i] = buffer[right++];
+            }
+        }
+    }
+}
@@ -39,10 +39,10 @@ import java.util.TreeSet;
 
 public final class AppointmentImpl extends SimpleEntity implements Appointment
 {
-	private Date start;
-    private Date end;
-    private RepeatingImpl repeating;
-    private boolean isWholeDaysSet = false;
+	Date start;
+    Date end;
+    RepeatingImpl repeating;
+    boolean isWholeDaysSet = false;
     /** set DE (DebugDisabled) to false for debuging output. You must change in code
         because this flag is final for efficience reasons.*/
     public final static boolean DE = true;
@@ -356,13 +356,20 @@ public final class AppointmentImpl extends SimpleEntity implements Appointment
         Assert.notNull(blocks);
         Assert.notNull(start,"You must set a startDate");
         Assert.notNull(end, "You must set an endDate");
-        processBlocks(start.getTime(), end.getTime(), blocks, excludeExceptions);
+        processBlocks(start.getTime(), end.getTime(), blocks, null, excludeExceptions);
+    }
+
+    /** adds the blocks that overlap the start,end period to the buffer without creating block objects */
+    public void createBlocks(long start,long end,AppointmentBlockBuffer buffer, boolean excludeExceptions) {
+        Assert.notNull(buffer);
+        processBlocks(start, end, null, buffer, excludeExceptions);
     }
     
 
-    /* returns true if there is at least one block in an array. If the passed blocks array is not null it will contain all blocks
+    /* returns true if there is at least one block in an array. If the passed blocks array or buffer is not null it will contain all blocks
      * that overlap the start,end period after a call.*/
-    private boolean processBlocks(long start,long end,Collection<AppointmentBlock> blocks, boolean excludeExceptions) {
+    private boolean processBlocks(long start,long end,Collection<AppointmentBlock> blocks, AppointmentBlockBuffer buffer, boolean excludeExceptions) {
+        final boolean checkOnly = blocks == null && buffer == null;
         long c1 = start;
         long c2 = end;
         long s = this.start.getTime();
@@ -372,14 +379,13 @@ public final class AppointmentImpl extends SimpleEntity implements Appointment
         if (repeating==null) {
             if (s <c2 && e>c1) {
                 // check only
-                if ( blocks == null )
+                if ( checkOnly )
                 {
                 	return true;
                 }
                 else
                 {
-                    AppointmentBlock block = new AppointmentBlock(s,e,this, false);
-                    blocks.add(block);
+                    addBlock(blocks, buffer, s, e, false);
                 }
             } 
             return false;
@@ -389,14 +395,13 @@ public final class AppointmentImpl extends SimpleEntity implements Appointment
         DD=DE?BUG: print("s:" + n(s) + " e:" + n(e) + " c2:" + n(c2) + " c1:" + n(c1));
         if (s <c2 && e>c1  && (!repeating.isException(s) || !excludeExceptions)) {
             // check only
-            if ( blocks == null) 
+            if ( checkOnly )
             {
                 return true;
             } 
             else 
             {
-                AppointmentBlock block = new AppointmentBlock(s,e,this, repeating.isException(s));
-                blocks.add(block);
+                addBlock(blocks, buffer, s, e, repeating.isException(s));
             }
         }
         
@@ -427,14 +432,13 @@ public final class AppointmentImpl extends SimpleEntity implements Appointment
                 boolean isException =repeating.isException( currentPos ); 
                 if ((!isException || !excludeExceptions)) {
                     // check only
-                    if ( blocks == null ) 
+                    if ( checkOnly )
                     {
                         return true;
                     } 
                     else 
                     {
-                        AppointmentBlock block = new AppointmentBlock(currentPos,currentPos + blockLength,this, isException);
-                        blocks.add( block);
+                        addBlock(blocks, buffer, currentPos, currentPos + blockLength, isException);
                     }
                 }
             }
@@ -444,6 +448,18 @@ public final class AppointmentImpl extends SimpleEntity implements Appointment
         return false;
     }
     
+    private void addBlock(Collection<AppointmentBlock> blocks, AppointmentBlockBuffer buffer, long start, long end, boolean isException)
+    {
+        if ( buffer != null)
+        {
+            buffer.add(start, end, this, isException);
+        }
+        else
+        {
+            blocks.add(new AppointmentBlock(start, end, this, isException));
+        }
+    }
+
     public boolean overlaps(Date start,Date end) {
         return overlaps( start, end , true );
     }
@@ -488,7 +504,7 @@ public final class AppointmentImpl extends SimpleEntity implements Appointment
         if (!this.start.before(end2))
             return false;
 
-        boolean overlaps  = processBlocks( start2.getTime(), end2.getTime(), null,  excludeExceptions );
+        boolean overlaps  = processBlocks( start2.getTime(), end2.getTime(), null, null, excludeExceptions );
         return overlaps;
     }
     
@@ -499,7 +515,7 @@ public final class AppointmentImpl extends SimpleEntity implements Appointment
         if (this.start.getTime() > end)
             return false;
 
-        boolean overlaps  = processBlocks( start, end, null,  excludeExceptions );
+        boolean overlaps  = processBlocks( start, end, null, null, excludeExceptions );
         return overlaps;
     }
 
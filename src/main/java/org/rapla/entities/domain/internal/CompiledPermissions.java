@@ -0,0 +1,300 @@
+package org.rapla.entities.domain.internal;
+
+import org.rapla.entities.User;
+import org.rapla.entities.domain.Permission;
+import org.rapla.entities.domain.Permission.AccessLevel;
+import org.rapla.entities.domain.PermissionContainer;
+import org.rapla.entities.internal.UserImpl;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * Compiled form of the permission list of a {@link PermissionContainer}. Groups are translated into dense bit numbers of the {@link PermissionGroups}
+ * of the storage, so that the group membership of a user can be tested against a precomputed bitmask of the user's groups (including parents)
+ * instead of building the group set of the user for every check.
+ * <p>
+ * Containers implement {@link Holder} and keep their compiled permissions in a {@link CompiledPermissionsHolder}, so the list is compiled only once for every stored version.
+ * The group bits are resolved on the first check against a mask and again when the group numbers were invalidated, see {@link PermissionGroups#invalidate()}.
+ */
+public final class CompiledPermissions
+{
+    static final int NO_GROUP = -1;
+
+    private final PermissionImpl[] permissions;
+    private final AccessLevel[] accessLevels;
+    private final String[] userIds;
+    private final String[] groupIds;
+    private final boolean[] timeLimits;
+    private volatile GroupBits groupBits;
+
+    /** implemented by containers that cache their compiled permissions */
+    public interface Holder
+    {
+        CompiledPermissions getCompiledPermissions();
+    }
+
+    /** bitmask of the groups of a user, valid as long as the version of its group numbers has not changed */
+    public static final class GroupMask
+    {
+        private final PermissionGroups permissionGroups;
+        private final int version;
+        private final long[] bits;
+        private final Set<String> groupIds;
+
+        GroupMask(PermissionGroups permissionGroups, int version, long[] bits, Set<String> groupIds)
+        {
+            this.permissionGroups = permissionGroups;
+            this.version = version;
+            this.bits = bits;
+            this.groupIds = groupIds;
+        }
+
+        public boolean isValid()
+        {
+            return version == permissionGroups.getVersion();
+        }
+
+        /** returns true if the mask is valid and uses the group numbers of the passed groups */
+        public boolean isValid(PermissionGroups permissionGroups)
+        {
+            return this.permissionGroups == permissionGroups && isValid();
+        }
+
+        /** returns true if the masks have a group in common */
+        public boolean intersects(GroupMask other)
+        {
+            if (other.permissionGroups != permissionGroups || other.version != version)
+            {
+                // the bits of masks with different group numbers can't be compared
+                for (String groupId : other.groupIds)
+                {
+                    if (groupIds.contains(groupId))
+                    {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            final int length = Math.min(bits.length, other.bits.length);
+            for (int word = 0; word < length; word++)
+            {
+                if ((bits[word] & other.bits[word]) != 0)
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean contains(int bit)
+        {
+            final int word = bit >> 6;
+            return word < bits.length && (bits[word] & (1L << (bit & 63))) != 0;
+        }
+    }
+
+    /** the bit numbers of the groups of the permissions for one version of the group numbers */
+    static final class GroupBits
+    {
+        private final PermissionGroups permissionGroups;
+        private final int version;
+        private final int[] bits;
+
+        GroupBits(PermissionGroups permissionGroups, int version, int[] bits)
+        {
+            this.permissionGroups = permissionGroups;
+            this.version = version;
+            this.bits = bits;
+        }
+    }
+
+    private CompiledPermissions(Collection<PermissionImpl> permissionList)
+    {
+        final int size = permissionList.size();
+        permissions = permissionList.toArray(new PermissionImpl[size]);
+        accessLevels = new AccessLevel[size];
+        userIds = new String[size];
+        groupIds = new String[size];
+        timeLimits = new boolean[size];
+        for (int i = 0; i < size; i++)
+        {
+            final PermissionImpl p = permissions[i];
+            accessLevels[i] = p.getAccessLevel();
+            userIds[i] = p.getUserId();
+            groupIds[i] = p.getGroupId();
+            timeLimits[i] = p.hasTimeLimits();
+        }
+    }
+
+    public static CompiledPermissions compile(Collection<PermissionImpl> permissionList)
+    {
+        return new CompiledPermissions(permissionList);
+    }
+
+    /** returns the cached compiled permissions if the container supports it or compiles the current permission list */
+    public static CompiledPermissions of(PermissionContainer container)
+    {
+        if (container instanceof Holder)
+        {
+            return ((Holder) container).getCompiledPermissions();
+        }
+        final Collection uncasted = container.getPermissionList();
+        @SuppressWarnings("unchecked")
+        final Collection<PermissionImpl> casted = uncasted;
+        return compile(casted);
+    }
+
+    /** returns the cached group mask of the user */
+    public static GroupMask getGroupMask(User user)
+    {
+        if (!(user instanceof UserImpl))
+        {
+            throw new IllegalArgumentException("Group masks are only supported for " + UserImpl.class.getName() + " but got " + user);
+        }
+        return ((UserImpl) user).getGroupMask();
+    }
+
+    /** returns the bit numbers of the permission groups in the group numbers of the mask or null if the mask is outdated */
+    private int[] getGroupBits(GroupMask groupMask)
+    {
+        GroupBits resolved = groupBits;
+        if (resolved == null || resolved.permissionGroups != groupMask.permissionGroups || resolved.version != groupMask.version)
+        {
+            resolved = groupMask.permissionGroups.resolve(groupIds);
+            if (resolved.version != groupMask.version)
+            {
+                // the group numbers changed after the mask was created
+                return null;
+            }
+            groupBits = resolved;
+        }
+        return resolved.bits;
+    }
+
+    public int size()
+    {
+        return permissions.length;
+    }
+
+    /** same as {@link PermissionContainer.Util#getUserEffect(User, Permission, Collection)} for the permission at the passed index */
+    private int getUserEffect(int index, String userId, GroupMask groupMask, int[] groups)
+    {
+        final String pUserId = userIds[index];
+        if (pUserId == null && groupIds[index] == null)
+        {
+            return PermissionImpl.ALL_USER_PERMISSION;
+        }
+        if (pUserId != null && userId.equals(pUserId))
+        {
+            return PermissionImpl.USER_PERMISSION;
+        }
+        else if (groupIds[index] != null)
+        {
+            if (groups != null ? groupMask.contains(groups[index]) : groupMask.groupIds.contains(groupIds[index]))
+            {
+                return PermissionImpl.GROUP_PERMISSION;
+            }
+        }
+        return PermissionImpl.NO_PERMISSION;
+    }
+
+    /** returns the access level granted by the permission with the highest effect on the user. Time limits are checked only if the requested accessLevel includes ALLOCATE and today is set.*/
+    public AccessLevel getMaxAccessLevel(User user, AccessLevel accessLevel, Date start, Date end, Date today, boolean checkOnlyToday)
+    {
+        AccessLevel maxAccessLevel = AccessLevel.DENIED;
+        final int size = permissions.length;
+        if (size == 0)
+        {
+            return maxAccessLevel;
+        }
+        final String userId = user.getId();
+        final GroupMask groupMask = getGroupMask(user);
+        final int[] groups = getGroupBits(groupMask);
+        final boolean checkTimeLimits = accessLevel.includes(Permission.ALLOCATE) && today != null;
+        int maxEffectLevel = PermissionImpl.NO_PERMISSION;
+        for (int i = 0; i < size; i++)
+        {
+            final int effectLevel = getUserEffect(i, userId, groupMask, groups);
+            if (effectLevel >= maxEffectLevel && effectLevel > PermissionImpl.NO_PERMISSION)
+            {
+                final AccessLevel pAccessLevel = accessLevels[i];
+                if (checkTimeLimits && timeLimits[i] && pAccessLevel != Permission.ADMIN)
+                {
+                    final PermissionImpl p = permissions[i];
+                    if (checkOnlyToday)
+                    {
+                        if (!p.validInTheFuture(today))
+                        {
+                            continue;
+                        }
+                    }
+                    else
+                    {
+                        if (!p.covers(start, end, today))
+                        {
+                            continue;
+                        }
+                    }
+                }
+                if (maxAccessLevel.excludes(pAccessLevel) || effectLevel > maxEffectLevel)
+                {
+                    maxAccessLevel = pAccessLevel;
+                }
+                maxEffectLevel = effectLevel;
+            }
+        }
+        return maxAccessLevel;
+    }
+
+    /** returns true if a permission that affects the user has exactly one of the passed access levels */
+    public boolean matchesAccessLevel(User user, AccessLevel... levels)
+    {
+        final int size = permissions.length;
+        if (size == 0)
+        {
+            return false;
+        }
+        final String userId = user.getId();
+        final GroupMask groupMask = getGroupMask(user);
+        final int[] groups = getGroupBits(groupMask);
+        for (int i = 0; i < size; i++)
+        {
+            final AccessLevel pAccessLevel = accessLevels[i];
+            for (AccessLevel level : levels)
+            {
+                if (pAccessLevel == level)
+                {
+                    if (getUserEffect(i, userId, groupMask, groups) > PermissionImpl.NO_PERMISSION)
+                    {
+                        return true;
+                    }
+                    break;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** returns true if a permission that affects the user includes the passed access level, ignoring time limits */
+    public boolean includesAccessLevel(User user, AccessLevel accessLevel)
+    {
+        final int size = permissions.length;
+        if (size == 0)
+        {
+            return false;
+        }
+        final String userId = user.getId();
+        final GroupMask groupMask = getGroupMask(user);
+        final int[] groups = getGroupBits(groupMask);
+        for (int i = 0; i < size; i++)
+        {
+            if (accessLevels[i].includes(accessLevel) && getUserEffect(i, userId, groupMask, groups) > PermissionImpl.NO_PERMISSION)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
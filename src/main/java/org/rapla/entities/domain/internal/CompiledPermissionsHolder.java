@@ -0,0 +1,26 @@
+package org.rapla.entities.domain.internal;
+
+import java.util.Collection;
+
+/**
+ * Keeps the {@link CompiledPermissions} of a permission container. The compiled form is only kept for read only containers, because the
+ * permissions of read only objects can't change. Editable containers compile their current permission list on every call.
+ */
+public final class CompiledPermissionsHolder
+{
+    private volatile CompiledPermissions compiledPermissions;
+
+    public CompiledPermissions get(Collection<PermissionImpl> permissions, boolean readOnly)
+    {
+        CompiledPermissions compiled = compiledPermissions;
+        if (compiled == null)
+        {
+            compiled = CompiledPermissions.compile(permissions);
+            if (readOnly)
+            {
+                compiledPermissions = compiled;
+            }
+        }
+        return compiled;
+    }
+}
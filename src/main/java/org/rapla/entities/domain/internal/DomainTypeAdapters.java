@@ -0,0 +1,389 @@
+package org.rapla.entities.domain.internal;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.rapla.entities.domain.Permission;
+import org.rapla.entities.domain.RepeatingType;
+import org.rapla.entities.domain.RequestStatus;
+import org.rapla.entities.dynamictype.internal.ClassificationImpl;
+import org.rapla.entities.storage.internal.EntityTypeAdapter;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming json adapters for the reservations, appointments and resources, that write the same json as the reflective serialization.
+ * Register the {@link #FACTORY} together with the factory of the classifications.
+ */
+public final class DomainTypeAdapters
+{
+    public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory()
+    {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type)
+        {
+            final Class<? super T> rawType = type.getRawType();
+            if (rawType == ReservationImpl.class)
+            {
+                return (TypeAdapter<T>) new ReservationAdapter(gson);
+            }
+            if (rawType == AppointmentImpl.class)
+            {
+                return (TypeAdapter<T>) new AppointmentAdapter(gson);
+            }
+            if (rawType == AllocatableImpl.class)
+            {
+                return (TypeAdapter<T>) new AllocatableAdapter(gson);
+            }
+            if (rawType == RepeatingImpl.class)
+            {
+                return (TypeAdapter<T>) new RepeatingAdapter(gson);
+            }
+            if (rawType == PermissionImpl.class)
+            {
+                return (TypeAdapter<T>) new PermissionAdapter(gson);
+            }
+            return null;
+        }
+    };
+
+    private static final TypeToken<List<PermissionImpl>> PERMISSIONS_TYPE = new TypeToken<List<PermissionImpl>>()
+    {
+    };
+    private static final TypeToken<List<AppointmentImpl>> APPOINTMENTS_TYPE = new TypeToken<List<AppointmentImpl>>()
+    {
+    };
+    private static final TypeToken<Map<String, String>> ANNOTATIONS_TYPE = new TypeToken<Map<String, String>>()
+    {
+    };
+    private static final TypeToken<Map<String, List<String>>> RESTRICTIONS_TYPE = new TypeToken<Map<String, List<String>>>()
+    {
+    };
+    private static final TypeToken<Map<String, RequestStatus>> REQUEST_STATUS_TYPE = new TypeToken<Map<String, RequestStatus>>()
+    {
+    };
+    private static final TypeToken<Set<Date>> EXCEPTIONS_TYPE = new TypeToken<Set<Date>>()
+    {
+    };
+    private static final TypeToken<Set<Integer>> WEEKDAYS_TYPE = new TypeToken<Set<Integer>>()
+    {
+    };
+
+    private DomainTypeAdapters()
+    {
+    }
+
+    static final class ReservationAdapter extends EntityTypeAdapter<ReservationImpl>
+    {
+        private final TypeAdapter<ClassificationImpl> classificationAdapter;
+        private final TypeAdapter<List<AppointmentImpl>> appointmentsAdapter;
+        private final TypeAdapter<List<PermissionImpl>> permissionsAdapter;
+        private final TypeAdapter<Map<String, List<String>>> restrictionsAdapter;
+        private final TypeAdapter<Map<String, String>> annotationsAdapter;
+        private final TypeAdapter<Map<String, RequestStatus>> requestStatusAdapter;
+
+        ReservationAdapter(Gson gson)
+        {
+            super(gson);
+            classificationAdapter = gson.getAdapter(ClassificationImpl.class);
+            appointmentsAdapter = gson.getAdapter(APPOINTMENTS_TYPE);
+            permissionsAdapter = gson.getAdapter(PERMISSIONS_TYPE);
+            restrictionsAdapter = gson.getAdapter(RESTRICTIONS_TYPE);
+            annotationsAdapter = gson.getAdapter(ANNOTATIONS_TYPE);
+            requestStatusAdapter = gson.getAdapter(REQUEST_STATUS_TYPE);
+        }
+
+        @Override
+        protected ReservationImpl newInstance()
+        {
+            return new ReservationImpl();
+        }
+
+        @Override
+        protected void writeFields(JsonWriter out, ReservationImpl value) throws IOException
+        {
+            write(out, "classification", classificationAdapter, value.classification);
+            write(out, "appointments", appointmentsAdapter, value.appointments);
+            write(out, "permissions", permissionsAdapter, value.permissions);
+            write(out, "restrictions", restrictionsAdapter, value.restrictions);
+            write(out, "annotations", annotationsAdapter, value.annotations);
+            write(out, "lastChanged", dateAdapter, value.lastChanged);
+            write(out, "createDate", dateAdapter, value.createDate);
+            write(out, "requestStatus", requestStatusAdapter, value.requestStatus);
+        }
+
+        @Override
+        protected boolean readField(JsonReader in, String name, ReservationImpl value) throws IOException
+        {
+            switch (name)
+            {
+                case "classification":
+                    value.classification = classificationAdapter.read(in);
+                    return true;
+                case "appointments":
+                    value.appointments = appointmentsAdapter.read(in);
+                    return true;
+                case "permissions":
+                    value.permissions = permissionsAdapter.read(in);
+                    return true;
+                case "restrictions":
+                    value.restrictions = restrictionsAdapter.read(in);
+                    return true;
+                case "annotations":
+                    value.annotations = annotationsAdapter.read(in);
+                    return true;
+                case "lastChanged":
+                    value.lastChanged = dateAdapter.read(in);
+                    return true;
+                case "createDate":
+                    value.createDate = dateAdapter.read(in);
+                    return true;
+                case "requestStatus":
+                    value.requestStatus = requestStatusAdapter.read(in);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    static final class AppointmentAdapter extends EntityTypeAdapter<AppointmentImpl>
+    {
+        private final TypeAdapter<RepeatingImpl> repeatingAdapter;
+
+        AppointmentAdapter(Gson gson)
+        {
+            super(gson);
+            repeatingAdapter = gson.getAdapter(RepeatingImpl.class);
+        }
+
+        @Override
+        protected AppointmentImpl newInstance()
+        {
+            return new AppointmentImpl();
+        }
+
+        @Override
+        protected void writeFields(JsonWriter out, AppointmentImpl value) throws IOException
+        {
+            write(out, "start", dateAdapter, value.start);
+            write(out, "end", dateAdapter, value.end);
+            write(out, "repeating", repeatingAdapter, value.repeating);
+            out.name("isWholeDaysSet").value(value.isWholeDaysSet);
+        }
+
+        @Override
+        protected boolean readField(JsonReader in, String name, AppointmentImpl value) throws IOException
+        {
+            switch (name)
+            {
+                case "start":
+                    value.start = dateAdapter.read(in);
+                    return true;
+                case "end":
+                    value.end = dateAdapter.read(in);
+                    return true;
+                case "repeating":
+                    value.repeating = repeatingAdapter.read(in);
+                    return true;
+                case "isWholeDaysSet":
+                    value.isWholeDaysSet = readBoolean(in, value.isWholeDaysSet);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    static final class RepeatingAdapter extends EntityTypeAdapter<RepeatingImpl>
+    {
+        private final TypeAdapter<RepeatingType> repeatingTypeAdapter;
+        private final TypeAdapter<Set<Date>> exceptionsAdapter;
+        private final TypeAdapter<Set<Integer>> weekdaysAdapter;
+
+        RepeatingAdapter(Gson gson)
+        {
+            super(gson);
+            repeatingTypeAdapter = gson.getAdapter(RepeatingType.class);
+            exceptionsAdapter = gson.getAdapter(EXCEPTIONS_TYPE);
+            weekdaysAdapter = gson.getAdapter(WEEKDAYS_TYPE);
+        }
+
+        @Override
+        protected RepeatingImpl newInstance()
+        {
+            return new RepeatingImpl();
+        }
+
+        @Override
+        protected void writeFields(JsonWriter out, RepeatingImpl value) throws IOException
+        {
+            out.name("interval").value(value.interval);
+            out.name("isFixedNumber").value(value.isFixedNumber);
+            out.name("number").value(value.number);
+            write(out, "end", dateAdapter, value.end);
+            write(out, "repeatingType", repeatingTypeAdapter, value.repeatingType);
+            write(out, "exceptions", exceptionsAdapter, value.exceptions);
+            write(out, "weekdays", weekdaysAdapter, value.weekdays);
+            out.name("frequency").value(value.frequency);
+            out.name("monthly").value(value.monthly);
+            out.name("yearly").value(value.yearly);
+        }
+
+        @Override
+        protected boolean readField(JsonReader in, String name, RepeatingImpl value) throws IOException
+        {
+            switch (name)
+            {
+                case "interval":
+                    value.interval = readInt(in, value.interval);
+                    return true;
+                case "isFixedNumber":
+                    value.isFixedNumber = readBoolean(in, value.isFixedNumber);
+                    return true;
+                case "number":
+                    value.number = readInt(in, value.number);
+                    return true;
+                case "end":
+                    value.end = dateAdapter.read(in);
+                    return true;
+                case "repeatingType":
+                    value.repeatingType = repeatingTypeAdapter.read(in);
+                    return true;
+                case "exceptions":
+                    value.exceptions = exceptionsAdapter.read(in);
+                    return true;
+                case "weekdays":
+                    value.weekdays = weekdaysAdapter.read(in);
+                    return true;
+                case "frequency":
+                    value.frequency = readInt(in, value.frequency);
+                    return true;
+                case "monthly":
+                    value.monthly = readBoolean(in, value.monthly);
+                    return true;
+                case "yearly":
+                    value.yearly = readBoolean(in, value.yearly);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    static final class AllocatableAdapter extends EntityTypeAdapter<AllocatableImpl>
+    {
+        private final TypeAdapter<ClassificationImpl> classificationAdapter;
+        private final TypeAdapter<List<PermissionImpl>> permissionsAdapter;
+        private final TypeAdapter<Map<String, String>> annotationsAdapter;
+
+        AllocatableAdapter(Gson gson)
+        {
+            super(gson);
+            classificationAdapter = gson.getAdapter(ClassificationImpl.class);
+            permissionsAdapter = gson.getAdapter(PERMISSIONS_TYPE);
+            annotationsAdapter = gson.getAdapter(ANNOTATIONS_TYPE);
+        }
+
+        @Override
+        protected AllocatableImpl newInstance()
+        {
+            return new AllocatableImpl();
+        }
+
+        @Override
+        protected void writeFields(JsonWriter out, AllocatableImpl value) throws IOException
+        {
+            write(out, "classification", classificationAdapter, value.classification);
+            write(out, "permissions", permissionsAdapter, value.permissions);
+            write(out, "lastChanged", dateAdapter, value.lastChanged);
+            write(out, "createDate", dateAdapter, value.createDate);
+            write(out, "annotations", annotationsAdapter, value.annotations);
+        }
+
+        @Override
+        protected boolean readField(JsonReader in, String name, AllocatableImpl value) throws IOException
+        {
+            switch (name)
+            {
+                case "classification":
+                    value.classification = classificationAdapter.read(in);
+                    return true;
+                case "permissions":
+                    value.permissions = permissionsAdapter.read(in);
+                    return true;
+                case "lastChanged":
+                    value.lastChanged = dateAdapter.read(in);
+                    return true;
+                case "createDate":
+                    value.createDate = dateAdapter.read(in);
+                    return true;
+                case "annotations":
+                    value.annotations = annotationsAdapter.read(in);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    static final class PermissionAdapter extends EntityTypeAdapter<PermissionImpl>
+    {
+        private final TypeAdapter<Permission.AccessLevel> accessLevelAdapter;
+
+        PermissionAdapter(Gson gson)
+        {
+            super(gson);
+            accessLevelAdapter = gson.getAdapter(Permission.AccessLevel.class);
+        }
+
+        @Override
+        protected PermissionImpl newInstance()
+        {
+            return new PermissionImpl();
+        }
+
+        @Override
+        protected void writeFields(JsonWriter out, PermissionImpl value) throws IOException
+        {
+            write(out, "pEnd", dateAdapter, value.pEnd);
+            write(out, "pStart", dateAdapter, value.pStart);
+            write(out, "maxAdvance", value.maxAdvance);
+            write(out, "minAdvance", value.minAdvance);
+            write(out, "accessLevel", accessLevelAdapter, value.accessLevel);
+        }
+
+        @Override
+        protected boolean readField(JsonReader in, String name, PermissionImpl value) throws IOException
+        {
+            switch (name)
+            {
+                case "pEnd":
+                    value.pEnd = dateAdapter.read(in);
+                    return true;
+                case "pStart":
+                    value.pStart = dateAdapter.read(in);
+                    return true;
+                case "maxAdvance":
+                    value.maxAdvance = readInteger(in);
+                    return true;
+                case "minAdvance":
+                    value.minAdvance = readInteger(in);
+                    return true;
+                case "accessLevel":
+                    value.accessLevel = accessLevelAdapter.read(in);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.rapla.entities.domain.internal;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dense bit numbers of the groups that are used by the {@link CompiledPermissions} of one storage. Numbers are assigned on first use
+ * and dropped when the category tree changes, so the table only contains the groups used since the last change.
+ */
+public final class PermissionGroups
+{
+    private Map<String, Integer> groupBits = new HashMap<>();
+    private final AtomicInteger version = new AtomicInteger();
+
+    /** implemented by the resolvers of stored entities, so that users can cache their group masks */
+    public interface Provider
+    {
+        PermissionGroups getPermissionGroups();
+    }
+
+    public int getVersion()
+    {
+        return version.get();
+    }
+
+    /** must be called when the category tree changes, because that can change the groups including parents of a user */
+    synchronized public void invalidate()
+    {
+        groupBits = new HashMap<>();
+        version.incrementAndGet();
+    }
+
+    /** creates a mask of the passed group ids without resolving their parents */
+    synchronized public CompiledPermissions.GroupMask createGroupMask(Collection<String> groupIds)
+    {
+        long[] bits = new long[1];
+        for (String groupId : groupIds)
+        {
+            final int bit = getGroupBit(groupId);
+            final int word = bit >> 6;
+            if (word >= bits.length)
+            {
+                final long[] newBits = new long[word + 1];
+                System.arraycopy(bits, 0, newBits, 0, bits.length);
+                bits = newBits;
+            }
+            bits[word] |= 1L << (bit & 63);
+        }
+        final Set<String> groupIdSet = new HashSet<>(groupIds);
+        return new CompiledPermissions.GroupMask(this, version.get(), bits, groupIdSet);
+    }
+
+    /** returns the bit numbers of the passed group ids in the current version. Null ids are translated to {@link CompiledPermissions#NO_GROUP} */
+    synchronized CompiledPermissions.GroupBits resolve(String[] groupIds)
+    {
+        final int[] bits = new int[groupIds.length];
+        for (int i = 0; i < groupIds.length; i++)
+        {
+            final String groupId = groupIds[i];
+            bits[i] = groupId != null ? getGroupBit(groupId) : CompiledPermissions.NO_GROUP;
+        }
+        return new CompiledPermissions.GroupBits(this, version.get(), bits);
+    }
+
+    private int getGroupBit(String groupId)
+    {
+        Integer bit = groupBits.get(groupId);
+        if (bit == null)
+        {
+            bit = groupBits.size();
+            groupBits.put(groupId, bit);
+        }
+        return bit;
+    }
+}
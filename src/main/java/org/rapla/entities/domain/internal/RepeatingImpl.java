@@ -36,17 +36,17 @@ final class RepeatingImpl implements Repeating,java.io.Serializable {
     
     transient private boolean readOnly = false;
 
-    private int interval = 1;
-    private boolean isFixedNumber;
-    private int number = -1;
-    private Date end;
-    private RepeatingType repeatingType;
-    private Set<Date> exceptions;
-    private Set<Integer> weekdays;
+    int interval = 1;
+    boolean isFixedNumber;
+    int number = -1;
+    Date end;
+    RepeatingType repeatingType;
+    Set<Date> exceptions;
+    Set<Integer> weekdays;
     transient private Date[] exceptionArray;
     transient private boolean arrayUpToDate = false;
     transient private Appointment appointment;
-    private int frequency;
+    int frequency;
     boolean monthly;
     boolean yearly;
 
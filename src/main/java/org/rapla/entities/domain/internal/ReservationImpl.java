@@ -52,16 +52,17 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Stream;
 
-public final class ReservationImpl extends SimpleEntity implements Reservation, ModifiableTimestamp, DynamicTypeDependant, ParentEntity
+public final class ReservationImpl extends SimpleEntity implements Reservation, ModifiableTimestamp, DynamicTypeDependant, ParentEntity, CompiledPermissions.Holder
 {
-    private ClassificationImpl classification;
-    private List<AppointmentImpl> appointments = new ArrayList<>(1);
-    private List<PermissionImpl> permissions = new ArrayList<>(1);
-    private Map<String,List<String>> restrictions;
-    private Map<String,String> annotations;
-    private Date lastChanged;
-    private Date createDate;
-    private Map<String, RequestStatus> requestStatus;
+    ClassificationImpl classification;
+    List<AppointmentImpl> appointments = new ArrayList<>(1);
+    List<PermissionImpl> permissions = new ArrayList<>(1);
+    private final transient CompiledPermissionsHolder compiledPermissions = new CompiledPermissionsHolder();
+    Map<String,List<String>> restrictions;
+    Map<String,String> annotations;
+    Date lastChanged;
+    Date createDate;
+    Map<String, RequestStatus> requestStatus;
 
     transient HashMap<String,AppointmentImpl> appointmentIndex;
         
@@ -184,6 +185,11 @@ public final class ReservationImpl extends SimpleEntity implements Reservation,
         return casted;
     }
 
+    public CompiledPermissions getCompiledPermissions()
+    {
+        return compiledPermissions.get(permissions, isReadOnly());
+    }
+
     public String getName(Locale locale) {
         Classification c = getClassification();
         if (c == null)
@@ -6,12 +6,11 @@ import org.rapla.entities.User;
 import org.rapla.entities.domain.Permission;
 import org.rapla.entities.domain.Permission.AccessLevel;
 import org.rapla.entities.domain.PermissionContainer;
-import org.rapla.entities.domain.internal.PermissionImpl;
+import org.rapla.entities.domain.internal.CompiledPermissions;
 import org.rapla.entities.domain.permission.PermissionExtension;
 import org.rapla.entities.dynamictype.Attribute;
 import org.rapla.entities.dynamictype.Classification;
 import org.rapla.entities.dynamictype.DynamicType;
-import org.rapla.entities.internal.UserImpl;
 import org.rapla.inject.Extension;
 import org.rapla.storage.PermissionController;
 
@@ -84,42 +83,8 @@ public class RaplaDefaultPermissionImpl implements PermissionExtension
             return true;
         }
 
-        AccessLevel maxAccessLevel = AccessLevel.DENIED;
-        int maxEffectLevel = PermissionImpl.NO_PERMISSION;
-        Collection<String> groups = UserImpl.getGroupsIncludingParents(user);
-        Iterable<? extends Permission> permissions = container.getPermissionList();
-        for (Permission p : permissions)
-        {
-            int effectLevel = PermissionContainer.Util.getUserEffect(user, p, groups);
-            if (effectLevel >= maxEffectLevel && effectLevel > PermissionImpl.NO_PERMISSION)
-            {
-                if (p.hasTimeLimits() && accessLevel.includes(Permission.ALLOCATE) && today != null)
-                {
-                    if (p.getAccessLevel() != Permission.ADMIN)
-                    {
-                        if (checkOnlyToday)
-                        {
-                            if (!((PermissionImpl) p).validInTheFuture(today))
-                            {
-                                continue;
-                            }
-                        }
-                        else
-                        {
-                            if (!p.covers(start, end, today))
-                            {
-                                continue;
-                            }
-                        }
-                    }
-                }
-                if (maxAccessLevel.excludes(p.getAccessLevel()) || effectLevel > maxEffectLevel)
-                {
-                    maxAccessLevel = p.getAccessLevel();
-                }
-                maxEffectLevel = effectLevel;
-            }
-        }
+        final CompiledPermissions permissions = CompiledPermissions.of(container);
+        AccessLevel maxAccessLevel = permissions.getMaxAccessLevel(user, accessLevel, start, end, today, checkOnlyToday);
         boolean granted = maxAccessLevel.includes(accessLevel);
         return granted;
     }
@@ -90,6 +90,12 @@ public class SortedClassifiableComparator implements Comparator<Classifiable>
                 }
             }
         }
+        return compareNames(o1, o2);
+    }
+
+    /** compares the classifiables with the same values in the sorting attributes by name */
+    protected int compareNames(Classifiable o1, Classifiable o2)
+    {
         return comp.compare(o1, o2);
     }
 
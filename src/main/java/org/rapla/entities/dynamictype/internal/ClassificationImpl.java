@@ -53,13 +53,17 @@ import java.util.Set;
  */
 public class ClassificationImpl implements Classification,DynamicTypeDependant, EntityReferencer {
 
-	private String typeId;
-	private String type;
-	private Map<String,List<String>> data = new LinkedHashMap<>();
+	String typeId;
+	String type;
+	Map<String,List<String>> data = new LinkedHashMap<>();
 	private transient boolean readOnly = false;
 
 	private transient TextCache name;
 	private transient EntityResolver resolver;
+	/** typed values of read only classifications, the string values in data stay the serialized form */
+	private transient Map<String,TypedAttributeValues> typedValues;
+	/** references of read only classifications */
+	private transient List<ReferenceInfo> referenceInfos;
 
     /** stores the nonreference values like integers,boolean and string.*/
     //HashMap<String,Object> attributeValueMap = new HashMap<String,Object>(1);
@@ -118,6 +122,21 @@ public class ClassificationImpl implements Classification,DynamicTypeDependant,
 
     @Override
     public Iterable<ReferenceInfo> getReferenceInfo() {
+        // the values of read only classifications don't change, so their references are only created once
+        final List<ReferenceInfo> cached = referenceInfos;
+        if ( cached != null && readOnly)
+        {
+            return cached;
+        }
+        final List<ReferenceInfo> result = createReferenceInfo();
+        if ( readOnly)
+        {
+            referenceInfos = result;
+        }
+        return result;
+    }
+
+    private List<ReferenceInfo> createReferenceInfo() {
         List<ReferenceInfo> result = new ArrayList<>();
         String parentId = getParentId();
         result.add( new ReferenceInfo(parentId, DynamicType.class) );
@@ -144,7 +163,7 @@ public class ClassificationImpl implements Classification,DynamicTypeDependant,
                 }
             }
         }
-        return result;
+        return Collections.unmodifiableList(result);
     }
 
 
@@ -445,17 +464,34 @@ public class ClassificationImpl implements Classification,DynamicTypeDependant,
         {
         	return Collections.emptyList();
         }
-        List<Object> result = new ArrayList<>();
-        for (String value:list)
+        TypedAttributeValues values = getTypedValues(attribute, list);
+        List<Object> result = new ArrayList<>(values.size());
+        values.addTo(result, resolver);
+        return result;
+    }
+
+    /** returns the typed values, that are parsed on the first access. They are cached for read only classifications, because their data can't change */
+    private TypedAttributeValues getTypedValues(Attribute attribute, List<String> list)
+    {
+        if ( !readOnly)
         {
-        	Object obj;
-			try {
-				obj = fromString(attribute,resolver,value);
-				result.add( obj);
-			} catch (EntityNotFoundException e) {
-			}
+            return new TypedAttributeValues(attribute, list);
+        }
+        String attributeKey = attribute.getKey();
+        synchronized (this)
+        {
+            if ( typedValues == null)
+            {
+                typedValues = new HashMap<>();
+            }
+            TypedAttributeValues values = typedValues.get(attributeKey);
+            if ( values == null || !values.isFor(attribute))
+            {
+                values = new TypedAttributeValues(attribute, list);
+                typedValues.put(attributeKey, values);
+            }
+            return values;
         }
-        return result;
     }
 
     /** returns the string representation of the given value. if attribute is a reference then the id of the referenced object is returned.*/
@@ -484,24 +520,6 @@ public class ClassificationImpl implements Classification,DynamicTypeDependant,
         return stringValue;
     }
 
-    private Object fromString(Attribute attribute,EntityResolver resolver, String value) throws EntityNotFoundException, IllegalStateException {
-        Class<? extends Entity> refType = attribute.getRefType();
-        if (refType != null)
-        {
-            Entity resolved = resolver.resolve( value, refType );
-            return resolved;
-        }
-        try
-        {
-            Object result = AttributeImpl.parseAttributeValueWithoutRef(attribute, value);
-            return result;
-        }
-        catch (RaplaException exception)
-        {
-            throw new IllegalStateException(exception.getMessage(),exception);
-        }
-    }
-
     public String getValueUnresolvedString(Attribute attribute) {
         if ( attribute == null ) {
             throw new NullPointerException("Attribute can't be null");
@@ -528,11 +546,9 @@ public class ClassificationImpl implements Classification,DynamicTypeDependant,
         {
         	return null;
         }
-        String stringRep = o.get(0);
-        Object fromString;
+        TypedAttributeValues values = getTypedValues(attribute, o);
 		try {
-			fromString = fromString(attribute,resolver, stringRep);
-			return fromString;
+			return values.get(0, resolver);
 		} catch (EntityNotFoundException e) {
 			return null;
         }
@@ -0,0 +1,72 @@
+package org.rapla.entities.dynamictype.internal;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.rapla.entities.storage.internal.EntityTypeAdapter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/** Streaming json adapter for the classifications, that writes the same json as the reflective serialization. */
+public final class ClassificationTypeAdapter extends EntityTypeAdapter<ClassificationImpl>
+{
+    public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory()
+    {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type)
+        {
+            return type.getRawType() == ClassificationImpl.class ? (TypeAdapter<T>) new ClassificationTypeAdapter(gson) : null;
+        }
+    };
+
+    private static final TypeToken<Map<String, List<String>>> DATA_TYPE = new TypeToken<Map<String, List<String>>>()
+    {
+    };
+
+    private final TypeAdapter<Map<String, List<String>>> dataAdapter;
+
+    private ClassificationTypeAdapter(Gson gson)
+    {
+        super(gson);
+        dataAdapter = gson.getAdapter(DATA_TYPE);
+    }
+
+    @Override
+    protected ClassificationImpl newInstance()
+    {
+        return new ClassificationImpl();
+    }
+
+    @Override
+    protected void writeFields(JsonWriter out, ClassificationImpl value) throws IOException
+    {
+        write(out, "typeId", value.typeId);
+        write(out, "type", value.type);
+        write(out, "data", dataAdapter, value.data);
+    }
+
+    @Override
+    protected boolean readField(JsonReader in, String name, ClassificationImpl value) throws IOException
+    {
+        switch (name)
+        {
+            case "typeId":
+                value.typeId = readString(in);
+                return true;
+            case "type":
+                value.type = readString(in);
+                return true;
+            case "data":
+                value.data = dataAdapter.read(in);
+                return true;
+            default:
+                return false;
+        }
+    }
+}
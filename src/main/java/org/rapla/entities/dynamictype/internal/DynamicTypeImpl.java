@@ -28,6 +28,8 @@ import org.rapla.entities.domain.Appointment;
 import org.rapla.entities.domain.AppointmentBlock;
 import org.rapla.entities.domain.Permission;
 import org.rapla.entities.domain.Reservation;
+import org.rapla.entities.domain.internal.CompiledPermissions;
+import org.rapla.entities.domain.internal.CompiledPermissionsHolder;
 import org.rapla.entities.domain.internal.PermissionImpl;
 import org.rapla.entities.dynamictype.Attribute;
 import org.rapla.entities.dynamictype.AttributeAnnotations;
@@ -61,7 +63,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-final public class DynamicTypeImpl extends SimpleEntity implements DynamicType, ParentEntity, ModifiableTimestamp
+final public class DynamicTypeImpl extends SimpleEntity implements DynamicType, ParentEntity, ModifiableTimestamp, CompiledPermissions.Holder
 {
     private Date lastChanged;
     private Date createDate;
@@ -69,6 +71,7 @@ final public class DynamicTypeImpl extends SimpleEntity implements DynamicType,
     // added an attribute array for performance reasons
 	List<AttributeImpl> attributes = new ArrayList<>();
     private List<PermissionImpl> permissions = new ArrayList<>(1);
+    private final transient CompiledPermissionsHolder compiledPermissions = new CompiledPermissionsHolder();
     MultiLanguageName name  = new MultiLanguageName();
     String key = "";
     //Map<String,String> unparsedAnnotations = new HashMap<String,String>();
@@ -221,6 +224,11 @@ final public class DynamicTypeImpl extends SimpleEntity implements DynamicType,
         return casted;
     }
 
+    public CompiledPermissions getCompiledPermissions()
+    {
+        return compiledPermissions.get(permissions, isReadOnly());
+    }
+
     public Classification newClassificationFrom(Classification original) {
         if ( !isReadOnly()) {
             throw new IllegalStateException("You can only createInfoDialog Classifications from a persistant Version of DynamicType");
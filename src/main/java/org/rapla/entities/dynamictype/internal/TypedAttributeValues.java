@@ -0,0 +1,148 @@
+package org.rapla.entities.dynamictype.internal;
+
+import org.rapla.entities.Entity;
+import org.rapla.entities.EntityNotFoundException;
+import org.rapla.entities.dynamictype.Attribute;
+import org.rapla.entities.storage.EntityResolver;
+import org.rapla.entities.storage.ReferenceInfo;
+import org.rapla.framework.RaplaException;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The typed values of one attribute of a classification, stored in one slot per value. A slot is parsed on the first access,
+ * so a value that can't be parsed only fails the reads of that value. Dates, integers, booleans and strings are stored as their
+ * parsed objects, references as the reference of the resolved entity. A resolved entity is reused as long as the version of the
+ * resolver doesn't change, see {@link EntityResolver#getVersion()}.
+ * The values are parsed for a specific attribute, a changed attribute of a new type version has to be parsed again, see {@link #isFor(Attribute)}.
+ */
+final class TypedAttributeValues
+{
+    private static final Object UNPARSED = new Object();
+    private static final Object EMPTY = new Object();
+
+    /** a resolved reference and the resolver and its version when it was resolved */
+    private static final class Resolved
+    {
+        final ReferenceInfo reference;
+        final Entity entity;
+        final EntityResolver resolver;
+        final long version;
+
+        Resolved(ReferenceInfo reference, Entity entity, EntityResolver resolver, long version)
+        {
+            this.reference = reference;
+            this.entity = entity;
+            this.resolver = resolver;
+            this.version = version;
+        }
+    }
+
+    private final Attribute attribute;
+    private final Class<? extends Entity> refType;
+    private final List<String> strings;
+    private final AtomicReferenceArray<Object> slots;
+
+    TypedAttributeValues(Attribute attribute, List<String> strings)
+    {
+        this.attribute = attribute;
+        this.refType = attribute.getRefType();
+        this.strings = strings;
+        final int size = strings.size();
+        slots = new AtomicReferenceArray<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            slots.lazySet(i, UNPARSED);
+        }
+    }
+
+    /** returns true if the values were parsed for the passed attribute */
+    boolean isFor(Attribute attribute)
+    {
+        return this.attribute == attribute;
+    }
+
+    int size()
+    {
+        return slots.length();
+    }
+
+    /** returns the value at the passed index. Dates are shared between the calls, so they must not be modified.*/
+    Object get(int index, EntityResolver resolver) throws EntityNotFoundException
+    {
+        Object slot = slots.get(index);
+        if (slot == UNPARSED)
+        {
+            slot = parse(strings.get(index));
+            slots.set(index, slot);
+        }
+        if (refType != null)
+        {
+            return resolve(index, slot, resolver);
+        }
+        return slot == EMPTY ? null : slot;
+    }
+
+    private Object parse(String string)
+    {
+        if (refType != null)
+        {
+            return new ReferenceInfo<>(string, refType);
+        }
+        try
+        {
+            final Object parsed = AttributeImpl.parseAttributeValueWithoutRef(attribute, string);
+            return parsed != null ? parsed : EMPTY;
+        }
+        catch (RaplaException exception)
+        {
+            throw new IllegalStateException(exception.getMessage(), exception);
+        }
+    }
+
+    private Entity resolve(int index, Object slot, EntityResolver resolver) throws EntityNotFoundException
+    {
+        // the version is read before resolving, so a change during the resolve makes the result outdated
+        final long version = resolver.getVersion();
+        final ReferenceInfo reference;
+        if (slot instanceof Resolved)
+        {
+            final Resolved resolved = (Resolved) slot;
+            if (version >= 0 && resolved.version == version && resolved.resolver == resolver)
+            {
+                return resolved.entity;
+            }
+            reference = resolved.reference;
+        }
+        else
+        {
+            reference = (ReferenceInfo) slot;
+        }
+        @SuppressWarnings("unchecked")
+        final Entity entity = resolver.resolve(reference);
+        if (version >= 0)
+        {
+            // the reference of a stored entity is the interned instance that is shared by the other referencing entities
+            slots.set(index, new Resolved(entity.getReference(), entity, resolver, version));
+        }
+        return entity;
+    }
+
+    /** adds all values to the result. References that can't be resolved are skipped.*/
+    void addTo(Collection<Object> result, EntityResolver resolver)
+    {
+        final int size = size();
+        for (int i = 0; i < size; i++)
+        {
+            try
+            {
+                result.add(get(i, resolver));
+            }
+            catch (EntityNotFoundException e)
+            {
+            }
+        }
+    }
+}
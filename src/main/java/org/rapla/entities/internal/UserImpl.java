@@ -16,8 +16,11 @@ import org.rapla.entities.Category;
 import org.rapla.entities.Entity;
 import org.rapla.entities.User;
 import org.rapla.entities.domain.Allocatable;
+import org.rapla.entities.domain.internal.CompiledPermissions;
+import org.rapla.entities.domain.internal.PermissionGroups;
 import org.rapla.entities.dynamictype.Attribute;
 import org.rapla.entities.dynamictype.Classification;
+import org.rapla.entities.storage.EntityResolver;
 import org.rapla.entities.storage.ReferenceInfo;
 import org.rapla.entities.storage.internal.SimpleEntity;
 import org.rapla.framework.RaplaException;
@@ -37,7 +40,8 @@ public class UserImpl extends SimpleEntity implements User, ModifiableTimestamp
     private Date lastChanged;
     private Date createDate;
 
-
+    private transient CompiledPermissions.GroupMask groupMask;
+    private transient PermissionGroups ownPermissionGroups;
 
     @Override public Class<User> getTypeClass()
     {
@@ -272,6 +276,36 @@ public class UserImpl extends SimpleEntity implements User, ModifiableTimestamp
         return person;
     }
 
+    /** returns the bitmask of the groups including parents. The mask is cached for read only users. Users that are not resolved by a storage
+     * number their groups themselves.*/
+    public CompiledPermissions.GroupMask getGroupMask()
+    {
+        final EntityResolver resolver = this.resolver;
+        final PermissionGroups permissionGroups;
+        if (resolver instanceof PermissionGroups.Provider)
+        {
+            permissionGroups = ((PermissionGroups.Provider) resolver).getPermissionGroups();
+        }
+        else
+        {
+            if (ownPermissionGroups == null)
+            {
+                ownPermissionGroups = new PermissionGroups();
+            }
+            permissionGroups = ownPermissionGroups;
+        }
+        CompiledPermissions.GroupMask mask = groupMask;
+        if (mask == null || !mask.isValid(permissionGroups))
+        {
+            mask = permissionGroups.createGroupMask(getGroupsIncludingParents(this));
+            if (isReadOnly())
+            {
+                groupMask = mask;
+            }
+        }
+        return mask;
+    }
+
     public static Collection<String> getGroupsIncludingParents(User user) {
         Collection<String> groups = new HashSet<>();
         for ( Category group: user.getGroupList())
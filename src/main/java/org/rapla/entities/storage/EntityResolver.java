@@ -34,6 +34,13 @@ public interface EntityResolver
     
     DynamicType getDynamicType(String key);
 
+    /** returns a number that changes when an entity is stored or removed, so resolved entities can be reused while it stays the same.
+     * Returns -1 if the resolver doesn't track its changes.*/
+    default long getVersion()
+    {
+        return -1;
+    }
+
     //FunctionFactory getFunctionFactory(String functionName);
 
     //PermissionController getPermissionController();
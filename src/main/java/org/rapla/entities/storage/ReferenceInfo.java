@@ -36,6 +36,10 @@ public class ReferenceInfo<T extends Entity> implements Comparable
         {
             return false;
         }
+        if ( obj == this)
+        {
+            return true;
+        }
         return this.id.equals(((ReferenceInfo)obj).id) && type ==((ReferenceInfo)obj).type ;
     }
 
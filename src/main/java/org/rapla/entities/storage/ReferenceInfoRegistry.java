@@ -0,0 +1,57 @@
+package org.rapla.entities.storage;
+
+import org.rapla.entities.Entity;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the canonical {@link ReferenceInfo} of every stored entity, so the entities share one reference object per id.
+ * References for an id that is registered with a different type are not interned.
+ */
+public class ReferenceInfoRegistry
+{
+    private final Map<String, ReferenceInfo> references = new ConcurrentHashMap<>();
+
+    /** registers the reference if no reference with the same id is registered and returns the registered reference */
+    public <T extends Entity> ReferenceInfo<T> intern(ReferenceInfo<T> reference)
+    {
+        final ReferenceInfo registered = references.putIfAbsent(reference.getId(), reference);
+        if (registered == null || registered.getType() != reference.getType())
+        {
+            return reference;
+        }
+        @SuppressWarnings("unchecked")
+        final ReferenceInfo<T> casted = registered;
+        return casted;
+    }
+
+    /** returns the registered reference with the id and type or registers a new one */
+    public <T extends Entity> ReferenceInfo<T> intern(String id, Class<T> type)
+    {
+        final ReferenceInfo registered = references.computeIfAbsent(id, (key) -> new ReferenceInfo<>(key, type));
+        if (registered.getType() != type)
+        {
+            return new ReferenceInfo<>(id, type);
+        }
+        @SuppressWarnings("unchecked")
+        final ReferenceInfo<T> casted = registered;
+        return casted;
+    }
+
+    /** removes the id from the registry */
+    public void release(String id)
+    {
+        references.remove(id);
+    }
+
+    public int size()
+    {
+        return references.size();
+    }
+
+    public void clear()
+    {
+        references.clear();
+    }
+}
@@ -0,0 +1,169 @@
+package org.rapla.entities.storage.internal;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base of the streaming json adapters of the entity classes. The adapters access the fields directly, so no reflection is needed.
+ * The fields are written like the reflective serialization does: first the fields of the class and then the id and the links
+ * of {@link SimpleEntity} and {@link ReferenceHandler}, null values are skipped. Unknown fields are skipped when reading.
+ */
+public abstract class EntityTypeAdapter<T> extends TypeAdapter<T>
+{
+    private static final TypeToken<Map<String, List<String>>> LINKS_TYPE = new TypeToken<Map<String, List<String>>>()
+    {
+    };
+
+    protected final TypeAdapter<Date> dateAdapter;
+    private final TypeAdapter<Map<String, List<String>>> linksAdapter;
+
+    protected EntityTypeAdapter(Gson gson)
+    {
+        dateAdapter = gson.getAdapter(Date.class);
+        linksAdapter = gson.getAdapter(LINKS_TYPE);
+    }
+
+    /** creates the instance that is filled when reading, with the constructor that is used by the reflective deserialization */
+    protected abstract T newInstance();
+
+    protected abstract void writeFields(JsonWriter out, T value) throws IOException;
+
+    /** reads the field with the passed name into the value and returns false if the class has no such field */
+    protected abstract boolean readField(JsonReader in, String name, T value) throws IOException;
+
+    @Override
+    public void write(JsonWriter out, T value) throws IOException
+    {
+        if (value == null)
+        {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        writeFields(out, value);
+        if (value instanceof SimpleEntity)
+        {
+            write(out, "id", ((SimpleEntity) value).getId());
+        }
+        if (value instanceof ReferenceHandler)
+        {
+            write(out, "links", linksAdapter, ((ReferenceHandler) value).links);
+        }
+        out.endObject();
+    }
+
+    @Override
+    public T read(JsonReader in) throws IOException
+    {
+        if (in.peek() == JsonToken.NULL)
+        {
+            in.nextNull();
+            return null;
+        }
+        final T value = newInstance();
+        in.beginObject();
+        while (in.hasNext())
+        {
+            final String name = in.nextName();
+            if (readField(in, name, value))
+            {
+                continue;
+            }
+            if (value instanceof SimpleEntity && name.equals("id"))
+            {
+                ((SimpleEntity) value).setId(readString(in));
+            }
+            else if (value instanceof ReferenceHandler && name.equals("links"))
+            {
+                ((ReferenceHandler) value).links = linksAdapter.read(in);
+            }
+            else
+            {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return value;
+    }
+
+    protected static void write(JsonWriter out, String name, String value) throws IOException
+    {
+        if (value != null)
+        {
+            out.name(name).value(value);
+        }
+    }
+
+    protected static void write(JsonWriter out, String name, Number value) throws IOException
+    {
+        if (value != null)
+        {
+            out.name(name).value(value);
+        }
+    }
+
+    protected static <V> void write(JsonWriter out, String name, TypeAdapter<V> adapter, V value) throws IOException
+    {
+        if (value != null)
+        {
+            out.name(name);
+            adapter.write(out, value);
+        }
+    }
+
+    protected static String readString(JsonReader in) throws IOException
+    {
+        final JsonToken token = in.peek();
+        if (token == JsonToken.NULL)
+        {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN)
+        {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    protected static Integer readInteger(JsonReader in) throws IOException
+    {
+        if (in.peek() == JsonToken.NULL)
+        {
+            in.nextNull();
+            return null;
+        }
+        return in.nextInt();
+    }
+
+    /** returns the current value of a primitive field if the json value is null, because the reflective deserialization keeps it */
+    protected static int readInt(JsonReader in, int current) throws IOException
+    {
+        final Integer value = readInteger(in);
+        return value != null ? value : current;
+    }
+
+    protected static boolean readBoolean(JsonReader in, boolean current) throws IOException
+    {
+        final JsonToken token = in.peek();
+        if (token == JsonToken.NULL)
+        {
+            in.nextNull();
+            return current;
+        }
+        if (token == JsonToken.STRING)
+        {
+            return Boolean.parseBoolean(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+}
@@ -24,6 +24,7 @@ import org.rapla.entities.storage.EntityResolver;
 import org.rapla.entities.storage.ParentEntity;
 import org.rapla.entities.storage.RefEntity;
 import org.rapla.entities.storage.ReferenceInfo;
+import org.rapla.entities.storage.ReferenceInfoRegistry;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -41,6 +42,7 @@ public abstract class SimpleEntity extends ReferenceHandler implements RefEntity
 {
     private String id;
     transient boolean readOnly = false;
+    private transient ReferenceInfo reference;
     
     public SimpleEntity() {
     }
@@ -105,7 +107,22 @@ public abstract class SimpleEntity extends ReferenceHandler implements RefEntity
 
     public ReferenceInfo getReference()
     {
-        return new ReferenceInfo(id,getTypeClass());
+        ReferenceInfo reference = this.reference;
+        if ( reference == null || reference.getId() != id)
+        {
+            reference = new ReferenceInfo(id,getTypeClass());
+            this.reference = reference;
+        }
+        return reference;
+    }
+
+    /** replaces the cached reference with the canonical one from the registry */
+    public void internReference(ReferenceInfoRegistry registry)
+    {
+        if ( id != null)
+        {
+            reference = registry.intern(getReference());
+        }
     }
 
     public void checkWritable() {
@@ -282,6 +299,7 @@ public abstract class SimpleEntity extends ReferenceHandler implements RefEntity
 
     protected void deepClone(SimpleEntity clone) {
     	clone.id = id;
+    	clone.reference = reference;
     	clone.links = new LinkedHashMap<>();
     	for ( String key:links.keySet())
     	{
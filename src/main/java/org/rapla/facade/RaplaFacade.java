@@ -40,6 +40,7 @@ import org.rapla.storage.StorageOperator;
 
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -118,6 +119,9 @@ public interface RaplaFacade
     /** returns all existing conflicts with the reservation */
     Promise<Collection<Conflict>> getConflictsForReservation(Reservation reservation);
 
+    /** returns the conflicts of all passed reservations with one request to the server */
+    Promise<Collection<Conflict>> getConflictsForReservations(Collection<Reservation> reservations);
+
 
     /** returns if the user has the permissions to change/createInfoDialog an
      allocation on the passed appointment. Changes of an
@@ -146,6 +150,9 @@ public interface RaplaFacade
 
     Promise<Date> getNextAllocatableDate(Collection<Allocatable> asList, Appointment appointment, CalendarOptions options);
 
+    /** returns up to count start dates in ascending order, at which the appointment can be moved without conflicts with the allocatables */
+    Promise<List<Date>> getNextAllocatableDates(Collection<Allocatable> asList, Appointment appointment, CalendarOptions options, int count);
+
     boolean canAllocate(CalendarModel model,User user);
 
     /** All methods that allow modifing the entity-objects.
@@ -305,6 +312,11 @@ public interface RaplaFacade
      */
     Promise<Collection<Conflict>> getConflicts();
 
+    /** returns the existing conflicts that are visible for the user and overlap within the start, end interval.
+     If start or end is null the interval is open.
+     */
+    Promise<Collection<Conflict>> getConflicts(Date start, Date end);
+
     /** returns all available periods */
     Period[] getPeriods() throws RaplaException;
 
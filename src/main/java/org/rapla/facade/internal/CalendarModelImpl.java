@@ -18,6 +18,7 @@ import org.rapla.components.util.Assert;
 import org.rapla.components.util.DateTools;
 import org.rapla.components.util.SerializableDateTimeFormat;
 import org.rapla.components.util.TimeInterval;
+import org.rapla.entities.Category;
 import org.rapla.entities.Entity;
 import org.rapla.entities.IllegalAnnotationException;
 import org.rapla.entities.Named;
@@ -33,6 +34,7 @@ import org.rapla.entities.domain.Allocatable;
 import org.rapla.entities.domain.Appointment;
 import org.rapla.entities.domain.AppointmentBlock;
 import org.rapla.entities.domain.Reservation;
+import org.rapla.entities.domain.internal.AppointmentImpl;
 import org.rapla.entities.dynamictype.Classification;
 import org.rapla.entities.dynamictype.ClassificationFilter;
 import org.rapla.entities.dynamictype.DynamicType;
@@ -49,10 +51,12 @@ import org.rapla.facade.CalendarModel;
 import org.rapla.facade.CalendarNotFoundExeption;
 import org.rapla.facade.CalendarSelectionModel;
 import org.rapla.facade.Conflict;
+import org.rapla.facade.ModificationEvent;
 import org.rapla.facade.client.ClientFacade;
 import org.rapla.framework.RaplaException;
 import org.rapla.framework.RaplaInitializationException;
 import org.rapla.framework.RaplaLocale;
+import org.rapla.framework.TypedComponentRole;
 import org.rapla.framework.internal.AbstractRaplaLocale;
 import org.rapla.inject.DefaultImplementation;
 import org.rapla.inject.InjectionContext;
@@ -461,6 +465,7 @@ public class CalendarModelImpl implements CalendarSelectionModel
 
     public void setReservationFilter(ClassificationFilter[] array)
     {
+        invalidateCache();
         reservationFilter.clear();
         if (array == null)
         {
@@ -569,6 +574,7 @@ public class CalendarModelImpl implements CalendarSelectionModel
 
     public void setTemplateId(String templateId)
     {
+        invalidateCache();
         this.templateId = templateId;
     }
 
@@ -1007,21 +1013,79 @@ public class CalendarModelImpl implements CalendarSelectionModel
 
     String templateId = null;
 
-    private String cacheValidString;
-    private Map<Allocatable, Collection<Appointment>> cachedReservations;
+    /** default for the number of appointments that are kept in the cache, see {@link #setCacheBudget(int)}*/
+    public static final int DEFAULT_CACHE_BUDGET = 20000;
+    /** system preference for the number of appointments a calendar keeps in the cache of the queried and prefetched intervals. 0 disables the prefetch */
+    public static final TypedComponentRole<Integer> CACHE_BUDGET = new TypedComponentRole<>("org.rapla.calendar.cacheBudget");
+
+    /** the appointment bindings of the selection for one interval. The entry is stored when the query is sent, so a request for a period
+     * that is currently prefetched waits for the prefetch instead of sending a second query */
+    static class CachedBindings
+    {
+        final String selectionKey;
+        final long start;
+        final long end;
+        final Promise<Map<Allocatable, Collection<Appointment>>> promise;
+        int size;
+
+        CachedBindings(String selectionKey, Date start, Date end, Promise<Map<Allocatable, Collection<Appointment>>> promise)
+        {
+            this.selectionKey = selectionKey;
+            this.start = start != null ? start.getTime() : Long.MIN_VALUE;
+            this.end = end != null ? end.getTime() : Long.MAX_VALUE;
+            this.promise = promise;
+        }
+
+        boolean contains(String selectionKey, Date start, Date end)
+        {
+            final long startTime = start != null ? start.getTime() : Long.MIN_VALUE;
+            final long endTime = end != null ? end.getTime() : Long.MAX_VALUE;
+            return this.selectionKey.equals(selectionKey) && this.start <= startTime && endTime <= this.end;
+        }
+
+        boolean isExactly(Date start, Date end)
+        {
+            return this.start == (start != null ? start.getTime() : Long.MIN_VALUE) && this.end == (end != null ? end.getTime() : Long.MAX_VALUE);
+        }
+
+        boolean overlaps(TimeInterval interval)
+        {
+            final Date intervalStart = interval.getStart();
+            final Date intervalEnd = interval.getEnd();
+            return (intervalStart == null || intervalStart.getTime() < end) && (intervalEnd == null || intervalEnd.getTime() > start);
+        }
+    }
+
+    // ordered by last use, the last entry was used most recently
+    private final List<CachedBindings> cachedBindings = new ArrayList<>();
+    private int cacheBudget = DEFAULT_CACHE_BUDGET;
     private boolean cachingEnabled = false;
 
     private Promise<Map<Allocatable, Collection<Appointment>>> queryAppointmentBindings(Collection<Allocatable> allocatables, Date start, Date end, boolean useFilter)
     {
-        final String cacheKey = createCacheKey(allocatables, start, end);
-        if (cachingEnabled)
+        if (!cachingEnabled)
         {
-            if (cacheValidString != null && cacheValidString.equals(cacheKey) && cachedReservations != null)
-            {
-                return new ResolvedPromise<>(cachedReservations);
-            }
+            return sendQuery(allocatables, start, end, useFilter);
+        }
+        final String selectionKey = createCacheKey(allocatables, useFilter);
+        final CachedBindings cached = findCachedBindings(selectionKey, start, end);
+        final Promise<Map<Allocatable, Collection<Appointment>>> result;
+        if (cached != null)
+        {
+            result = cached.isExactly(start, end) ? cached.promise : cached.promise.thenApply((map) -> filter(map, start, end));
+        }
+        else
+        {
+            result = queryAndCache(allocatables, start, end, useFilter, selectionKey);
         }
+        return result.thenApply((map) -> {
+            prefetchAdjacent(allocatables, start, end, useFilter, selectionKey);
+            return map;
+        });
+    }
 
+    private Promise<Map<Allocatable, Collection<Appointment>>> sendQuery(Collection<Allocatable> allocatables, Date start, Date end, boolean useFilter)
+    {
         ClassificationFilter[] reservationFilters;
 		try {
 			reservationFilters = isDefaultEventTypes() || !useFilter ? null : getReservationFilter();
@@ -1030,26 +1094,174 @@ public class CalendarModelImpl implements CalendarSelectionModel
 		}
 		// FIXME Evalute if its only the owner
 		User user = null;
-        final Promise<Map<Allocatable, Collection<Appointment>>> reservationsAsync = operator
-                .queryAppointments(user, allocatables, start, end, reservationFilters, templateId);
+        return operator.queryAppointments(user, allocatables, start, end, reservationFilters, templateId);
+    }
 
-        return reservationsAsync.thenApply((map) -> {
-            if (cachingEnabled)
+    private Promise<Map<Allocatable, Collection<Appointment>>> queryAndCache(Collection<Allocatable> allocatables, Date start, Date end, boolean useFilter,
+            String selectionKey)
+    {
+        final Promise<Map<Allocatable, Collection<Appointment>>> reservationsAsync = sendQuery(allocatables, start, end, useFilter);
+        final CachedBindings entry = new CachedBindings(selectionKey, start, end, reservationsAsync);
+        addCachedBindings(entry);
+        reservationsAsync.thenAccept((map) -> {
+            entry.size = getAllAppointments(map).size();
+            removeOverBudget(entry);
+        }).exceptionally((ex) -> {
+            removeCachedBindings(entry);
+        });
+        return reservationsAsync;
+    }
+
+    // the cache is accessed by the ui thread and the callbacks of the queries
+    private synchronized void addCachedBindings(CachedBindings entry)
+    {
+        cachedBindings.add(entry);
+    }
+
+    private synchronized void removeCachedBindings(CachedBindings entry)
+    {
+        cachedBindings.remove(entry);
+    }
+
+    private synchronized CachedBindings findCachedBindings(String selectionKey, Date start, Date end)
+    {
+        for (int i = cachedBindings.size() - 1; i >= 0; i--)
+        {
+            final CachedBindings entry = cachedBindings.get(i);
+            if (entry.contains(selectionKey, start, end))
             {
-                cachedReservations = map;
-                cacheValidString = cacheKey;
+                cachedBindings.remove(i);
+                cachedBindings.add(entry);
+                return entry;
             }
-            return map;
-        });
+        }
+        return null;
+    }
+
+    /** queries the period before and after the passed interval, so navigating to the next or previous period doesn't need to wait for the server.
+     * The prefetched intervals are a quarter longer than the passed interval, so they also contain the next month if it has more days. */
+    private void prefetchAdjacent(Collection<Allocatable> allocatables, Date start, Date end, boolean useFilter, String selectionKey)
+    {
+        if (start == null || end == null || cacheBudget <= 0)
+        {
+            return;
+        }
+        final long duration = end.getTime() - start.getTime();
+        if (duration <= 0)
+        {
+            return;
+        }
+        final long prefetchDuration = duration + duration / 4;
+        final Date previousStart = new Date(start.getTime() - prefetchDuration);
+        final Date nextEnd = new Date(end.getTime() + prefetchDuration);
+        if (findCachedBindings(selectionKey, previousStart, start) == null)
+        {
+            queryAndCache(allocatables, previousStart, start, useFilter, selectionKey);
+        }
+        if (findCachedBindings(selectionKey, end, nextEnd) == null)
+        {
+            queryAndCache(allocatables, end, nextEnd, useFilter, selectionKey);
+        }
+    }
+
+    /** returns the cached intervals, the most recently used last */
+    synchronized List<TimeInterval> getCachedIntervals()
+    {
+        final List<TimeInterval> result = new ArrayList<>();
+        for (CachedBindings entry : cachedBindings)
+        {
+            result.add(new TimeInterval(new Date(entry.start), new Date(entry.end)));
+        }
+        return result;
+    }
+
+    /** removes the least recently used entries until the cached appointments fit into the budget. The passed entry is kept */
+    private synchronized void removeOverBudget(CachedBindings keep)
+    {
+        int total = 0;
+        for (CachedBindings entry : cachedBindings)
+        {
+            total += entry.size;
+        }
+        for (Iterator<CachedBindings> it = cachedBindings.iterator(); it.hasNext() && total > cacheBudget; )
+        {
+            final CachedBindings entry = it.next();
+            if (entry != keep && entry.size > 0)
+            {
+                it.remove();
+                total -= entry.size;
+            }
+        }
+    }
+
+    private static Map<Allocatable, Collection<Appointment>> filter(Map<Allocatable, Collection<Appointment>> map, Date start, Date end)
+    {
+        final Map<Allocatable, Collection<Appointment>> result = new LinkedHashMap<>();
+        for (Map.Entry<Allocatable, Collection<Appointment>> entry : map.entrySet())
+        {
+            final Collection<Appointment> appointments = new ArrayList<>();
+            for (Appointment appointment : entry.getValue())
+            {
+                // the same check as the query of the operator, that doesn't exclude the exceptions
+                if (((AppointmentImpl) appointment).overlaps(start, end, false))
+                {
+                    appointments.add(appointment);
+                }
+            }
+            // the query of the operator only returns allocatables with appointments
+            if (!appointments.isEmpty())
+            {
+                result.put(entry.getKey(), appointments);
+            }
+        }
+        return result;
     }
 
-    public void invalidateCache()
+    public synchronized void invalidateCache()
     {
-        cacheValidString = null;
-        cachedReservations = null;
+        cachedBindings.clear();
     }
 
-    private String createCacheKey(Collection<Allocatable> allocatables, Date start, Date end)
+    /** removes the cached intervals that overlap the invalidate interval of the event. Changes of other entities than reservations
+     * and conflicts can change the result of each query, so all intervals are removed.*/
+    public synchronized void invalidateCache(ModificationEvent evt)
+    {
+        if (evt == null)
+        {
+            invalidateCache();
+            return;
+        }
+        final TimeInterval invalidateInterval = evt.getInvalidateInterval();
+        for (Class<? extends Entity> type : Arrays.asList(Allocatable.class, DynamicType.class, Category.class, User.class))
+        {
+            if (evt.isModified(type))
+            {
+                invalidateCache();
+                return;
+            }
+        }
+        if (evt.isModified(Preferences.class))
+        {
+            updateCacheBudget();
+        }
+        if (invalidateInterval == null)
+        {
+            if (evt.isModified(Reservation.class))
+            {
+                invalidateCache();
+            }
+            return;
+        }
+        cachedBindings.removeIf((entry) -> entry.overlaps(invalidateInterval));
+    }
+
+    /** sets the maximum number of appointments that are kept in the cache of the queried and prefetched intervals. 0 disables the prefetch. */
+    public void setCacheBudget(int cacheBudget)
+    {
+        this.cacheBudget = cacheBudget;
+    }
+
+    private String createCacheKey(Collection<Allocatable> allocatables, boolean useFilter)
     {
         StringBuilder buf = new StringBuilder();
         if (allocatables != null)
@@ -1064,20 +1276,29 @@ public class CalendarModelImpl implements CalendarSelectionModel
         {
             buf.append("all_reservations;");
         }
-        if (start != null)
-        {
-            buf.append(start.getTime() + ";");
-        }
-        if (end != null)
-        {
-            buf.append(end.getTime() + ";");
-        }
+        buf.append(useFilter).append(";");
         return buf.toString();
     }
 
     public void setCachingEnabled(boolean enable)
     {
         this.cachingEnabled = enable;
+        if (enable)
+        {
+            updateCacheBudget();
+        }
+    }
+
+    private void updateCacheBudget()
+    {
+        try
+        {
+            setCacheBudget(getSystemPreferences().getEntryAsInteger(CACHE_BUDGET, DEFAULT_CACHE_BUDGET));
+        }
+        catch (RaplaException ex)
+        {
+            logger.warn("Can't read the cache budget of the calendar: " + ex.getMessage());
+        }
     }
 
     @Override public List<Allocatable> getSelectedAllocatablesSorted() throws RaplaException
@@ -56,16 +56,16 @@ import java.util.Set;
 
 public class ConflictImpl extends SimpleEntity implements Conflict, ModifiableTimestamp
 {
-    private Date startDate;
-    private Date lastChanged;
-    private String reservation1Name;
-    private String reservation2Name;
-    private RepeatingType repeatingType1;
-    private RepeatingType repeatingType2;
-    private boolean appointment1Enabled = true;
-    private boolean appointment2Enabled = true;
-    private boolean appointment1Editable = true;
-    private boolean appointment2Editable = true;
+    Date startDate;
+    Date lastChanged;
+    String reservation1Name;
+    String reservation2Name;
+    RepeatingType repeatingType1;
+    RepeatingType repeatingType2;
+    boolean appointment1Enabled = true;
+    boolean appointment2Enabled = true;
+    boolean appointment1Editable = true;
+    boolean appointment2Editable = true;
 
     ConflictImpl()
     {
@@ -0,0 +1,95 @@
+package org.rapla.facade.internal;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.rapla.entities.domain.RepeatingType;
+import org.rapla.entities.storage.internal.EntityTypeAdapter;
+
+import java.io.IOException;
+
+/** Streaming json adapter for the conflicts, that writes the same json as the reflective serialization. */
+public final class ConflictTypeAdapter extends EntityTypeAdapter<ConflictImpl>
+{
+    public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory()
+    {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type)
+        {
+            return type.getRawType() == ConflictImpl.class ? (TypeAdapter<T>) new ConflictTypeAdapter(gson) : null;
+        }
+    };
+
+    private final TypeAdapter<RepeatingType> repeatingTypeAdapter;
+
+    private ConflictTypeAdapter(Gson gson)
+    {
+        super(gson);
+        repeatingTypeAdapter = gson.getAdapter(RepeatingType.class);
+    }
+
+    @Override
+    protected ConflictImpl newInstance()
+    {
+        return new ConflictImpl();
+    }
+
+    @Override
+    protected void writeFields(JsonWriter out, ConflictImpl value) throws IOException
+    {
+        write(out, "startDate", dateAdapter, value.startDate);
+        write(out, "lastChanged", dateAdapter, value.lastChanged);
+        write(out, "reservation1Name", value.reservation1Name);
+        write(out, "reservation2Name", value.reservation2Name);
+        write(out, "repeatingType1", repeatingTypeAdapter, value.repeatingType1);
+        write(out, "repeatingType2", repeatingTypeAdapter, value.repeatingType2);
+        out.name("appointment1Enabled").value(value.appointment1Enabled);
+        out.name("appointment2Enabled").value(value.appointment2Enabled);
+        out.name("appointment1Editable").value(value.appointment1Editable);
+        out.name("appointment2Editable").value(value.appointment2Editable);
+    }
+
+    @Override
+    protected boolean readField(JsonReader in, String name, ConflictImpl value) throws IOException
+    {
+        switch (name)
+        {
+            case "startDate":
+                value.startDate = dateAdapter.read(in);
+                return true;
+            case "lastChanged":
+                value.lastChanged = dateAdapter.read(in);
+                return true;
+            case "reservation1Name":
+                value.reservation1Name = readString(in);
+                return true;
+            case "reservation2Name":
+                value.reservation2Name = readString(in);
+                return true;
+            case "repeatingType1":
+                value.repeatingType1 = repeatingTypeAdapter.read(in);
+                return true;
+            case "repeatingType2":
+                value.repeatingType2 = repeatingTypeAdapter.read(in);
+                return true;
+            case "appointment1Enabled":
+                value.appointment1Enabled = readBoolean(in, value.appointment1Enabled);
+                return true;
+            case "appointment2Enabled":
+                value.appointment2Enabled = readBoolean(in, value.appointment2Enabled);
+                return true;
+            case "appointment1Editable":
+                value.appointment1Editable = readBoolean(in, value.appointment1Editable);
+                return true;
+            case "appointment2Editable":
+                value.appointment2Editable = readBoolean(in, value.appointment2Editable);
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -426,10 +426,19 @@ public class FacadeImpl implements RaplaFacade {
         return operator.getConflicts(reservation);
     }
 
+    public Promise<Collection<Conflict>> getConflictsForReservations(Collection<Reservation> reservations)
+    {
+        return operator.getConflicts(reservations);
+    }
+
 	public Promise<Collection<Conflict>> getConflicts() {
+		return getConflicts(null, null);
+	}
+
+	public Promise<Collection<Conflict>> getConflicts(Date start, Date end) {
 
 		final User user = null;
-		return	operator.getConflicts(user).thenApply(conflicts->
+		return	operator.getConflicts(user, start, end).thenApply(conflicts->
 				{
 					if (getLogger().isDebugEnabled())
 					{
@@ -515,6 +524,10 @@ public class FacadeImpl implements RaplaFacade {
 	
 	
 	public Promise<Date> getNextAllocatableDate(Collection<Allocatable> allocatables,	Appointment appointment, CalendarOptions options)  {
+		return getNextAllocatableDates(allocatables, appointment, options, 1).thenApply((dates) -> dates.isEmpty() ? null : dates.get(0));
+	}
+
+	public Promise<List<Date>> getNextAllocatableDates(Collection<Allocatable> allocatables,	Appointment appointment, CalendarOptions options, int count)  {
 		int worktimeStartMinutes = options.getWorktimeStartMinutes();
 		int worktimeEndMinutes = options.getWorktimeEndMinutes();
 		Integer[] excludeDays = options.getExcludeDays().toArray( new Integer[] {});
@@ -529,7 +542,7 @@ public class FacadeImpl implements RaplaFacade {
 		{
 			ignoreList = Collections.emptyList();
 		}
-		return operator.getNextAllocatableDate(allocatables, appointment,ignoreList, worktimeStartMinutes, worktimeEndMinutes, excludeDays, rowsPerHour);
+		return operator.getNextAllocatableDates(allocatables, appointment,ignoreList, worktimeStartMinutes, worktimeEndMinutes, excludeDays, rowsPerHour, count);
 	}
 	
 
@@ -52,7 +52,7 @@ public class ModifiableCalendarState
     public void dataChanged(ModificationEvent evt) throws RaplaException
     {
         final CalendarModelImpl model = (CalendarModelImpl) getModel();
-        model.invalidateCache();
+        model.invalidateCache(evt);
         Collection<RaplaObject> selectedObjects = model.getSelectedObjects();
         if (evt == null)
         {
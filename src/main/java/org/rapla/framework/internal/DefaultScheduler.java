@@ -9,18 +9,30 @@ import org.rapla.inject.InjectionContext;
 import org.rapla.logger.Logger;
 import org.rapla.logger.RaplaBootstrapLogger;
 import org.rapla.scheduler.CommandScheduler;
+import org.rapla.scheduler.CompletablePromise;
 import org.rapla.scheduler.Observable;
+import org.rapla.scheduler.Promise;
 import org.rapla.scheduler.sync.UtilConcurrentCommandScheduler;
+import org.rapla.server.ServerService;
 import org.rapla.server.TimeZoneConverter;
 import org.rapla.server.internal.TimeZoneConverterImpl;
 import org.reactivestreams.Publisher;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
+import java.lang.reflect.Method;
 import java.time.*;
 import java.time.temporal.ChronoUnit;
 import java.util.Calendar;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
@@ -30,9 +42,110 @@ import static java.time.temporal.ChronoUnit.MILLIS;
 @Singleton
 public class DefaultScheduler extends UtilConcurrentCommandScheduler implements Disposable
 {
+	public static final String BLOCKING_EXECUTOR_VIRTUAL = "virtual";
+	/** the minimal number of threads that process suspended requests */
+	public static final int REQUEST_THREADS = 8;
+
 	final private TimeZoneConverter converter;
+	// null if blocking tasks run on the threads of the scheduler
+	private ExecutorService blockingExecutor;
+	// the threads that process suspended requests, so requests don't wait for the periodic tasks of the scheduler and vice versa
+	private final ExecutorService requestExecutor;
+	private final Map<String, TaskStatistics> statistics = new TreeMap<>();
+
+	/**
+	 * Counts the executions of a type of blocking tasks. The queue depth is the number of tasks that wait for a thread of the blocking executor,
+	 * the blocking time is the time the tasks run.
+	 */
+	public static class TaskStatistics
+	{
+		private int queued;
+		private int running;
+		private long executions;
+		private long skipped;
+		private long totalMillis;
+		private long maxMillis;
+
+		synchronized void queued()
+		{
+			queued++;
+		}
+
+		synchronized void skipped()
+		{
+			skipped++;
+		}
+
+		synchronized long started()
+		{
+			queued--;
+			running++;
+			return System.currentTimeMillis();
+		}
+
+		synchronized void rejected()
+		{
+			queued--;
+		}
+
+		synchronized void finished(long start)
+		{
+			final long millis = System.currentTimeMillis() - start;
+			running--;
+			executions++;
+			totalMillis += millis;
+			maxMillis = Math.max(maxMillis, millis);
+		}
+
+		public synchronized int getQueued()
+		{
+			return queued;
+		}
+
+		public synchronized int getRunning()
+		{
+			return running;
+		}
 
+		public synchronized long getExecutions()
+		{
+			return executions;
+		}
+
+		/** returns the number of periods that were skipped, because the previous execution was still running */
+		public synchronized long getSkipped()
+		{
+			return skipped;
+		}
+
+		public synchronized long getAverageMillis()
+		{
+			return executions > 0 ? totalMillis / executions : 0;
+		}
+
+		public synchronized long getMaxMillis()
+		{
+			return maxMillis;
+		}
+	}
+
+	/** the blocking executor is {@link #BLOCKING_EXECUTOR_VIRTUAL} or null or empty if blocking tasks run on the scheduler */
 	@Inject
+	public DefaultScheduler(Logger logger, TimeZoneConverter converter, @Named(ServerService.ENV_BLOCKING_EXECUTOR_ID) String blockingExecutor) {
+	    this(logger, converter);
+	    if ( blockingExecutor != null && !blockingExecutor.isEmpty())
+	    {
+	    	if (blockingExecutor.equalsIgnoreCase(BLOCKING_EXECUTOR_VIRTUAL))
+	    	{
+	    		this.blockingExecutor = createVirtualThreadExecutor();
+	    	}
+	    	else
+	    	{
+	    		logger.warn("Unknown blocking executor " + blockingExecutor + ". Blocking tasks run on the scheduler.");
+	    	}
+	    }
+	}
+
 	public DefaultScheduler(Logger logger, TimeZoneConverter converter) {
 	    this(logger, converter,6);
 	}
@@ -44,11 +157,160 @@ public class DefaultScheduler extends UtilConcurrentCommandScheduler implements
 	public DefaultScheduler(Logger logger, TimeZoneConverter converter,int poolSize) {
 	    super(logger,poolSize);
 	    this.converter = converter;
+	    this.requestExecutor = createRequestExecutor();
 	}
 	
 	@Override public void dispose()
 	{
 		cancel();
+		requestExecutor.shutdown();
+		if ( blockingExecutor != null)
+		{
+			blockingExecutor.shutdown();
+		}
+	}
+
+	/** returns true if blocking tasks don't use the threads of the scheduler */
+	public boolean isBlockingExecutorEnabled()
+	{
+		return blockingExecutor != null;
+	}
+
+	/**
+	 * Schedules a task that blocks while it waits for other systems, e.g. a database, a mail or an exchange server. If a blocking executor is
+	 * configured the scheduler only starts the task and the task runs on a thread of the blocking executor, so it doesn't hold a thread of the
+	 * scheduler. A period is skipped while the previous execution is still running. The executions are counted in the statistics of the task type.
+	 */
+	public io.reactivex.disposables.Disposable scheduleBlocking(String taskType, Action task, long delay, long period)
+	{
+		final TaskStatistics taskStatistics = getTaskStatistics(taskType);
+		final AtomicBoolean running = new AtomicBoolean();
+		final Runnable execution = () ->
+		{
+			final long start = taskStatistics.started();
+			try
+			{
+				task.run();
+			}
+			catch (Throwable ex)
+			{
+				logger.error("Error in " + taskType + ": " + ex.getMessage(), ex);
+			}
+			finally
+			{
+				taskStatistics.finished(start);
+				running.set(false);
+			}
+		};
+		final Action trigger = () ->
+		{
+			if (!running.compareAndSet(false, true))
+			{
+				taskStatistics.skipped();
+				return;
+			}
+			taskStatistics.queued();
+			if ( blockingExecutor == null)
+			{
+				execution.run();
+				return;
+			}
+			try
+			{
+				blockingExecutor.execute(execution);
+			}
+			catch (RejectedExecutionException ex)
+			{
+				// the scheduler is disposed
+				taskStatistics.rejected();
+				running.set(false);
+			}
+		};
+		return schedule(trigger, delay, period);
+	}
+
+	/**
+	 * Processes the work of a suspended request on the request executor and returns a promise of the result. The request executor is
+	 * separate from the threads of the scheduler, so long requests don't delay the periodic tasks and the tasks don't delay the requests.
+	 */
+	public <T> Promise<T> supplyRequest(Callable<T> request)
+	{
+		final CompletablePromise<T> promise = createCompletable();
+		try
+		{
+			requestExecutor.execute(() ->
+			{
+				final T result;
+				try
+				{
+					result = request.call();
+				}
+				catch (Throwable ex)
+				{
+					promise.completeExceptionally(ex);
+					return;
+				}
+				promise.complete(result);
+			});
+		}
+		catch (RejectedExecutionException ex)
+		{
+			// the scheduler is disposed
+			promise.completeExceptionally(ex);
+		}
+		return promise;
+	}
+
+	/** returns a copy of the statistics of the blocking tasks by task type */
+	public Map<String, TaskStatistics> getTaskStatistics()
+	{
+		synchronized (statistics)
+		{
+			return new TreeMap<>(statistics);
+		}
+	}
+
+	private TaskStatistics getTaskStatistics(String taskType)
+	{
+		synchronized (statistics)
+		{
+			return statistics.computeIfAbsent(taskType, (key) -> new TaskStatistics());
+		}
+	}
+
+	private static ExecutorService createRequestExecutor()
+	{
+		final int threads = Math.max(REQUEST_THREADS, Runtime.getRuntime().availableProcessors() * 2);
+		final AtomicInteger count = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, (runnable) ->
+		{
+			final Thread thread = new Thread(runnable, "rapla-request-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private ExecutorService createVirtualThreadExecutor()
+	{
+		try
+		{
+			// virtual threads are available since java 21. The method is called by reflection, because rapla is compiled for java 8
+			final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			final ExecutorService executor = (ExecutorService) method.invoke(null);
+			logger.info("Blocking tasks run on virtual threads");
+			return executor;
+		}
+		catch (Exception ex)
+		{
+			logger.warn("Virtual threads are not supported by java " + System.getProperty("java.version") + ". Blocking tasks run on new threads.");
+			final AtomicInteger count = new AtomicInteger();
+			return Executors.newCachedThreadPool((runnable) ->
+			{
+				final Thread thread = new Thread(runnable, "rapla-blocking-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
 	}
 
 
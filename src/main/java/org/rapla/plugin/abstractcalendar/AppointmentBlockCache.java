@@ -0,0 +1,57 @@
+package org.rapla.plugin.abstractcalendar;
+
+import org.rapla.entities.domain.Appointment;
+import org.rapla.entities.domain.internal.AppointmentBlockBuffer;
+import org.rapla.entities.domain.internal.AppointmentImpl;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the blocks of the appointments of a calendar view between two builds, so after a refresh only the blocks of new or changed
+ * appointments are created again. The entries are kept by appointment instance, because a changed appointment is replaced by a new
+ * instance on refresh. Entries of appointments that are not in the last build are dropped.
+ */
+public class AppointmentBlockCache
+{
+    Map<Appointment, Entry> entries = new IdentityHashMap<>();
+
+    static class Entry
+    {
+        final long start;
+        final long end;
+        final boolean excludeExceptions;
+        final AppointmentBlockBuffer blocks;
+
+        Entry(long start, long end, boolean excludeExceptions, AppointmentBlockBuffer blocks)
+        {
+            this.start = start;
+            this.end = end;
+            this.excludeExceptions = excludeExceptions;
+            this.blocks = blocks;
+        }
+    }
+
+    /** returns the blocks of all appointments in the interval */
+    public synchronized AppointmentBlockBuffer createBlocks(Collection<Appointment> appointments, Date start, Date end, boolean excludeExceptions)
+    {
+        final AppointmentBlockBuffer result = new AppointmentBlockBuffer();
+        final Map<Appointment, Entry> used = new IdentityHashMap<>();
+        for (Appointment appointment : appointments)
+        {
+            Entry entry = entries.get(appointment);
+            if (entry == null || entry.start != start.getTime() || entry.end != end.getTime() || entry.excludeExceptions != excludeExceptions)
+            {
+                final AppointmentBlockBuffer blocks = new AppointmentBlockBuffer(4);
+                ((AppointmentImpl) appointment).createBlocks(start.getTime(), end.getTime(), blocks, excludeExceptions);
+                entry = new Entry(start.getTime(), end.getTime(), excludeExceptions, blocks);
+            }
+            used.put(appointment, entry);
+            result.addAll(entry.blocks);
+        }
+        entries = used;
+        return result;
+    }
+}
@@ -39,6 +39,8 @@ import org.rapla.entities.domain.Appointment;
 import org.rapla.entities.domain.AppointmentBlock;
 import org.rapla.entities.domain.AppointmentFormater;
 import org.rapla.entities.domain.Reservation;
+import org.rapla.entities.domain.internal.AppointmentBlockBuffer;
+import org.rapla.entities.domain.internal.AppointmentImpl;
 import org.rapla.entities.dynamictype.Attribute;
 import org.rapla.entities.dynamictype.AttributeAnnotations;
 import org.rapla.entities.dynamictype.Classifiable;
@@ -77,8 +79,6 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.BiFunction;
-import java.util.function.Function;
 
 public class RaplaBuilder
     implements
@@ -102,6 +102,8 @@ public class RaplaBuilder
     private boolean nonFilteredEventsVisible;
     private BlockCreator blockCreator = (blockContext, start, end) -> new RaplaBlock(blockContext, start, end);
     Map<Allocatable,Collection<Appointment>> bindings;
+    private AppointmentBlockCache blockCache;
+    private PreparedBuild preparedBuild;
 
     /** default buildStrategy is {@link GroupAllocatablesStrategy}.*/
     BuildStrategy buildStrategy;
@@ -133,6 +135,11 @@ public class RaplaBuilder
         this.blockCreator = blockCreator;
     }
 
+    /** the blocks of appointments that didn't change since the last build are taken from the cache */
+    public void setBlockCache(AppointmentBlockCache blockCache) {
+        this.blockCache = blockCache;
+    }
+
     protected RaplaLocale getRaplaLocale()
     {
         return raplaLocale;
@@ -397,41 +404,116 @@ public class RaplaBuilder
 
     @JsIgnore
     static public List<AppointmentBlock> splitBlocks(Collection<AppointmentBlock> preparedBlocks, Date startDate, Date endDate, int offsetMinutes) {
-        List<AppointmentBlock> result = new ArrayList<>();
+        AppointmentBlockBuffer blocks = new AppointmentBlockBuffer(preparedBlocks.size());
         for (AppointmentBlock block:preparedBlocks) {
-            long blockStart = block.getStart();
-            long blockEnd = block.getEnd();
-            Appointment appointment = block.getAppointment();
-            boolean isException = block.isException();
-            final long offsetMillis = offsetMinutes * DateTools.MILLISECONDS_PER_MINUTE;
-            BiFunction<Long, Long, Boolean> shouldSplit = ( start, end) -> !DateTools.isSameDay( start -offsetMillis, end- offsetMillis);
-            Function<Long, Long> minStart = ( date) -> DateTools.cutDate( date -offsetMillis ) + offsetMillis;
-            Function<Long, Long> maxEnd = ( date) -> DateTools.fillDate( date  - offsetMillis)-1 + offsetMillis;
-
-
-            if (shouldSplit.apply(blockStart, blockEnd) ) {
-                long firstBlockDate = Math.max(blockStart, startDate.getTime());
-                long lastBlockDate = Math.min(blockEnd, endDate.getTime());
+            blocks.add(block.getStart(), block.getEnd(), block.getAppointment(), block.isException());
+        }
+        return splitBlocks(blocks, startDate, endDate, offsetMinutes);
+    }
+
+    /** splits the blocks that span several days into one block per day. Only the returned blocks are created as objects. */
+    @JsIgnore
+    static public List<AppointmentBlock> splitBlocks(AppointmentBlockBuffer blocks, Date startDate, Date endDate, int offsetMinutes) {
+        List<AppointmentBlock> result = new ArrayList<>(blocks.size());
+        final long offsetMillis = offsetMinutes * DateTools.MILLISECONDS_PER_MINUTE;
+        final long startTime = startDate.getTime();
+        final long endTime = endDate.getTime();
+        for (int i = 0; i < blocks.size(); i++) {
+            long blockStart = blocks.getStart(i);
+            long blockEnd = blocks.getEnd(i);
+
+            if (shouldSplit(blockStart, blockEnd, offsetMillis) ) {
+                AppointmentBlock block = blocks.toBlock(i);
+                Appointment appointment = block.getAppointment();
+                boolean isException = block.isException();
+                long firstBlockDate = Math.max(blockStart, startTime);
+                long lastBlockDate = Math.min(blockEnd, endTime);
                 long currentBlockDate = firstBlockDate;
-                while ( currentBlockDate >= blockStart && minStart.apply( currentBlockDate )  < lastBlockDate) {
-                    final boolean splitStart =shouldSplit.apply(blockStart, currentBlockDate);
-                    final long start = splitStart ? minStart.apply(currentBlockDate): blockStart;
-                    final boolean splitEnd = shouldSplit.apply(blockEnd, currentBlockDate) || minStart.apply(blockEnd) == blockEnd;
-                    final long end = splitEnd ? maxEnd.apply( currentBlockDate ): blockEnd;
+                while ( currentBlockDate >= blockStart && minStart( currentBlockDate, offsetMillis )  < lastBlockDate) {
+                    final boolean splitStart =shouldSplit(blockStart, currentBlockDate, offsetMillis);
+                    final long start = splitStart ? minStart(currentBlockDate, offsetMillis): blockStart;
+                    final boolean splitEnd = shouldSplit(blockEnd, currentBlockDate, offsetMillis) || minStart(blockEnd, offsetMillis) == blockEnd;
+                    final long end = splitEnd ? maxEnd( currentBlockDate, offsetMillis ): blockEnd;
                     //System.out.println("Adding Block " + new Date(start) + " - " + new Date(end));
                     result.add ( new SplittedBlock(block,start, end, appointment,isException, splitStart, splitEnd));
                     currentBlockDate+= DateTools.MILLISECONDS_PER_DAY;
                 }
             } else {
-                result.add( block);
+                result.add( blocks.toBlock(i));
             }
         }
         return result;
     }
 
+    // the day boundaries are shifted by the offset
+    private static boolean shouldSplit(long start, long end, long offsetMillis)
+    {
+        return !DateTools.isSameDay( start -offsetMillis, end- offsetMillis);
+    }
+
+    private static long minStart(long date, long offsetMillis)
+    {
+        return DateTools.cutDate( date -offsetMillis ) + offsetMillis;
+    }
+
+    private static long maxEnd(long date, long offsetMillis)
+    {
+        return DateTools.fillDate( date  - offsetMillis)-1 + offsetMillis;
+    }
+
+
+    /** The blocks of the interval with the contexts of the blocks, calculated before the view is built. */
+    static final class PreparedBuild
+    {
+        final long start;
+        final long end;
+        final PreperationResult result;
+        final BuildContext buildContext;
+        final List<RaplaBlockContext[]> contexts;
+
+        PreparedBuild(Date start, Date end, PreperationResult result, BuildContext buildContext, List<RaplaBlockContext[]> contexts)
+        {
+            this.start = start.getTime();
+            this.end = end.getTime();
+            this.result = result;
+            this.buildContext = buildContext;
+            this.contexts = Collections.unmodifiableList(contexts);
+        }
+
+        boolean matches(Date start, Date end)
+        {
+            return this.start == start.getTime() && this.end == end.getTime();
+        }
+    }
+
+    /**
+     * Calculates the blocks of the interval and the contexts of the blocks, so that {@link #prepareBuild(Date, Date)} and {@link #build(BlockContainer, Date, Collection)}
+     * for the same interval only need to create the block views. The method doesn't access the view, so it can be called outside the UI thread.
+     * The builder must not be changed afterwards.
+     */
+    public void prepare(Date start, Date end) {
+        PreperationResult result = createPreperationResult(start, end);
+        // the blocks of the prepared context stay empty, every build copies the context with its own list of blocks
+        BuildContext buildContext = createBuildContext(Collections.emptyList());
+        List<RaplaBlockContext[]> contexts = new ArrayList<>(result.getBlocks().size());
+        for (AppointmentBlock block:result.getBlocks())
+        {
+            contexts.add( getBlocksForAppointment( block, buildContext ));
+        }
+        preparedBuild = new PreparedBuild(start, end, result, buildContext, contexts);
+    }
 
     /** selects all blocks that should be visible and calculates the max start- and end-time  */
     public PreperationResult prepareBuild(Date start,Date end) {
+        PreparedBuild prepared = preparedBuild;
+        if ( prepared != null && prepared.matches( start, end))
+        {
+            return prepared.result;
+        }
+        return createPreperationResult(start, end);
+    }
+
+    private PreperationResult createPreperationResult(Date start,Date end) {
         start = new Date( start.getTime() );
         end = new Date( end.getTime() );
         boolean excludeExceptions = isExceptionsExcluded();
@@ -450,16 +532,17 @@ public class RaplaBuilder
         //= AppointmentImpl.getAppointments(	nonFilteredEventsVisible ? allReservations : selectedReservations, selectedAllocatables);
         //logger.info( "Get appointments took " + (System.currentTimeMillis() - time) + " ms.");
         // Add appointment to the blocks
-        final List<AppointmentBlock> blocks = new ArrayList<>();
-        for (Appointment app:appointments)
+        final AppointmentBlockBuffer blocks;
+        if ( blockCache != null)
         {
-            if ( excludeExceptions)
-            {
-                app.createBlocksExcludeExceptions(start, end, blocks);
-            }
-            else
+            blocks = blockCache.createBlocks(appointments, start, end, excludeExceptions);
+        }
+        else
+        {
+            blocks = new AppointmentBlockBuffer();
+            for (Appointment app:appointments)
             {
-                app.createBlocks(start, end, blocks);
+                ((AppointmentImpl) app).createBlocks(start.getTime(), end.getTime(), blocks, excludeExceptions);
             }
         }
         int offsetMinutes = buildStrategy.getOffsetMinutes();
@@ -469,12 +552,14 @@ public class RaplaBuilder
         // calculate new start and end times
         int max =minHour * 60;
         int min =maxHour*60;
-        for (AppointmentBlock block:blocks)
+        for (int i = 0; i < blocks.size(); i++)
         {
-            int starthour = DateTools.getHourOfDay(block.getStart());
-            int startminute = DateTools.getMinuteOfHour(block.getStart());
-            int endhour = DateTools.getHourOfDay(block.getEnd());
-            int endminute = DateTools.getMinuteOfHour(block.getEnd());
+            final long blockStart = blocks.getStart(i);
+            final long blockEnd = blocks.getEnd(i);
+            int starthour = DateTools.getHourOfDay(blockStart);
+            int startminute = DateTools.getMinuteOfHour(blockStart);
+            int endhour = DateTools.getHourOfDay(blockEnd);
+            int endminute = DateTools.getMinuteOfHour(blockEnd);
             if ((starthour != 0 || startminute != 0)  && starthour*60 + startminute<min)
                 min = starthour * 60 + startminute;
             if ((endhour >0 || endminute>0) && (endhour *60 + endminute)<min  )
@@ -489,7 +574,16 @@ public class RaplaBuilder
 
     public void build(BlockContainer blockContainer, Date startDate, Collection<AppointmentBlock> preparedBlocks) {
 
-        List<Block> blocks = createBlocks(preparedBlocks, blockCreator);
+        PreparedBuild prepared = preparedBuild;
+        List<Block> blocks;
+        if ( prepared != null && prepared.result.getBlocks() == preparedBlocks)
+        {
+            blocks = createBlocks(prepared, blockCreator);
+        }
+        else
+        {
+            blocks = createBlocks(preparedBlocks, blockCreator);
+        }
         //long time = System.currentTimeMillis();
         buildStrategy.build(blockContainer, blocks, startDate);
         //logger.info( "Build strategy took " + (System.currentTimeMillis() - time) + " ms.");
@@ -507,8 +601,7 @@ public class RaplaBuilder
         ArrayList<Block> blocks = new ArrayList<>();
         {
             //long time = System.currentTimeMillis();
-            AppointmentInfoUI appointmentInfoUI = new AppointmentInfoUI(i18n,raplaLocale, raplaFacade,logger, appointmentFormater);
-        	BuildContext buildContext = new BuildContext(this, appointmentInfoUI, blocks);
+        	BuildContext buildContext = createBuildContext(blocks);
             Assert.notNull(preparedBlocks, "call prepareBuild first");
             for (AppointmentBlock block:preparedBlocks)
             {
@@ -524,6 +617,30 @@ public class RaplaBuilder
         return blocks;
     }
 
+    /** creates the block views for the prepared contexts. Every build gets its own list of blocks, so the blocks of a previous build stay unchanged */
+    private List<Block> createBlocks(PreparedBuild prepared, BlockCreator blockCreator)
+    {
+        List<Block> blocks = new ArrayList<>(prepared.contexts.size());
+        BuildContext buildContext = new BuildContext(prepared.buildContext, blocks);
+        Iterator<RaplaBlockContext[]> contexts = prepared.contexts.iterator();
+        for (AppointmentBlock block:prepared.result.getBlocks())
+        {
+            Date start = new Date( block.getStart() );
+            Date end = new Date( block.getEnd() );
+            for (RaplaBlockContext blockContext:contexts.next())
+            {
+                blocks.add( blockCreator.createBlock(new RaplaBlockContext(blockContext, buildContext), start, end));
+            }
+        }
+        return blocks;
+    }
+
+    private BuildContext createBuildContext(List<Block> blocks)
+    {
+        AppointmentInfoUI appointmentInfoUI = new AppointmentInfoUI(i18n,raplaLocale, raplaFacade,logger, appointmentFormater);
+        return new BuildContext(this, appointmentInfoUI, blocks);
+    }
+
     private RaplaBlockContext[] getBlocksForAppointment(AppointmentBlock block, BuildContext buildContext) {
     	Appointment appointment = block.getAppointment();
         final Reservation reservation = appointment.getReservation();
@@ -633,6 +750,28 @@ public class RaplaBuilder
             }
         }
 
+        /** copies the prepared context for a build with the passed list of blocks */
+        BuildContext(BuildContext prepared, List<Block> blocks)
+        {
+            this.blocks = blocks;
+            this.appointmentInfoUI = prepared.appointmentInfoUI;
+            this.raplaLocale = prepared.raplaLocale;
+            this.bResourceVisible = prepared.bResourceVisible;
+            this.bPersonVisible = prepared.bPersonVisible;
+            this.bTimeVisible = prepared.bTimeVisible;
+            this.bRepeatingVisible = prepared.bRepeatingVisible;
+            this.colors = prepared.colors;
+            this.i18n = prepared.i18n;
+            this.logger = prepared.logger;
+            this.user = prepared.user;
+            this.conflictsSelected = prepared.conflictsSelected;
+            this.isResourceColoring = prepared.isResourceColoring;
+            this.isEventColoring = prepared.isEventColoring;
+            this.permissionController = prepared.permissionController;
+            this.showTooltipsInHtmlExport = prepared.showTooltipsInHtmlExport;
+            this.showTooltips = prepared.showTooltips;
+        }
+
         public RaplaLocale getRaplaLocale() {
             return raplaLocale;
         }
@@ -740,6 +879,20 @@ public class RaplaBuilder
             addAllocatables(builder, reservation.getPersons(), selectedAllocatable);
         }
 
+        /** copies the prepared context for a build with the passed build context */
+        RaplaBlockContext(RaplaBlockContext prepared, BuildContext buildContext)
+        {
+            this.buildContext = buildContext;
+            this.selectedMatchingAllocatables = prepared.selectedMatchingAllocatables;
+            this.matchingAllocatables = prepared.matchingAllocatables;
+            this.appointmentBlock = prepared.appointmentBlock;
+            this.movable = prepared.movable;
+            this.isBlockSelected = prepared.isBlockSelected;
+            this.isAnonymous = prepared.isAnonymous;
+            this.splitStart = prepared.splitStart;
+            this.splitEnd = prepared.splitEnd;
+        }
+
         public boolean isSplitStart()
         {
             return splitStart;
@@ -44,11 +44,13 @@ import org.rapla.facade.client.ClientFacade;
 import org.rapla.framework.RaplaException;
 import org.rapla.framework.RaplaLocale;
 import org.rapla.logger.Logger;
+import org.rapla.plugin.abstractcalendar.AppointmentBlockCache;
 import org.rapla.plugin.abstractcalendar.DateChooserPanel;
 import org.rapla.plugin.abstractcalendar.GroupAllocatablesStrategy;
 import org.rapla.plugin.abstractcalendar.MultiCalendarPrint;
 import org.rapla.plugin.abstractcalendar.RaplaBuilder;
 import org.rapla.plugin.abstractcalendar.RaplaCalendarViewListener;
+import org.rapla.scheduler.CommandScheduler;
 import org.rapla.scheduler.Observable;
 import org.rapla.scheduler.Promise;
 import org.rapla.scheduler.ResolvedPromise;
@@ -97,6 +99,7 @@ public abstract class AbstractRaplaSwingCalendar extends RaplaGUIComponent
     protected final AppointmentFormater appointmentFormater;
     protected final EditController editController;
     private final boolean printing;
+    private final AppointmentBlockCache blockCache = new AppointmentBlockCache();
 
     public AbstractRaplaSwingCalendar(ClientFacade facade, RaplaResources i18n, RaplaLocale raplaLocale, Logger logger, CalendarModel model, boolean editable,
             boolean printing, final Set<ObjectMenuFactory> objectMenuFactories, MenuFactory menuFactory, Provider<DateRenderer> dateRendererProvider,
@@ -231,7 +234,15 @@ public abstract class AbstractRaplaSwingCalendar extends RaplaGUIComponent
         Date endDate = getEndDate();
         ensureViewTimeframeIsInModel(startDate, endDate);
         final Promise<RaplaBuilder> builderPromise = createBuilder();
-        return builderPromise;
+        final CommandScheduler scheduler = getFacade().getScheduler();
+        // the blocks are prepared in the background, so the ui thread only needs to create the block views
+        final Promise<RaplaBuilder> preparedPromise = builderPromise.thenCompose((builder) -> scheduler.supply(() ->
+        {
+            builder.setBlockCache(blockCache);
+            builder.prepare(startDate, endDate);
+            return builder;
+        }));
+        return preparedPromise;
     }
 
     protected Date getEndDate()
@@ -53,7 +53,8 @@ import java.util.Map;
 public class SwingRaplaBlock extends RaplaBlock implements SwingBlock
 {
     private static BufferedImage exceptionImage;
-    RaplaBlockView m_view = new RaplaBlockView();
+    // created on the first call of getView, so blocks outside of the visible area don't need a component
+    RaplaBlockView m_view;
 
     public SwingRaplaBlock(RaplaBuilder.RaplaBlockContext blockContext, Date start, Date end)
     {
@@ -75,7 +76,7 @@ public class SwingRaplaBlock extends RaplaBlock implements SwingBlock
             return exceptionImage;
 
         Image image = getExceptionBackgroundIcon().getImage();
-        MediaTracker m = new MediaTracker( m_view );
+        MediaTracker m = new MediaTracker( getView() );
         m.addImage( image, 0 );
         try
         {
@@ -94,16 +95,29 @@ public class SwingRaplaBlock extends RaplaBlock implements SwingBlock
 
     public Component getView()
     {
+        if ( m_view == null )
+        {
+            m_view = new RaplaBlockView();
+        }
         return m_view;
     }
 
+    public void releaseView()
+    {
+        if ( m_view != null )
+        {
+            javax.swing.ToolTipManager.sharedInstance().unregisterComponent( m_view );
+            m_view = null;
+        }
+    }
+
 
     static Color TRANS = new Color( 100, 100, 100, 100 );
 
     public void paintDragging( Graphics g, int width, int height )
     {
         g.setColor( TRANS );
-        m_view.paint( g, width, height );
+        ((RaplaBlockView) getView()).paint( g, width, height );
         g.setColor( LINECOLOR_ACTIVE );
         g.drawRoundRect( 0, 0, width, height, 5, 5 );
     }
@@ -552,12 +566,18 @@ public class SwingRaplaBlock extends RaplaBlock implements SwingBlock
 				if ( appointment.equals( getAppointment() ) )
                 {
                     block.linecolor = active ? LINECOLOR_ACTIVE : LINECOLOR_INACTIVE;
-                    block.m_view.repaint();
+                    if ( block.m_view != null )
+                    {
+                        block.m_view.repaint();
+                    }
                 }
                 else if ( reservation.equals( getReservation() ) )
                 {
                     block.linecolor = active ? LINECOLOR_SAME_RESERVATION : LINECOLOR_INACTIVE;
-                    block.m_view.repaint();
+                    if ( block.m_view != null )
+                    {
+                        block.m_view.repaint();
+                    }
                 }
             }
         }
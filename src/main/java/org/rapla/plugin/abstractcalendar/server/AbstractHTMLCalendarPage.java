@@ -44,6 +44,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
@@ -64,6 +65,8 @@ public abstract class AbstractHTMLCalendarPage  implements HTMLViewPage
     final protected AppointmentFormater appointmentFormater;
     @Inject
     protected PromiseWait promiseWait;
+    @Inject
+    protected HTMLCalendarCache calendarCache;
 
     public AbstractHTMLCalendarPage(RaplaLocale raplaLocale, RaplaResources raplaResources, RaplaFacade facade, Logger logger, AppointmentFormater appointmentFormater) {
         this.raplaResources = raplaResources;
@@ -156,7 +159,6 @@ public abstract class AbstractHTMLCalendarPage  implements HTMLViewPage
     {
         this.model = calendarModel.clone();
         response.setContentType("text/html; charset=" + raplaLocale.getCharsetNonUtf());
-        java.io.PrintWriter out = response.getWriter();
 
         Date calendarview = model.getSelectedDate();
         if ( request.getParameter("today") != null ) {
@@ -171,7 +173,6 @@ public abstract class AbstractHTMLCalendarPage  implements HTMLViewPage
                 SerializableDateTimeFormat format = raplaLocale.getSerializableFormat();
                 calendarview =  format.parseDate( dateString, false );
             } catch (ParseDateException ex) {
-                out.close();
                 throw new ServletException( ex);
             }
             DateTools.IncrementSize incrementSize = getIncrementSize();
@@ -188,16 +189,42 @@ public abstract class AbstractHTMLCalendarPage  implements HTMLViewPage
 
         Date currentDate = calendarview;
         model.setSelectedDate( currentDate );
-        try {
-            view = createCalendarView();
-        	configureView();
-        } catch (RaplaException ex) {
-            logger.error("Can't configure view ", ex);
-            throw new ServletException( ex );
-        }
-        view.setLocale( raplaLocale );
+        final String cacheKey = calendarCache.createKey( getClass(), request, currentDate, facade.today());
+        HTMLCalendarCache.Entry page = calendarCache.get( cacheKey );
+        if ( page == null)
+        {
+            final int version = calendarCache.getVersion();
+            try {
+                view = createCalendarView();
+                configureView();
+            } catch (RaplaException ex) {
+                logger.error("Can't configure view ", ex);
+                throw new ServletException( ex );
+            }
+            view.setLocale( raplaLocale );
 
-        printPage(request, out, calendarview);
+            StringWriter html = new StringWriter();
+            PrintWriter pageOut = new PrintWriter( html);
+            printPage(request, pageOut, calendarview);
+            pageOut.flush();
+            Collection<Allocatable> allocatables;
+            try {
+                allocatables = model.getSelectedAllocatablesAsList();
+            } catch (RaplaException ex) {
+                throw new ServletException( ex );
+            }
+            page = calendarCache.put( cacheKey, version, html.toString(), allocatables, model.getUser());
+        }
+        // clients must revalidate the page on each request, which only costs a lookup if the page is unchanged
+        response.setHeader("ETag", page.getETag());
+        response.setHeader("Cache-Control", "no-cache");
+        if ( page.matches( request.getHeader("If-None-Match")))
+        {
+            response.setStatus( HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        PrintWriter out = response.getWriter();
+        out.print( page.getHtml());
         out.close();
 	}
 
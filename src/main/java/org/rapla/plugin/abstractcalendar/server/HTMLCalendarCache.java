@@ -0,0 +1,304 @@
+package org.rapla.plugin.abstractcalendar.server;
+
+import org.rapla.entities.Entity;
+import org.rapla.entities.User;
+import org.rapla.entities.configuration.Preferences;
+import org.rapla.entities.domain.Allocatable;
+import org.rapla.entities.domain.Reservation;
+import org.rapla.entities.storage.EntityReferencer;
+import org.rapla.entities.storage.ReferenceInfo;
+import org.rapla.facade.Conflict;
+import org.rapla.facade.RaplaFacade;
+import org.rapla.framework.RaplaException;
+import org.rapla.logger.Logger;
+import org.rapla.storage.CachableStorageOperator;
+import org.rapla.storage.UpdateOperation;
+import org.rapla.storage.UpdateResult;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Keeps the rendered html of published calendar pages, so repeated requests of the same page, e.g. from screens that reload a calendar every minute,
+ * don't need to build the calendar again. Before each lookup the changes since the last lookup are read from the storage and the pages that show a
+ * changed allocatable or a reservation of a changed allocatable are removed. A change of the preferences of a user, that store the calendar
+ * configurations, removes the pages of that user. Changes to other entities, e.g. types, categories or the system preferences, remove all pages.
+ */
+@Singleton
+public class HTMLCalendarCache
+{
+    static final int MAX_ENTRIES = 500;
+    /** request parameters that only select the date of the page. The selected date is part of the key instead */
+    private static final Set<String> DATE_PARAMETERS = new HashSet<>(Arrays.asList("today", "day", "month", "year", "next", "prev", "goto"));
+
+    private final CachableStorageOperator operator;
+    private final Logger logger;
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+        {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private Date validatedUntil;
+    // incremented each time pages are removed, so pages rendered before a change are not stored after the change was processed
+    private int version;
+
+    public static class Entry
+    {
+        private final String html;
+        private final String eTag;
+        // null if the page can show reservations of all allocatables
+        private final Set<String> allocatableIds;
+        // the user whose calendar configuration is shown or null if the page doesn't belong to a user
+        private final String userId;
+
+        Entry(String html, Set<String> allocatableIds, String userId)
+        {
+            this.html = html;
+            this.allocatableIds = allocatableIds;
+            this.userId = userId;
+            this.eTag = "\"" + Integer.toHexString(html.hashCode()) + "-" + Integer.toHexString(html.length()) + "\"";
+        }
+
+        public String getHtml()
+        {
+            return html;
+        }
+
+        public String getETag()
+        {
+            return eTag;
+        }
+
+        /** returns true if the If-None-Match header of a request contains the ETag of the page */
+        public boolean matches(String ifNoneMatch)
+        {
+            if (ifNoneMatch == null)
+            {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(","))
+            {
+                final String trimmed = tag.trim();
+                if (trimmed.equals(eTag) || trimmed.equals("*"))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean isAffected(Set<String> changedAllocatableIds, boolean reservationsChanged, Set<String> changedUserIds)
+        {
+            if (!changedUserIds.isEmpty() && (userId == null || changedUserIds.contains(userId)))
+            {
+                return true;
+            }
+            if (allocatableIds == null)
+            {
+                return reservationsChanged || !changedAllocatableIds.isEmpty();
+            }
+            for (String id : allocatableIds)
+            {
+                if (changedAllocatableIds.contains(id))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @Inject
+    public HTMLCalendarCache(RaplaFacade facade, Logger logger)
+    {
+        this.operator = (CachableStorageOperator) facade.getOperator();
+        this.logger = logger.getChildLogger("html.cache");
+    }
+
+    /** creates the key of the page of the passed class for the request, the selected date and the current day. */
+    public String createKey(Class<?> pageClass, HttpServletRequest request, Date selectedDate, Date today)
+    {
+        final StringBuilder key = new StringBuilder();
+        key.append(pageClass.getName());
+        key.append('|').append(request.getRequestURI());
+        key.append('|').append(selectedDate.getTime());
+        key.append('|').append(today.getTime());
+        final Map<String, String[]> parameters = new TreeMap<>(request.getParameterMap());
+        for (Map.Entry<String, String[]> parameter : parameters.entrySet())
+        {
+            if (DATE_PARAMETERS.contains(parameter.getKey()))
+            {
+                continue;
+            }
+            key.append('|').append(parameter.getKey());
+            for (String value : parameter.getValue())
+            {
+                key.append('=').append(value);
+            }
+        }
+        final Object allocatableId = request.getAttribute("allocatable_id");
+        if (allocatableId != null)
+        {
+            key.append("|allocatable_id=").append(allocatableId);
+        }
+        return key.toString();
+    }
+
+    /** returns the cached page for the key or null if the page is not cached or was changed since it was stored */
+    public synchronized Entry get(String key)
+    {
+        validate();
+        return entries.get(key);
+    }
+
+    /** returns the version that must be passed to {@link #put}. Call it after {@link #get} and before rendering the page */
+    public synchronized int getVersion()
+    {
+        return version;
+    }
+
+    /** stores the html of the page if there were no changes since the passed version.
+     * The allocatables are the allocatables shown on the page or null if the page is not restricted to allocatables.
+     * The user is the owner of the calendar configuration of the page */
+    public synchronized Entry put(String key, int renderedVersion, String html, Collection<Allocatable> allocatables, User user)
+    {
+        Set<String> allocatableIds = null;
+        if (allocatables != null && !allocatables.isEmpty())
+        {
+            allocatableIds = new HashSet<>();
+            for (Allocatable allocatable : allocatables)
+            {
+                allocatableIds.add(allocatable.getId());
+            }
+        }
+        final Entry entry = new Entry(html, allocatableIds, user != null ? user.getId() : null);
+        if (renderedVersion == version)
+        {
+            entries.put(key, entry);
+        }
+        return entry;
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+        version++;
+    }
+
+    private void validate()
+    {
+        final Date lastRefreshed = operator.getLastRefreshed();
+        if (validatedUntil == null || lastRefreshed == null)
+        {
+            clear();
+            validatedUntil = lastRefreshed;
+            return;
+        }
+        if (!lastRefreshed.after(validatedUntil))
+        {
+            return;
+        }
+        try
+        {
+            final UpdateResult updateResult = operator.getUpdateResult(validatedUntil);
+            if (updateResult.getSince() == null)
+            {
+                // the changes are not in the history anymore
+                clear();
+                validatedUntil = lastRefreshed;
+            }
+            else
+            {
+                invalidate(updateResult);
+                validatedUntil = updateResult.getUntil();
+            }
+        }
+        catch (RaplaException ex)
+        {
+            logger.warn("Could not read changes. Clearing html cache: " + ex.getMessage());
+            clear();
+            validatedUntil = lastRefreshed;
+        }
+    }
+
+    private void invalidate(UpdateResult updateResult)
+    {
+        final Set<String> changedAllocatableIds = new HashSet<>();
+        final Set<String> changedUserIds = new HashSet<>();
+        boolean reservationsChanged = false;
+        for (UpdateOperation operation : updateResult.getOperations())
+        {
+            final Class<? extends Entity> type = operation.getType();
+            final ReferenceInfo reference = operation.getReference();
+            if (type == Allocatable.class)
+            {
+                changedAllocatableIds.add(reference.getId());
+            }
+            else if (type == Reservation.class)
+            {
+                reservationsChanged = true;
+                addAllocatableIds(changedAllocatableIds, updateResult.getLastEntryBeforeUpdate(reference));
+                addAllocatableIds(changedAllocatableIds, updateResult.getLastKnown(reference));
+            }
+            else if (type == Preferences.class)
+            {
+                Preferences preferences = (Preferences) updateResult.getLastKnown(reference);
+                if (preferences == null)
+                {
+                    preferences = (Preferences) updateResult.getLastEntryBeforeUpdate(reference);
+                }
+                final ReferenceInfo<User> ownerRef = preferences != null ? preferences.getOwnerRef() : null;
+                if (ownerRef == null)
+                {
+                    // the system preferences can change the configuration of every page. Unknown preferences are treated the same way
+                    clear();
+                    return;
+                }
+                changedUserIds.add(ownerRef.getId());
+            }
+            else if (type != Conflict.class)
+            {
+                // types, categories and users can change the rendering of every page
+                clear();
+                return;
+            }
+        }
+        version++;
+        final int size = entries.size();
+        final boolean anyReservationChanged = reservationsChanged;
+        entries.values().removeIf((entry) -> entry.isAffected(changedAllocatableIds, anyReservationChanged, changedUserIds));
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Removed " + (size - entries.size()) + " of " + size + " pages for changed allocatables " + changedAllocatableIds + " and users " + changedUserIds);
+        }
+    }
+
+    private static void addAllocatableIds(Set<String> ids, Entity entity)
+    {
+        if (!(entity instanceof EntityReferencer))
+        {
+            return;
+        }
+        for (ReferenceInfo reference : ((EntityReferencer) entity).getReferenceInfo())
+        {
+            if (reference.getType() == Allocatable.class)
+            {
+                ids.add(reference.getId());
+            }
+        }
+    }
+}
@@ -15,10 +15,10 @@ import org.rapla.framework.TypedComponentRole;
 import org.rapla.logger.Logger;
 import org.rapla.plugin.exchangeconnector.ExchangeConnectorPlugin;
 import org.rapla.plugin.exchangeconnector.ExchangeConnectorRemote;
-import org.rapla.rest.JsonParserWrapper;
 import org.rapla.storage.CachableStorageOperator;
 import org.rapla.storage.impl.DefaultRaplaLock;
 import org.rapla.storage.impl.RaplaLock;
+import org.rapla.storage.impl.server.EntityJsonParser;
 import org.rapla.storage.impl.server.LocalAbstractCachableOperator;
 
 import javax.inject.Inject;
@@ -54,7 +54,7 @@ public class ExchangeAppointmentStorage
     private Map<String, ImportExportEntity> importExportEntities = new LinkedHashMap<>();
     //CachableStorageOperator operator;
     TypedComponentRole<String> LAST_SYNC_ERROR_CHANGE_HASH = new TypedComponentRole<>("org.rapla.plugin.exchangconnector.last_sync_error_change_hash");
-    private final JsonParserWrapper.JsonParser gson = JsonParserWrapper.defaultJson().get();
+    private final EntityJsonParser gson = EntityJsonParser.get();
     //private static String DEFAULT_STORAGE_FILE_PATH = "data/exchangeConnector.dat";
     //	private String storageFilePath = DEFAULT_STORAGE_FILE_PATH;
     final private Logger logger;
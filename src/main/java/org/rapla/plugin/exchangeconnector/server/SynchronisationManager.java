@@ -24,6 +24,7 @@ import org.rapla.facade.RaplaFacade;
 import org.rapla.framework.RaplaException;
 import org.rapla.framework.RaplaInitializationException;
 import org.rapla.framework.TypedComponentRole;
+import org.rapla.framework.internal.DefaultScheduler;
 import org.rapla.inject.Extension;
 import org.rapla.logger.Logger;
 import org.rapla.plugin.exchangeconnector.ExchangeConnectorConfig;
@@ -38,7 +39,6 @@ import org.rapla.plugin.exchangeconnector.server.SynchronizationTask.SyncStatus;
 import org.rapla.plugin.exchangeconnector.server.exchange.AppointmentSynchronizer;
 import org.rapla.plugin.exchangeconnector.server.exchange.EWSConnector;
 import org.rapla.plugin.mail.server.MailToUserImpl;
-import org.rapla.scheduler.CommandScheduler;
 import org.rapla.server.RaplaKeyStorage;
 import org.rapla.server.RaplaKeyStorage.LoginInfo;
 import org.rapla.server.TimeZoneConverter;
@@ -92,7 +92,7 @@ public class SynchronisationManager implements ServerExtension
     private final String exchangeAppointmentCategory;
 
     private final int syncPeriodPast;
-    CommandScheduler scheduler;
+    DefaultScheduler scheduler;
     private final Set<ExchangeConfigExtensionPoint> configExtensions;
     private final MailToUserImpl mailToUserInterface;
     Disposable schedule;
@@ -100,7 +100,7 @@ public class SynchronisationManager implements ServerExtension
     @Inject
     public SynchronisationManager(RaplaFacade facade, RaplaResources i18nRapla, ExchangeConnectorResources i18nExchange, Logger logger,
             TimeZoneConverter converter, AppointmentFormater appointmentFormater, RaplaKeyStorage keyStorage, ExchangeAppointmentStorage appointmentStorage,
-            CommandScheduler scheduler, ConfigReader config, Set<ExchangeConfigExtensionPoint> configExtensions, MailToUserImpl mailToUserInterface) throws
+            DefaultScheduler scheduler, ConfigReader config, Set<ExchangeConfigExtensionPoint> configExtensions, MailToUserImpl mailToUserInterface) throws
             RaplaInitializationException
     {
         super();
@@ -150,7 +150,8 @@ public class SynchronisationManager implements ServerExtension
                 }
             }
         };
-        schedule = scheduler.schedule(synchronizeAction, 0, SCHEDULE_PERIOD);
+        // the synchronization waits for the exchange server
+        schedule = scheduler.scheduleBlocking("exchange synchronisation", synchronizeAction, 0, SCHEDULE_PERIOD);
     }
 
     @Override
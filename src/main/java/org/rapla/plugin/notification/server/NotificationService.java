@@ -31,12 +31,12 @@ import org.rapla.facade.RaplaFacade;
 import org.rapla.facade.internal.AllocationChangeFinder;
 import org.rapla.framework.RaplaException;
 import org.rapla.framework.internal.AbstractRaplaLocale;
+import org.rapla.framework.internal.DefaultScheduler;
 import org.rapla.inject.Extension;
 import org.rapla.logger.Logger;
 import org.rapla.plugin.mail.server.MailToUserImpl;
 import org.rapla.plugin.notification.NotificationPlugin;
 import org.rapla.plugin.notification.NotificationResources;
-import org.rapla.scheduler.CommandScheduler;
 import org.rapla.server.extensionpoints.ServerExtension;
 import org.rapla.storage.CachableStorageOperator;
 import org.rapla.storage.StorageOperator;
@@ -65,7 +65,7 @@ public class NotificationService implements ServerExtension
     private static final long VALID_LOCK = DateTools.MILLISECONDS_PER_MINUTE * 5;
     private final RaplaFacade raplaFacade;
     private final Provider<MailToUserImpl> mailToUserInterface;
-    protected CommandScheduler scheduler;
+    protected DefaultScheduler scheduler;
     private final AppointmentFormater appointmentFormater;
     private final NotificationResources notificationI18n;
     private final RaplaResources raplaI18n;
@@ -77,7 +77,7 @@ public class NotificationService implements ServerExtension
 
     @Inject
     public NotificationService(RaplaFacade facade, RaplaResources i18nBundle, NotificationResources notificationI18n, AppointmentFormater appointmentFormater,
-                               Provider<MailToUserImpl> mailToUserInterface, CommandScheduler scheduler, Logger logger, NotificationStorage notificationStorage)
+                               Provider<MailToUserImpl> mailToUserInterface, DefaultScheduler scheduler, Logger logger, NotificationStorage notificationStorage)
 
     {
         this.notificationI18n = notificationI18n;
@@ -123,7 +123,7 @@ public class NotificationService implements ServerExtension
                 }
             }
         };
-        scheduleList.add( scheduler.schedule( sentUpdateMails,0,30000l));
+        scheduleList.add( scheduleBlocking("notification mails", sentUpdateMails,0,30000l));
         Action retryMails = () ->
         {
             Date lastUpdated = null;
@@ -145,7 +145,13 @@ public class NotificationService implements ServerExtension
                 }
             }
         };
-        scheduleList.add(scheduler.schedule( retryMails,45000l,DateTools.MILLISECONDS_PER_MINUTE * 15 + 531l));
+        scheduleList.add(scheduleBlocking("notification retry mails", retryMails,45000l,DateTools.MILLISECONDS_PER_MINUTE * 15 + 531l));
+    }
+
+    private Disposable scheduleBlocking(String taskType, Action task, long delay, long period)
+    {
+        // sending mails waits for the mail server
+        return scheduler.scheduleBlocking(taskType, task, delay, period);
     }
 
     public void stop()
@@ -395,11 +401,13 @@ public class NotificationService implements ServerExtension
             ReservationImpl resImpl = ((ReservationImpl) reservation);
             if (resImpl.getResolver() == null)
             {
+                // entities from the history are shared, so the resolver is set on a clone
+                resImpl = resImpl.clone();
                 resImpl.setResolver(operator);
             }
             try
             {
-                buf.append(reservation.getName(getLocale()));
+                buf.append(resImpl.getName(getLocale()));
             }
             catch (Throwable t)
             {
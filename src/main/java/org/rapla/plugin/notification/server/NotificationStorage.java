@@ -8,8 +8,8 @@ import org.rapla.entities.storage.internal.ImportExportEntityImpl;
 import org.rapla.facade.RaplaFacade;
 import org.rapla.framework.RaplaException;
 import org.rapla.plugin.notification.server.NotificationService.AllocationMail;
-import org.rapla.rest.JsonParserWrapper;
 import org.rapla.storage.CachableStorageOperator;
+import org.rapla.storage.impl.server.EntityJsonParser;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -25,7 +25,7 @@ public class NotificationStorage
 {
     private final CachableStorageOperator operator;
     private final RaplaFacade facade;
-    private final JsonParserWrapper.JsonParser gson = JsonParserWrapper.defaultJson().get();
+    private final EntityJsonParser gson = EntityJsonParser.get();
     private  Map<String, ImportExportEntity> exportMails = new LinkedHashMap<>();
     private final Map<AllocationMail, String> mailToRaplaId = new LinkedHashMap<>();
 
@@ -125,72 +125,118 @@ public class RaplaTableModel<T>
     static public <T> String getCSV(List<RaplaTableColumn<T>> columns, List<T> rows)
     {
         StringBuffer buf = new StringBuffer();
+        buf.append(getCSVHeader(columns));
+        for (T row : rows)
+        {
+            buf.append(getCSVRow(columns, row));
+        }
+        final String result = buf.toString();
+        return result;
+    }
+
+    static public <T> String getCSVHeader(List<RaplaTableColumn<T>> columns)
+    {
+        StringBuilder buf = new StringBuilder();
         for (RaplaTableColumn column : columns)
         {
             buf.append(column.getColumnName());
             buf.append(CELL_BREAK);
         }
-        for (T row : rows)
+        return buf.toString();
+    }
+
+    /** returns the csv line of the row, starting with a line break */
+    static public <T> String getCSVRow(List<RaplaTableColumn<T>> columns, T row)
+    {
+        StringBuilder buf = new StringBuilder();
+        buf.append(LINE_BREAK);
+        for (RaplaTableColumn column : columns)
         {
-            buf.append(LINE_BREAK);
-            for (RaplaTableColumn column : columns)
+            Object value = column.getValue(row);
+            Class columnClass = column.getColumnClass();
+            boolean isDate = columnClass.equals(java.util.Date.class);
+            String formated = "";
+            if (value != null)
             {
-                T rowObject = row;
-                Object value = column.getValue(rowObject);
-                Class columnClass = column.getColumnClass();
-                boolean isDate = columnClass.equals(java.util.Date.class);
-                String formated = "";
-                if (value != null)
+                if (isDate)
                 {
-                    if (isDate)
-                    {
-                        String timestamp = DateTools.formatDateTime( (java.util.Date) value);
-                        formated = timestamp;
-                    }
-                    else
-                    {
-                        String escaped = escape(value);
-                        formated = escaped;
-                    }
+                    String timestamp = DateTools.formatDateTime( (java.util.Date) value);
+                    formated = timestamp;
+                }
+                else
+                {
+                    String escaped = escape(value);
+                    formated = escaped;
                 }
-                buf.append(formated);
-                buf.append(CELL_BREAK);
             }
+            buf.append(formated);
+            buf.append(CELL_BREAK);
         }
-        final String result = buf.toString();
-        return result;
+        return buf.toString();
     }
 
     static private String escape(Object cell) {
         return cell.toString().replace(LINE_BREAK, " ").replace(CELL_BREAK, " ");
     }
 
+    /**
+     * sorts the rows by the values of the sort columns and the fallback comparator. The column values of a row are computed once
+     * before sorting and not on every comparison.
+     */
     static public <T> List<T> sortRows(Collection<T> rowObjects, Map<RaplaTableColumn<T>, Integer> sortDirections,Comparator<T> fallbackComparator) {
-        List<T> result = new ArrayList<>(rowObjects);
-        Comparator<T> comparator = new Comparator<T>() {
-            public int compare(T o1, T o2) {
-                if (o2.equals(o1)) {
+        final int columnCount = sortDirections.size();
+        final List<RaplaTableColumn<T>> sortColumns = new ArrayList<>(columnCount);
+        final int[] directions = new int[columnCount];
+        final boolean[] isString = new boolean[columnCount];
+        for (Map.Entry<RaplaTableColumn<T>, Integer> entry : sortDirections.entrySet()) {
+            final RaplaTableColumn<T> column = entry.getKey();
+            directions[sortColumns.size()] = entry.getValue();
+            isString[sortColumns.size()] = column.getColumnClass().equals(String.class);
+            sortColumns.add(column);
+        }
+        List<SortKey<T>> keys = new ArrayList<>(rowObjects.size());
+        for (T row : rowObjects) {
+            final Object[] values = new Object[columnCount];
+            for (int j = 0; j < columnCount; j++) {
+                values[j] = sortColumns.get(j).getValue(row);
+            }
+            keys.add(new SortKey<>(row, values));
+        }
+        Comparator<SortKey<T>> comparator = new Comparator<SortKey<T>>() {
+            public int compare(SortKey<T> k1, SortKey<T> k2) {
+                if (k2.row.equals(k1.row)) {
                     return 0;
                 }
-                for (Map.Entry<RaplaTableColumn<T>, Integer> entry : sortDirections.entrySet()) {
-                    RaplaTableColumn column = entry.getKey();
-                    int direction = entry.getValue();
-                    Object v1 = column.getValue(o1);
-                    Object v2 = column.getValue(o2);
+                for (int j = 0; j < columnCount; j++) {
+                    Object v1 = k1.values[j];
+                    Object v2 = k2.values[j];
                     if (v1 != null && v2 != null) {
-                        Class<?> columnClass = column.getColumnClass();
-                        if (columnClass.equals(String.class)) {
-                            return String.CASE_INSENSITIVE_ORDER.compare(v1.toString(), v2.toString()) * direction;
+                        if (isString[j]) {
+                            return String.CASE_INSENSITIVE_ORDER.compare(v1.toString(), v2.toString()) * directions[j];
                         } else if (v1 instanceof Comparable) {
-                            return ((Comparable) v1).compareTo(v2) * direction;
+                            return ((Comparable) v1).compareTo(v2) * directions[j];
                         }
                     }
                 }
-                return fallbackComparator.compare(o1, o2);
+                return fallbackComparator.compare(k1.row, k2.row);
             }
         };
-        Collections.sort(result, comparator);
+        Collections.sort(keys, comparator);
+        List<T> result = new ArrayList<>(keys.size());
+        for (SortKey<T> key : keys) {
+            result.add(key.row);
+        }
         return  result;
     }
 
+    static private class SortKey<T> {
+        private final T row;
+        private final Object[] values;
+
+        private SortKey(T row, Object[] values) {
+            this.row = row;
+            this.values = values;
+        }
+    }
+
 }
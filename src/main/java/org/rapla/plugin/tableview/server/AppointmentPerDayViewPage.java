@@ -36,6 +36,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.swing.table.TableColumn;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.*;
 
 @Extension(provides = HTMLViewPage.class, id = TableViewPlugin.TABLE_APPOINTMENTS_PER_DAY_VIEW) public class AppointmentPerDayViewPage
@@ -55,7 +56,7 @@ import java.util.*;
         tableViewPage = new TableViewPage<AppointmentBlock>(raplaLocale) {
 
             @Override
-            public String getCalendarBody() throws RaplaException
+            public void writeCalendarBody(PrintWriter out) throws RaplaException
             {
                 User user = model.getUser();
                 final String tableViewName = TableConfig.APPOINTMENTS_PER_DAY_VIEW;
@@ -68,7 +69,7 @@ import java.util.*;
                     List<RaplaTableColumn<AppointmentBlock>> columnPluginsPlusDate = new ArrayList<>(columnPlugins);
                     columnPluginsPlusDate.add(0, tableConfigLoader.createDateColumn( "appointment_per_date_date", user));
                     Map<RaplaTableColumn<AppointmentBlock>, Integer> sortDirections = RaplaTableModel.getSortDirections(model,columnPluginsPlusDate, tableViewName);
-                    return super.getCalendarBody( columnPluginsPlusDate, blocks, sortDirections);
+                    super.writeCalendarBody(out, columnPluginsPlusDate, blocks, sortDirections);
                 }
                 else
                 {
@@ -82,49 +83,46 @@ import java.util.*;
                         }
                         appointmentBlocks.add(block);
                     });
-                    return getCalendarBodyHTML(columnPlugins, blockSorter);
+                    writeCalendarBodyHTML(out, columnPlugins, blockSorter);
                 }
             }
 
-            public String getCalendarBodyHTML(List<RaplaTableColumn<AppointmentBlock>> columPlugins,Map<String,List<AppointmentBlock>> blocks)
+            public void writeCalendarBodyHTML(PrintWriter out, List<RaplaTableColumn<AppointmentBlock>> columPlugins,Map<String,List<AppointmentBlock>> blocks)
             {
-                StringBuffer buf = new StringBuffer();
                 {
-                    buf.append("<div class=\"export table \">");
-                    buf.append("<div class=\"tr\">");
+                    out.print("<div class=\"export table \">");
+                    out.print("<div class=\"tr\">");
                     for (RaplaTableColumn<?> col : columPlugins)
                     {
-                        buf.append("<div class=\"th\">");
-                        buf.append(Tools.createXssSafeString(col.getColumnName()));
-                        buf.append("</div>");
+                        out.print("<div class=\"th\">");
+                        out.print(Tools.createXssSafeString(col.getColumnName()));
+                        out.print("</div>");
                     }
-                    buf.append("</div>");
+                    out.print("</div>");
                     blocks.entrySet().stream().forEach(entry -> {
                         String title = entry.getKey();
                         //buf.append("<div style=\"clear:both;\"></div>");
-                        buf.append("<div class=\"appointments_per_day\">");
-                        buf.append(title);
-                        buf.append("</div>");
+                        out.print("<div class=\"appointments_per_day\">");
+                        out.print(title);
+                        out.print("</div>");
                         for (AppointmentBlock row : entry.getValue())
                         {
 
-                            buf.append("<div class=\"tr\">");
+                            out.print("<div class=\"tr\">");
                             for (RaplaTableColumn<AppointmentBlock> col : columPlugins)
                             {
                                 final String columnName = Tools.createXssSafeString(col.getColumnName());
-                                buf.append("<div class=\"td " + columnName + "\">");
+                                out.print("<div class=\"td " + columnName + "\">");
                                 final String htmlValue = col.getHtmlValue(row);
-                                buf.append(htmlValue);
-                                buf.append("</div>");
+                                out.print(htmlValue);
+                                out.print("</div>");
                             }
-                            buf.append("</div>");
+                            out.print("</div>");
                         }
                     });
                 }
-                buf.append("</div>");
+                out.print("</div>");
                 //buf.append("</table>");
-                final String result = buf.toString();
-                return result;
             }
 
             @Override
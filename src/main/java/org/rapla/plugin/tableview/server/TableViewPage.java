@@ -14,10 +14,13 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.*;
 
 abstract public class TableViewPage<T>
 {
+    /** the size of the response buffer. The rows are written while they are formatted, so the buffer limits the memory used for the output of one export.*/
+    static final int RESPONSE_BUFFER_SIZE = 64 * 1024;
 
     protected CalendarModel model;
 
@@ -60,11 +63,12 @@ abstract public class TableViewPage<T>
         response.setContentType("text/comma-separated-values; charset=" + raplaLocale.getCharsetNonUtf());
         String filename = model.getFilename();
         response.setHeader("Content-Disposition","attachment; filename=\""+filename+".csv\"");
+        response.setBufferSize(RESPONSE_BUFFER_SIZE);
         java.io.PrintWriter out = response.getWriter();
         try
         {
-            final String calendarCSV = getCalendarBody();
-            out.println(calendarCSV);
+            writeCalendarBody(out);
+            out.println();
         }
         catch (RaplaException e)
         {
@@ -78,6 +82,7 @@ abstract public class TableViewPage<T>
     private void generagePageHtml(HttpServletRequest request, HttpServletResponse response, CalendarModel model) throws IOException, ServletException
     {
         response.setContentType("text/html; charset=" + raplaLocale.getCharsetNonUtf());
+        response.setBufferSize(RESPONSE_BUFFER_SIZE);
         java.io.PrintWriter out = response.getWriter();
 
         String linkPrefix = request.getPathTranslated() != null ? "../" : "";
@@ -118,8 +123,8 @@ abstract public class TableViewPage<T>
             out.println("<div id=\"calendar\">");
             try
             {
-                final String calendarHTML = getCalendarBody();
-                out.println(calendarHTML);
+                writeCalendarBody(out);
+                out.println();
             }
             catch (RaplaException e)
             {
@@ -134,53 +139,55 @@ abstract public class TableViewPage<T>
         out.close();
     }
 
-    public String getCalendarBody(List<RaplaTableColumn<T>> columPlugins, Collection<T> rowObjects, Map<RaplaTableColumn<T>, Integer> sortDirections) {
+    /** sorts the rows and writes them as csv or html table, one row at a time */
+    public void writeCalendarBody(PrintWriter out, List<RaplaTableColumn<T>> columPlugins, Collection<T> rowObjects, Map<RaplaTableColumn<T>, Integer> sortDirections) {
         final List<T> rows = RaplaTableModel.sortRows(rowObjects, sortDirections, getFallbackComparator());
         if (isCsv())
         {
-            return RaplaTableModel.getCSV(columPlugins, rows);
+            out.print(RaplaTableModel.getCSVHeader(columPlugins));
+            for (T row : rows)
+            {
+                out.print(RaplaTableModel.getCSVRow(columPlugins, row));
+            }
         }
         else
         {
-            return  getCalendarBodyHTML(columPlugins, rows);
+            writeCalendarBodyHTML(out, columPlugins, rows);
         }
     }
 
-    public String getCalendarBodyHTML(List<RaplaTableColumn<T>> columPlugins, List<T> rows)
+    public void writeCalendarBodyHTML(PrintWriter out, List<RaplaTableColumn<T>> columPlugins, List<T> rows)
     {
-
-        StringBuffer buf = new StringBuffer();
-        buf.append("<table class='export table table-striped table-bordered' style='width: 99%; margin: 0 auto;'>");
-        buf.append("<thead><tr>");
+        out.print("<table class='export table table-striped table-bordered' style='width: 99%; margin: 0 auto;'>");
+        out.print("<thead><tr>");
         for (RaplaTableColumn<?> col : columPlugins)
         {
-            buf.append("<th>");
-            buf.append(col.getColumnName());
-            buf.append("</th>");
+            out.print("<th>");
+            out.print(col.getColumnName());
+            out.print("</th>");
         }
-        buf.append("</tr></thead>");
-        buf.append("<tbody>");
+        out.print("</tr></thead>");
+        out.print("<tbody>");
         for (T row : rows)
         {
-            buf.append("<tr>");
+            out.print("<tr>");
             for (RaplaTableColumn<T> col : columPlugins)
             {
-                buf.append("<td>");
+                out.print("<td>");
                 final String htmlValue = col.getHtmlValue(row);
-                buf.append(htmlValue);
-                buf.append("</td>");
+                out.print(htmlValue);
+                out.print("</td>");
             }
 
-            buf.append("</tr>");
+            out.print("</tr>");
         }
-        buf.append("</tbody>");
-        buf.append("</table>");
-        final String result = buf.toString();
-        return result;
+        out.print("</tbody>");
+        out.print("</table>");
     }
 
 
-    protected abstract String getCalendarBody() throws RaplaException;
+    /** writes the table of the current model to the response */
+    protected abstract void writeCalendarBody(PrintWriter out) throws RaplaException;
 
     /** Comparator to be used, when no sorting option is defined */
     protected abstract Comparator<T> getFallbackComparator();
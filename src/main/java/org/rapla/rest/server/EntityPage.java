@@ -0,0 +1,183 @@
+package org.rapla.rest.server;
+
+import org.rapla.entities.Entity;
+import org.rapla.framework.RaplaException;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * One page of the result of a list query. The entities are ordered by id and the cursor of the next page is the id of the last entity
+ * of the page, so a page is not shifted if entities before the cursor are added or removed between two requests.
+ * The entities are read from the storage in chunks with the id of the last read entity as lower bound, so only a chunk and the page
+ * are held in memory. A page without limit is not read before it is written.
+ */
+class EntityPage<T extends Entity>
+{
+    static final String NEXT_CURSOR_HEADER = "X-Rapla-Next-Cursor";
+    static final String APPLICATION_NDJSON = "application/x-ndjson";
+    /** number of entities that are read from the storage at once */
+    static final int CHUNK_SIZE = 100;
+
+    /** reads the entities of a query in the order of their ids */
+    interface Source<T>
+    {
+        /** returns up to count entities with an id greater than the passed id in the order of their ids. Starts with the first id if the id is null */
+        Collection<? extends T> read(String afterId, int count) throws RaplaException;
+    }
+
+    interface EntityWriter<T>
+    {
+        void write(T entity) throws IOException;
+    }
+
+    private final Source<T> source;
+    private final Predicate<? super T> filter;
+    private final String cursor;
+    /** the entities of a page with limit or null if the entities are read while they are written */
+    private final List<T> entities;
+    private final String nextCursor;
+
+    private EntityPage(Source<T> source, Predicate<? super T> filter, String cursor, List<T> entities, String nextCursor)
+    {
+        this.source = source;
+        this.filter = filter;
+        this.cursor = cursor;
+        this.entities = entities;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * returns the entities with an id after the cursor that pass the filter. If a limit is passed the page is read immediately
+     * and the filter is only tested until the page is full, otherwise the entities are read while they are written.
+     * @param cursor the next cursor of the previous page or null for the first page
+     * @param limit the maximum size of the page or null for all remaining entities
+     */
+    static <T extends Entity> EntityPage<T> create(Source<T> source, Predicate<? super T> filter, String cursor, Integer limit) throws RaplaException
+    {
+        if (limit == null)
+        {
+            return new EntityPage<>(source, filter, cursor, null, null);
+        }
+        if (limit <= 0)
+        {
+            throw new RaplaException("limit must be greater than 0");
+        }
+        final List<T> result = new ArrayList<>();
+        String afterId = cursor;
+        while (true)
+        {
+            final Collection<? extends T> chunk = source.read(afterId, CHUNK_SIZE);
+            for (T entity : chunk)
+            {
+                afterId = entity.getId();
+                if (!filter.test(entity))
+                {
+                    continue;
+                }
+                if (result.size() == limit)
+                {
+                    return new EntityPage<>(source, filter, cursor, result, result.get(result.size() - 1).getId());
+                }
+                result.add(entity);
+            }
+            if (chunk.size() < CHUNK_SIZE)
+            {
+                return new EntityPage<>(source, filter, cursor, result, null);
+            }
+        }
+    }
+
+    /** passes the entities of the page in the order of their ids to the writer */
+    void forEach(EntityWriter<? super T> writer) throws RaplaException, IOException
+    {
+        if (entities != null)
+        {
+            for (T entity : entities)
+            {
+                writer.write(entity);
+            }
+            return;
+        }
+        String afterId = cursor;
+        while (true)
+        {
+            final Collection<? extends T> chunk = source.read(afterId, CHUNK_SIZE);
+            for (T entity : chunk)
+            {
+                afterId = entity.getId();
+                if (filter.test(entity))
+                {
+                    writer.write(entity);
+                }
+            }
+            if (chunk.size() < CHUNK_SIZE)
+            {
+                return;
+            }
+        }
+    }
+
+    List<T> getEntities() throws RaplaException
+    {
+        if (entities != null)
+        {
+            return entities;
+        }
+        final List<T> result = new ArrayList<>();
+        try
+        {
+            forEach(result::add);
+        }
+        catch (IOException e)
+        {
+            throw new RaplaException(e);
+        }
+        return result;
+    }
+
+    /** returns the cursor for the next page or null if this is the last page */
+    String getNextCursor()
+    {
+        return nextCursor;
+    }
+
+    /**
+     * returns a response that writes one json object per line. The entities are serialized one at a time while the response is written,
+     * so only the references of the page are held in memory, or of one chunk if the page has no limit.
+     */
+    Response toNdjson(Function<T, String> serializer)
+    {
+        final StreamingOutput output = (out) -> {
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            try
+            {
+                forEach((entity) -> {
+                    writer.write(serializer.apply(entity));
+                    writer.write('\n');
+                });
+            }
+            catch (RaplaException e)
+            {
+                throw new IOException(e);
+            }
+            writer.flush();
+        };
+        final Response.ResponseBuilder builder = Response.ok(output, APPLICATION_NDJSON);
+        if (nextCursor != null)
+        {
+            builder.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return builder.build();
+    }
+}
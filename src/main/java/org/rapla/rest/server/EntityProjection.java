@@ -0,0 +1,152 @@
+package org.rapla.rest.server;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.rapla.components.util.SerializableDateTimeFormat;
+import org.rapla.entities.Entity;
+import org.rapla.entities.LastChangedTimestamp;
+import org.rapla.entities.Named;
+import org.rapla.entities.domain.Allocatable;
+import org.rapla.entities.domain.Appointment;
+import org.rapla.entities.domain.Reservation;
+import org.rapla.entities.dynamictype.Classifiable;
+import org.rapla.entities.dynamictype.Classification;
+import org.rapla.framework.RaplaException;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Serializes only the requested fields of an entity, e.g. <code>fields=id,name,start,end</code>.
+ * Dates are written as timestamps in the format of {@link SerializableDateTimeFormat}.
+ */
+class EntityProjection
+{
+    static final String ID = "id";
+    static final String TYPE = "type";
+    static final String NAME = "name";
+    static final String LAST_CHANGED = "lastChanged";
+    static final String START = "start";
+    static final String END = "end";
+    static final String APPOINTMENTS = "appointments";
+    static final String RESOURCES = "resources";
+
+    static final List<String> RESOURCE_FIELDS = Collections.unmodifiableList(Arrays.asList(ID, TYPE, NAME, LAST_CHANGED));
+    static final List<String> EVENT_FIELDS = Collections.unmodifiableList(Arrays.asList(ID, TYPE, NAME, LAST_CHANGED, START, END, APPOINTMENTS, RESOURCES));
+
+    private final Set<String> fields;
+    private final Locale locale;
+
+    private EntityProjection(Set<String> fields, Locale locale)
+    {
+        this.fields = fields;
+        this.locale = locale;
+    }
+
+    /** returns the projection for the comma separated list of fields or null if no fields are passed */
+    static EntityProjection parse(String fieldList, Collection<String> supportedFields, Locale locale) throws RaplaException
+    {
+        if (fieldList == null || fieldList.trim().isEmpty())
+        {
+            return null;
+        }
+        final Set<String> fields = new LinkedHashSet<>();
+        for (String field : fieldList.split(","))
+        {
+            final String trimmed = field.trim();
+            if (trimmed.isEmpty())
+            {
+                continue;
+            }
+            if (!supportedFields.contains(trimmed))
+            {
+                throw new RaplaException("Unknown field " + trimmed + ". Supported fields are " + supportedFields);
+            }
+            fields.add(trimmed);
+        }
+        return new EntityProjection(fields, locale);
+    }
+
+    JsonObject toJson(Entity entity)
+    {
+        final JsonObject result = new JsonObject();
+        for (String field : fields)
+        {
+            switch (field)
+            {
+                case ID:
+                    result.addProperty(ID, entity.getId());
+                    break;
+                case TYPE:
+                    if (entity instanceof Classifiable)
+                    {
+                        final Classification classification = ((Classifiable) entity).getClassification();
+                        result.addProperty(TYPE, classification != null ? classification.getType().getKey() : null);
+                    }
+                    break;
+                case NAME:
+                    if (entity instanceof Named)
+                    {
+                        result.addProperty(NAME, ((Named) entity).getName(locale));
+                    }
+                    break;
+                case LAST_CHANGED:
+                    if (entity instanceof LastChangedTimestamp)
+                    {
+                        result.addProperty(LAST_CHANGED, format(((LastChangedTimestamp) entity).getLastChanged()));
+                    }
+                    break;
+                case START:
+                    if (entity instanceof Reservation)
+                    {
+                        result.addProperty(START, format(((Reservation) entity).getFirstDate()));
+                    }
+                    break;
+                case END:
+                    if (entity instanceof Reservation)
+                    {
+                        result.addProperty(END, format(((Reservation) entity).getMaxEnd()));
+                    }
+                    break;
+                case APPOINTMENTS:
+                    if (entity instanceof Reservation)
+                    {
+                        final JsonArray appointments = new JsonArray();
+                        for (Appointment appointment : ((Reservation) entity).getAppointments())
+                        {
+                            final JsonObject appointmentObj = new JsonObject();
+                            appointmentObj.addProperty(ID, appointment.getId());
+                            appointmentObj.addProperty(START, format(appointment.getStart()));
+                            appointmentObj.addProperty(END, format(appointment.getEnd()));
+                            appointments.add(appointmentObj);
+                        }
+                        result.add(APPOINTMENTS, appointments);
+                    }
+                    break;
+                case RESOURCES:
+                    if (entity instanceof Reservation)
+                    {
+                        final JsonArray resources = new JsonArray();
+                        for (Allocatable allocatable : ((Reservation) entity).getAllocatables())
+                        {
+                            resources.add(allocatable.getId());
+                        }
+                        result.add(RESOURCES, resources);
+                    }
+                    break;
+            }
+        }
+        return result;
+    }
+
+    private static String format(Date date)
+    {
+        return date != null ? SerializableDateTimeFormat.INSTANCE.formatTimestamp(date) : null;
+    }
+}
@@ -11,20 +11,19 @@ import org.rapla.entities.dynamictype.ClassificationFilter;
 import org.rapla.entities.dynamictype.DynamicTypeAnnotations;
 import org.rapla.entities.storage.ReferenceInfo;
 import org.rapla.facade.RaplaFacade;
-import org.rapla.facade.internal.CalendarModelImpl;
 import org.rapla.framework.RaplaException;
 import org.rapla.rest.PATCH;
-import org.rapla.scheduler.Promise;
-import org.rapla.server.PromiseWait;
 import org.rapla.server.RemoteSession;
 import org.rapla.server.internal.SecurityManager;
 import org.rapla.storage.CachableStorageOperator;
 import org.rapla.storage.PermissionController;
 import org.rapla.storage.RaplaSecurityException;
 import org.rapla.storage.StorageOperator;
+import org.rapla.storage.impl.server.EntityJsonParser;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -35,6 +34,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -49,7 +49,6 @@ import java.util.Map;
     @Inject SecurityManager securityManager;
     private final HttpServletRequest request;
     @Inject CachableStorageOperator operator;
-    @Inject PromiseWait promiseWait;
 
     @Inject public RaplaEventsRestPage(@Context HttpServletRequest request)
     {
@@ -60,33 +59,57 @@ import java.util.Map;
 
     @GET @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML }) public List<ReservationImpl> list(@QueryParam("start") Date start,
             @QueryParam("end") Date end, @QueryParam("resources") List<String> resources, @QueryParam("eventTypes") Collection<String> eventTypes,
-            @QueryParam("attributeFilter") Map<String, String> simpleFilter) throws Exception
+            @QueryParam("attributeFilter") Map<String, String> simpleFilter, @QueryParam("cursor") String cursor, @QueryParam("limit") Integer limit,
+            @Context HttpServletResponse response) throws Exception
+    {
+        final EntityPage<Reservation> page = query(start, end, resources, eventTypes, simpleFilter, cursor, limit);
+        if (page.getNextCursor() != null)
+        {
+            response.setHeader(EntityPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        final List<ReservationImpl> result = new ArrayList<>();
+        for (Reservation r : page.getEntities())
+        {
+            result.add((ReservationImpl) r);
+        }
+        return result;
+    }
+
+    /**
+     * writes the events as newline delimited json, one event per line. If fields are passed only the fields are written, e.g. <code>fields=id,name,start,end</code>.
+     * The cursor for the next page is passed in the {@value EntityPage#NEXT_CURSOR_HEADER} header.
+     */
+    @GET @Path("stream") @Produces(EntityPage.APPLICATION_NDJSON) public Response stream(@QueryParam("start") Date start, @QueryParam("end") Date end,
+            @QueryParam("resources") List<String> resources, @QueryParam("eventTypes") Collection<String> eventTypes,
+            @QueryParam("attributeFilter") Map<String, String> simpleFilter, @QueryParam("cursor") String cursor, @QueryParam("limit") Integer limit,
+            @QueryParam("fields") String fields) throws Exception
+    {
+        final EntityProjection projection = EntityProjection.parse(fields, EntityProjection.EVENT_FIELDS, request.getLocale());
+        final EntityPage<Reservation> page = query(start, end, resources, eventTypes, simpleFilter, cursor, limit);
+        final EntityJsonParser gson = EntityJsonParser.get();
+        return page.toNdjson((r) -> projection != null ? projection.toJson(r).toString() : gson.toJson(r));
+    }
+
+    private EntityPage<Reservation> query(Date start, Date end, List<String> resources, Collection<String> eventTypes, Map<String, String> simpleFilter,
+            String cursor, Integer limit) throws Exception
     {
         final User user = session.checkAndGetUser(request);
         Collection<Allocatable> allocatables = new ArrayList<>();
-        for (String id : resources)
+        if (resources != null)
         {
-            Allocatable allocatable = facade.resolve(new ReferenceInfo<Allocatable>(id, Allocatable.class));
-            allocatables.add(allocatable);
+            for (String id : resources)
+            {
+                Allocatable allocatable = facade.resolve(new ReferenceInfo<Allocatable>(id, Allocatable.class));
+                allocatables.add(allocatable);
+            }
         }
 
         final ClassificationFilter[] filters = RaplaResourcesRestPage.getClassificationFilter(facade, simpleFilter, CLASSIFICATION_TYPES, eventTypes);
         final Map<String, String> annotationQuery = null;
-        final User owner = null;
-        final Promise<Map<Allocatable, Collection<Appointment>>> promise = operator
-                .queryAppointments(owner, allocatables, start, end, filters, annotationQuery);
-        final Map<Allocatable, Collection<Appointment>> appMap = promiseWait.waitForWithRaplaException(promise, 20000);
-        final List<ReservationImpl> result = new ArrayList<>();
-        final Collection<Reservation> reservations = CalendarModelImpl.getAllReservations(appMap);
+        final EntityPage.Source<Reservation> source = (afterId, count) -> operator
+                .queryReservationsAfter(afterId, count, allocatables, start, end, filters, annotationQuery);
         PermissionController permissionController = facade.getPermissionController();
-        for (Reservation r : reservations)
-        {
-            if (permissionController.canRead(r, user))
-            {
-                result.add((ReservationImpl) r);
-            }
-        }
-        return result;
+        return EntityPage.create(source, (r) -> permissionController.canRead(r, user), cursor, limit);
     }
 
     @GET @Path("{id}") @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML }) public ReservationImpl get(@PathParam("id") String id)
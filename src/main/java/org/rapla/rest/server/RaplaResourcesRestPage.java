@@ -14,20 +14,24 @@ import org.rapla.facade.RaplaFacade;
 import org.rapla.framework.RaplaException;
 import org.rapla.server.RemoteSession;
 import org.rapla.server.internal.SecurityManager;
+import org.rapla.storage.CachableStorageOperator;
 import org.rapla.storage.PermissionController;
 import org.rapla.storage.RaplaSecurityException;
-import org.rapla.storage.StorageOperator;
+import org.rapla.storage.impl.server.EntityJsonParser;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -44,7 +48,7 @@ public class RaplaResourcesRestPage  {
 	@Inject
 	RaplaFacade facade;
 	@Inject
-	StorageOperator operator;
+	CachableStorageOperator operator;
 	@Inject
 	RemoteSession session;
 	@Inject
@@ -113,20 +117,44 @@ public class RaplaResourcesRestPage  {
 
 	@GET
 	public List<AllocatableImpl> list( @QueryParam("resourceTypes") List<String> resourceTypes,
-			@QueryParam("attributeFilter") Map<String, String> simpleFilter) throws RaplaException {
-	    final User user = session.checkAndGetUser(request);
-		ClassificationFilter[] filters = getClassificationFilter(facade, simpleFilter, CLASSIFICATION_TYPES, resourceTypes);
-		Collection<Allocatable> resources = operator.getAllocatables(filters);
+			@QueryParam("attributeFilter") Map<String, String> simpleFilter, @QueryParam("cursor") String cursor,
+			@QueryParam("limit") Integer limit, @Context HttpServletResponse response) throws RaplaException {
+		final EntityPage<Allocatable> page = query(resourceTypes, simpleFilter, cursor, limit);
+		if (page.getNextCursor() != null) {
+			response.setHeader(EntityPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+		}
 		List<AllocatableImpl> result = new ArrayList<>();
-		PermissionController permissionController = facade.getPermissionController();
-		for (Allocatable r : resources) {
-			if (permissionController.canRead(r, user)) {
-				result.add((AllocatableImpl) r);
-			}
+		for (Allocatable r : page.getEntities()) {
+			result.add((AllocatableImpl) r);
 		}
 		return result;
 	}
 
+	/**
+	 * writes the resources as newline delimited json, one resource per line. If fields are passed only the fields are written, e.g. <code>fields=id,name</code>.
+	 * The cursor for the next page is passed in the {@value EntityPage#NEXT_CURSOR_HEADER} header.
+	 */
+	@GET
+	@Path("stream")
+	@Produces(EntityPage.APPLICATION_NDJSON)
+	public Response stream( @QueryParam("resourceTypes") List<String> resourceTypes,
+			@QueryParam("attributeFilter") Map<String, String> simpleFilter, @QueryParam("cursor") String cursor,
+			@QueryParam("limit") Integer limit, @QueryParam("fields") String fields) throws RaplaException {
+		final EntityProjection projection = EntityProjection.parse(fields, EntityProjection.RESOURCE_FIELDS, request.getLocale());
+		final EntityPage<Allocatable> page = query(resourceTypes, simpleFilter, cursor, limit);
+		final EntityJsonParser gson = EntityJsonParser.get();
+		return page.toNdjson((r) -> projection != null ? projection.toJson(r).toString() : gson.toJson(r));
+	}
+
+	private EntityPage<Allocatable> query(List<String> resourceTypes, Map<String, String> simpleFilter, String cursor, Integer limit)
+			throws RaplaException {
+		final User user = session.checkAndGetUser(request);
+		ClassificationFilter[] filters = getClassificationFilter(facade, simpleFilter, CLASSIFICATION_TYPES, resourceTypes);
+		final EntityPage.Source<Allocatable> source = (afterId, count) -> operator.getAllocatablesAfter(afterId, count, filters);
+		PermissionController permissionController = facade.getPermissionController();
+		return EntityPage.create(source, (r) -> permissionController.canRead(r, user), cursor, limit);
+	}
+
 	@GET
 	@Path("{id}")
 	public AllocatableImpl get( @PathParam("id") String id) throws RaplaException {
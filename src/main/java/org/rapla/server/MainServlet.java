@@ -29,6 +29,8 @@ import org.rapla.storage.impl.RaplaLock;
 
 import javax.naming.Context;
 import javax.naming.InitialContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -141,6 +143,13 @@ public class MainServlet extends HttpServlet
                 backendContext.setPatchScript( patchScript );
             }
         }
+        {
+            String blockingExecutor = jndi.lookupEnvString("rapla_blocking_executor", true);
+            if ( blockingExecutor != null && !blockingExecutor.isEmpty())
+            {
+                backendContext.setBlockingExecutor( blockingExecutor );
+            }
+        }
         env_raplamail = jndi.lookupResource("mail/Session", false);
         if (env_raplamail != null)
         {
@@ -439,39 +448,76 @@ public class MainServlet extends HttpServlet
         }
         finally
         {
-            try
+            if (request.isAsyncStarted())
             {
-                if ( restartLock != null)
+                // the response of a suspended request is written by the thread that resumes it, so no restart is allowed until the request is finished
+                final RaplaLock.ReadLock asyncRestartLock = restartLock;
+                request.getAsyncContext().addListener(new AsyncListener()
                 {
-                    serverStarter.freeRestartLock(restartLock);
-                }
-            }
-            catch (IllegalMonitorStateException ex)
-            {
-                // Released by the restarter
-            }
-            try
-            {
-                ServletOutputStream outputStream = response.getOutputStream();
-                outputStream.close();
-            }
-            catch (Exception ex)
-            {
+                    @Override
+                    public void onComplete(AsyncEvent event)
+                    {
+                        freeRestartLock(asyncRestartLock);
+                        finishResponse(response);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event)
+                    {
+                        freeRestartLock(asyncRestartLock);
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event)
+                    {
+                        freeRestartLock(asyncRestartLock);
+                    }
 
+                    @Override
+                    public void onStartAsync(AsyncEvent event)
+                    {
+                    }
+                });
             }
-            try
+            else
             {
-                if (standaloneStarter != null)
-                {
-                    standaloneStarter.requestFinished();
-                }
+                freeRestartLock(restartLock);
+                finishResponse(response);
             }
-            catch (Exception ex)
-            {
+        }
 
+    }
+
+    private void freeRestartLock(RaplaLock.ReadLock restartLock)
+    {
+        if ( restartLock != null)
+        {
+            serverStarter.freeRestartLock(restartLock);
+        }
+    }
+
+    private void finishResponse(HttpServletResponse response)
+    {
+        try
+        {
+            ServletOutputStream outputStream = response.getOutputStream();
+            outputStream.close();
+        }
+        catch (Exception ex)
+        {
+
+        }
+        try
+        {
+            if (standaloneStarter != null)
+            {
+                standaloneStarter.requestFinished();
             }
         }
+        catch (Exception ex)
+        {
 
+        }
     }
 
     /**
@@ -55,6 +55,8 @@ public class ServerCreator
         injector.addComponentInstance(ServerContainerContext.class, containerContext);
         injector.addComponentProvider(CachableStorageOperator.class, ServerStorageSelector.class);
         injector.addNamedComponentInstanceProvider(ServerService.ENV_RAPLAMAIL_ID, () -> containerContext.getMailSession());
+        injector.addNamedComponentInstanceProvider(ServerService.ENV_BLOCKING_EXECUTOR_ID,
+                () -> containerContext.getBlockingExecutor() != null ? containerContext.getBlockingExecutor() : "");
         injector.addComponentInstanceProvider(ShutdownService.class, () -> containerContext.getShutdownService());
         injector.addComponentProvider(StorageOperator.class, ServerStorageSelector.class);
         ScanningClassLoader.LoadingFilter filter = null;
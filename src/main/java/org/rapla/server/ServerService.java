@@ -28,6 +28,8 @@ import org.rapla.framework.TypedComponentRole;
 public interface ServerService {
     String ENV_RAPLAFILE_ID = "env.raplafile";
     String ENV_RAPLAMAIL_ID = "env.raplamail";
+    /** the executor of the blocking tasks of the scheduler, e.g. "virtual". Empty if blocking tasks run on the scheduler */
+    String ENV_BLOCKING_EXECUTOR_ID = "env.blockingexecutor";
     //public static final TypedComponentRole<Configuration> RAPLA_MAIN_CONFIGURATION = new TypedComponentRole<Configuration>("org.rapla.MainConfiguration");
     TypedComponentRole<String> ENV_RAPLAFILE= new TypedComponentRole<>(ENV_RAPLAFILE_ID);
 //    public static final TypedComponentRole<SimpleProvider<Object>> ENV_RAPLAMAIL= new TypedComponentRole<SimpleProvider<Object>>(ENV_RAPLAMAIL_ID);
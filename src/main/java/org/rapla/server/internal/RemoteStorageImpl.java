@@ -3,6 +3,7 @@ package org.rapla.server.internal;
 import org.rapla.RaplaResources;
 import org.rapla.components.util.ParseDateException;
 import org.rapla.components.util.SerializableDateTimeFormat;
+import org.rapla.components.util.TimeInterval;
 import org.rapla.components.i18n.I18nBundle;
 import org.rapla.entities.DependencyException;
 import org.rapla.entities.Entity;
@@ -25,6 +26,7 @@ import org.rapla.entities.storage.ReferenceInfo;
 import org.rapla.facade.internal.ConflictImpl;
 import org.rapla.framework.RaplaException;
 import org.rapla.framework.internal.AbstractRaplaLocale;
+import org.rapla.framework.internal.DefaultScheduler;
 import org.rapla.inject.DefaultImplementation;
 import org.rapla.inject.InjectionContext;
 import org.rapla.logger.Logger;
@@ -75,6 +77,7 @@ import java.util.stream.Collectors;
     @Inject RaplaResources i18n;
     @Inject Provider<MailInterface> mailInterface;
     @Inject UpdateDataManager updateDataManager;
+    @Inject DefaultScheduler scheduler;
     private final HttpServletRequest request;
 
     @Inject public RemoteStorageImpl(@Context HttpServletRequest request)
@@ -86,6 +89,11 @@ import java.util.stream.Collectors;
     public UpdateEvent getResourcesSync() throws RaplaException
     {
         User user = checkSessionUser();
+        return getResources(user);
+    }
+
+    private UpdateEvent getResources(User user) throws RaplaException
+    {
         getLogger().debug("A RemoteAuthentificationService wants to get all resource-objects.");
         Date serverTime = operator.getCurrentTimestamp();
         Collection<Entity> visibleEntities = operator.getVisibleEntities(user);
@@ -114,15 +122,17 @@ import java.util.stream.Collectors;
     @Override
     public Promise<UpdateEvent> getResources()
     {
+        final User user;
         try
         {
-            final UpdateEvent resources = getResourcesSync();
-            return new ResolvedPromise<>(resources);
+            user = checkSessionUser();
         }
         catch (Exception ex)
         {
             return new ResolvedPromise<>(ex);
         }
+        // the request thread is released while the entities are collected
+        return scheduler.supplyRequest(() -> getResources(user));
     }
 
     @Override
@@ -221,10 +231,12 @@ import java.util.stream.Collectors;
         ClassificationFilter[] classificationFilters = null;
         final Promise<Map<Allocatable, Collection<Appointment>>> mapFutureResult = operator
                 .queryAppointments(user, allocatables, start, end, classificationFilters, annotationQuery);
-        Map<Allocatable, Collection<Appointment>> reservations = operator.waitForWithRaplaException(mapFutureResult, 50000);
-        AppointmentMap list = new AppointmentMap(reservations);
-        getLogger().debug("Get reservations " + start + " " + end + ": " + reservations.size() + "," + list.toString());
-        return new ResolvedPromise<>(list);
+        return mapFutureResult.thenApply((reservations) ->
+        {
+            AppointmentMap list = new AppointmentMap(reservations);
+            getLogger().debug("Get reservations " + start + " " + end + ": " + reservations.size() + "," + list.toString());
+            return list;
+        });
     }
 
     private ReservationImpl checkAndMakeReservationsAnonymous(User sessionUser, Entity entity)
@@ -426,6 +438,11 @@ import java.util.stream.Collectors;
     public UpdateEvent refreshSync(String lastSyncedTime) throws RaplaException
     {
         final User user = checkSessionUser();
+        return createUpdateEvent(user, lastSyncedTime);
+    }
+
+    private UpdateEvent createUpdateEvent(User user, String lastSyncedTime) throws RaplaException
+    {
         try
         {
             Date clientRepoVersion = SerializableDateTimeFormat.INSTANCE.parseTimestamp(lastSyncedTime);
@@ -440,14 +457,16 @@ import java.util.stream.Collectors;
 
     public Promise<UpdateEvent> refresh(String lastSyncedTime)
     {
+        final User user;
         try
         {
-            return new ResolvedPromise<>(refreshSync(lastSyncedTime));
+            user = checkSessionUser();
         }
         catch (RaplaException e)
         {
             return new ResolvedPromise<>(e);
         }
+        return scheduler.supplyRequest(() -> createUpdateEvent(user, lastSyncedTime));
     }
 
     public Logger getLogger()
@@ -543,15 +562,21 @@ import java.util.stream.Collectors;
         }
     }
 
-    public Promise<List<ConflictImpl>> getConflicts()
+    public Promise<List<ConflictImpl>> getConflicts(String start, String end)
     {
         User sessionUser;
+        Date startDate;
+        Date endDate;
         try {
             sessionUser = checkSessionUser();
+            startDate = start != null ? SerializableDateTimeFormat.INSTANCE.parseTimestamp(start) : null;
+            endDate = end != null ? SerializableDateTimeFormat.INSTANCE.parseTimestamp(end) : null;
         } catch (RaplaException e) {
             return new ResolvedPromise<>(e);
+        } catch (ParseDateException e) {
+            return new ResolvedPromise<>(new RaplaException("Illegal conflict interval " + start + " - " + end + " caused " + e.getMessage(), e));
         }
-        return operator.getConflicts(sessionUser).thenApply((conflicts) -> conflicts.stream().map(conflict -> (ConflictImpl) conflict).collect(Collectors.toList()));
+        return operator.getConflicts(sessionUser, startDate, endDate).thenApply((conflicts) -> conflicts.stream().map(conflict -> (ConflictImpl) conflict).collect(Collectors.toList()));
     }
 
     @Override public Promise<Date> getNextAllocatableDate(NextAllocatableDateRequest job)
@@ -580,6 +605,26 @@ import java.util.stream.Collectors;
 
     }
 
+    @Override public Promise<List<Date>> getNextAllocatableDates(NextAllocatableDateRequest job)
+    {
+        String[] allocatableIds = job.getAllocatableIds();
+        AppointmentImpl appointment = job.getAppointment();
+        String[] reservationIds = job.getReservationIds();
+        List<Allocatable> allocatables;
+        try
+        {
+            checkSessionUser();
+            allocatables = resolveAllocatables(allocatableIds);
+        }
+        catch ( RaplaException ex)
+        {
+            return new ResolvedPromise<>(ex);
+        }
+        Collection<Reservation> ignoreList = resolveReservations(reservationIds);
+        return operator.getNextAllocatableDates(allocatables, appointment, ignoreList, job.getWorktimeStartMinutes(), job.getWorktimeEndMinutes(),
+                job.getExcludedDays(), job.getRowsPerHour(), job.getCount());
+    }
+
     @Override public Promise<BindingMap> getFirstAllocatableBindings(AllocatableBindingsRequest job)
     {
         String[] allocatableIds = job.getAllocatableIds();
@@ -625,6 +670,46 @@ import java.util.stream.Collectors;
         return promise;
     }
 
+    @Override public Promise<AvailabilityMatrix> getAvailability(AvailabilityRequest job)
+    {
+        String[] allocatableIds = job.getAllocatableIds();
+        List<TimeInterval> slots = job.getSlots() != null ? job.getSlots() : Collections.emptyList();
+        String[] reservationIds = job.getReservationIds() != null ? job.getReservationIds() : new String[] {};
+        List<Allocatable> allocatables;
+        try
+        {
+            checkSessionUser();
+            if (allocatableIds == null || allocatableIds.length == 0)
+            {
+                throw new RaplaException("The availability needs at least one resource");
+            }
+            for (TimeInterval slot : slots)
+            {
+                if (slot == null || slot.getStart() == null || slot.getEnd() == null)
+                {
+                    throw new RaplaException("Time slots need a start and an end");
+                }
+            }
+            allocatables = resolveAllocatables(allocatableIds);
+        }
+        catch (RaplaException ex)
+        {
+            return new ResolvedPromise<>(ex);
+        }
+        Collection<Reservation> ignoreList = resolveReservations(reservationIds);
+        final int slotCount = slots.size();
+        Promise<AvailabilityMatrix> promise = operator.getAvailability(allocatables, slots, ignoreList).thenApply((availability) ->
+        {
+            Map<String, int[]> result = new LinkedHashMap<>();
+            for (Map.Entry<Allocatable, boolean[]> entry : availability.entrySet())
+            {
+                result.put(entry.getKey().getId(), AvailabilityMatrix.toBits(entry.getValue()));
+            }
+            return new AvailabilityMatrix(slotCount, result);
+        });
+        return promise;
+    }
+
     private List<Appointment> cast(List<AppointmentImpl> appointments)
     {
         List<Appointment> result = new ArrayList<>(appointments.size());
@@ -637,6 +722,26 @@ import java.util.stream.Collectors;
 
     @Override
     public Promise<List<ReservationImpl>> getAllAllocatableBindings(AllocatableBindingsRequest job)
+    {
+        return getBoundReservations(job).thenApply((reservations) -> new ArrayList<>(reservations));
+    }
+
+    @Override
+    public Promise<List<ReservationImpl>> getAllAllocatableBindingsBatch(AllocatableBindingsBatchRequest batch)
+    {
+        Promise<Set<ReservationImpl>> promise = new ResolvedPromise<>(new HashSet<>());
+        for (AllocatableBindingsRequest job : batch.getRequests())
+        {
+            promise = promise.thenCombine(getBoundReservations(job), (all, reservations) ->
+            {
+                all.addAll(reservations);
+                return all;
+            });
+        }
+        return promise.thenApply((reservations) -> new ArrayList<>(reservations));
+    }
+
+    private Promise<Set<ReservationImpl>> getBoundReservations(AllocatableBindingsRequest job)
     {
         String[] allocatableIds = job.getAllocatableIds();
         List<AppointmentImpl> appointments = job.getAppointments();
@@ -654,7 +759,7 @@ import java.util.stream.Collectors;
         Collection<Reservation> ignoreList = resolveReservations(reservationIds);
         List<Appointment> asList = cast(appointments);
 
-        Promise<List<ReservationImpl>> promise = operator.getAllAllocatableBindings(allocatables, asList, ignoreList).thenApply((bindings) ->
+        Promise<Set<ReservationImpl>> promise = operator.getAllAllocatableBindings(allocatables, asList, ignoreList).thenApply((bindings) ->
         {
             Set<ReservationImpl> result = new HashSet<>();
             for (Allocatable alloc : bindings.keySet())
@@ -676,7 +781,7 @@ import java.util.stream.Collectors;
                     }
                 }
             }
-            return new ArrayList<>(result);
+            return result;
         });
         return promise;
     }
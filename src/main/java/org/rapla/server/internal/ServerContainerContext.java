@@ -12,6 +12,7 @@ public class ServerContainerContext
     private Object mailSession;
     Runnable shutdownCommand;
     String patchScript;
+    String blockingExecutor;
 
     private ShutdownService shutdownService = new ShutdownService()
     {
@@ -114,5 +115,16 @@ public class ServerContainerContext
         this.patchScript = patchScript;
     }
 
+    /** returns the executor for blocking scheduled tasks, e.g. "virtual". Null if the tasks run on the threads of the scheduler */
+    public String getBlockingExecutor()
+    {
+        return blockingExecutor;
+    }
+
+    public void setBlockingExecutor(String blockingExecutor)
+    {
+        this.blockingExecutor = blockingExecutor;
+    }
+
 
 }
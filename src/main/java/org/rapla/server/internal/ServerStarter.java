@@ -1,6 +1,7 @@
 package org.rapla.server.internal;
 
 import org.rapla.framework.RaplaException;
+import org.rapla.framework.RaplaSynchronizationException;
 import org.rapla.inject.Injector;
 import org.rapla.logger.Logger;
 import org.rapla.server.ServerCreator;
@@ -12,6 +13,9 @@ import org.rapla.storage.impl.RaplaLock;
 
 import javax.servlet.ServletException;
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
 
 public class ServerStarter
 {
@@ -19,28 +23,56 @@ public class ServerStarter
     private ServerServiceContainer server;
     private Injector membersInjector;
     private Logger logger;
-    private RaplaLock restartLock;
+    // not bound to a thread, so the lock of a suspended request can be released by the thread that completes the request
+    private final StampedLock restartLock = new StampedLock();
     private Collection<ServletRequestPreprocessor> processors;
     private ServerContainerContext backendContext;
 
     public ServerStarter(Logger logger, ServerContainerContext backendContext)
     {
         this.logger = logger;
-        this.restartLock = new DefaultRaplaLock(logger);
         this.backendContext =  backendContext;
     }
 
-    /** Locks the server, so no restart can't be triggererd unless lock is released */
+    /** Locks the server, so no restart can't be triggererd unless lock is released. The lock can be released by any thread. */
     public RaplaLock.ReadLock lockRestart() throws RaplaException
     {
-        return restartLock.readLock( getClass(),"lockRestart", 25);
+        final long stamp;
+        try
+        {
+            stamp = restartLock.tryReadLock(25, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException ex)
+        {
+            throw new RaplaSynchronizationException(ex);
+        }
+        if (stamp == 0)
+        {
+            throw new RaplaSynchronizationException("Server is restarting. Please try again! Can't acquire restart lock.");
+        }
+        return new RestartLock(stamp);
     }
 
-
-
+    /** releases a lock of {@link #lockRestart()}. Locks that are already released are ignored. */
     public void freeRestartLock(RaplaLock.ReadLock lock)
     {
-        this.restartLock.unlock( lock);
+        final RestartLock restart = (RestartLock) lock;
+        if (restart.released.compareAndSet(false, true))
+        {
+            restartLock.unlockRead(restart.stamp);
+        }
+    }
+
+    private final class RestartLock extends RaplaLock.ReadLock
+    {
+        private final long stamp;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        RestartLock(long stamp)
+        {
+            super(restartLock, ServerStarter.class, "lockRestart", new StackTraceElement[] {}, System.currentTimeMillis());
+            this.stamp = stamp;
+        }
     }
 
 
@@ -108,16 +140,21 @@ public class ServerStarter
 
     private final class ShutdownServiceImpl implements ShutdownService {
         public void shutdown(final boolean restart) {
-            RaplaLock.WriteLock writeLock;
+            final long writeStamp;
             try
             {
-                writeLock = restartLock.writeLock(getClass(),"shutdown restart=" + restart);
+                writeStamp = restartLock.tryWriteLock(DefaultRaplaLock.DEFAULT_WRITELOCK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
             }
-            catch (RaplaException ex)
-            { 
+            catch (InterruptedException ex)
+            {
                 logger.error("Can't restart server:" + ex.getMessage());
                 return;
             }
+            if (writeStamp == 0)
+            {
+                logger.error("Can't restart server: requests are still running after " + DefaultRaplaLock.DEFAULT_WRITELOCK_TIMEOUT_SECONDS + " seconds");
+                return;
+            }
             try
             {
                 //acquired = requestCount.tryAcquire(maxRequests -1,10, TimeUnit.SECONDS);
@@ -143,7 +180,7 @@ public class ServerStarter
             }
             finally
             {
-                restartLock.unlock(writeLock);
+                restartLock.unlockWrite(writeStamp);
             }
         }
 
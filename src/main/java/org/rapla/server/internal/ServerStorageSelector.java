@@ -5,8 +5,8 @@ import org.rapla.RaplaResources;
 import org.rapla.entities.domain.permission.PermissionExtension;
 import org.rapla.entities.extensionpoints.FunctionFactory;
 import org.rapla.framework.RaplaLocale;
+import org.rapla.framework.internal.DefaultScheduler;
 import org.rapla.logger.Logger;
-import org.rapla.scheduler.CommandScheduler;
 import org.rapla.server.PromiseWait;
 import org.rapla.storage.CachableStorageOperator;
 import org.rapla.storage.ImportExportManager;
@@ -32,13 +32,13 @@ public class ServerStorageSelector implements Provider<CachableStorageOperator>
     final Logger logger;
     final RaplaResources i18n;
     final RaplaLocale raplaLocale;
-    final CommandScheduler scheduler;
+    final DefaultScheduler scheduler;
     final Map<String, FunctionFactory> functionFactoryMap;
     final Set<PermissionExtension> permissionExtensions;
     ImportExportManager manager;
     final PromiseWait promiseWait;
 
-    @Inject public ServerStorageSelector(ServerContainerContext containerContext, Logger logger, RaplaResources i18n, RaplaLocale raplaLocale, CommandScheduler scheduler, Map<String, FunctionFactory> functionFactoryMap,
+    @Inject public ServerStorageSelector(ServerContainerContext containerContext, Logger logger, RaplaResources i18n, RaplaLocale raplaLocale, DefaultScheduler scheduler, Map<String, FunctionFactory> functionFactoryMap,
             Set<PermissionExtension> permissionExtensions, PromiseWait promiseWait)
     {
 
@@ -0,0 +1,62 @@
+package org.rapla.server.provider.resteasy;
+
+import org.jboss.resteasy.spi.ApplicationException;
+import org.jboss.resteasy.spi.AsyncResponseProvider;
+import org.jboss.resteasy.spi.HttpRequest;
+import org.jboss.resteasy.spi.ResteasyAsynchronousContext;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+import org.rapla.framework.RaplaException;
+import org.rapla.scheduler.Promise;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.ext.Provider;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets resteasy suspend requests of resource methods that return a {@link Promise}. The request thread is returned to the servlet container
+ * and the response is written by the thread that completes the promise, e.g. a thread of the scheduler.
+ * Failures are passed as {@link ApplicationException}, so they are mapped by the {@link ResteasyExceptionMapper} like the exceptions of
+ * synchronous methods.
+ * <p>
+ * Resteasy selects the provider by the declared return type, so this applies to every resource method that returns a Promise. A promise
+ * that is already resolved is answered immediately. A suspended request fails with a {@link RaplaException} after {@link #TIMEOUT_MILLIS},
+ * instead of the default timeout of the servlet container.
+ */
+@Provider
+public class PromiseAsyncResponseProvider implements AsyncResponseProvider<Promise<?>>
+{
+    /** the time the storage requests waited for the result before they were suspended */
+    public static final long TIMEOUT_MILLIS = 50000;
+
+    @Override
+    public CompletionStage<?> toCompletionStage(Promise<?> promise)
+    {
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+        setTimeout(future);
+        promise.thenAccept((result) -> future.complete(result)).exceptionally((ex) -> {
+            future.completeExceptionally(new ApplicationException(ex));
+        });
+        return future;
+    }
+
+    private void setTimeout(CompletableFuture<Object> future)
+    {
+        final HttpRequest request = ResteasyProviderFactory.getContextData(HttpRequest.class);
+        if (request == null)
+        {
+            return;
+        }
+        final ResteasyAsynchronousContext asyncContext = request.getAsyncContext();
+        if (asyncContext == null || !asyncContext.isSuspended())
+        {
+            return;
+        }
+        final AsyncResponse asyncResponse = asyncContext.getAsyncResponse();
+        // completing the future resumes the response with the mapped exception
+        asyncResponse.setTimeoutHandler((response) -> future
+                .completeExceptionally(new ApplicationException(new RaplaException("No result after " + TIMEOUT_MILLIS + " ms"))));
+        asyncResponse.setTimeout(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,66 @@
+package org.rapla.server.provider.resteasy;
+
+import org.rapla.storage.UpdateEvent;
+import org.rapla.storage.impl.server.EntityJsonParser;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes and reads the update events of the remote storage with the {@link EntityJsonParser}, so the entities of the events are streamed
+ * by the json adapters of the entities and not by reflection.
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class UpdateEventJsonProvider implements MessageBodyWriter<UpdateEvent>, MessageBodyReader<UpdateEvent>
+{
+    @Override
+    public boolean isWriteable(Class<?> aClass, Type type, Annotation[] annotations, MediaType mediaType)
+    {
+        return UpdateEvent.class.isAssignableFrom(aClass) && MediaType.APPLICATION_JSON_TYPE.isCompatible(mediaType);
+    }
+
+    @Override
+    public long getSize(UpdateEvent event, Class<?> aClass, Type type, Annotation[] annotations, MediaType mediaType)
+    {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(UpdateEvent event, Class<?> aClass, Type type, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> multivaluedMap, OutputStream outputStream) throws IOException, WebApplicationException
+    {
+        final Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        EntityJsonParser.get().toJson(event, writer);
+        writer.flush();
+    }
+
+    @Override
+    public boolean isReadable(Class<?> aClass, Type type, Annotation[] annotations, MediaType mediaType)
+    {
+        return UpdateEvent.class.isAssignableFrom(aClass) && MediaType.APPLICATION_JSON_TYPE.isCompatible(mediaType);
+    }
+
+    @Override
+    public UpdateEvent readFrom(Class<UpdateEvent> aClass, Type type, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, String> multivaluedMap, InputStream inputStream) throws IOException, WebApplicationException
+    {
+        return EntityJsonParser.get().fromJson(new InputStreamReader(inputStream, StandardCharsets.UTF_8), UpdateEvent.class);
+    }
+}
@@ -4,6 +4,7 @@
 package org.rapla.server.servletpages;
 
 import org.rapla.RaplaSystemInfo;
+import org.rapla.framework.internal.DefaultScheduler;
 import org.rapla.server.internal.RaplaStatusEntry;
 import org.rapla.server.internal.ServerContainerContext;
 
@@ -17,12 +18,14 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import java.io.IOException;
+import java.util.Map;
 
 @Singleton
 @Path("server")
 public class RaplaStatusPageGenerator  {
     @Inject RaplaSystemInfo m_i18n;
     @Inject ServerContainerContext serverContainerContext;
+    @Inject DefaultScheduler scheduler;
     @Inject
     public RaplaStatusPageGenerator()
     {
@@ -52,9 +55,31 @@ public class RaplaStatusPageGenerator  {
         String javaversion = System.getProperty("java.version");
      	out.println( "<p>Server running </p>" +  m_i18n.infoText( javaversion));
         out.println( "<hr>" );
+        printTaskStatistics(out);
         out.println( "</body>" );
         out.println( "</html>" );
         out.close();
     }
 
+    private void printTaskStatistics(java.io.PrintWriter out)
+    {
+        final Map<String, DefaultScheduler.TaskStatistics> taskStatistics = scheduler.getTaskStatistics();
+        if ( taskStatistics.isEmpty())
+        {
+            return;
+        }
+        out.println( "<p>Blocking tasks " + (scheduler.isBlockingExecutorEnabled() ? "run on their own threads" : "run on the scheduler") + "</p>");
+        out.println( "<table>" );
+        out.println( "<tr><th>Task</th><th>Queued</th><th>Running</th><th>Executions</th><th>Skipped</th><th>Average ms</th><th>Max ms</th></tr>" );
+        for (Map.Entry<String, DefaultScheduler.TaskStatistics> entry : taskStatistics.entrySet())
+        {
+            final DefaultScheduler.TaskStatistics statistics = entry.getValue();
+            out.println( "<tr><td>" + entry.getKey() + "</td><td>" + statistics.getQueued() + "</td><td>" + statistics.getRunning() + "</td><td>"
+                    + statistics.getExecutions() + "</td><td>" + statistics.getSkipped() + "</td><td>" + statistics.getAverageMillis() + "</td><td>"
+                    + statistics.getMaxMillis() + "</td></tr>" );
+        }
+        out.println( "</table>" );
+        out.println( "<hr>" );
+    }
+
 }
\ No newline at end of file
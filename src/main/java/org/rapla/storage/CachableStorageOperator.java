@@ -19,6 +19,8 @@ import org.rapla.entities.Entity;
 import org.rapla.entities.User;
 import org.rapla.entities.domain.Allocatable;
 import org.rapla.entities.domain.Appointment;
+import org.rapla.entities.domain.Reservation;
+import org.rapla.entities.dynamictype.ClassificationFilter;
 import org.rapla.entities.storage.ImportExportEntity;
 import org.rapla.entities.storage.ReferenceInfo;
 import org.rapla.framework.RaplaException;
@@ -26,6 +28,7 @@ import org.rapla.scheduler.Promise;
 
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
 
@@ -73,7 +76,20 @@ public interface CachableStorageOperator extends StorageOperator {
 
     Collection<ReferenceInfo<User>> findUsersThatExport(Allocatable allocatable) throws RaplaException;
 
+    /** returns for every allocatable an array with one entry per slot that is true if the allocatable is not booked in the slot*/
+    Promise<Map<Allocatable, boolean[]>> getAvailability(Collection<Allocatable> allocatables, List<TimeInterval> slots, Collection<Reservation> ignoreList);
+
     <T> T  waitForWithRaplaException(Promise<T> promise, int millis) throws RaplaException;
+
+    /** returns up to count allocatables with an id greater than afterId in the order of their ids, that match the filters. Starts with the first id if afterId is null */
+    List<Allocatable> getAllocatablesAfter(String afterId, int count, ClassificationFilter[] filters) throws RaplaException;
+
+    /**
+     * returns up to count reservations with an id greater than afterId in the order of their ids, that have an appointment in the interval and match the query.
+     * The parameters are the same as for {@link #queryAppointments}. Starts with the first id if afterId is null
+     */
+    List<Reservation> queryReservationsAfter(String afterId, int count, Collection<Allocatable> allocatables, Date start, Date end, ClassificationFilter[] filters,
+            Map<String, String> annotationQuery) throws RaplaException;
 }
 
 
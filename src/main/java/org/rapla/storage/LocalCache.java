@@ -23,6 +23,7 @@ import org.rapla.entities.domain.Allocatable;
 import org.rapla.entities.domain.Appointment;
 import org.rapla.entities.domain.Reservation;
 import org.rapla.entities.domain.internal.AllocatableImpl;
+import org.rapla.entities.domain.internal.PermissionGroups;
 import org.rapla.entities.domain.internal.ReservationImpl;
 import org.rapla.entities.dynamictype.Attribute;
 import org.rapla.entities.dynamictype.DynamicType;
@@ -33,6 +34,7 @@ import org.rapla.entities.internal.UserImpl;
 import org.rapla.entities.storage.EntityResolver;
 import org.rapla.entities.storage.ParentEntity;
 import org.rapla.entities.storage.ReferenceInfo;
+import org.rapla.entities.storage.ReferenceInfoRegistry;
 import org.rapla.entities.storage.internal.SimpleEntity;
 import org.rapla.facade.Conflict;
 import org.rapla.facade.internal.ConflictImpl;
@@ -40,8 +42,9 @@ import org.rapla.framework.RaplaException;
 
 import javax.inject.Provider;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class LocalCache implements EntityResolver
+public class LocalCache implements EntityResolver, PermissionGroups.Provider
 {
     Map<String, String> passwords = new HashMap<>();
     Map<String, Entity> entities;
@@ -55,10 +58,16 @@ public class LocalCache implements EntityResolver
     Map<String, UserImpl> users;
     Map<String, AllocatableImpl> resources;
     Map<String, ReservationImpl> reservations;
+    /** the resources and reservations ordered by id, so that they can be read in pages */
+    NavigableMap<String, AllocatableImpl> resourcesById = new TreeMap<>();
+    NavigableMap<String, ReservationImpl> reservationsById = new TreeMap<>();
     Map<ReferenceInfo<Allocatable>, GraphNode> graph = new LinkedHashMap<>();
 
     private String clientUserId;
     private final PermissionController permissionController;
+    private final ReferenceInfoRegistry referenceRegistry = new ReferenceInfoRegistry();
+    /** incremented after an entity is stored or removed */
+    private final AtomicLong version = new AtomicLong();
 
     public LocalCache(PermissionController permissionController)
     {
@@ -72,6 +81,24 @@ public class LocalCache implements EntityResolver
         //initSuperCategory();
     }
 
+    @Override
+    public PermissionGroups getPermissionGroups()
+    {
+        return permissionController.getPermissionGroups();
+    }
+
+    @Override
+    public long getVersion()
+    {
+        return version.get();
+    }
+
+    /** returns the registry of the canonical references of the stored entities */
+    public ReferenceInfoRegistry getReferenceRegistry()
+    {
+        return referenceRegistry;
+    }
+
     public String getClientUserId()
     {
         return clientUserId;
@@ -104,12 +131,26 @@ public class LocalCache implements EntityResolver
         Class<? extends Entity> typeClass = info.getType();
         boolean bResult = true;
         bResult = entities.remove(entityId) != null;
+        if (bResult)
+        {
+            referenceRegistry.release(entityId);
+            version.incrementAndGet();
+        }
         Map<String, ? extends Entity> entitySet = getMap(typeClass);
         if (entitySet != null)
         {
             if (entityId == null)
                 return false;
             entitySet.remove(entityId);
+            final Map<String, ? extends Entity> sortedSet = getSortedMap(typeClass);
+            if (sortedSet != null)
+            {
+                sortedSet.remove(entityId);
+            }
+        }
+        else if (typeClass == Category.class)
+        {
+            permissionController.getPermissionGroups().invalidate();
         }
         else if (typeClass == Conflict.class)
         {
@@ -150,6 +191,19 @@ public class LocalCache implements EntityResolver
         return null;
     }
 
+    @SuppressWarnings("unchecked") private NavigableMap<String, Entity> getSortedMap(Class<? extends Entity> type)
+    {
+        if (type == Reservation.class)
+        {
+            return (NavigableMap) reservationsById;
+        }
+        if (type == Allocatable.class)
+        {
+            return (NavigableMap) resourcesById;
+        }
+        return null;
+    }
+
     public void put(Entity entity)
     {
         Assert.notNull(entity);
@@ -182,6 +236,10 @@ public class LocalCache implements EntityResolver
             }
         }
 
+        if (entity instanceof SimpleEntity)
+        {
+            ((SimpleEntity) entity).internReference(referenceRegistry);
+        }
         if (entity.getTypeClass() == Allocatable.class)
         {
             updateDependencies(entity);
@@ -198,10 +256,21 @@ public class LocalCache implements EntityResolver
         }
 
         entities.put(entityId, entity);
+        version.incrementAndGet();
         Map<String, Entity> entitySet = getMap(typeClass);
         if (entitySet != null)
         {
             entitySet.put(entityId, entity);
+            final Map<String, Entity> sortedSet = getSortedMap(typeClass);
+            if (sortedSet != null)
+            {
+                sortedSet.put(entityId, entity);
+            }
+        }
+        else if (typeClass == Category.class)
+        {
+            // the parents of a group could have changed
+            permissionController.getPermissionGroups().invalidate();
         }
         else if (entity instanceof Conflict)
         {
@@ -274,14 +343,18 @@ public class LocalCache implements EntityResolver
     {
         passwords.clear();
         reservations.clear();
+        reservationsById.clear();
         users.clear();
         resources.clear();
+        resourcesById.clear();
         dynamicTypes.clear();
         entities.clear();
         disabledConflictApp1.clear();
         disabledConflictApp2.clear();
         conflictLastChanged.clear();
         graph.clear();
+        referenceRegistry.clear();
+        version.incrementAndGet();
     }
 
     public CategoryImpl getSuperCategory()
@@ -322,6 +395,20 @@ public class LocalCache implements EntityResolver
     }
 
     public List<Entity> getVisibleEntities(final User forUser)
+    {
+        final Collection<Allocatable> visibleAllocatables = new ArrayList<>();
+        for (Allocatable alloc : getAllocatables())
+        {
+            if (forUser == null || forUser.isAdmin() || permissionController.canReadOnlyInformation(alloc, forUser))
+            {
+                visibleAllocatables.add(alloc);
+            }
+        }
+        return getVisibleEntities(forUser, visibleAllocatables);
+    }
+
+    /** same as {@link #getVisibleEntities(User)} but uses the passed allocatables instead of checking the permissions of all allocatables. */
+    public List<Entity> getVisibleEntities(final User forUser, Collection<Allocatable> visibleAllocatables)
     {
         List<Entity> result = new ArrayList<>();
         final CategoryImpl superCategory = getSuperCategory();
@@ -347,13 +434,7 @@ public class LocalCache implements EntityResolver
                 result.add(user);
             }
         }
-        for (Allocatable alloc : getAllocatables())
-        {
-            if (forUser == null || forUser.isAdmin() || permissionController.canReadOnlyInformation(alloc, forUser))
-            {
-                result.add(alloc);
-            }
-        }
+        result.addAll(visibleAllocatables);
         // add system preferences
         {
             PreferencesImpl preferences = getPreferencesForUserId(null);
@@ -484,6 +565,18 @@ public class LocalCache implements EntityResolver
         return (Collection) reservations.values();
     }
 
+    /** returns the allocatables with an id greater than the passed id in the order of their ids. Returns all allocatables if the id is null */
+    @SuppressWarnings("unchecked") public Collection<Allocatable> getAllocatablesAfter(String id)
+    {
+        return (Collection) (id != null ? resourcesById.tailMap(id, false) : resourcesById).values();
+    }
+
+    /** returns the reservations with an id greater than the passed id in the order of their ids. Returns all reservations if the id is null */
+    @SuppressWarnings("unchecked") public Collection<Reservation> getReservationsAfter(String id)
+    {
+        return (Collection) (id != null ? reservationsById.tailMap(id, false) : reservationsById).values();
+    }
+
     @SuppressWarnings("unchecked") public Collection<DynamicType> getDynamicTypes()
     {
         return (Collection) dynamicTypes.values();
@@ -620,7 +713,7 @@ public class LocalCache implements EntityResolver
                 {
                     if (id != null)
                     {
-                        ReferenceInfo<Allocatable> targetReference = new ReferenceInfo<>(id, Allocatable.class);
+                        ReferenceInfo<Allocatable> targetReference = referenceRegistry.intern(id, Allocatable.class);
                         final GraphNode node = getOrCreate(ref);
                         final GraphNode targetNode = getOrCreate(targetReference);
                         node.addConnection(targetNode, sourceType);
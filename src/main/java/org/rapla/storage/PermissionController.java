@@ -15,6 +15,8 @@ import org.rapla.entities.domain.Permission.AccessLevel;
 import org.rapla.entities.domain.PermissionContainer;
 import org.rapla.entities.domain.RaplaObjectAnnotations;
 import org.rapla.entities.domain.Reservation;
+import org.rapla.entities.domain.internal.CompiledPermissions;
+import org.rapla.entities.domain.internal.PermissionGroups;
 import org.rapla.entities.domain.internal.PermissionImpl;
 import org.rapla.entities.domain.permission.PermissionExtension;
 import org.rapla.entities.dynamictype.Attribute;
@@ -38,6 +40,8 @@ public class PermissionController
 {
     private final Set<PermissionExtension> permissionExtensions;
     StorageOperator operator;
+    // the group numbers of the compiled permissions of the storage
+    private final PermissionGroups permissionGroups = new PermissionGroups();
 
     @Inject
     public PermissionController(Set<PermissionExtension> permissionExtensions, StorageOperator operator)
@@ -47,6 +51,11 @@ public class PermissionController
         this.operator = operator;
     }
 
+    public PermissionGroups getPermissionGroups()
+    {
+        return permissionGroups;
+    }
+
     public static boolean isOwner(Ownable classifiable, User user)
     {
         ReferenceInfo<User> ownerId = classifiable.getOwnerRef();
@@ -257,8 +266,7 @@ public class PermissionController
         }
         if (container instanceof DynamicType)
         {
-            Collection<Permission> permissionList = ((DynamicType)container).getPermissionList();
-            boolean result = matchesAccessLevel(permissionList, user, Permission.READ_TYPE, Permission.CREATE, Permission.ADMIN);
+            boolean result = matchesAccessLevel((DynamicType) container, user, Permission.READ_TYPE, Permission.CREATE, Permission.ADMIN);
             return result;
         }
         else
@@ -275,8 +283,7 @@ public class PermissionController
 
     public boolean canCreate(DynamicType type, User user)
     {
-        Collection<Permission> permissionList = type.getPermissionList();
-        boolean result = matchesAccessLevel(permissionList, user, Permission.CREATE, Permission.ADMIN);
+        boolean result = matchesAccessLevel(type, user, Permission.CREATE, Permission.ADMIN);
         return result;
     }
 
@@ -301,24 +308,12 @@ public class PermissionController
 
     public boolean hasPermissionToAllocate(User user, Allocatable a)
     {
-        Collection<String> groups = UserImpl.getGroupsIncludingParents(user);
         final ReferenceInfo<User> ownerRef = a.getOwnerRef();
         if ( user != null && ownerRef != null && user.getReference().equals(ownerRef))
         {
             return true;
         }
-        for (Permission p : a.getPermissionList())
-        {
-            if (!affectsUser(user, p, groups))
-            {
-                continue;
-            }
-            if (p.getAccessLevel().includes(Permission.ALLOCATE))
-            {
-                return true;
-            }
-        }
-        return false;
+        return CompiledPermissions.of(a).includesAccessLevel(user, Permission.ALLOCATE);
     }
 
     public boolean canReadOnlyInformation(Allocatable classifiable, User user)
@@ -483,27 +478,12 @@ public class PermissionController
         return true;
     }
 
-    private boolean matchesAccessLevel(Iterable<? extends Permission> permissions, User user, AccessLevel... accessLevels)
+    private boolean matchesAccessLevel(PermissionContainer container, User user, AccessLevel... accessLevels)
     {
         if (user == null || user.isAdmin())
             return true;
 
-        Collection<String> groups = UserImpl.getGroupsIncludingParents(user);
-        for (Permission p : permissions)
-        {
-            for (AccessLevel accessLevel : accessLevels)
-            {
-                if (p.getAccessLevel() == accessLevel)
-                {
-                    int effectLevel = PermissionContainer.Util.getUserEffect(user, p, groups);
-                    if (effectLevel > PermissionImpl.NO_PERMISSION)
-                    {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
+        return CompiledPermissions.of(container).matchesAccessLevel(user, accessLevels);
     }
 
     /** returns if the session user is a registerer */
@@ -141,11 +141,21 @@ public interface StorageOperator extends EntityResolver {
     Promise<Map<Allocatable, Map<Appointment,Collection<Appointment>>>> getAllAllocatableBindings(Collection<Allocatable> allocatables, Collection<Appointment> appointments, Collection<Reservation> ignoreList);
 
     Promise<Date> getNextAllocatableDate(Collection<Allocatable> allocatables,Appointment appointment, Collection<Reservation> ignoreList, Integer worktimeStartMinutes,Integer worktimeEndMinutes, Integer[] excludedDays, Integer rowsPerHour);
+
+    /** returns up to count start dates in ascending order, at which the appointment doesn't conflict with the allocatables */
+    Promise<List<Date>> getNextAllocatableDates(Collection<Allocatable> allocatables,Appointment appointment, Collection<Reservation> ignoreList, Integer worktimeStartMinutes,Integer worktimeEndMinutes, Integer[] excludedDays, Integer rowsPerHour, int count);
     
     Promise<Collection<Conflict>> getConflicts(User user);
 
+    /** returns the conflicts the user can modify that overlap within the start, end interval. Conflicts far in the future are only calculated
+     * when an interval reaches them. If start or end is null the interval is open.*/
+    Promise<Collection<Conflict>> getConflicts(User user, Date start, Date end);
+
     Promise<Collection<Conflict>> getConflicts(Reservation reservation);
 
+    /** returns the conflicts of all passed reservations. Each reservation is checked against the stored reservations except itself */
+    Promise<Collection<Conflict>> getConflicts(Collection<Reservation> reservations);
+
     PermissionController getPermissionController();
 	//Collection<String> getTemplateNames() throws RaplaException;
 
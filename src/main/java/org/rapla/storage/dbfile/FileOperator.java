@@ -44,8 +44,8 @@ import org.rapla.framework.RaplaException;
 import org.rapla.framework.RaplaInitializationException;
 import org.rapla.framework.RaplaLocale;
 import org.rapla.framework.TypedComponentRole;
+import org.rapla.framework.internal.DefaultScheduler;
 import org.rapla.logger.Logger;
-import org.rapla.scheduler.CommandScheduler;
 import org.rapla.server.PromiseWait;
 import org.rapla.server.ServerService;
 import org.rapla.storage.LocalCache;
@@ -156,7 +156,7 @@ final public class FileOperator extends LocalAbstractCachableOperator
 
     private final Map<ImportExportMapKey, Map<String,ImportExportEntity>> importExportEntities = new LinkedHashMap<>();
 
-    public FileOperator(Logger logger, PromiseWait promiseWait,RaplaResources i18n, RaplaLocale raplaLocale, CommandScheduler scheduler,
+    public FileOperator(Logger logger, PromiseWait promiseWait,RaplaResources i18n, RaplaLocale raplaLocale, DefaultScheduler scheduler,
             Map<String, FunctionFactory> functionFactoryMap, @Named(ServerService.ENV_RAPLAFILE_ID) String resolvedPath,
             Set<PermissionExtension> permissionExtensions) throws RaplaInitializationException
     {
@@ -448,50 +448,55 @@ final public class FileOperator extends LocalAbstractCachableOperator
             /*  End of Exception Handling */
     }
 
-    public void dispatch(final UpdateEvent evt) throws RaplaException
+    /** updates the cache. The data is written to the file in {@link #commitDispatched()}, so that a batch of events is written only once*/
+    @Override
+    protected void dispatchWithoutLock(final UpdateEvent evt) throws RaplaException
     {
-        final RaplaLock.WriteLock writeLock = writeLockIfLoaded("dispatching " +  evt.getInfoString());
-        try
-        {
-            preprocessEventStorage(evt);
-            Date since = getCurrentTimestamp();//evt.getLastValidated();
-            updateHistory(evt);
-            Date until = getCurrentTimestamp();
-            // this since is for the server and used to check if an entity is new created in this write transaction so set it to the current timestamp
-            // the since for the client will be used later when requesting the update event
-            // call of update must be first to update the cache.
-            // then saveData() saves all the data in the cache
-            final Collection<ReferenceInfo> removeIds = evt.getRemoveIds();
-            final List<PreferencePatch> preferencePatches = evt.getPreferencePatches();
-            final Collection<Entity> storeObjects = new ArrayList<>(evt.getStoreObjects());
-            for (Iterator<Entity> iterator = storeObjects.iterator(); iterator.hasNext();)
-            {
-                Entity entity = iterator.next();
-                if(entity instanceof ImportExportEntity)
-                {
-                    iterator.remove();
-                    ImportExportEntity cast = (ImportExportEntity) entity;
-                    insertIntoImportExportCache(cast);
-                }
-            }
-            Set<ReferenceInfo<ImportExportEntity>> removedImports = new HashSet<>();
-            for (Iterator<ReferenceInfo> iterator = removeIds.iterator(); iterator.hasNext();)
+        preprocessEventStorage(evt);
+        Date since = getCurrentTimestamp();//evt.getLastValidated();
+        updateHistory(evt);
+        Date until = getCurrentTimestamp();
+        // this since is for the server and used to check if an entity is new created in this write transaction so set it to the current timestamp
+        // the since for the client will be used later when requesting the update event
+        // call of update must be first to update the cache.
+        // then saveData() saves all the data in the cache
+        final Collection<ReferenceInfo> removeIds = evt.getRemoveIds();
+        final List<PreferencePatch> preferencePatches = evt.getPreferencePatches();
+        final Collection<Entity> storeObjects = new ArrayList<>(evt.getStoreObjects());
+        for (Iterator<Entity> iterator = storeObjects.iterator(); iterator.hasNext();)
+        {
+            Entity entity = iterator.next();
+            if(entity instanceof ImportExportEntity)
             {
-                ReferenceInfo referenceInfo = iterator.next();
-                if(referenceInfo.getType() == ImportExportEntity.class)
-                {
-                    iterator.remove();
-                    removedImports.add( referenceInfo);
-                }
+                iterator.remove();
+                ImportExportEntity cast = (ImportExportEntity) entity;
+                insertIntoImportExportCache(cast);
             }
-            removeFromImportExportCache(removedImports);
-            refresh(since, until, storeObjects, preferencePatches, removeIds);
-            saveData(cache, null, includeIds);
         }
-        finally
+        Set<ReferenceInfo<ImportExportEntity>> removedImports = new HashSet<>();
+        for (Iterator<ReferenceInfo> iterator = removeIds.iterator(); iterator.hasNext();)
         {
-            lockManager.unlock(writeLock);
+            ReferenceInfo referenceInfo = iterator.next();
+            if(referenceInfo.getType() == ImportExportEntity.class)
+            {
+                iterator.remove();
+                removedImports.add( referenceInfo);
+            }
         }
+        removeFromImportExportCache(removedImports);
+        refresh(since, until, storeObjects, preferencePatches, removeIds);
+    }
+
+    @Override
+    protected void commitDispatched() throws RaplaException
+    {
+        saveData(cache, null, includeIds);
+    }
+
+    @Override
+    protected boolean isGroupCommitSupported()
+    {
+        return true;
     }
 
 
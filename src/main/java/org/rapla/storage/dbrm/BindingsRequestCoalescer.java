@@ -0,0 +1,137 @@
+package org.rapla.storage.dbrm;
+
+import org.rapla.entities.domain.Appointment;
+import org.rapla.entities.domain.internal.AppointmentImpl;
+import org.rapla.scheduler.Promise;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shares the server calls for the bindings of allocatables between requests that are sent within a short time, e.g. by the conflict check
+ * and the allocatable selection after a reservation is saved. A request is answered by a running or recently finished call, if the call contained
+ * all allocatables and appointments of the request and ignored the same reservations. This works because the client calculates the bindings of
+ * the requested allocatables and appointments from the result of the call.
+ * The appointments are compared with a copy made when the call was sent, because the appointments of an edited reservation can change.
+ * All calls are dropped when the data of the client is refreshed.
+ */
+class BindingsRequestCoalescer<T>
+{
+    static final long TIME_TO_LIVE = 2000;
+
+    private final List<Call<T>> calls = new ArrayList<>();
+
+    static class Call<T>
+    {
+        final Set<String> allocatableIds;
+        final Map<String, Appointment> appointments;
+        final Set<String> ignoreIds;
+        final Promise<T> promise;
+        // -1 while the call is running
+        long finished = -1;
+
+        Call(Set<String> allocatableIds, Collection<? extends Appointment> appointments, Set<String> ignoreIds, Promise<T> promise)
+        {
+            this.allocatableIds = allocatableIds;
+            this.ignoreIds = ignoreIds;
+            this.promise = promise;
+            this.appointments = new HashMap<>();
+            for (Appointment appointment : appointments)
+            {
+                this.appointments.put(appointment.getId(), ((AppointmentImpl) appointment).clone());
+            }
+        }
+
+        boolean covers(Set<String> allocatableIds, Collection<? extends Appointment> appointments, Set<String> ignoreIds)
+        {
+            if (!this.ignoreIds.equals(ignoreIds) || !this.allocatableIds.containsAll(allocatableIds))
+            {
+                return false;
+            }
+            for (Appointment appointment : appointments)
+            {
+                final Appointment sent = this.appointments.get(appointment.getId());
+                if (sent == null || !sent.matches(appointment))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isExpired(long now)
+        {
+            return finished >= 0 && now - finished > TIME_TO_LIVE;
+        }
+    }
+
+    /** returns the promise of a running or recently finished call that covers the request or null if the request must be sent */
+    Promise<T> find(String[] allocatableIds, Collection<? extends Appointment> appointments, String[] ignoreIds)
+    {
+        return find(allocatableIds, appointments, ignoreIds, System.currentTimeMillis());
+    }
+
+    synchronized Promise<T> find(String[] allocatableIds, Collection<? extends Appointment> appointments, String[] ignoreIds, long now)
+    {
+        final Set<String> allocatableSet = toSet(allocatableIds);
+        final Set<String> ignoreSet = toSet(ignoreIds);
+        for (Iterator<Call<T>> it = calls.iterator(); it.hasNext(); )
+        {
+            final Call<T> call = it.next();
+            if (call.isExpired(now))
+            {
+                it.remove();
+            }
+            else if (call.covers(allocatableSet, appointments, ignoreSet))
+            {
+                return call.promise;
+            }
+        }
+        return null;
+    }
+
+    /** registers a call that was sent to the server. The call is removed if it fails */
+    void add(String[] allocatableIds, Collection<? extends Appointment> appointments, String[] ignoreIds, Promise<T> promise)
+    {
+        final Call<T> call = new Call<>(toSet(allocatableIds), appointments, toSet(ignoreIds), promise);
+        synchronized (this)
+        {
+            calls.add(call);
+        }
+        promise.thenAccept((result) -> finished(call)).exceptionally((ex) -> remove(call));
+    }
+
+    synchronized void clear()
+    {
+        calls.clear();
+    }
+
+    private synchronized void finished(Call<T> call)
+    {
+        call.finished = System.currentTimeMillis();
+    }
+
+    private synchronized void remove(Call<T> call)
+    {
+        calls.remove(call);
+    }
+
+    private static Set<String> toSet(String[] ids)
+    {
+        final Set<String> result = new HashSet<>();
+        if (ids != null)
+        {
+            for (String id : ids)
+            {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+}
@@ -58,6 +58,7 @@ import org.rapla.storage.StorageOperator;
 import org.rapla.storage.StorageUpdateListener;
 import org.rapla.storage.UpdateEvent;
 import org.rapla.storage.UpdateResult;
+import org.rapla.storage.dbrm.RemoteStorage.AllocatableBindingsBatchRequest;
 import org.rapla.storage.dbrm.RemoteStorage.AllocatableBindingsRequest;
 import org.rapla.storage.dbrm.RemoteStorage.BindingMap;
 import org.rapla.storage.dbrm.RemoteStorage.MergeRequest;
@@ -106,6 +107,8 @@ public class RemoteOperator
     RemoteAuthentificationService remoteAuthentificationService;
     RemoteStorage remoteStorage;
     protected CommandScheduler commandQueue;
+    private final BindingsRequestCoalescer<BindingMap> firstBindingsCoalescer = new BindingsRequestCoalescer<>();
+    private final BindingsRequestCoalescer<List<ReservationImpl>> allBindingsCoalescer = new BindingsRequestCoalescer<>();
 
     Date lastSyncedTimeLocal;
     Date lastSyncedTime;
@@ -925,6 +928,9 @@ public class RemoteOperator
         if (evt.isEmpty()) {
             return;
         }
+        // the bindings of previous calls can be outdated
+        firstBindingsCoalescer.clear();
+        allBindingsCoalescer.clear();
         for (int i = 0; i < listeners.length; i++) {
             listeners[i].objectsUpdated(evt);
         }
@@ -952,7 +958,12 @@ public class RemoteOperator
             appointmentList.add((AppointmentImpl) app);
             appointmentMap.put(app.getId(), app);
         }
-        final Promise<BindingMap> bindingMapPromise = serv.getFirstAllocatableBindings(new AllocatableBindingsRequest(allocatableIds, appointmentList, reservationIds));
+        Promise<BindingMap> bindingMapPromise = firstBindingsCoalescer.find(allocatableIds, appointmentList, reservationIds);
+        if (bindingMapPromise == null)
+        {
+            bindingMapPromise = serv.getFirstAllocatableBindings(new AllocatableBindingsRequest(allocatableIds, appointmentList, reservationIds));
+            firstBindingsCoalescer.add(allocatableIds, appointmentList, reservationIds, bindingMapPromise);
+        }
 
         Promise<Map<Allocatable, Collection<Appointment>>> resultPromise = bindingMapPromise.thenApply((bindingMap) -> {
             Map<String, List<String>> resultMap = bindingMap.get();
@@ -982,10 +993,75 @@ public class RemoteOperator
         final String[] allocatableIds = getIdList(allocatables);
         final List<AppointmentImpl> appointmentArray = Arrays.asList(appointments.toArray(new AppointmentImpl[]{}));
         final String[] reservationIds = getIdList(ignoreList);
-        final Promise<List<ReservationImpl>> listPromise = serv.getAllAllocatableBindings(new AllocatableBindingsRequest(allocatableIds, appointmentArray, reservationIds));
+        Promise<List<ReservationImpl>> listPromise = allBindingsCoalescer.find(allocatableIds, appointmentArray, reservationIds);
+        if (listPromise == null)
+        {
+            listPromise = serv.getAllAllocatableBindings(new AllocatableBindingsRequest(allocatableIds, appointmentArray, reservationIds));
+            allBindingsCoalescer.add(allocatableIds, appointmentArray, reservationIds, listPromise);
+        }
         return listPromise.thenApply((serverResult) -> getMap(allocatables, appointments, ignoreList, serverResult));
     }
 
+    /** sends all queries that are not answered by a previous call in one batch. The batch returns the reservations of all queries
+     * and the bindings of each query are calculated from them */
+    @Override
+    protected Promise<List<Map<Allocatable, Map<Appointment, Collection<Appointment>>>>> getAllAllocatableBindings(List<BindingsQuery> queries)
+    {
+        if (queries.size() <= 1)
+        {
+            return super.getAllAllocatableBindings(queries);
+        }
+        final List<Promise<List<ReservationImpl>>> queryResults = new ArrayList<>();
+        final List<AllocatableBindingsRequest> batch = new ArrayList<>();
+        final List<String[]> allocatableIdList = new ArrayList<>();
+        final List<List<AppointmentImpl>> appointmentLists = new ArrayList<>();
+        final List<String[]> reservationIdList = new ArrayList<>();
+        for (BindingsQuery query : queries)
+        {
+            final String[] allocatableIds = getIdList(query.getAllocatables());
+            final List<AppointmentImpl> appointmentArray = Arrays.asList(query.getAppointments().toArray(new AppointmentImpl[]{}));
+            final String[] reservationIds = getIdList(query.getIgnoreList());
+            final Promise<List<ReservationImpl>> previous = allBindingsCoalescer.find(allocatableIds, appointmentArray, reservationIds);
+            queryResults.add(previous);
+            if (previous == null)
+            {
+                batch.add(new AllocatableBindingsRequest(allocatableIds, appointmentArray, reservationIds));
+                allocatableIdList.add(allocatableIds);
+                appointmentLists.add(appointmentArray);
+                reservationIdList.add(reservationIds);
+            }
+        }
+        if (!batch.isEmpty())
+        {
+            final Promise<List<ReservationImpl>> batchPromise = getRemoteStorage().getAllAllocatableBindingsBatch(new AllocatableBindingsBatchRequest(batch));
+            for (int i = 0; i < batch.size(); i++)
+            {
+                // the result of the batch contains the reservations of every query in the batch
+                allBindingsCoalescer.add(allocatableIdList.get(i), appointmentLists.get(i), reservationIdList.get(i), batchPromise);
+            }
+            for (int i = 0; i < queryResults.size(); i++)
+            {
+                if (queryResults.get(i) == null)
+                {
+                    queryResults.set(i, batchPromise);
+                }
+            }
+        }
+        Promise<List<Map<Allocatable, Map<Appointment, Collection<Appointment>>>>> result = new ResolvedPromise<>(new ArrayList<>());
+        for (int i = 0; i < queries.size(); i++)
+        {
+            final BindingsQuery query = queries.get(i);
+            final Promise<Map<Allocatable, Map<Appointment, Collection<Appointment>>>> bindings = queryResults.get(i)
+                    .thenApply((serverResult) -> getMap(query.getAllocatables(), query.getAppointments(), query.getIgnoreList(), serverResult));
+            result = result.thenCombine(bindings, (list, map) ->
+            {
+                list.add(map);
+                return list;
+            });
+        }
+        return result;
+    }
+
     private Map<Allocatable, Map<Appointment, Collection<Appointment>>> getMap(Collection<Allocatable> allocatables, Collection<Appointment> appointments,
                                                                                Collection<Reservation> ignoreList, List<ReservationImpl> serverResult) throws RaplaException {
         testResolve(serverResult);
@@ -1032,6 +1108,17 @@ public class RemoteOperator
         return nextAllocatableDate;
     }
 
+    @Override
+    public Promise<List<Date>> getNextAllocatableDates(Collection<Allocatable> allocatables, Appointment appointment, Collection<Reservation> ignoreList,
+                                                Integer worktimeStartMinutes, Integer worktimeEndMinutes, Integer[] excludedDays, Integer rowsPerHour, int count) {
+        RemoteStorage serv = getRemoteStorage();
+        String[] allocatableIds = getIdList(allocatables);
+        String[] reservationIds = getIdList(ignoreList);
+        return serv.getNextAllocatableDates(
+                new NextAllocatableDateRequest(allocatableIds, (AppointmentImpl) appointment, reservationIds, worktimeStartMinutes, worktimeEndMinutes,
+                        excludedDays, rowsPerHour, count));
+    }
+
     static private SortedSet<Appointment> getAppointments(Allocatable alloc, SortedSet<Appointment> allAppointments) {
         SortedSet<Appointment> result = new TreeSet<>(new AppointmentStartComparator());
         for (Appointment appointment : allAppointments) {
@@ -1045,8 +1132,15 @@ public class RemoteOperator
 
     @Override
     public Promise<Collection<Conflict>> getConflicts(User user) {
+        return getConflicts(user, null, null);
+    }
+
+    @Override
+    public Promise<Collection<Conflict>> getConflicts(User user, Date start, Date end) {
         RemoteStorage serv = getRemoteStorage();
-        return serv.getConflicts().thenApply( list->
+        final String startString = start != null ? SerializableDateTimeFormat.INSTANCE.formatTimestamp(start) : null;
+        final String endString = end != null ? SerializableDateTimeFormat.INSTANCE.formatTimestamp(end) : null;
+        return serv.getConflicts(startString, endString).thenApply( list->
         {
             testResolve(list);
             setResolver(list);
@@ -12,6 +12,7 @@
  *--------------------------------------------------------------------------*/
 package org.rapla.storage.dbrm;
 
+import org.rapla.components.util.TimeInterval;
 import org.rapla.entities.domain.internal.AllocatableImpl;
 import org.rapla.entities.domain.internal.AppointmentImpl;
 import org.rapla.entities.domain.internal.ReservationImpl;
@@ -205,7 +206,7 @@ public interface RemoteStorage
     @GET
     @Path("conflicts")
     @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
-    Promise<List<ConflictImpl>> getConflicts() ;
+    Promise<List<ConflictImpl>> getConflicts(@QueryParam("start") String start, @QueryParam("end") String end) ;
 
     @POST
     @Path("allocatable/bindings/first")
@@ -253,12 +254,143 @@ public interface RemoteStorage
     @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
     Promise<List<ReservationImpl>> getAllAllocatableBindings(AllocatableBindingsRequest job);
 
+    /** answers all requests of the batch with one call. Returns the reservations of all requests, see {@link #getAllAllocatableBindings(AllocatableBindingsRequest)} */
+    @POST
+    @Path("allocatable/bindings/all/batch")
+    @Consumes({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    @Produces({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    Promise<List<ReservationImpl>> getAllAllocatableBindingsBatch(AllocatableBindingsBatchRequest batch);
+
+    class AllocatableBindingsBatchRequest
+    {
+        private List<AllocatableBindingsRequest> requests;
+
+        public AllocatableBindingsBatchRequest()
+        {
+        }
+
+        public AllocatableBindingsBatchRequest(List<AllocatableBindingsRequest> requests)
+        {
+            this.requests = requests;
+        }
+
+        public List<AllocatableBindingsRequest> getRequests()
+        {
+            return requests;
+        }
+    }
+
+    /** returns for every requested allocatable which of the requested time slots are not booked */
+    @POST
+    @Path("allocatable/availability")
+    @Consumes({ MediaType.APPLICATION_JSON })
+    @Produces({ MediaType.APPLICATION_JSON })
+    Promise<AvailabilityMatrix> getAvailability(AvailabilityRequest job);
+
+    @XmlRootElement
+    @XmlAccessorType(XmlAccessType.FIELD)
+    class AvailabilityRequest
+    {
+        private String[] allocatableIds;
+        private List<TimeInterval> slots;
+        private String[] reservationIds;
+
+        public AvailabilityRequest()
+        {
+        }
+
+        public AvailabilityRequest(String[] allocatableIds, List<TimeInterval> slots, String[] reservationIds)
+        {
+            this.allocatableIds = allocatableIds;
+            this.slots = slots;
+            this.reservationIds = reservationIds;
+        }
+
+        public String[] getAllocatableIds()
+        {
+            return allocatableIds;
+        }
+
+        public List<TimeInterval> getSlots()
+        {
+            return slots;
+        }
+
+        public String[] getReservationIds()
+        {
+            return reservationIds;
+        }
+    }
+
+    /** availability bitmap. For every allocatable id bit i of the int array (32 slots per int) is set if the allocatable is free in slot i*/
+    @XmlRootElement
+    @XmlAccessorType(XmlAccessType.FIELD)
+    class AvailabilityMatrix
+    {
+        int slotCount;
+        Map<String, int[]> free;
+
+        AvailabilityMatrix()
+        {
+        }
+
+        public AvailabilityMatrix(int slotCount, Map<String, int[]> free)
+        {
+            this.slotCount = slotCount;
+            this.free = free;
+        }
+
+        public int getSlotCount()
+        {
+            return slotCount;
+        }
+
+        public Map<String, int[]> getFreeBits()
+        {
+            return free;
+        }
+
+        /** @throws IllegalArgumentException if the allocatable was not part of the request or the slot is not in the range of the requested slots */
+        public boolean isFree(String allocatableId, int slot)
+        {
+            final int[] bits = free != null ? free.get(allocatableId) : null;
+            if (bits == null)
+            {
+                throw new IllegalArgumentException("No availability for allocatable " + allocatableId + ". Only the requested allocatables are contained.");
+            }
+            if (slot < 0 || slot >= slotCount)
+            {
+                throw new IllegalArgumentException("Slot " + slot + " is not in the range of the " + slotCount + " requested slots.");
+            }
+            return (bits[slot >> 5] & (1 << (slot & 31))) != 0;
+        }
+
+        public static int[] toBits(boolean[] free)
+        {
+            final int[] bits = new int[(free.length + 31) >> 5];
+            for (int slot = 0; slot < free.length; slot++)
+            {
+                if (free[slot])
+                {
+                    bits[slot >> 5] |= 1 << (slot & 31);
+                }
+            }
+            return bits;
+        }
+    }
+
     @POST
     @Path("allocatable/date/next")
     @Consumes({ MediaType.APPLICATION_JSON })
     @Produces({ MediaType.APPLICATION_JSON })
     Promise<Date> getNextAllocatableDate(NextAllocatableDateRequest job);
 
+    @POST
+    @Path("allocatable/dates/next")
+    @Consumes({ MediaType.APPLICATION_JSON })
+    @Produces({ MediaType.APPLICATION_JSON })
+    Promise<List<Date>> getNextAllocatableDates(NextAllocatableDateRequest job);
+
     @XmlRootElement
     @XmlAccessorType(XmlAccessType.FIELD)
     class NextAllocatableDateRequest
@@ -270,6 +402,7 @@ public interface RemoteStorage
         private Integer worktimeEndMinutes;
         private Integer[] excludedDays;
         Integer rowsPerHour;
+        private int count = 1;
 
         public NextAllocatableDateRequest()
         {
@@ -289,6 +422,13 @@ public interface RemoteStorage
             this.rowsPerHour = rowsPerHour;
         }
 
+        public NextAllocatableDateRequest(String[] allocatableIds, AppointmentImpl appointment, String[] reservationIds, Integer worktimeStartMinutes,
+                Integer worktimeEndMinutes, Integer[] excludedDays, Integer rowsPerHour, int count)
+        {
+            this(allocatableIds, appointment, reservationIds, worktimeStartMinutes, worktimeEndMinutes, excludedDays, rowsPerHour);
+            this.count = count;
+        }
+
         public String[] getAllocatableIds()
         {
             return allocatableIds;
@@ -323,6 +463,11 @@ public interface RemoteStorage
         {
             return rowsPerHour;
         }
+
+        public int getCount()
+        {
+            return count;
+        }
     }
 
     @GET
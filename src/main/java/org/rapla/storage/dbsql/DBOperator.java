@@ -32,8 +32,8 @@ import org.rapla.facade.Conflict;
 import org.rapla.framework.RaplaException;
 import org.rapla.framework.RaplaLocale;
 import org.rapla.framework.internal.ConfigTools;
+import org.rapla.framework.internal.DefaultScheduler;
 import org.rapla.logger.Logger;
-import org.rapla.scheduler.CommandScheduler;
 import org.rapla.server.PromiseWait;
 import org.rapla.storage.CachableStorageOperator;
 import org.rapla.storage.CachableStorageOperatorCommand;
@@ -58,6 +58,7 @@ import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -88,7 +89,7 @@ import java.util.Set;
     private String connectionName;
     Provider<ImportExportManager> importExportManager;
 
-    public DBOperator(Logger logger, PromiseWait promiseWait,RaplaResources i18n, RaplaLocale locale, final CommandScheduler scheduler, Map<String, FunctionFactory> functionFactoryMap,
+    public DBOperator(Logger logger, PromiseWait promiseWait,RaplaResources i18n, RaplaLocale locale, final DefaultScheduler scheduler, Map<String, FunctionFactory> functionFactoryMap,
             Provider<ImportExportManager> importExportManager, DataSource dataSource, Set<PermissionExtension> permissionExtensions)
     {
         super(logger, promiseWait,i18n, locale, scheduler, functionFactoryMap, permissionExtensions);
@@ -122,7 +123,7 @@ import java.util.Set;
         {
             final int delay = 30000;
             final int period = 1000*60*10;
-            scheduleConnectedTasks(()->
+            scheduleConnectedTasks("cleanup locks", ()->
                 {
                     //final RaplaLock.WriteLock writeLock = lockManager.writeLockIfAvaliable(getClass(), "scheduleCleanupAndRefresh");
                     //if ( writeLock != null)
@@ -150,7 +151,7 @@ import java.util.Set;
         {
             long delay = 100;//DateTools.MILLISECONDS_PER_DAY;
             long period = DateTools.MILLISECONDS_PER_DAY;
-            scheduleConnectedTasks(() -> {
+            scheduleConnectedTasks("cleanup history", () -> {
                 try(final Connection con = createConnection( false))
                 {
                     final RaplaDefaultXMLContext context = createOutputContext(cache);
@@ -704,58 +705,290 @@ import java.util.Set;
         return tableMap;
     }
 
-    public void dispatch(UpdateEvent evt) throws RaplaException
+    /** the connection and the locks of the batch that is dispatched, see {@link #beginDispatchBatch(List)}. Only accessed with the write lock*/
+    private DispatchBatch currentBatch;
+
+    private static class DispatchBatch
+    {
+        final Connection connection;
+        final Collection<String> lockIds;
+        Date lastTimestamp;
+
+        DispatchBatch(Connection connection, Collection<String> lockIds, Date lockTimestamp)
+        {
+            this.connection = connection;
+            this.lockIds = lockIds;
+            this.lastTimestamp = lockTimestamp;
+        }
+
+        /** the events of a batch get increasing timestamps, even if the database returns the start of the transaction as current timestamp */
+        Date nextTimestamp(Date databaseTimestamp)
+        {
+            lastTimestamp = databaseTimestamp.after(lastTimestamp) ? databaseTimestamp : new Date(lastTimestamp.getTime() + 1);
+            return lastTimestamp;
+        }
+    }
+
+    /** requests the locks of all events of the batch at once, so that the events can be stored in one transaction. Batches that change dynamic types need a global lock and are stored event by event*/
+    @Override
+    protected void beginDispatchBatch(List<UpdateEvent> events) throws RaplaException
     {
-        RaplaLock.WriteLock writeLock = writeLockIfLoaded("Dispatching " + evt.toString());
+        if (events.size() < 2 || !bSupportsTransactions)
+        {
+            return;
+        }
+        final Set<ReferenceInfo> ids = new LinkedHashSet<>();
+        for (UpdateEvent evt : events)
+        {
+            ids.addAll(getReferences(evt.getStoreObjects(), evt.getPreferencePatches(), evt.getRemoveIds()));
+        }
+        if (ids.isEmpty() || containsDynamicType(ids))
+        {
+            return;
+        }
+        final Collection<String> lockIds = getLockIds(ids);
+        final RaplaSQL raplaSQLOutput = new RaplaSQL(createOutputContext(cache));
+        final Connection connection = createConnection();
         try
         {
-            //Date since = lastUpdated;
-            preprocessEventStorage(evt);
-            Collection<Entity> storeObjects = evt.getStoreObjects();
-            List<PreferencePatch> preferencePatches = evt.getPreferencePatches();
-            Collection<ReferenceInfo> removeObjects = evt.getRemoveIds();
-            if (storeObjects.isEmpty() && preferencePatches.isEmpty() && removeObjects.isEmpty())
+            if (!connection.getMetaData().supportsSavepoints())
             {
+                close(connection);
                 return;
             }
-            Connection connection = createConnection();
+            final Date lockTimestamp = raplaSQLOutput.getDatabaseTimestamp(connection);
+            raplaSQLOutput.requestLocks(connection, lockTimestamp, lockIds, null, true);
+            currentBatch = new DispatchBatch(connection, lockIds, lockTimestamp);
+        }
+        catch (SQLException | RaplaException | RuntimeException ex)
+        {
+            close(connection);
+            throw ex instanceof RaplaException ? (RaplaException) ex : new RaplaDBException(ex.getMessage(), ex);
+        }
+    }
+
+    /** every event is stored in its own transaction and refreshed immediately, because the checks of the next event need the updated cache.
+     * In a batch the events are stored in the transaction of the batch, that is committed in {@link #commitDispatched()}*/
+    @Override
+    protected void dispatchWithoutLock(UpdateEvent evt) throws RaplaException
+    {
+        //Date since = lastUpdated;
+        preprocessEventStorage(evt);
+        Collection<Entity> storeObjects = evt.getStoreObjects();
+        List<PreferencePatch> preferencePatches = evt.getPreferencePatches();
+        Collection<ReferenceInfo> removeObjects = evt.getRemoveIds();
+        if (storeObjects.isEmpty() && preferencePatches.isEmpty() && removeObjects.isEmpty())
+        {
+            return;
+        }
+        if (currentBatch != null)
+        {
+            final Set<ReferenceInfo> ids = getReferences(storeObjects, preferencePatches, removeObjects);
+            if (!containsDynamicType(ids) && currentBatch.lockIds.containsAll(getLockIds(ids)))
+            {
+                dispatchInBatch(storeObjects, preferencePatches, removeObjects, evt.getUserId());
+                return;
+            }
+            // the preprocessing added entities that are not locked by the batch. Requesting more locks would commit the batch anyway
+            commitDispatchBatch();
+        }
+        Connection connection = createConnection();
+        try
+        {
+            dbStore(storeObjects, preferencePatches, removeObjects, connection, evt.getUserId());
             try
             {
-                dbStore(storeObjects, preferencePatches, removeObjects, connection, evt.getUserId());
-                try
+                RefreshObject refreshObject = readRefreshInfoFromDb(connection);
+                if (refreshObject != null)
                 {
-                    RefreshObject refreshObject = readRefreshInfoFromDb(connection);
-                    if (refreshObject != null)
-                    {
-                        refreshWithoutLock(refreshObject);
-                    }
-                }
-                catch (SQLException e)
-                {
-                    getLogger().error("Could not load update from db. Will be loaded afterwards", e);
+                    refreshWithoutLock(refreshObject);
                 }
             }
-            finally
+            catch (SQLException e)
             {
-                close(connection);
+                getLogger().error("Could not load update from db. Will be loaded afterwards", e);
             }
         }
         finally
         {
-            lockManager.unlock(writeLock);
+            close(connection);
         }
         // TODO check if still needed
         //fireStorageUpdated(result);
     }
 
-    private void dbStore(Collection<Entity> storeObjects, List<PreferencePatch> preferencePatches, Collection<ReferenceInfo> removeObjects,
-            Connection connection, String userId) throws RaplaException
+    /** stores the event in the transaction of the batch and updates the cache with the stored entities. The changes can't be read from the database
+     * before the locks of the batch are released, so the last refresh is not changed until the batch is committed */
+    private void dispatchInBatch(Collection<Entity> storeObjects, List<PreferencePatch> preferencePatches, Collection<ReferenceInfo> removeObjects,
+            String userId) throws RaplaException
     {
-        if (( storeObjects == null || storeObjects.size() == 0) && (preferencePatches == null || preferencePatches.size() == 0)
-                && (removeObjects == null || removeObjects.size() == 0))
+        final Connection connection = currentBatch.connection;
+        final RaplaSQL raplaSQLOutput = new RaplaSQL(createOutputContext(cache));
+        Savepoint savepoint = null;
+        final Date timestamp;
+        try
         {
-            return;
+            savepoint = connection.setSavepoint();
+            timestamp = currentBatch.nextTimestamp(raplaSQLOutput.getDatabaseTimestamp(connection));
+            final Map<Entity, Entity> storeMap = createStoreMap(storeObjects, userId, timestamp);
+            for (ReferenceInfo id : removeObjects)
+            {
+                raplaSQLOutput.remove(connection, id, timestamp);
+            }
+            raplaSQLOutput.store(connection, storeMap, timestamp);
+            raplaSQLOutput.storePatches(connection, preferencePatches, timestamp);
+        }
+        catch (Exception ex)
+        {
+            try
+            {
+                if (savepoint != null)
+                {
+                    connection.rollback(savepoint);
+                }
+            }
+            catch (SQLException sqlEx)
+            {
+                String message = "Unrecoverable error while storing";
+                getLogger().error(message, sqlEx);
+                releaseDispatchBatch();
+                forceDisconnect();
+                throw new RaplaDBException(message, sqlEx);
+            }
+            getLogger().error("Doing rollback for: " + ex.getMessage());
+            throw new RaplaDBException(getI18n().getString("error.rollback"), ex);
+        }
+        final Collection<Entity> toStore = new ArrayList<>();
+        for (Entity entity : storeObjects)
+        {
+            if (entity instanceof ImportExportEntity)
+            {
+                continue;
+            }
+            if (EntityHistory.isSupportedEntity(entity.getTypeClass()))
+            {
+                history.addHistoryEntry(entity, timestamp, false);
+            }
+            toStore.add(entity);
         }
+        final Collection<ReferenceInfo> toRemove = new ArrayList<>();
+        for (ReferenceInfo id : removeObjects)
+        {
+            if (id.getType() == ImportExportEntity.class)
+            {
+                continue;
+            }
+            final Entity entity = tryResolve(id);
+            if (entity != null && EntityHistory.isSupportedEntity(id.getType()))
+            {
+                history.addHistoryEntry(entity, timestamp, true);
+            }
+            toRemove.add(id);
+        }
+        for (PreferencePatch patch : preferencePatches)
+        {
+            patch.setLastChanged(timestamp);
+        }
+        final Date lastRefreshed = getLastRefreshed();
+        refresh(lastRefreshed, lastRefreshed, toStore, preferencePatches, toRemove);
+    }
+
+    @Override
+    protected void commitDispatched() throws RaplaException
+    {
+        if (currentBatch != null)
+        {
+            commitDispatchBatch();
+        }
+    }
+
+    @Override
+    protected void endDispatchBatch()
+    {
+        if (currentBatch != null)
+        {
+            releaseDispatchBatch();
+        }
+    }
+
+    @Override
+    protected boolean isGroupCommitSupported()
+    {
+        return true;
+    }
+
+    /** commits the changes of the batch, releases its locks and reads the changes of the other servers together with the own changes */
+    private void commitDispatchBatch() throws RaplaException
+    {
+        final Connection connection = currentBatch.connection;
+        try
+        {
+            connection.commit();
+        }
+        catch (SQLException ex)
+        {
+            // the cache contains the changes of the batch already
+            String message = "Unrecoverable error while storing";
+            getLogger().error(message, ex);
+            releaseDispatchBatch();
+            forceDisconnect();
+            throw new RaplaDBException(message, ex);
+        }
+        releaseDispatchBatch(false);
+        try
+        {
+            RefreshObject refreshObject = readRefreshInfoFromDb(connection);
+            if (refreshObject != null)
+            {
+                refreshWithoutLock(refreshObject);
+            }
+        }
+        catch (SQLException e)
+        {
+            getLogger().error("Could not load update from db. Will be loaded afterwards", e);
+        }
+        finally
+        {
+            close(connection);
+        }
+    }
+
+    /** rolls back the uncommitted changes of the batch, releases its locks and closes the connection */
+    private void releaseDispatchBatch()
+    {
+        final Connection connection = currentBatch.connection;
+        try
+        {
+            connection.rollback();
+        }
+        catch (SQLException ex)
+        {
+            getLogger().error("Could not rollback batch: " + ex.getMessage(), ex);
+        }
+        releaseDispatchBatch(true);
+    }
+
+    private void releaseDispatchBatch(boolean closeConnection)
+    {
+        final DispatchBatch batch = currentBatch;
+        currentBatch = null;
+        try
+        {
+            new RaplaSQL(createOutputContext(cache)).removeLocks(batch.connection, batch.lockIds, batch.lastTimestamp, true);
+            batch.connection.commit();
+        }
+        catch (Exception ex)
+        {
+            getLogger().error("Could not remove locks. They will be removed during next cleanup. ", ex);
+        }
+        if (closeConnection)
+        {
+            close(batch.connection);
+        }
+    }
+
+    private Set<ReferenceInfo> getReferences(Collection<Entity> storeObjects, List<PreferencePatch> preferencePatches, Collection<ReferenceInfo> removeObjects)
+    {
         final LinkedHashSet<ReferenceInfo> ids = new LinkedHashSet<>();
         for (Entity entity : storeObjects)
         {
@@ -769,34 +1002,53 @@ import java.util.Set;
         {
             ids.add(patch.getReference());
         }
+        return ids;
+    }
+
+    /** sets the creation and change info of the entities and maps them to the stored versions */
+    private Map<Entity, Entity> createStoreMap(Collection<Entity> storeObjects, String userId, Date connectionTimestamp) throws RaplaException
+    {
+        Map<Entity, Entity> storeMap = new LinkedHashMap<>();
+        User lastChangedBy = (userId != null) ? resolve(userId, User.class) : null;
+        for (Entity e : storeObjects)
+        {
+            final Entity oldEntity = tryResolve(e.getReference());
+
+            if (e instanceof ModifiableTimestamp)
+            {
+                ModifiableTimestamp modifiableTimestamp = (ModifiableTimestamp) e;
+                if ( lastChangedBy != null)
+                {
+                    modifiableTimestamp.setLastChangedBy(lastChangedBy);
+                }
+                if ( oldEntity == null)
+                {
+                    modifiableTimestamp.setCreateDate( connectionTimestamp );
+                }
+            }
+            storeMap.put( e, oldEntity);
+        }
+        return storeMap;
+    }
+
+    private void dbStore(Collection<Entity> storeObjects, List<PreferencePatch> preferencePatches, Collection<ReferenceInfo> removeObjects,
+            Connection connection, String userId) throws RaplaException
+    {
+        if (( storeObjects == null || storeObjects.size() == 0) && (preferencePatches == null || preferencePatches.size() == 0)
+                && (removeObjects == null || removeObjects.size() == 0))
+        {
+            return;
+        }
+        final Set<ReferenceInfo> ids = getReferences(storeObjects, preferencePatches, removeObjects);
 
         final boolean needsGlobalLock = containsDynamicType(ids);
         Date connectionTimestamp = null;
         final Collection<String> lockIds = needsGlobalLock ? Collections.singletonList(LockStorage.GLOBAL_LOCK) : getLockIds(ids);
         RaplaSQL raplaSQLOutput = new RaplaSQL(createOutputContext(cache));
-        Map<Entity,Entity> storeMap = new LinkedHashMap<>();
         try
         {
             connectionTimestamp = raplaSQLOutput.getDatabaseTimestamp(connection);
-            User lastChangedBy = (userId != null) ? resolve(userId, User.class) : null;
-            for (Entity e : storeObjects)
-            {
-                final Entity oldEntity = tryResolve(e.getReference());
-
-                if (e instanceof ModifiableTimestamp)
-                {
-                    ModifiableTimestamp modifiableTimestamp = (ModifiableTimestamp) e;
-                    if ( lastChangedBy != null)
-                    {
-                        modifiableTimestamp.setLastChangedBy(lastChangedBy);
-                    }
-                    if ( oldEntity == null)
-                    {
-                        modifiableTimestamp.setCreateDate( connectionTimestamp );
-                    }
-                }
-                storeMap.put( e, oldEntity);
-            }
+            final Map<Entity,Entity> storeMap = createStoreMap(storeObjects, userId, connectionTimestamp);
             raplaSQLOutput.requestLocks(connection, connectionTimestamp, lockIds, null, !needsGlobalLock);
             for (ReferenceInfo id : removeObjects)
             {
@@ -58,10 +58,10 @@ import org.rapla.facade.Conflict;
 import org.rapla.facade.internal.ConflictImpl;
 import org.rapla.framework.RaplaException;
 import org.rapla.logger.Logger;
-import org.rapla.rest.JsonParserWrapper;
 import org.rapla.storage.PreferencePatch;
 import org.rapla.storage.impl.server.EntityHistory;
 import org.rapla.storage.impl.server.EntityHistory.HistoryEntry;
+import org.rapla.storage.impl.server.EntityJsonParser;
 import org.rapla.storage.xml.CategoryReader;
 import org.rapla.storage.xml.DynamicTypeReader;
 import org.rapla.storage.xml.PreferenceReader;
@@ -2604,7 +2604,7 @@ class UserGroupStorage extends EntityStorage<User> implements SubStorage<User>
 class HistoryStorage<T extends Entity<T>> extends RaplaTypeStorage<T>
 {
 
-    private JsonParserWrapper.JsonParser gson;
+    private EntityJsonParser gson;
     private final Date supportTimestamp;
     private final String loadAllUpdatesSql;
 
@@ -2615,7 +2615,7 @@ class HistoryStorage<T extends Entity<T>> extends RaplaTypeStorage<T>
                         "ISDELETE INTEGER NOT NULL" });
         loadAllUpdatesSql = "SELECT ID, TYPE, ENTITY_CLASS, XML_VALUE, CHANGED_AT, ISDELETE FROM CHANGES WHERE CHANGED_AT >= ? ORDER BY CHANGED_AT ASC";
         Class[] additionalClasses = new Class[] { RaplaMapImpl.class };
-        gson = JsonParserWrapper.defaultJson().get();
+        gson = EntityJsonParser.get();
         if (context.has(Date.class))
         {
             supportTimestamp = context.lookup(Date.class);
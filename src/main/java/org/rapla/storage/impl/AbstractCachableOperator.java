@@ -29,6 +29,7 @@ import org.rapla.entities.domain.Appointment;
 import org.rapla.entities.domain.Reservation;
 import org.rapla.entities.domain.ResourceAnnotations;
 import org.rapla.entities.domain.internal.AllocatableImpl;
+import org.rapla.entities.domain.internal.PermissionGroups;
 import org.rapla.entities.domain.permission.PermissionExtension;
 import org.rapla.entities.dynamictype.Attribute;
 import org.rapla.entities.dynamictype.Classifiable;
@@ -83,7 +84,7 @@ import java.util.Set;
  * @see LocalCache
  */
 
-public abstract class AbstractCachableOperator implements StorageOperator
+public abstract class AbstractCachableOperator implements StorageOperator, PermissionGroups.Provider
 {
     final protected RaplaLocale raplaLocale;
     final protected LocalCache cache;
@@ -118,6 +119,12 @@ public abstract class AbstractCachableOperator implements StorageOperator
         return permissionController;
     }
 
+    @Override
+    public PermissionGroups getPermissionGroups()
+    {
+        return permissionController.getPermissionGroups();
+    }
+
     public Logger getLogger()
     {
         return logger;
@@ -269,51 +276,117 @@ public abstract class AbstractCachableOperator implements StorageOperator
 
     public Promise<Collection<Conflict>> getConflicts(Reservation reservation)
     {
-        Date today = today();
-        if (RaplaComponent.isTemplate(reservation))
+        return getConflicts(Collections.singleton(reservation));
+    }
+
+    public Promise<Collection<Conflict>> getConflicts(Collection<Reservation> reservations)
+    {
+        final List<Reservation> checked = new ArrayList<>();
+        final List<BindingsQuery> queries = new ArrayList<>();
+        for (Reservation reservation : reservations)
+        {
+            if (RaplaComponent.isTemplate(reservation))
+            {
+                continue;
+            }
+            checked.add(reservation);
+            // each reservation only ignores itself, so the reservations are also checked against the stored versions of each other
+            queries.add(new BindingsQuery(Arrays.asList(reservation.getAllocatables()), Arrays.asList(reservation.getAppointments()),
+                    Collections.singleton(reservation)));
+        }
+        if (queries.isEmpty())
         {
             return new ResolvedPromise<>(Collections.emptyList());
         }
-        final Collection<Allocatable> allocatables = Arrays.asList(reservation.getAllocatables());
-        final Collection<Appointment> appointments = Arrays.asList(reservation.getAppointments());
-        final Collection<Reservation> ignoreList = Collections.singleton(reservation);
-        final Promise<Map<Allocatable, Map<Appointment, Collection<Appointment>>>> allAllocatableBindingsPromise = getAllAllocatableBindings(allocatables,
-                appointments, ignoreList);
-        final Promise<Collection<Conflict>> promise = allAllocatableBindingsPromise.thenApply((map) ->
+        final Date today = today();
+        return getAllAllocatableBindings(queries).thenApply((bindingsList) ->
         {
             ArrayList<Conflict> conflictList = new ArrayList<>();
-            for (Map.Entry<Allocatable, Map<Appointment, Collection<Appointment>>> entry : map.entrySet())
+            for (int i = 0; i < checked.size(); i++)
             {
-                Allocatable allocatable = entry.getKey();
-                String annotation = allocatable.getAnnotation(ResourceAnnotations.KEY_CONFLICT_CREATION);
-                boolean holdBackConflicts = annotation != null && annotation.equals(ResourceAnnotations.VALUE_CONFLICT_CREATION_IGNORE);
-                if (holdBackConflicts)
-                {
-                    continue;
-                }
-                Map<Appointment, Collection<Appointment>> appointmentMap = entry.getValue();
-                for (Map.Entry<Appointment, Collection<Appointment>> appointmentEntry : appointmentMap.entrySet())
+                addConflicts(conflictList, checked.get(i), bindingsList.get(i), today);
+            }
+            return conflictList;
+        });
+    }
+
+    /** the parameters of a {@link #getAllAllocatableBindings(Collection, Collection, Collection)} call */
+    protected static class BindingsQuery
+    {
+        private final Collection<Allocatable> allocatables;
+        private final Collection<Appointment> appointments;
+        private final Collection<Reservation> ignoreList;
+
+        public BindingsQuery(Collection<Allocatable> allocatables, Collection<Appointment> appointments, Collection<Reservation> ignoreList)
+        {
+            this.allocatables = allocatables;
+            this.appointments = appointments;
+            this.ignoreList = ignoreList;
+        }
+
+        public Collection<Allocatable> getAllocatables()
+        {
+            return allocatables;
+        }
+
+        public Collection<Appointment> getAppointments()
+        {
+            return appointments;
+        }
+
+        public Collection<Reservation> getIgnoreList()
+        {
+            return ignoreList;
+        }
+    }
+
+    /** returns the bindings for each query in the order of the queries. Subclasses can override this to answer all queries with one call */
+    protected Promise<List<Map<Allocatable, Map<Appointment, Collection<Appointment>>>>> getAllAllocatableBindings(List<BindingsQuery> queries)
+    {
+        Promise<List<Map<Allocatable, Map<Appointment, Collection<Appointment>>>>> result = new ResolvedPromise<>(new ArrayList<>());
+        for (BindingsQuery query : queries)
+        {
+            result = result.thenCombine(getAllAllocatableBindings(query.getAllocatables(), query.getAppointments(), query.getIgnoreList()), (list, bindings) ->
+            {
+                list.add(bindings);
+                return list;
+            });
+        }
+        return result;
+    }
+
+    private void addConflicts(List<Conflict> conflictList, Reservation reservation, Map<Allocatable, Map<Appointment, Collection<Appointment>>> map,
+            Date today)
+    {
+        for (Map.Entry<Allocatable, Map<Appointment, Collection<Appointment>>> entry : map.entrySet())
+        {
+            Allocatable allocatable = entry.getKey();
+            String annotation = allocatable.getAnnotation(ResourceAnnotations.KEY_CONFLICT_CREATION);
+            boolean holdBackConflicts = annotation != null && annotation.equals(ResourceAnnotations.VALUE_CONFLICT_CREATION_IGNORE);
+            if (holdBackConflicts)
+            {
+                continue;
+            }
+            Map<Appointment, Collection<Appointment>> appointmentMap = entry.getValue();
+            for (Map.Entry<Appointment, Collection<Appointment>> appointmentEntry : appointmentMap.entrySet())
+            {
+                Appointment appointment = appointmentEntry.getKey();
+                if (reservation.hasAllocatedOn(allocatable, appointment))
                 {
-                    Appointment appointment = appointmentEntry.getKey();
-                    if (reservation.hasAllocatedOn(allocatable, appointment))
+                    Collection<Appointment> conflictionAppointments = appointmentEntry.getValue();
+                    if (conflictionAppointments != null)
                     {
-                        Collection<Appointment> conflictionAppointments = appointmentEntry.getValue();
-                        if (conflictionAppointments != null)
+                        for (Appointment conflictingAppointment : conflictionAppointments)
                         {
-                            for (Appointment conflictingAppointment : conflictionAppointments)
-                            {
 
-                                Appointment appointment1 = appointment;
-                                Appointment appointment2 = conflictingAppointment;
-                                ConflictImpl.checkAndAddConflicts(conflictList, allocatable, appointment1, appointment2, today);
-                            }
+                            Appointment appointment1 = appointment;
+                            Appointment appointment2 = conflictingAppointment;
+                            ConflictImpl.checkAndAddConflicts(conflictList, allocatable, appointment1, appointment2, today);
                         }
                     }
                 }
             }
-            return conflictList;
-        });
-        return promise;
+        }
     }
 
     public Collection<Allocatable> getDependent(Collection<Allocatable> allocatables)
@@ -702,6 +775,21 @@ public abstract class AbstractCachableOperator implements StorageOperator
     }
 
     protected void testResolve(Collection<? extends Entity> entities) throws EntityNotFoundException
+    {
+        EntityStore store = createTestResolveStore(entities);
+        for (Entity entity : entities)
+        {
+
+            if (entity instanceof EntityReferencer)
+            {
+                testResolve(store, (EntityReferencer) entity);
+            }
+
+        }
+    }
+
+    /** returns a store that contains the entities and sets it as resolver of the entities, so their references can be tested */
+    protected EntityStore createTestResolveStore(Collection<? extends Entity> entities)
     {
         EntityStore store = new EntityStore(this);
         store.addAll(entities);
@@ -716,15 +804,7 @@ public abstract class AbstractCachableOperator implements StorageOperator
                 ((DynamicTypeImpl) entity).setOperator(this);
             }
         }
-        for (Entity entity : entities)
-        {
-
-            if (entity instanceof EntityReferencer)
-            {
-                testResolve(store, (EntityReferencer) entity);
-            }
-
-        }
+        return store;
     }
 
     protected void testResolve(EntityResolver resolver, EntityReferencer referencer) throws EntityNotFoundException
@@ -787,6 +867,11 @@ public abstract class AbstractCachableOperator implements StorageOperator
         }
     }
 
+    @Override public long getVersion()
+    {
+        return cache.getVersion();
+    }
+
     @Override public <T extends Entity> T tryResolve(ReferenceInfo<T> referenceInfo)
     {
         final Class<T> type = (Class<T>) referenceInfo.getType();
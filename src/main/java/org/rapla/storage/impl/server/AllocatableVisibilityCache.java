@@ -0,0 +1,105 @@
+package org.rapla.storage.impl.server;
+
+import org.rapla.entities.Category;
+import org.rapla.entities.Entity;
+import org.rapla.entities.User;
+import org.rapla.entities.domain.Allocatable;
+import org.rapla.entities.domain.Permission;
+import org.rapla.entities.dynamictype.DynamicType;
+import org.rapla.entities.storage.EntityResolver;
+import org.rapla.entities.storage.ReferenceInfo;
+import org.rapla.storage.PermissionController;
+import org.rapla.storage.UpdateOperation;
+import org.rapla.storage.UpdateResult;
+
+import java.util.Collection;
+
+/**
+ * Caches which allocatables a user can see (canReadOnlyInformation) so that logins don't need to walk the permissions of all allocatables.
+ * Users with the same groups share the same result, see {@link PermissionSignatureIndex}.
+ * The cache is updated incrementally from the {@link UpdateResult}s of the storage. Changes to categories or dynamic types invalidate all signatures.
+ */
+public class AllocatableVisibilityCache extends PermissionSignatureIndex<Allocatable>
+{
+    private final EntityResolver resolver;
+    private final PermissionController permissionController;
+
+    public AllocatableVisibilityCache(EntityResolver resolver, PermissionController permissionController)
+    {
+        this.resolver = resolver;
+        this.permissionController = permissionController;
+    }
+
+    synchronized public void init(Collection<Allocatable> allocatables)
+    {
+        clear();
+        for (Allocatable allocatable : allocatables)
+        {
+            put(allocatable);
+        }
+    }
+
+    /** returns all allocatables the user can read at least the information of. Returns all allocatables if user is null or an admin.*/
+    public Collection<Allocatable> getVisibleAllocatables(User user)
+    {
+        return getVisible(user);
+    }
+
+    /** updates the cache with the changes in the passed result. Must be called after the changes are stored in the cache.*/
+    synchronized public void update(UpdateResult result)
+    {
+        for (UpdateOperation operation : result.getOperations())
+        {
+            final ReferenceInfo reference = operation.getReference();
+            final Class<? extends Entity> type = operation.getType();
+            if (type == Allocatable.class)
+            {
+                if (operation instanceof UpdateResult.Remove)
+                {
+                    remove(reference.getId());
+                }
+                else
+                {
+                    final Allocatable allocatable = resolver.tryResolve(reference.getId(), Allocatable.class);
+                    if (allocatable != null)
+                    {
+                        put(allocatable);
+                    }
+                }
+            }
+            else if (type == User.class)
+            {
+                // group membership could have changed
+                invalidateUser(reference.getId());
+            }
+            else if (type == Category.class || type == DynamicType.class)
+            {
+                invalidateSignatures();
+            }
+        }
+    }
+
+    @Override
+    protected boolean isVisible(Allocatable allocatable, User user)
+    {
+        return permissionController.canReadOnlyInformation(allocatable, user);
+    }
+
+    @Override
+    protected void collectReferencedUsers(Allocatable allocatable, Collection<String> userIds)
+    {
+        final ReferenceInfo<User> ownerRef = allocatable.getOwnerRef();
+        if (ownerRef != null)
+        {
+            userIds.add(ownerRef.getId());
+        }
+        for (Permission permission : allocatable.getPermissionList())
+        {
+            final String userId = permission.getUserId();
+            if (userId != null)
+            {
+                userIds.add(userId);
+            }
+        }
+    }
+}
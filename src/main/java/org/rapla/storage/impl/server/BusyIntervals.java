@@ -0,0 +1,124 @@
+package org.rapla.storage.impl.server;
+
+import org.rapla.entities.domain.Appointment;
+import org.rapla.entities.domain.Reservation;
+import org.rapla.entities.domain.internal.AppointmentBlockBuffer;
+import org.rapla.entities.domain.internal.AppointmentImpl;
+import org.rapla.facade.RaplaComponent;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.SortedSet;
+
+/**
+ * Sorted list of the disjoint time intervals in which at least one of the added appointments takes place.
+ * The blocks of the appointments are collected in an {@link AppointmentBlockBuffer} and merged on the first access.
+ */
+class BusyIntervals
+{
+    private final AppointmentBlockBuffer blocks = new AppointmentBlockBuffer();
+    private long[] starts = new long[0];
+    private long[] ends = new long[0];
+    private boolean merged = true;
+
+    /**
+     * adds the blocks between start and end of all appointments of the set that would conflict with the passed appointment, i.e. appointments that
+     * are not templates and not in the same reservation or the ignore list. The appointment can be null.
+     */
+    void addAppointments(SortedSet<Appointment> appointmentSet, Appointment appointment, Collection<Reservation> ignoreList, long start, long end)
+    {
+        final Reservation r1 = appointment != null ? appointment.getReservation() : null;
+        final boolean excludeExceptions = true;
+        for (Appointment busy : AppointmentImpl.getAppointments(appointmentSet, null, new Date(start), new Date(end), excludeExceptions))
+        {
+            final Reservation r2 = busy.getReservation();
+            if (RaplaComponent.isTemplate(r2) || RaplaComponent.isTemplate(busy))
+            {
+                continue;
+            }
+            if (r2 != null && ignoreList.contains(r2))
+            {
+                continue;
+            }
+            if (r1 != null && r1.equals(r2))
+            {
+                continue;
+            }
+            if (busy.equals(appointment))
+            {
+                continue;
+            }
+            ((AppointmentImpl) busy).createBlocks(start, end, blocks, excludeExceptions);
+        }
+        merged = false;
+    }
+
+    int size()
+    {
+        merge();
+        return starts.length;
+    }
+
+    long getStart(int index)
+    {
+        merge();
+        return starts[index];
+    }
+
+    long getEnd(int index)
+    {
+        merge();
+        return ends[index];
+    }
+
+    /** returns the index of the first interval at or after from that ends after the passed time or size() if there is none*/
+    int next(int from, long time)
+    {
+        merge();
+        int index = from;
+        while (index < ends.length && ends[index] <= time)
+        {
+            index++;
+        }
+        return index;
+    }
+
+    /** returns true if the interval with the passed index overlaps the time span from start to end */
+    boolean overlaps(int index, long start, long end)
+    {
+        merge();
+        return index < starts.length && starts[index] < end && ends[index] > start;
+    }
+
+    private void merge()
+    {
+        if (merged)
+        {
+            return;
+        }
+        final int size = blocks.size();
+        final int[] sorted = blocks.getSortedIndices(false);
+        final long[] newStarts = new long[size];
+        final long[] newEnds = new long[size];
+        int count = 0;
+        for (int index : sorted)
+        {
+            final long start = blocks.getStart(index);
+            final long end = blocks.getEnd(index);
+            if (count > 0 && start < newEnds[count - 1])
+            {
+                newEnds[count - 1] = Math.max(newEnds[count - 1], end);
+            }
+            else
+            {
+                newStarts[count] = start;
+                newEnds[count] = end;
+                count++;
+            }
+        }
+        starts = Arrays.copyOf(newStarts, count);
+        ends = Arrays.copyOf(newEnds, count);
+        merged = true;
+    }
+}
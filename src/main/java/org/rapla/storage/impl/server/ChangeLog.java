@@ -0,0 +1,169 @@
+package org.rapla.storage.impl.server;
+
+import org.rapla.components.util.DateTools;
+import org.rapla.entities.storage.ReferenceInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Append only log of the latest change of every entity, bucketed by the hour of the change.
+ * A change of an entity appends a new entry and makes the previous entry of the entity stale, so queries for changes since a timestamp
+ * only visit the buckets after the timestamp. Stale entries are dropped when they outnumber the current ones and the stale entries of
+ * old buckets can be dropped with {@link #removeBefore(long)}.
+ * The methods are synchronized because old buckets are removed while other requests hold the read lock.
+ */
+class ChangeLog<E extends ChangeLog.Entry>
+{
+    static final long BUCKET_DURATION = DateTools.MILLISECONDS_PER_HOUR;
+
+    private final Map<String, E> latest = new HashMap<>();
+    private final TreeMap<Long, List<E>> buckets = new TreeMap<>();
+    private int staleCount;
+
+    abstract static class Entry implements Comparable<Entry>
+    {
+        final ReferenceInfo reference;
+        final long timestamp;
+        final boolean isDelete;
+
+        Entry(ReferenceInfo reference, long timestamp, boolean isDelete)
+        {
+            this.reference = reference;
+            this.timestamp = timestamp;
+            this.isDelete = isDelete;
+        }
+
+        String getId()
+        {
+            return reference.getId();
+        }
+
+        @Override
+        public int compareTo(Entry o)
+        {
+            if (o == this)
+            {
+                return 0;
+            }
+            int result = Long.compare(timestamp, o.timestamp);
+            if (result != 0)
+            {
+                return result;
+            }
+            return getId().compareTo(o.getId());
+        }
+
+        @Override
+        public String toString()
+        {
+            return reference + (isDelete ? " removed on " : " changed on ") + new Date(timestamp);
+        }
+    }
+
+    /** returns the latest entry of the entity with the passed id */
+    synchronized E get(String id)
+    {
+        return latest.get(id);
+    }
+
+    /** adds the entry as latest change of its entity. Entries must not be added twice.*/
+    synchronized void add(E entry)
+    {
+        final E previous = latest.put(entry.getId(), entry);
+        if (previous != null)
+        {
+            staleCount++;
+        }
+        final Long bucket = getBucket(entry.timestamp);
+        List<E> entries = buckets.get(bucket);
+        if (entries == null)
+        {
+            entries = new ArrayList<>();
+            buckets.put(bucket, entries);
+        }
+        entries.add(entry);
+        if (staleCount > latest.size())
+        {
+            compact();
+        }
+    }
+
+    /** returns the latest entries with a timestamp after since that match the filter, sorted by timestamp */
+    synchronized List<E> getChangesAfter(long since, Predicate<E> filter)
+    {
+        final List<E> result = new ArrayList<>();
+        for (List<E> entries : buckets.tailMap(getBucket(since), true).values())
+        {
+            for (E entry : entries)
+            {
+                if (entry.timestamp > since && latest.get(entry.getId()) == entry && filter.test(entry))
+                {
+                    result.add(entry);
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * removes the superseded entries of the buckets before the passed time. The latest entry of every entity is kept, like the latest
+     * history entry in {@link EntityHistory#removeUnneeded(java.util.Date)}, because the next change of the entity needs the users
+     * and groups that were affected by its previous change.
+     */
+    synchronized void removeBefore(long time)
+    {
+        final Iterator<List<E>> it = buckets.headMap(getBucket(time), false).values().iterator();
+        while (it.hasNext())
+        {
+            final List<E> entries = it.next();
+            final int size = entries.size();
+            entries.removeIf((entry) -> latest.get(entry.getId()) != entry);
+            staleCount -= size - entries.size();
+            if (entries.isEmpty())
+            {
+                it.remove();
+            }
+        }
+    }
+
+    synchronized int size()
+    {
+        return latest.size();
+    }
+
+    synchronized void clear()
+    {
+        latest.clear();
+        buckets.clear();
+        staleCount = 0;
+    }
+
+    private void compact()
+    {
+        final Iterator<List<E>> it = buckets.values().iterator();
+        while (it.hasNext())
+        {
+            final List<E> entries = it.next();
+            entries.removeIf((entry) -> latest.get(entry.getId()) != entry);
+            if (entries.isEmpty())
+            {
+                it.remove();
+            }
+        }
+        staleCount = 0;
+    }
+
+    private static Long getBucket(long timestamp)
+    {
+        return Math.floorDiv(timestamp, BUCKET_DURATION);
+    }
+}
@@ -13,12 +13,17 @@
 package org.rapla.storage.impl.server;
 
 import org.rapla.components.util.DateTools;
+import org.rapla.components.util.TimeInterval;
+import org.rapla.components.util.iterator.IterableChain;
+import org.rapla.entities.Category;
+import org.rapla.entities.Entity;
 import org.rapla.entities.User;
 import org.rapla.entities.domain.Allocatable;
 import org.rapla.entities.domain.Appointment;
 import org.rapla.entities.domain.AppointmentBlock;
 import org.rapla.entities.domain.Reservation;
 import org.rapla.entities.domain.ResourceAnnotations;
+import org.rapla.entities.domain.internal.AppointmentBlockBuffer;
 import org.rapla.entities.domain.internal.AppointmentImpl;
 import org.rapla.entities.dynamictype.DynamicType;
 import org.rapla.entities.storage.EntityResolver;
@@ -29,11 +34,13 @@ import org.rapla.facade.internal.ConflictImpl;
 import org.rapla.framework.RaplaException;
 import org.rapla.logger.Logger;
 import org.rapla.storage.PermissionController;
+import org.rapla.storage.StorageOperator;
 import org.rapla.storage.UpdateOperation;
 import org.rapla.storage.UpdateResult;
 import org.rapla.storage.UpdateResult.Change;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -42,21 +49,39 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 class ConflictFinder {
+    /** overlaps will be checked  260 weeks (5 years) from now on */
+    static final int MAX_CHECK_WEEKS = 260;
 	AllocationMap  allocationMap;
     // stores all conflicts (can be without enable/disable information)
     private Map<ReferenceInfo<Allocatable>,Map<ReferenceInfo<Conflict>,Conflict>> conflictMap;
     Logger logger;
     EntityResolver resolver;
     private final PermissionController permissionController;
-    public ConflictFinder( AllocationMap  allocationMap, Date today, Logger logger, EntityResolver resolver,  PermissionController permissionController)  {
+    // conflicts grouped by the users that can modify them
+    private final ConflictViewIndex viewIndex;
+    // conflicts are calculated when an allocation changes only within the horizon. Conflicts between the horizon and the max check are calculated on request
+    private final int horizonWeeks;
+    // conflicts that are first found after the horizon, by allocatable and the start of the month of their first overlap
+    private final Map<ReferenceInfo<Allocatable>,SortedMap<Long,Map<ReferenceInfo<Conflict>,Conflict>>> lazyConflicts = new HashMap<>();
+    // the end of the horizon at the time the conflicts of the allocatable were calculated
+    private final Map<ReferenceInfo<Allocatable>,Long> horizonEnds = new HashMap<>();
+    /** incremented when the allocations of the lazy conflicts change, guarded by lazyConflicts */
+    private int lazyConflictsVersion;
+    private Date today;
+    public ConflictFinder( AllocationMap  allocationMap, Date today, Logger logger, EntityResolver resolver,  PermissionController permissionController, int horizonWeeks)  {
     	this.logger = logger;
     	this.allocationMap = allocationMap;
         this.permissionController = permissionController;
+        this.horizonWeeks = Math.min(Math.max(horizonWeeks, 1), MAX_CHECK_WEEKS);
+        this.today = today;
     	conflictMap = new HashMap<>();
     	long startTime = System.currentTimeMillis();
     	int conflictSize = 0;
@@ -66,8 +91,16 @@ class ConflictFinder {
         	conflictMap.put( allocatable.getReference(), newConflicts);
         	conflictSize+= newConflicts.size();
 		}
-        logger.info("Conflict initialization found " + conflictSize + " conflicts and took " + (System.currentTimeMillis()- startTime) + "ms. " ); 
+        logger.info("Conflict initialization found " + conflictSize + " conflicts within " + this.horizonWeeks + " weeks and took " + (System.currentTimeMillis()- startTime) + "ms. " );
         this.resolver = resolver;
+        viewIndex = new ConflictViewIndex(resolver, permissionController);
+        for (Map<ReferenceInfo<Conflict>,Conflict> conflicts:conflictMap.values())
+        {
+            for (Conflict conflict:conflicts.values())
+            {
+                viewIndex.put(conflict);
+            }
+        }
 	}
     
     public Conflict findConflict(ReferenceInfo<Conflict> ref)
@@ -88,11 +121,20 @@ class ConflictFinder {
         {
             return null;
         }
-        else
+        final Conflict conflict = set.get(ref);
+        if ( conflict != null || !hasLazyConflicts())
         {
-            final Conflict conflict = set.get(ref);
             return conflict;
         }
+        for (Map<ReferenceInfo<Conflict>, Conflict> partition : getLazyConflicts(allocatable, null, null).values())
+        {
+            final Conflict lazyConflict = partition.get(ref);
+            if (lazyConflict != null)
+            {
+                return lazyConflict;
+            }
+        }
+        return null;
     }
 
     private Map<ReferenceInfo<Conflict>,Conflict> calculateConflicts(Allocatable allocatable,Date today )
@@ -231,8 +273,17 @@ class ConflictFinder {
 //    }
     
     private  Map<ReferenceInfo<Conflict>,Conflict>  updateConflicts(Allocatable allocatable, Date today, Set<Appointment> allAppointments) {
-        Collection<AppointmentBlock> allAppointmentBlocks = new LinkedList<>();
-        createBlocks(today,allAppointments,allAppointmentBlocks);
+        AppointmentBlockBuffer allAppointmentBlocks = new AppointmentBlockBuffer();
+        final long horizonEnd = getHorizonEnd();
+        if (hasLazyConflicts())
+        {
+            synchronized (lazyConflicts)
+            {
+                horizonEnds.put(allocatable.getReference(), horizonEnd);
+                lazyConflictsVersion++;
+            }
+        }
+        createBlocks(today,horizonEnd,allAppointments,allAppointmentBlocks);
 //        Collection<AppointmentBlock> appointmentBlocks =  new LinkedList<AppointmentBlock>();
 //        createBlocks(today,changedAppointments,appointmentBlocks, null);
 //        long startTime = 0;
@@ -249,91 +300,100 @@ class ConflictFinder {
     }
 
 
- // helper class for events in sweep line algorithm
-    public static class Event implements Comparable<Event> {
-        long time;
-        AppointmentBlock interval;
-
-        public Event(long time, AppointmentBlock interval) {
-            this.time     = time;
-            this.interval = interval;
-        }
-
-        public int compareTo(Event b) {
-            Event a = this;
-            if      (a.time < b.time) return -1;
-            else if (a.time > b.time) return +1;
-            else                      return  0; 
-        }
-    }
-
-
     // the sweep-line algorithm
     public static Map<ReferenceInfo<Conflict>,Conflict> sweepLine(Allocatable allocatable, Date today, Collection<AppointmentBlock> intervals) {
-        Map<ReferenceInfo<Conflict>,Conflict> conflictList = new HashMap<>();//conflictMap.get(allocatable);
-        Set<String> foundConflictIds = new HashSet<>();
-        // generate N random intervals
-
-        // createInfoDialog events
-        MinPQ<Event> pq = new MinPQ<>();
+        AppointmentBlockBuffer blocks = new AppointmentBlockBuffer(intervals.size());
         for (AppointmentBlock block:intervals) {
-            Event e1 = new Event(block.getStart(),  block);
-            Event e2 = new Event(block.getEnd(), block);
-            pq.insert(e1);
-            pq.insert(e2);
+            blocks.add(block.getStart(), block.getEnd(), block.getAppointment(), block.isException());
         }
+        return sweepLine(allocatable, today, blocks);
+    }
+
+    public static Map<ReferenceInfo<Conflict>,Conflict> sweepLine(Allocatable allocatable, Date today, AppointmentBlockBuffer blocks) {
+        Map<ReferenceInfo<Conflict>,Conflict> conflictList = new HashMap<>();//conflictMap.get(allocatable);
+        // pairs of appointments that are already checked, further overlapping blocks of the same pair can be skipped
+        PairSet checkedPairs = new PairSet();
+        final int size = blocks.size();
+        final long appointmentCount = blocks.getAppointmentCount();
+        // the start and end events are the blocks sorted by start and by end
+        final int[] byStart = blocks.getSortedIndices(false);
+        final int[] byEnd = blocks.getSortedIndices(true);
 
         // run sweep-line algorithm
-        HashSet<AppointmentBlock> st = new HashSet<>();
-        while (!pq.isEmpty()) {
-            Event e = pq.delMin();
-            long time = e.time;
-            AppointmentBlock appBlock = e.interval;
-            Appointment appointment1 = appBlock.getAppointment();
-
-            // next event is the right endpoint of interval i
-            if (time == appBlock.getEnd())
-                st.remove(appBlock);
-
-            // next event is the left endpoint of interval i
-            else {
-                for (AppointmentBlock appBlock2 : st) {
-                    final Appointment appointment2 = appBlock2.getAppointment();
-                    if ( appBlock == appBlock2 || appointment1.equals( appointment2) )
-                    {
+        // the blocks that started but not ended yet and their position in the active array
+        int[] active = new int[16];
+        int activeSize = 0;
+        final int[] activePosition = new int[size];
+        Arrays.fill(activePosition, -1);
+        int startPos = 0;
+        int endPos = 0;
+        while (startPos < size) {
+            final int block1 = byStart[startPos];
+            final long time = blocks.getStart(block1);
+
+            // next event is the right endpoint of a block. Ends are processed first, because blocks that only touch don't overlap
+            if (endPos < size && blocks.getEnd(byEnd[endPos]) <= time) {
+                final int endBlock = byEnd[endPos++];
+                final int position = activePosition[endBlock];
+                if (position >= 0) {
+                    final int last = active[--activeSize];
+                    active[position] = last;
+                    activePosition[last] = position;
+                    activePosition[endBlock] = -1;
+                }
+                continue;
+            }
+
+            // next event is the left endpoint of a block
+            startPos++;
+            if (blocks.getEnd(block1) <= time) {
+                continue;
+            }
+            final int appointmentIndex1 = blocks.getAppointmentIndex(block1);
+            final Appointment appointment1 = blocks.getAppointmentAt(appointmentIndex1);
+            for (int i = 0; i < activeSize; i++) {
+                final int appointmentIndex2 = blocks.getAppointmentIndex(active[i]);
+                if ( appointmentIndex1 == appointmentIndex2)
+                {
+                    continue;
+                }
+                final long pair = Math.min(appointmentIndex1, appointmentIndex2) * appointmentCount + Math.max(appointmentIndex1, appointmentIndex2);
+                if ( !checkedPairs.add( pair))
+                {
+                    continue;
+                }
+                final Appointment appointment2 = blocks.getAppointmentAt(appointmentIndex2);
+                if ( appointment1.equals( appointment2) )
+                {
+                    continue;
+                }
+                if ( appointment2.overlapsAppointment(appointment1))
+                {
+                    // Check if allocatable is directly reserved by one of the  reservations
+                    // Blocks are created for parent resources like buildings but the two reservations could allocate different rooms in that building
+                    final Reservation reservation1 = appointment1.getReservation();
+                    final Reservation reservation2 = appointment2.getReservation();
+                    if (!reservation1.hasAllocatedOn(allocatable, appointment1)
+                            && !reservation2.hasAllocatedOn(allocatable,appointment2)) {
                         continue;
                     }
-                    if ( appointment2.overlapsAppointment(appointment1))
+
+                    // Add appointments to conflict list
+                    if (ConflictImpl.isConflictWithoutCheck(appointment1, appointment2, today))
                     {
                         String id = ConflictImpl.createId(allocatable.getReference(), appointment1.getReference(), appointment2.getReference());
-                        if ( foundConflictIds.contains(id ))
-                        {
-                            continue;
-                        }
-
-                        // Check if allocatable is directly reserved by one of the  reservations
-                        // Blocks are created for parent resources like buildings but the two reservations could allocate different rooms in that building
-                        final Reservation reservation1 = appointment1.getReservation();
-                        final Reservation reservation2 = appointment2.getReservation();
-                        if (!reservation1.hasAllocatedOn(allocatable, appointment1)
-                                && !reservation2.hasAllocatedOn(allocatable,appointment2)) {
-                            continue;
-                        }
-
-                        // Add appointments to conflict list
-                        if (ConflictImpl.isConflictWithoutCheck(appointment1, appointment2, today))
-                        {
-                            // createInfoDialog a new conflict
-                            final ConflictImpl conflict = new ConflictImpl(allocatable,appointment1, appointment2, today, id);
-                            conflictList.put(conflict.getReference(), conflict);
-                            foundConflictIds.add( id);
+                        // createInfoDialog a new conflict
+                        final ConflictImpl conflict = new ConflictImpl(allocatable,appointment1, appointment2, today, id);
+                        conflictList.put(conflict.getReference(), conflict);
 //                            System.out.println("Conflict " + appointment1 + " and " + appointment2);
-                        }                       
                     }
-
                 }
-                st.add(appBlock);
             }
+            if (activeSize == active.length) {
+                active = Arrays.copyOf(active, activeSize * 2);
+            }
+            activePosition[block1] = activeSize;
+            active[activeSize++] = block1;
         }
         return conflictList;
 
@@ -423,23 +483,34 @@ class ConflictFinder {
 //        return( idList.contains( appointment1) || idList.contains( appointment2));
 //	}
 	
-    private void createBlocks(Date today, Collection<Appointment> appointmentSet,  Collection<AppointmentBlock> allAppointmentBlocks) {
-        // overlaps will be checked  260 weeks (5 years) from now on
-		long maxCheck = System.currentTimeMillis() + DateTools.MILLISECONDS_PER_WEEK * 260;
-		//Appointment last = appointmentSet.last();
-		
+    private static long getMaxCheck()
+    {
+        return System.currentTimeMillis() + DateTools.MILLISECONDS_PER_WEEK * MAX_CHECK_WEEKS;
+    }
+
+    private long getHorizonEnd()
+    {
+        return System.currentTimeMillis() + DateTools.MILLISECONDS_PER_WEEK * horizonWeeks;
+    }
+
+    private boolean hasLazyConflicts()
+    {
+        return horizonWeeks < MAX_CHECK_WEEKS;
+    }
+
+    /** creates the blocks of all appointments that can cause conflicts between from and to */
+    private void createBlocks(Date from, long to, Collection<Appointment> appointmentSet,  AppointmentBlockBuffer allAppointmentBlocks) {
 		// Get all time blocks of all appointments
 		for (Appointment appointment:appointmentSet)
 		{
 			// Get the end date of the appointment (if repeating, end date of last occurence)
 			Date maxEnd = appointment.getMaxEnd();
 		       // Check if the appointment is repeating forever
-            if ( maxEnd == null || maxEnd.getTime() > maxCheck)
+            if ( maxEnd == null || maxEnd.getTime() > to)
             {
-                // If the repeating has no end, set the end to the start of the last appointment in the set + 100 weeks (~2 years)
-                maxEnd = new Date(maxCheck); 
+                maxEnd = new Date(to);
             }
-            if ( maxEnd.before( today))
+            if ( maxEnd.before( from) || appointment.getStart().getTime() > to)
             {
                 continue;
             }
@@ -462,14 +533,294 @@ class ConflictFinder {
 			 * itself.
 			 */
 			Date start = appointment.getStart();
-			if ( start.before( today))
+			if ( start.before( from))
 			{
-			    start = today;
+			    start = from;
 			}
-            ((AppointmentImpl)appointment).createBlocks(start, DateTools.fillDate(maxEnd), allAppointmentBlocks);
+            ((AppointmentImpl)appointment).createBlocks(start.getTime(), DateTools.fillDate(maxEnd.getTime()), allAppointmentBlocks, true);
 		}
     }
 
+    /** returns the partitions of the allocatable after the horizon that intersect the start, end interval and calculates the missing partitions.
+     * If start or end is null the partitions from the horizon or up to the max check are returned.
+     * The missing partitions are calculated outside of synchronized(lazyConflicts) and are only stored if no allocation changed in the meantime */
+    private SortedMap<Long,Map<ReferenceInfo<Conflict>,Conflict>> getLazyConflicts(ReferenceInfo<Allocatable> allocatableId, Date start, Date end)
+    {
+        while (true)
+        {
+            final SortedSet<Long> missing = new TreeSet<>();
+            final long horizonEnd;
+            final int version;
+            final Long firstPartition;
+            final long to;
+            synchronized (lazyConflicts)
+            {
+                horizonEnd = getHorizonEnd(allocatableId);
+                version = lazyConflictsVersion;
+                // partitions before today are not calculated again after they are evicted
+                final long from = Math.max(start != null ? Math.max(start.getTime(), horizonEnd) : horizonEnd, today.getTime());
+                to = end != null ? Math.min(end.getTime(), getMaxCheck()) : getMaxCheck();
+                if (from >= to)
+                {
+                    return Collections.emptySortedMap();
+                }
+                firstPartition = getPartition(from);
+                final SortedMap<Long,Map<ReferenceInfo<Conflict>,Conflict>> partitions = lazyConflicts.get(allocatableId);
+                for (Long partition = firstPartition; partition < to; partition = getNextPartition(partition))
+                {
+                    if (partitions == null || !partitions.containsKey(partition))
+                    {
+                        missing.add(partition);
+                    }
+                }
+                if (missing.isEmpty())
+                {
+                    return new TreeMap<>(partitions.subMap(firstPartition, to));
+                }
+            }
+            final Map<Long,Map<ReferenceInfo<Conflict>,Conflict>> calculated = calculatePartitions(allocatableId, missing, horizonEnd);
+            synchronized (lazyConflicts)
+            {
+                if (version != lazyConflictsVersion)
+                {
+                    // the allocations changed while calculating
+                    continue;
+                }
+                SortedMap<Long,Map<ReferenceInfo<Conflict>,Conflict>> partitions = lazyConflicts.get(allocatableId);
+                if (partitions == null)
+                {
+                    partitions = new TreeMap<>();
+                    lazyConflicts.put(allocatableId, partitions);
+                }
+                for (Map.Entry<Long,Map<ReferenceInfo<Conflict>,Conflict>> entry : calculated.entrySet())
+                {
+                    if (partitions.putIfAbsent(entry.getKey(), entry.getValue()) == null)
+                    {
+                        for (Conflict conflict : entry.getValue().values())
+                        {
+                            viewIndex.put(conflict);
+                        }
+                    }
+                }
+                return new TreeMap<>(partitions.subMap(firstPartition, to));
+            }
+        }
+    }
+
+    private long getHorizonEnd(ReferenceInfo<Allocatable> allocatableId)
+    {
+        final Long allocatableHorizonEnd = horizonEnds.get(allocatableId);
+        return allocatableHorizonEnd != null ? allocatableHorizonEnd : getHorizonEnd();
+    }
+
+    /** calculates the conflicts of the allocatable that overlap in the months of the partitions after the horizon.
+     * The blocks of the appointments are created once and each month is checked with the blocks that intersect the month.
+     * A conflict that overlaps in more than one month is stored in each of the partitions.*/
+    private Map<Long,Map<ReferenceInfo<Conflict>,Conflict>> calculatePartitions(ReferenceInfo<Allocatable> allocatableId, SortedSet<Long> partitions, long horizonEnd)
+    {
+        final Map<Long,Map<ReferenceInfo<Conflict>,Conflict>> result = new TreeMap<>();
+        for (Long partition : partitions)
+        {
+            result.put(partition, new LinkedHashMap<>());
+        }
+        final Allocatable allocatable = partitions.isEmpty() ? null : resolver.tryResolve(allocatableId);
+        if (allocatable == null || isConflictIgnored(allocatable))
+        {
+            return result;
+        }
+        final long from = Math.max(partitions.first(), horizonEnd);
+        final long to = Math.min(getNextPartition(partitions.last()), getMaxCheck());
+        if (from >= to)
+        {
+            return result;
+        }
+        AppointmentBlockBuffer blocks = new AppointmentBlockBuffer();
+        createBlocks(new Date(from), to, allocationMap.getAppointments(allocatable), blocks);
+        final Map<Long,AppointmentBlockBuffer> blocksByMonth = new HashMap<>();
+        for (int block = 0; block < blocks.size(); block++)
+        {
+            final long start = blocks.getStart(block);
+            final long end = blocks.getEnd(block);
+            if (end <= from)
+            {
+                continue;
+            }
+            for (Long partition : partitions.subSet(getPartition(Math.max(start, from)), end))
+            {
+                if (end <= horizonEnd)
+                {
+                    continue;
+                }
+                AppointmentBlockBuffer monthBlocks = blocksByMonth.get(partition);
+                if (monthBlocks == null)
+                {
+                    monthBlocks = new AppointmentBlockBuffer();
+                    blocksByMonth.put(partition, monthBlocks);
+                }
+                monthBlocks.add(start, end, blocks.getAppointment(block), blocks.isException(block));
+            }
+        }
+        final Map<ReferenceInfo<Conflict>,Conflict> conflictsWithinHorizon = conflictMap.get(allocatableId);
+        for (Map.Entry<Long,AppointmentBlockBuffer> entry : blocksByMonth.entrySet())
+        {
+            final Map<ReferenceInfo<Conflict>,Conflict> partitionConflicts = result.get(entry.getKey());
+            for (Conflict conflict : sweepLine(allocatable, today, entry.getValue()).values())
+            {
+                final ReferenceInfo<Conflict> conflictId = conflict.getReference();
+                if (conflictsWithinHorizon != null && conflictsWithinHorizon.containsKey(conflictId))
+                {
+                    continue;
+                }
+                partitionConflicts.put(conflictId, conflict);
+            }
+        }
+        return result;
+    }
+
+    /** returns the start of the month of the passed time */
+    static Long getPartition(long time)
+    {
+        final DateTools.DateWithoutTimezone date = DateTools.toDate(time);
+        return DateTools.toDate(date.year, date.month, 1);
+    }
+
+    /** returns the start of the month after the passed partition */
+    static Long getNextPartition(long partition)
+    {
+        return DateTools.addMonth(new Date(partition)).getTime();
+    }
+
+    /** calculates the missing partitions after the horizon that intersect the start, end interval for all allocatables
+     * and returns the conflicts of these partitions */
+    private Set<ReferenceInfo<Conflict>> calculateLazyConflicts(Date start, Date end)
+    {
+        Set<ReferenceInfo<Conflict>> result = new HashSet<>();
+        if (!hasLazyConflicts())
+        {
+            return result;
+        }
+        for (Allocatable allocatable : allocationMap.getAllocatables())
+        {
+            for (Map<ReferenceInfo<Conflict>,Conflict> partition : getLazyConflicts(allocatable.getReference(), start, end).values())
+            {
+                result.addAll(partition.keySet());
+            }
+        }
+        return result;
+    }
+
+    /** returns the months after the horizon that are calculated for the allocatable. Only used for testing */
+    Set<Long> getCalculatedPartitions(ReferenceInfo<Allocatable> allocatableId)
+    {
+        synchronized (lazyConflicts)
+        {
+            final SortedMap<Long,Map<ReferenceInfo<Conflict>,Conflict>> partitions = lazyConflicts.get(allocatableId);
+            return partitions != null ? new TreeSet<>(partitions.keySet()) : Collections.emptySet();
+        }
+    }
+
+    /** calculates the partitions of the allocatable after the horizon that intersect the interval again and adds the changes of their conflicts.
+     * Partitions that are not calculated yet stay uncalculated. If the interval is null all partitions are calculated again.
+     * Conflicts with one of the changed appointments are sent as change, because their appointments could be modified */
+    private void updateLazyConflicts(ReferenceInfo<Allocatable> allocatableId, TimeInterval interval, Set<ReferenceInfo<Appointment>> changedAppointments, Collection<ConflictChangeOperation> conflictChanges)
+    {
+        synchronized (lazyConflicts)
+        {
+            lazyConflictsVersion++;
+            final Map<ReferenceInfo<Conflict>,Conflict> conflictsWithinHorizon = conflictMap.get(allocatableId);
+            if (conflictsWithinHorizon == null)
+            {
+                horizonEnds.remove(allocatableId);
+            }
+            final SortedMap<Long,Map<ReferenceInfo<Conflict>,Conflict>> partitions = lazyConflicts.get(allocatableId);
+            if (partitions == null)
+            {
+                return;
+            }
+            final Map<ReferenceInfo<Conflict>,Conflict> before = getAllConflicts(partitions);
+            final SortedMap<Long,Map<ReferenceInfo<Conflict>,Conflict>> invalidated;
+            if (interval == null || interval.getStart() == null)
+            {
+                invalidated = partitions;
+            }
+            else
+            {
+                final Date end = interval.getEnd();
+                invalidated = partitions.subMap(getPartition(interval.getStart().getTime()), end != null ? end.getTime() : Long.MAX_VALUE);
+            }
+            final SortedSet<Long> toCalculate = new TreeSet<>(invalidated.keySet());
+            invalidated.clear();
+            if (conflictsWithinHorizon == null)
+            {
+                // the allocatable is removed
+                lazyConflicts.remove(allocatableId);
+            }
+            else
+            {
+                partitions.putAll(calculatePartitions(allocatableId, toCalculate, getHorizonEnd(allocatableId)));
+            }
+            final Map<ReferenceInfo<Conflict>,Conflict> after = getAllConflicts(partitions);
+            for (Map.Entry<ReferenceInfo<Conflict>,Conflict> entry : before.entrySet())
+            {
+                final ReferenceInfo<Conflict> conflictId = entry.getKey();
+                if (after.containsKey(conflictId) || (conflictsWithinHorizon != null && conflictsWithinHorizon.containsKey(conflictId)))
+                {
+                    continue;
+                }
+                viewIndex.remove(conflictId.getId());
+                conflictChanges.add(new ConflictChangeOperation(new UpdateResult.Remove(conflictId), entry.getValue(), null));
+            }
+            for (Conflict conflict : after.values())
+            {
+                final ReferenceInfo<Conflict> conflictId = conflict.getReference();
+                final Conflict oldConflict = before.get(conflictId);
+                viewIndex.put(conflict);
+                if (oldConflict == null)
+                {
+                    conflictChanges.add(new ConflictChangeOperation(new UpdateResult.Add(conflictId), null, conflict));
+                }
+                else if (changedAppointments != null && (changedAppointments.contains(conflict.getAppointment1()) || changedAppointments.contains(conflict.getAppointment2())))
+                {
+                    conflictChanges.add(new ConflictChangeOperation(new Change(conflictId), oldConflict, conflict));
+                }
+            }
+        }
+    }
+
+    private static Map<ReferenceInfo<Conflict>,Conflict> getAllConflicts(SortedMap<Long,Map<ReferenceInfo<Conflict>,Conflict>> partitions)
+    {
+        final Map<ReferenceInfo<Conflict>,Conflict> result = new LinkedHashMap<>();
+        for (Map<ReferenceInfo<Conflict>,Conflict> partition : partitions.values())
+        {
+            result.putAll(partition);
+        }
+        return result;
+    }
+
+    /** returns the interval from the earliest start to the latest end of the appointments. The end is null if one of the appointments repeats forever */
+    private static TimeInterval getInterval(TimeInterval interval, Appointment appointment)
+    {
+        final Date start = appointment.getStart();
+        final Date end = appointment.getMaxEnd();
+        if (interval == null)
+        {
+            return new TimeInterval(start, end);
+        }
+        final Date unionStart = start.before(interval.getStart()) ? start : interval.getStart();
+        final Date unionEnd = end == null || interval.getEnd() == null ? null : (end.after(interval.getEnd()) ? end : interval.getEnd());
+        return new TimeInterval(unionStart, unionEnd);
+    }
+
+    /** returns the conflicts that are calculated eagerly, i.e. the conflicts within the horizon */
+    public Collection<Conflict> getConflictsWithinHorizon()
+    {
+        Collection<Conflict> result = new ArrayList<>();
+        for (Map<ReferenceInfo<Conflict>,Conflict> conflicts : conflictMap.values())
+        {
+            result.addAll(conflicts.values());
+        }
+        return result;
+    }
 
 	/**
 	 * Determines all conflicts which occur after a given start date.
@@ -477,22 +828,34 @@ class ConflictFinder {
 	 */
 	public Collection<Conflict> getConflicts( User user)
 	{
-		Collection<Conflict> conflictList = new HashSet<>();
-		for ( ReferenceInfo<Allocatable> allocatable: conflictMap.keySet())
+		return getConflicts(user, null, null);
+	}
+
+	/**
+	 * returns the conflicts within the horizon and the conflicts after the horizon that overlap within the start, end interval.
+	 * Only the month partitions after the horizon that intersect the interval are calculated. If start or end is null the interval is open.
+	 * if user is passed then only returns conflicts the user can modify
+	 */
+	public Collection<Conflict> getConflicts( User user, Date start, Date end)
+	{
+		final Set<ReferenceInfo<Conflict>> lazyConflictIds = calculateLazyConflicts(start, end);
+		final Collection<Conflict> visible = viewIndex.getVisible(user);
+		if (!hasLazyConflicts())
 		{
-			Map<ReferenceInfo<Conflict>,Conflict> set = conflictMap.get( allocatable);
-			if ( set != null)
+			return visible;
+		}
+		Collection<Conflict> result = new ArrayList<>(visible.size());
+		for (Conflict conflict : visible)
+		{
+			final ReferenceInfo<Conflict> conflictId = conflict.getReference();
+			final Map<ReferenceInfo<Conflict>,Conflict> conflictsWithinHorizon = conflictMap.get(conflict.getAllocatableId());
+			// partitions outside of the interval could be calculated by previous requests
+			if (lazyConflictIds.contains(conflictId) || (conflictsWithinHorizon != null && conflictsWithinHorizon.containsKey(conflictId)))
 			{
-				for ( Conflict conflict: set.values())
-				{
-					if (user == null || permissionController.canModify(conflict,user))
-					{
-                        conflictList.add(conflict);
-					}
-				}
+				result.add(conflict);
 			}
 		}
-		return conflictList;
+		return result;
 	}
 
 
@@ -576,6 +939,7 @@ class ConflictFinder {
 
 	public Collection<ConflictChangeOperation> updateConflicts(LocalAbstractCachableOperator.UpdateBindingsResult bindingsResult,UpdateResult currentUpdateResult, Date today)
 	{
+        this.today = today;
         Collection<ConflictChangeOperation> conflictChanges = new ArrayList<>();
         Map<ReferenceInfo<Allocatable>, AllocationChange> toUpdate = bindingsResult.toUpdate;
         Collection<ReferenceInfo<Allocatable>> removedAllocatables = bindingsResult.removedAllocatables;
@@ -639,11 +1003,14 @@ class ConflictFinder {
                     Conflict oldConflict = conflictListBefore.get(conflictId);
                     Conflict newConflict = null;
                     conflictChanges.add(new ConflictChangeOperation(operation, oldConflict, newConflict));
+                    viewIndex.remove(conflictId.getId());
 				}
 			}
 			for ( Conflict conflict: conflictListAfter.values())
 			{
                 final ReferenceInfo<Conflict> conflictId = conflict.getReference();
+                // conflicts are recalculated so the index must get the new instances as well
+                viewIndex.put(conflict);
                 boolean isNew = !conflictListBefore.containsKey(conflictId);
 				if  ( isNew )
 				{
@@ -719,6 +1086,10 @@ class ConflictFinder {
             if ( sortedSet != null && !sortedSet.isEmpty())
             {
                 logger.error("Removing non empty conflict map for resource " +  alloc + " Appointments:" + sortedSet);
+                for (ReferenceInfo<Conflict> conflictId : sortedSet.keySet())
+                {
+                    viewIndex.remove(conflictId.getId());
+                }
             }
             conflictMap.remove( alloc);
         }
@@ -732,6 +1103,7 @@ class ConflictFinder {
     		Map<ReferenceInfo<Conflict>,Conflict> conflicts = conflictMap.get( oldConflict.getAllocatableId());
     		conflicts.remove( oldConflict.getReference() );
     		conflicts.put(newConflict.getReference(), newConflict);
+    		viewIndex.put(newConflict);
     		// we add a change operation 
     		// TODO Note that this list also contains the NEW conflicts, but the UpdateResult.NEW could still contain the old conflicts
     		//if ( added.contains( oldConflict))
@@ -740,9 +1112,95 @@ class ConflictFinder {
                 conflictChanges.add(new ConflictChangeOperation(operation, oldConflict, newConflict));
     		}
     	}
+        updateViewIndex(currentUpdateResult);
+        if (hasLazyConflicts())
+        {
+            // the calculated partitions after the horizon that contain changed appointments are calculated again
+            final Map<ReferenceInfo<Allocatable>,TimeInterval> changedIntervals = new LinkedHashMap<>();
+            final Set<ReferenceInfo<Allocatable>> recalculateAll = new HashSet<>(removedAllocatables);
+            for (Map.Entry<ReferenceInfo<Allocatable>, AllocationChange> entry : toUpdate.entrySet())
+            {
+                final AllocationChange change = entry.getValue();
+                if (change == null)
+                {
+                    recalculateAll.add(entry.getKey());
+                    continue;
+                }
+                TimeInterval interval = changedIntervals.get(entry.getKey());
+                for (Appointment appointment : new IterableChain<>(change.toChange, change.toRemove))
+                {
+                    interval = getInterval(interval, appointment);
+                }
+                if (interval != null)
+                {
+                    changedIntervals.put(entry.getKey(), interval);
+                }
+            }
+            for (Map.Entry<ReferenceInfo<Allocatable>, Set<ReferenceInfo<Appointment>>> entry : appointmentUpdateMap.entrySet())
+            {
+                TimeInterval interval = changedIntervals.get(entry.getKey());
+                for (ReferenceInfo<Appointment> appointmentId : entry.getValue())
+                {
+                    final Appointment appointment = getAppointment(appointmentId);
+                    if (appointment != null)
+                    {
+                        interval = getInterval(interval, appointment);
+                    }
+                }
+                if (interval != null)
+                {
+                    changedIntervals.put(entry.getKey(), interval);
+                }
+            }
+            for (ReferenceInfo<Allocatable> allocatableId : recalculateAll)
+            {
+                updateLazyConflicts(allocatableId, null, appointmentUpdateMap.get(allocatableId), conflictChanges);
+            }
+            for (Map.Entry<ReferenceInfo<Allocatable>,TimeInterval> entry : changedIntervals.entrySet())
+            {
+                if (!recalculateAll.contains(entry.getKey()))
+                {
+                    updateLazyConflicts(entry.getKey(), entry.getValue(), appointmentUpdateMap.get(entry.getKey()), conflictChanges);
+                }
+            }
+        }
         return conflictChanges;
 	}
 
+    /** updates the view index for changes that affect the permissions to modify conflicts without changing the conflicts */
+    private void updateViewIndex(UpdateResult currentUpdateResult)
+    {
+        for (UpdateOperation operation : currentUpdateResult.getOperations())
+        {
+            final Class<? extends Entity> type = operation.getType();
+            if (type == Allocatable.class && operation instanceof Change)
+            {
+                Map<ReferenceInfo<Conflict>,Conflict> conflicts = conflictMap.get(operation.getReference());
+                if (conflicts != null)
+                {
+                    for (ReferenceInfo<Conflict> conflictId : conflicts.keySet())
+                    {
+                        viewIndex.markDirty(conflictId.getId());
+                    }
+                }
+                final Allocatable allocatable = currentUpdateResult.getLastKnown((ReferenceInfo<Allocatable>) operation.getReference());
+                if (allocatable != null && allocatable.getClassification().getType().getKey().equals(StorageOperator.RAPLA_TEMPLATE))
+                {
+                    // the template permissions can allow to modify the reservations of the template
+                    viewIndex.markTemplateDirty(allocatable.getId());
+                }
+            }
+            else if (type == User.class)
+            {
+                viewIndex.invalidateUser(operation.getReference().getId());
+            }
+            else if (type == Category.class || type == DynamicType.class)
+            {
+                viewIndex.invalidateSignatures();
+            }
+        }
+    }
+
 //	private SortedSet<Appointment> getAndCreateListId(Map<Allocatable,SortedSet<Appointment>> appointmentMap,Allocatable alloc) {
 //		SortedSet<Appointment> set = appointmentMap.get( alloc);
 //		if ( set == null)
@@ -761,7 +1219,35 @@ class ConflictFinder {
 
 	public Set<ReferenceInfo<Conflict>> removeOldConflicts(Date today)
 	{
+        this.today = today;
         Set<ReferenceInfo<Conflict>> result = new LinkedHashSet<>();
+        synchronized (lazyConflicts)
+        {
+            for (SortedMap<Long,Map<ReferenceInfo<Conflict>,Conflict>> partitions : lazyConflicts.values())
+            {
+                // partitions that fall before today are evicted when all of their conflicts ended
+                final Iterator<Map<ReferenceInfo<Conflict>,Conflict>> partitionIt = partitions.headMap(today.getTime()).values().iterator();
+                while (partitionIt.hasNext())
+                {
+                    final Map<ReferenceInfo<Conflict>,Conflict> partition = partitionIt.next();
+                    final Iterator<Conflict> it = partition.values().iterator();
+                    while (it.hasNext())
+                    {
+                        final Conflict conflict = it.next();
+                        if (endsBefore(conflict, today))
+                        {
+                            it.remove();
+                            result.add(conflict.getReference());
+                            viewIndex.remove(conflict.getId());
+                        }
+                    }
+                    if (partition.isEmpty())
+                    {
+                        partitionIt.remove();
+                    }
+                }
+            }
+        }
 		for (Map<ReferenceInfo<Conflict>,Conflict> conflictMap: this.conflictMap.values())
 		{
 			Iterator<Map.Entry<ReferenceInfo<Conflict>,Conflict>> it = conflictMap.entrySet().iterator();
@@ -773,6 +1259,7 @@ class ConflictFinder {
 				{
 					it.remove();
 					result.add(conflict.getReference());
+					viewIndex.remove(conflict.getId());
 				}
 			}
 		}
@@ -780,4 +1267,64 @@ class ConflictFinder {
 		
 	}
 
+    /** set of the non negative pair numbers of the sweep line. The pairs are stored in an open addressing table of longs, so they are not boxed */
+    static final class PairSet
+    {
+        private static final long EMPTY = -1;
+        private long[] table = newTable(16);
+        private int size;
+
+        /** returns false if the pair is already contained */
+        boolean add(long pair)
+        {
+            if ((size + 1) * 2 > table.length)
+            {
+                final long[] oldTable = table;
+                table = newTable(oldTable.length * 2);
+                for (long oldPair : oldTable)
+                {
+                    if (oldPair != EMPTY)
+                    {
+                        insert(oldPair);
+                    }
+                }
+            }
+            if (!insert(pair))
+            {
+                return false;
+            }
+            size++;
+            return true;
+        }
+
+        int size()
+        {
+            return size;
+        }
+
+        private boolean insert(long pair)
+        {
+            final int mask = table.length - 1;
+            final long hash = pair * 0x9E3779B97F4A7C15L;
+            int index = (int) (hash ^ (hash >>> 32)) & mask;
+            while (table[index] != EMPTY)
+            {
+                if (table[index] == pair)
+                {
+                    return false;
+                }
+                index = (index + 1) & mask;
+            }
+            table[index] = pair;
+            return true;
+        }
+
+        private static long[] newTable(int length)
+        {
+            final long[] result = new long[length];
+            Arrays.fill(result, EMPTY);
+            return result;
+        }
+    }
+
 }
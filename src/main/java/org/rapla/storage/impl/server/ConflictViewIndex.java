@@ -0,0 +1,112 @@
+package org.rapla.storage.impl.server;
+
+import org.rapla.entities.Ownable;
+import org.rapla.entities.User;
+import org.rapla.entities.domain.Allocatable;
+import org.rapla.entities.domain.Permission;
+import org.rapla.entities.domain.PermissionContainer;
+import org.rapla.entities.domain.RaplaObjectAnnotations;
+import org.rapla.entities.domain.Reservation;
+import org.rapla.entities.storage.EntityResolver;
+import org.rapla.entities.storage.ReferenceInfo;
+import org.rapla.facade.Conflict;
+import org.rapla.storage.PermissionController;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Index of the conflicts a user can modify. A conflict can be modified if the user can read the allocatable and modify one of the reservations,
+ * so the conflicts are grouped by the permission group signature of the users and only conflicts whose allocatable or reservations refer to
+ * a user, directly or in the template of a reservation, are checked for that user separately. The index is kept in sync by the {@link ConflictFinder}.
+ */
+class ConflictViewIndex extends PermissionSignatureIndex<Conflict>
+{
+    private final EntityResolver resolver;
+    private final PermissionController permissionController;
+
+    ConflictViewIndex(EntityResolver resolver, PermissionController permissionController)
+    {
+        this.resolver = resolver;
+        this.permissionController = permissionController;
+    }
+
+    @Override
+    protected boolean isVisible(Conflict conflict, User user)
+    {
+        return permissionController.canModify(conflict, user);
+    }
+
+    @Override
+    protected void collectReferencedUsers(Conflict conflict, Collection<String> userIds)
+    {
+        final Allocatable allocatable = resolver.tryResolve(conflict.getAllocatableId());
+        addReferencedUsers(allocatable, userIds);
+        for (Reservation reservation : getReservations(conflict))
+        {
+            addReferencedUsers(reservation, userIds);
+            // the reservation can be modified by the users that can modify its template
+            addReferencedUsers(getTemplate(reservation), userIds);
+        }
+    }
+
+    /** marks the conflicts dirty whose reservations belong to the template, because the template permissions changed */
+    void markTemplateDirty(String templateId)
+    {
+        markDirty((conflict) ->
+        {
+            for (Reservation reservation : getReservations(conflict))
+            {
+                if (templateId.equals(reservation.getAnnotation(RaplaObjectAnnotations.KEY_TEMPLATE)))
+                {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    private Collection<Reservation> getReservations(Conflict conflict)
+    {
+        Collection<Reservation> result = new ArrayList<>(2);
+        addReservation(conflict.getReservation1(), result);
+        addReservation(conflict.getReservation2(), result);
+        return result;
+    }
+
+    private void addReservation(ReferenceInfo<Reservation> reservationId, Collection<Reservation> result)
+    {
+        final Reservation reservation = reservationId != null ? resolver.tryResolve(reservationId) : null;
+        if (reservation != null)
+        {
+            result.add(reservation);
+        }
+    }
+
+    private Allocatable getTemplate(Reservation reservation)
+    {
+        final String templateId = reservation.getAnnotation(RaplaObjectAnnotations.KEY_TEMPLATE);
+        return templateId != null ? resolver.tryResolve(templateId, Allocatable.class) : null;
+    }
+
+    private <T extends Ownable & PermissionContainer> void addReferencedUsers(T container, Collection<String> userIds)
+    {
+        if (container == null)
+        {
+            return;
+        }
+        final ReferenceInfo<User> ownerRef = container.getOwnerRef();
+        if (ownerRef != null)
+        {
+            userIds.add(ownerRef.getId());
+        }
+        for (Permission permission : container.getPermissionList())
+        {
+            final String userId = permission.getUserId();
+            if (userId != null)
+            {
+                userIds.add(userId);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.rapla.storage.impl.server;
+
+import org.rapla.framework.RaplaException;
+import org.rapla.storage.UpdateEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the update events that are dispatched concurrently and passes them as one batch to the storage, so that the events share one
+ * write lock and one commit. The first caller waits up to the configured time to let other events join, but not longer than it takes to fill
+ * a batch. Then it dispatches the batch and wakes up the other callers. Every caller gets the exception of its own event or of the commit.
+ */
+class DispatchGroupCommit
+{
+    interface BatchDispatcher
+    {
+        /** dispatches the events of the batch. Exceptions of single events must be set in the request, an exception thrown here fails all events that have none.*/
+        void dispatch(List<Request> batch) throws RaplaException;
+    }
+
+    static class Request
+    {
+        private final UpdateEvent event;
+        private Throwable exception;
+        private boolean done;
+
+        Request(UpdateEvent event)
+        {
+            this.event = event;
+        }
+
+        UpdateEvent getEvent()
+        {
+            return event;
+        }
+
+        void setException(Throwable exception)
+        {
+            this.exception = exception;
+        }
+
+        Throwable getException()
+        {
+            return exception;
+        }
+    }
+
+    static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final BatchDispatcher dispatcher;
+    private final List<Request> pending = new ArrayList<>();
+    private boolean leaderActive;
+
+    DispatchGroupCommit(long windowMillis, BatchDispatcher dispatcher)
+    {
+        this(windowMillis, DEFAULT_MAX_BATCH_SIZE, dispatcher);
+    }
+
+    DispatchGroupCommit(long windowMillis, int maxBatchSize, BatchDispatcher dispatcher)
+    {
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.dispatcher = dispatcher;
+    }
+
+    /** returns the number of events that wait for the next batch. Only used for testing */
+    synchronized int getPendingCount()
+    {
+        return pending.size();
+    }
+
+    /** dispatches the event together with the events of other threads and waits until it is committed */
+    void dispatch(UpdateEvent evt) throws RaplaException
+    {
+        final Request request = new Request(evt);
+        boolean interrupted = false;
+        synchronized (this)
+        {
+            pending.add(request);
+            if (pending.size() >= maxBatchSize)
+            {
+                // the waiting leader can dispatch the full batch
+                notifyAll();
+            }
+        }
+        while (true)
+        {
+            final List<Request> batch;
+            synchronized (this)
+            {
+                while (!request.done && leaderActive)
+                {
+                    try
+                    {
+                        wait();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        // the event could already be in a batch, so we have to wait for the result
+                        interrupted = true;
+                    }
+                }
+                if (request.done)
+                {
+                    break;
+                }
+                leaderActive = true;
+                final long windowEnd = System.currentTimeMillis() + windowMillis;
+                long remaining = windowMillis;
+                while (remaining > 0 && pending.size() < maxBatchSize && !interrupted)
+                {
+                    try
+                    {
+                        wait(remaining);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        interrupted = true;
+                    }
+                    remaining = windowEnd - System.currentTimeMillis();
+                }
+                final List<Request> next = pending.subList(0, Math.min(pending.size(), maxBatchSize));
+                batch = new ArrayList<>(next);
+                next.clear();
+            }
+            try
+            {
+                dispatcher.dispatch(batch);
+            }
+            catch (Throwable ex)
+            {
+                for (Request failed : batch)
+                {
+                    if (failed.exception == null)
+                    {
+                        failed.exception = ex;
+                    }
+                }
+            }
+            finally
+            {
+                synchronized (this)
+                {
+                    for (Request processed : batch)
+                    {
+                        processed.done = true;
+                    }
+                    leaderActive = false;
+                    notifyAll();
+                }
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+        final Throwable exception = request.exception;
+        if (exception instanceof RaplaException)
+        {
+            throw (RaplaException) exception;
+        }
+        if (exception instanceof RuntimeException)
+        {
+            throw (RuntimeException) exception;
+        }
+        if (exception instanceof Error)
+        {
+            throw (Error) exception;
+        }
+        if (exception != null)
+        {
+            throw new RaplaException(exception);
+        }
+    }
+}
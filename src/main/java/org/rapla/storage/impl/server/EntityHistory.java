@@ -12,12 +12,13 @@ import org.rapla.entities.dynamictype.DynamicType;
 import org.rapla.entities.dynamictype.internal.DynamicTypeImpl;
 import org.rapla.entities.internal.CategoryImpl;
 import org.rapla.entities.internal.UserImpl;
+import org.rapla.entities.storage.RefEntity;
 import org.rapla.entities.storage.ReferenceInfo;
 import org.rapla.facade.Conflict;
 import org.rapla.facade.internal.ConflictImpl;
 import org.rapla.framework.RaplaException;
-import org.rapla.rest.JsonParserWrapper;
 
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -48,6 +49,8 @@ public class EntityHistory
         ReferenceInfo ref;
         private String json;
         private boolean isDelete;
+        private volatile Long lastChanged;
+        private volatile SoftReference<Entity> materialized;
 
         private HistoryEntry()
         {
@@ -84,11 +87,11 @@ public class EntityHistory
     }
 
     private final Map<ReferenceInfo, List<EntityHistory.HistoryEntry>> map = new LinkedHashMap<>();
-    private final JsonParserWrapper.JsonParser gson;
+    private final EntityJsonParser gson;
 
     public EntityHistory()
     {
-        gson = JsonParserWrapper.defaultJson().get();
+        gson = EntityJsonParser.get();
     }
 
     public HistoryEntry getLatest(ReferenceInfo id) throws RaplaException
@@ -133,7 +136,7 @@ public class EntityHistory
             final Date lastChanged = getLastChanged(entry);
             if ( lastChanged.before( since))
             {
-                return getEntity( entry);
+                return getReadOnlyEntity( entry);
             }
             else
                 {
@@ -141,7 +144,6 @@ public class EntityHistory
             }
         }
         EntityHistory.HistoryEntry entry = historyEntries.get(index);
-        final Entity entity = getEntity(entry);
         if ( index >=0)
         {
             // if two history entries have the same timestamp
@@ -157,18 +159,17 @@ public class EntityHistory
             }
             if (entryBefore != null && entryBefore.getTimestamp() == entry.getTimestamp())
             {
-                Entity otherEntity = getEntity( entryBefore);
-                final Date lastChanged1 = ((Timestamp) entity).getLastChanged();
-                final Date lastChanged2= ((Timestamp) (otherEntity)).getLastChanged();
+                final Date lastChanged1 = getLastChanged(entry);
+                final Date lastChanged2 = getLastChanged(entryBefore);
                 // we return the newest change
                 if ( lastChanged2.after( lastChanged1))
                 {
-                    return otherEntity;
+                    return getReadOnlyEntity(entryBefore);
                 }
             }
         }
 
-        return entity;
+        return getReadOnlyEntity(entry);
     }
 
     Map<Class<? extends Entity>, Class<? extends Entity>> typeImpl = new HashMap<>();
@@ -189,6 +190,7 @@ public class EntityHistory
         typeImpl.put(type, impl);
     }
 
+    /** returns a new entity deserialized from the entry. Use this method if the entity is modified or put into the cache. */
     public Entity getEntity(HistoryEntry entry)
     {
         String json = entry.json;
@@ -198,15 +200,38 @@ public class EntityHistory
         return entity;
     }
 
+    /**
+     * returns the entity of the entry for read only access. The entity is deserialized on the first call and shared with the following
+     * calls until the memory is needed. It is set read only and has no resolver, so callers that need to resolve references
+     * must use a clone or {@link #getEntity(HistoryEntry)}.
+     */
+    public Entity getReadOnlyEntity(HistoryEntry entry)
+    {
+        final SoftReference<Entity> materialized = entry.materialized;
+        Entity entity = materialized != null ? materialized.get() : null;
+        if (entity == null)
+        {
+            entity = getEntity(entry);
+            ((RefEntity) entity).setReadOnly();
+            entry.materialized = new SoftReference<>(entity);
+        }
+        return entity;
+    }
+
     public EntityHistory.HistoryEntry addHistoryEntry(ReferenceInfo id, String json, Date timestamp, boolean isDelete)
     {
+        return addHistoryEntry(new EntityHistory.HistoryEntry(id, timestamp.getTime(), json, isDelete));
+    }
+
+    private EntityHistory.HistoryEntry addHistoryEntry(EntityHistory.HistoryEntry newEntry)
+    {
+        final ReferenceInfo id = newEntry.getId();
         List<EntityHistory.HistoryEntry> historyEntries = map.get(id);
         if (historyEntries == null)
         {
             historyEntries = new ArrayList<>();
             map.put(id, historyEntries);
         }
-        final EntityHistory.HistoryEntry newEntry = new EntityHistory.HistoryEntry(id, timestamp.getTime(), json, isDelete);
         int index = historyEntries.size();
         insert(historyEntries, newEntry, index);
         return newEntry;
@@ -255,24 +280,43 @@ public class EntityHistory
 
     }
 
-    private Date getLastChanged(HistoryEntry newEntry)
+    /** returns the last changed date of the entity in the entry. The entity is only deserialized if the date was not known when the entry was added. */
+    private Date getLastChanged(HistoryEntry entry)
     {
-        final Entity entity = getEntity(newEntry);
-        return((Timestamp)entity).getLastChanged();
+        Long lastChanged = entry.lastChanged;
+        if (lastChanged == null)
+        {
+            final Entity entity = getReadOnlyEntity(entry);
+            lastChanged = ((Timestamp) entity).getLastChanged().getTime();
+            entry.lastChanged = lastChanged;
+        }
+        return new Date(lastChanged);
     }
 
     public EntityHistory.HistoryEntry addHistoryEntry(Entity entity, Date timestamp, boolean isDelete)
     {
-        final ReferenceInfo id = entity.getReference();
-        final String json = gson.toJson(entity);
-        return addHistoryEntry(id, json, timestamp, isDelete);
+        return addHistoryEntry(createEntry(entity, timestamp, isDelete));
     }
 
     public EntityHistory.HistoryEntry addHistoryDeleteEntry(Entity entity, Date timestamp, boolean isDelete)
+    {
+        return addHistoryEntry(createEntry(entity, timestamp, isDelete));
+    }
+
+    private HistoryEntry createEntry(Entity entity, Date timestamp, boolean isDelete)
     {
         final ReferenceInfo id = entity.getReference();
         final String json = gson.toJson(entity);
-        return addHistoryEntry(id, json,  timestamp, isDelete);
+        final HistoryEntry entry = new HistoryEntry(id, timestamp.getTime(), json, isDelete);
+        if (entity instanceof Timestamp)
+        {
+            final Date lastChanged = ((Timestamp) entity).getLastChanged();
+            if (lastChanged != null)
+            {
+                entry.lastChanged = lastChanged.getTime();
+            }
+        }
+        return entry;
     }
 
     public void clear()
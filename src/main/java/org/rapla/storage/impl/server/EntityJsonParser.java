@@ -0,0 +1,209 @@
+package org.rapla.storage.impl.server;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.rapla.components.util.ParseDateException;
+import org.rapla.components.util.SerializableDateTimeFormat;
+import org.rapla.entities.domain.internal.DomainTypeAdapters;
+import org.rapla.entities.dynamictype.internal.ClassificationTypeAdapter;
+import org.rapla.facade.internal.ConflictTypeAdapter;
+import org.rapla.rest.JsonParserWrapper;
+import org.rapla.storage.UpdateEvent;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * The json parser that is shared by all server components that serialize entities, e.g. the history, the sql change table, the rest pages
+ * and the remote storage. Reservations, appointments, resources, classifications and conflicts are written and read by the streaming adapters
+ * in {@link DomainTypeAdapters}, {@link ClassificationTypeAdapter} and {@link ConflictTypeAdapter}, without reflection. All other objects are
+ * passed to the reflective parser of {@link JsonParserWrapper#defaultJson()}, so their json doesn't change. The parser is thread safe.
+ */
+public final class EntityJsonParser
+{
+    private static final EntityJsonParser INSTANCE = new EntityJsonParser(JsonParserWrapper.defaultJson().get());
+
+    private final JsonParserWrapper.JsonParser reflectiveParser;
+    private final Gson gson;
+
+    EntityJsonParser(JsonParserWrapper.JsonParser reflectiveParser)
+    {
+        this.reflectiveParser = reflectiveParser;
+        // gson asks the factories that are registered last first, so the reflective parser is only used for the remaining types
+        gson = new GsonBuilder()
+                .registerTypeAdapterFactory(new ReflectiveParserFactory())
+                .registerTypeAdapter(Date.class, new TimestampAdapter())
+                .registerTypeAdapterFactory(DomainTypeAdapters.FACTORY)
+                .registerTypeAdapterFactory(ClassificationTypeAdapter.FACTORY)
+                .registerTypeAdapterFactory(ConflictTypeAdapter.FACTORY)
+                .disableHtmlEscaping()
+                .create();
+    }
+
+    public static EntityJsonParser get()
+    {
+        return INSTANCE;
+    }
+
+    public String toJson(Object object)
+    {
+        if (object != null && isPassedToReflectiveParser(object.getClass()))
+        {
+            return reflectiveParser.toJson(object);
+        }
+        return gson.toJson(object);
+    }
+
+    /** writes the json directly to the writer, e.g. the stream of a response */
+    public void toJson(Object object, Appendable writer)
+    {
+        if (object != null && isPassedToReflectiveParser(object.getClass()))
+        {
+            try
+            {
+                writer.append(reflectiveParser.toJson(object));
+            }
+            catch (IOException e)
+            {
+                throw new JsonIOException(e);
+            }
+            return;
+        }
+        gson.toJson(object, writer);
+    }
+
+    public <T> T fromJson(String json, Class<T> type)
+    {
+        if (isPassedToReflectiveParser(type))
+        {
+            return reflectiveParser.fromJson(json, type);
+        }
+        return gson.fromJson(json, type);
+    }
+
+    /** reads the json directly from the reader, e.g. the stream of a request */
+    public <T> T fromJson(Reader reader, Class<T> type)
+    {
+        if (isPassedToReflectiveParser(type))
+        {
+            return reflectiveParser.fromJson(new JsonParser().parse(reader).toString(), type);
+        }
+        return gson.fromJson(reader, type);
+    }
+
+    private boolean isPassedToReflectiveParser(Class<?> type)
+    {
+        return gson.getAdapter(type) instanceof ReflectiveParserAdapter;
+    }
+
+    /** dates are written as timestamps in the format of {@link SerializableDateTimeFormat} */
+    static final class TimestampAdapter extends TypeAdapter<Date>
+    {
+        @Override
+        public void write(JsonWriter out, Date value) throws IOException
+        {
+            if (value == null)
+            {
+                out.nullValue();
+                return;
+            }
+            out.value(SerializableDateTimeFormat.INSTANCE.formatTimestamp(value));
+        }
+
+        @Override
+        public Date read(JsonReader in) throws IOException
+        {
+            if (in.peek() == JsonToken.NULL)
+            {
+                in.nextNull();
+                return null;
+            }
+            final String timestamp = in.nextString();
+            try
+            {
+                return SerializableDateTimeFormat.INSTANCE.parseTimestamp(timestamp);
+            }
+            catch (ParseDateException e)
+            {
+                throw new JsonSyntaxException(timestamp + " is no timestamp", e);
+            }
+        }
+    }
+
+    /**
+     * Passes the objects that have no streaming adapter to the reflective parser. Strings, numbers, enums, collections, maps and the update
+     * events are left to gson, so the entities in collections and update events are written by the streaming adapters.
+     */
+    private final class ReflectiveParserFactory implements TypeAdapterFactory
+    {
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type)
+        {
+            final Class<? super T> rawType = type.getRawType();
+            if (isLeftToGson(rawType))
+            {
+                return null;
+            }
+            return new ReflectiveParserAdapter<>(rawType);
+        }
+
+        private boolean isLeftToGson(Class<?> type)
+        {
+            if (type.isPrimitive() || type.isArray() || type == Object.class || type == String.class || type == Boolean.class || type == Character.class)
+            {
+                return true;
+            }
+            if (Number.class.isAssignableFrom(type) || Enum.class.isAssignableFrom(type) || JsonElement.class.isAssignableFrom(type))
+            {
+                return true;
+            }
+            return Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type) || type == UpdateEvent.class;
+        }
+    }
+
+    private final class ReflectiveParserAdapter<T> extends TypeAdapter<T>
+    {
+        private final Class<? super T> type;
+
+        ReflectiveParserAdapter(Class<? super T> type)
+        {
+            this.type = type;
+        }
+
+        @Override
+        public void write(JsonWriter out, T value) throws IOException
+        {
+            if (value == null)
+            {
+                out.nullValue();
+                return;
+            }
+            out.jsonValue(reflectiveParser.toJson(value));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T read(JsonReader in) throws IOException
+        {
+            final JsonElement element = new JsonParser().parse(in);
+            if (element.isJsonNull())
+            {
+                return null;
+            }
+            return (T) reflectiveParser.fromJson(element.toString(), type);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.rapla.storage.impl.server;
+
+import org.rapla.components.util.DateTools;
+import org.rapla.entities.domain.Appointment;
+import org.rapla.entities.domain.Reservation;
+import org.rapla.entities.domain.internal.AppointmentImpl;
+import org.rapla.facade.RaplaComponent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.function.Predicate;
+
+/**
+ * Searches the next free start dates for an appointment. The candidate starts are the multiples of one row (or one day for whole day appointments)
+ * after the current start of the appointment, as in the calendar. The busy blocks of all requested allocatables are merged into a sorted list of
+ * busy intervals, so candidates that overlap a busy interval are skipped without testing them against the appointments.
+ * Only the first block of a repeating appointment is checked against the busy intervals, every remaining candidate is verified with the passed predicate.
+ */
+class FreeSlotFinder
+{
+    static final int MAX_DAYS = 366;
+
+    private final Appointment appointment;
+    private final Integer worktimeStartMinutes;
+    private final Integer worktimeEndMinutes;
+    private final Integer[] excludedDays;
+    private final long firstStart;
+    private final long duration;
+    private final long step;
+    private final int maxSteps;
+    private final boolean checkWorktime;
+    private final boolean checkExcludedDays;
+
+    private final BusyIntervals busyIntervals = new BusyIntervals();
+
+    FreeSlotFinder(Appointment appointment, Integer worktimeStartMinutes, Integer worktimeEndMinutes, Integer[] excludedDays, Integer rowsPerHour)
+    {
+        this.appointment = appointment;
+        this.worktimeStartMinutes = worktimeStartMinutes;
+        this.worktimeEndMinutes = worktimeEndMinutes;
+        this.excludedDays = excludedDays;
+        final int rowsPerHourInt = (rowsPerHour == null || rowsPerHour <= 1) ? 1 : rowsPerHour;
+        final boolean wholeDay = appointment.isWholeDaysSet();
+        firstStart = appointment.getStart().getTime();
+        duration = appointment.getEnd().getTime() - firstStart;
+        step = wholeDay ? DateTools.MILLISECONDS_PER_DAY : (DateTools.MILLISECONDS_PER_HOUR / rowsPerHourInt);
+        maxSteps = MAX_DAYS * 24 * rowsPerHourInt;
+        checkExcludedDays = !isExcluded(firstStart);
+        checkWorktime = !wholeDay && inWorktime(firstStart, firstStart + duration);
+    }
+
+    /** returns the start of the first candidate */
+    long getSearchStart()
+    {
+        return firstStart + step;
+    }
+
+    /** returns the end of the last candidate */
+    long getSearchEnd()
+    {
+        return firstStart + maxSteps * step + duration;
+    }
+
+    /** adds the blocks of the appointments that would conflict with the searched appointment as busy intervals */
+    void addBusyAppointments(SortedSet<Appointment> appointmentSet, Collection<Reservation> ignoreList)
+    {
+        // Templates don't cause conflicts
+        if (RaplaComponent.isTemplate(appointment) || RaplaComponent.isTemplate(appointment.getReservation()))
+        {
+            return;
+        }
+        busyIntervals.addAppointments(appointmentSet, appointment, ignoreList, getSearchStart(), getSearchEnd());
+    }
+
+    /**
+     * returns the first free start date or null if there is none within {@link #MAX_DAYS}.
+     * @param isFree verifies a candidate, i.e. a clone of the appointment moved to the candidate start, against all appointments of the allocatables
+     */
+    Date findFreeSlot(Predicate<Appointment> isFree)
+    {
+        final List<Date> freeSlots = findFreeSlots(1, isFree);
+        return freeSlots.isEmpty() ? null : freeSlots.get(0);
+    }
+
+    /**
+     * returns up to count free start dates in ascending order.
+     * @param isFree verifies a candidate, i.e. a clone of the appointment moved to the candidate start, against all appointments of the allocatables
+     */
+    List<Date> findFreeSlots(int count, Predicate<Appointment> isFree)
+    {
+        final List<Date> result = new ArrayList<>(count);
+        int busyIndex = 0;
+        int k = 1;
+        while (k <= maxSteps && result.size() < count)
+        {
+            final long start = firstStart + k * step;
+            final long end = start + duration;
+            busyIndex = busyIntervals.next(busyIndex, start);
+            if (busyIntervals.overlaps(busyIndex, start, end))
+            {
+                // jump to the first candidate that starts at or after the end of the busy interval
+                final long stepsToEnd = (busyIntervals.getEnd(busyIndex) - firstStart + step - 1) / step;
+                k = (int) Math.max(k + 1, Math.min(stepsToEnd, (long) maxSteps + 1));
+                continue;
+            }
+            if (checkExcludedDays && isExcluded(start))
+            {
+                k++;
+                continue;
+            }
+            if (checkWorktime && !inWorktime(start, end))
+            {
+                k++;
+                continue;
+            }
+            final Appointment candidate = ((AppointmentImpl) appointment).clone();
+            final Date newStart = new Date(start);
+            candidate.moveTo(newStart);
+            if (isFree.test(candidate))
+            {
+                result.add(newStart);
+            }
+            k++;
+        }
+        return result;
+    }
+
+    private boolean inWorktime(long start, long end)
+    {
+        int minuteOfDayStart = DateTools.getMinuteOfDay(start);
+        int minuteOfDayEnd = DateTools.getMinuteOfDay(end) + (int) DateTools.countDays(start, end) * 24 * 60;
+        return (worktimeStartMinutes == null || worktimeStartMinutes <= minuteOfDayStart) && (worktimeEndMinutes == null
+                || worktimeEndMinutes >= minuteOfDayEnd);
+    }
+
+    private boolean isExcluded(long date)
+    {
+        if (excludedDays == null)
+        {
+            return false;
+        }
+        Integer weekday = DateTools.getWeekday(new Date(date));
+        for (Integer day : excludedDays)
+        {
+            if (day.equals(weekday))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -15,9 +15,7 @@ package org.rapla.storage.impl.server;
 
 import io.reactivex.functions.Action;
 import org.apache.commons.collections4.BidiMap;
-import org.apache.commons.collections4.SortedBidiMap;
 import org.apache.commons.collections4.bidimap.DualHashBidiMap;
-import org.apache.commons.collections4.bidimap.DualTreeBidiMap;
 import org.rapla.RaplaResources;
 import org.rapla.components.util.Assert;
 import org.rapla.components.util.DateTools;
@@ -55,6 +53,7 @@ import org.rapla.entities.domain.Reservation;
 import org.rapla.entities.domain.ResourceAnnotations;
 import org.rapla.entities.domain.internal.AllocatableImpl;
 import org.rapla.entities.domain.internal.AppointmentImpl;
+import org.rapla.entities.domain.internal.CompiledPermissions;
 import org.rapla.entities.domain.internal.PermissionImpl;
 import org.rapla.entities.domain.internal.ReservationImpl;
 import org.rapla.entities.domain.permission.PermissionExtension;
@@ -87,8 +86,9 @@ import org.rapla.facade.RaplaComponent;
 import org.rapla.framework.Disposable;
 import org.rapla.framework.RaplaException;
 import org.rapla.framework.RaplaLocale;
+import org.rapla.framework.TypedComponentRole;
+import org.rapla.framework.internal.DefaultScheduler;
 import org.rapla.logger.Logger;
-import org.rapla.rest.JsonParserWrapper;
 import org.rapla.scheduler.CommandScheduler;
 import org.rapla.scheduler.Promise;
 import org.rapla.scheduler.ResolvedPromise;
@@ -125,14 +125,13 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TimeZone;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -159,6 +158,13 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
      */
     public static final long HISTORY_DURATION = DateTools.MILLISECONDS_PER_WEEK;
 
+    /**
+     * Number of weeks in which conflicts are calculated when allocations change. Conflicts after that are calculated on request.
+     */
+    public static final TypedComponentRole<Integer> CONFLICT_HORIZON_WEEKS = new TypedComponentRole<>("org.rapla.conflicts.horizonWeeks");
+    /** milliseconds that a dispatch waits for concurrent dispatches to store them together. 0 (default) stores every dispatch separately. Is ignored by storages that commit every event on its own */
+    public static final TypedComponentRole<Integer> DISPATCH_GROUP_COMMIT_MILLIS = new TypedComponentRole<>("org.rapla.storage.groupCommitMillis");
+
     /**
      * set encryption if you want to enable password encryption. Possible values
      * are "sha" or "md5".
@@ -168,17 +174,19 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
     //private SortedSet<LastChangedTimestamp> timestampSet;
     // we need a bidi to sort the values instead of the keys
     protected final EntityHistory history;
-    private SortedBidiMap<String, DeleteUpdateEntry> deleteUpdateSet;
+    private ChangeLog<DeleteUpdateEntry> deleteUpdateLog;
+    private DispatchGroupCommit groupCommit;
 
     private TimeZone systemTimeZone = TimeZone.getDefault();
-    private CommandScheduler scheduler;
+    private DefaultScheduler scheduler;
     private List<io.reactivex.disposables.Disposable> scheduledTasks = new ArrayList<>();
     private CalendarModelCache calendarModelCache;
+    private AllocatableVisibilityCache visibilityCache;
     private Date connectStart;
     private final DefaultRaplaLock disconnectLock;
     private final PromiseWait promiseWait;
 
-    public LocalAbstractCachableOperator(Logger logger, PromiseWait promiseWait, RaplaResources i18n, RaplaLocale raplaLocale, CommandScheduler scheduler,
+    public LocalAbstractCachableOperator(Logger logger, PromiseWait promiseWait, RaplaResources i18n, RaplaLocale raplaLocale, DefaultScheduler scheduler,
             Map<String, FunctionFactory> functionFactoryMap, Set<PermissionExtension> permissionExtensions)
     {
         super(logger, i18n, raplaLocale, functionFactoryMap, permissionExtensions, new DefaultRaplaLock(logger));
@@ -189,6 +197,7 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
         this.history = new EntityHistory();
         appointmentBindings = new AppointmentMapClass(logger);
         calendarModelCache = new CalendarModelCache(this, i18n, logger, scheduler);
+        visibilityCache = new AllocatableVisibilityCache(cache, permissionController);
     }
 
     @Override
@@ -236,6 +245,93 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
     }
 
 
+    @Override
+    public void dispatch(UpdateEvent evt) throws RaplaException
+    {
+        final DispatchGroupCommit groupCommit = this.groupCommit;
+        if (groupCommit != null)
+        {
+            groupCommit.dispatch(evt);
+            return;
+        }
+        RaplaLock.WriteLock writeLock = writeLockIfLoaded("Dispatching " + evt.getInfoString());
+        try
+        {
+            dispatchWithoutLock(evt);
+            commitDispatched();
+        }
+        finally
+        {
+            lockManager.unlock(writeLock);
+        }
+    }
+
+    private void dispatchBatch(List<DispatchGroupCommit.Request> batch) throws RaplaException
+    {
+        RaplaLock.WriteLock writeLock = writeLockIfLoaded("Dispatching " + batch.size() + " events");
+        try
+        {
+            final List<UpdateEvent> events = new ArrayList<>();
+            for (DispatchGroupCommit.Request request : batch)
+            {
+                events.add(request.getEvent());
+            }
+            beginDispatchBatch(events);
+            boolean dispatched = false;
+            for (DispatchGroupCommit.Request request : batch)
+            {
+                try
+                {
+                    dispatchWithoutLock(request.getEvent());
+                    dispatched = true;
+                }
+                catch (RaplaException | RuntimeException ex)
+                {
+                    request.setException(ex);
+                }
+            }
+            if (dispatched)
+            {
+                commitDispatched();
+            }
+        }
+        finally
+        {
+            try
+            {
+                endDispatchBatch();
+            }
+            finally
+            {
+                lockManager.unlock(writeLock);
+            }
+        }
+    }
+
+    /** validates and stores the event and updates the cache. Is called with the write lock.*/
+    abstract protected void dispatchWithoutLock(UpdateEvent evt) throws RaplaException;
+
+    /** is called with the write lock after one or more events are dispatched. */
+    protected void commitDispatched() throws RaplaException
+    {
+    }
+
+    /** is called with the write lock before the events of a batch are dispatched. The events are not preprocessed yet.*/
+    protected void beginDispatchBatch(List<UpdateEvent> events) throws RaplaException
+    {
+    }
+
+    /** is called with the write lock after a batch is dispatched, also if the batch failed. */
+    protected void endDispatchBatch()
+    {
+    }
+
+    /** returns true if {@link #commitDispatched()} stores several dispatched events at once. Only then concurrent dispatches are grouped */
+    protected boolean isGroupCommitSupported()
+    {
+        return false;
+    }
+
     @Override
     public <T> T waitForWithRaplaException(Promise<T> promise, int timeoutInMillis) throws RaplaException
     {
@@ -553,27 +649,7 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
                 for (Appointment appointment : appointmentSet)
                 {
                     Reservation reservation = appointment.getReservation();
-                    if (!match(reservation, annotationQuery))
-                    {
-                        continue;
-                    }
-                    final Stream<Allocatable> allocatablesFor = reservation.getAllocatablesFor(appointment);
-                    if ( !nonTemplates.isEmpty())
-                    {
-                        if (!allocatablesFor.anyMatch(nonTemplates::contains))
-                        {
-                            continue;
-                        }
-                    }
-                    // Ignore Templates if not explicitly requested
-
-                    final boolean isTemplate = RaplaComponent.isTemplate(reservation);
-                    if ((isTemplate != isResourceTemplate) )
-                    {
-                        // FIXME this special case should be refactored, so one can get all reservations in one method
-                        continue;
-                    }
-                    if (filters != null && !ClassificationFilter.Util.matches(filters, reservation))
+                    if (!matchesQuery(reservation, appointment, nonTemplates, isResourceTemplate, filters, annotationQuery))
                     {
                         continue;
                     }
@@ -592,6 +668,132 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
     }
 
 
+    /** checks the conditions of {@link #queryAppointments} that don't depend on the allocatable index */
+    private boolean matchesQuery(Reservation reservation, Appointment appointment, Set<Allocatable> nonTemplates, boolean isResourceTemplate,
+            ClassificationFilter[] filters, Map<String, String> annotationQuery)
+    {
+        if (!match(reservation, annotationQuery))
+        {
+            return false;
+        }
+        if ( !nonTemplates.isEmpty())
+        {
+            final Stream<Allocatable> allocatablesFor = reservation.getAllocatablesFor(appointment);
+            if (!allocatablesFor.anyMatch(nonTemplates::contains))
+            {
+                return false;
+            }
+        }
+        // Ignore Templates if not explicitly requested
+
+        final boolean isTemplate = RaplaComponent.isTemplate(reservation);
+        if ((isTemplate != isResourceTemplate) )
+        {
+            // FIXME this special case should be refactored, so one can get all reservations in one method
+            return false;
+        }
+        if (filters != null && !ClassificationFilter.Util.matches(filters, reservation))
+        {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public List<Allocatable> getAllocatablesAfter(String afterId, int count, ClassificationFilter[] filters) throws RaplaException
+    {
+        checkLoaded();
+        final List<Allocatable> result = new ArrayList<>();
+        RaplaLock.ReadLock readLock = lockManager.readLock(getClass(), "getAllocatablesAfter");
+        try
+        {
+            for (Allocatable allocatable : cache.getAllocatablesAfter(afterId))
+            {
+                if (result.size() >= count)
+                {
+                    break;
+                }
+                if (isInFilter(allocatable, filters))
+                {
+                    result.add(allocatable);
+                }
+            }
+        }
+        finally
+        {
+            lockManager.unlock(readLock);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Reservation> queryReservationsAfter(String afterId, int count, Collection<Allocatable> allocatables, Date start, Date end,
+            ClassificationFilter[] filters, Map<String, String> annotationQuery) throws RaplaException
+    {
+        checkLoaded();
+        final boolean isResourceTemplate = containsResourceTemplate(allocatables);
+        final Set<Allocatable> allocs;
+        final Set<Allocatable> nonTemplates;
+        if ( isResourceTemplate)
+        {
+            allocs = allocatables.stream().filter(this::isTemplate).collect(Collectors.toSet());
+            nonTemplates = allocatables.stream().filter( (alloc)->!isTemplate(alloc)).collect(Collectors.toSet());
+        }
+        else
+        {
+            // null for all allocatables that are not internal
+            allocs = (allocatables == null || allocatables.size() == 0) ? null : new HashSet<>(allocatables);
+            nonTemplates = Collections.emptySet();
+        }
+        if (count <= 0)
+        {
+            return Collections.emptyList();
+        }
+        final boolean excludeExceptions = false;
+        // the candidates are collected from the appointments of the allocatables in the interval and sorted by id, only the first count after the id are kept
+        final TreeMap<String, Reservation> candidates = new TreeMap<>();
+        RaplaLock.ReadLock readLock = lockManager.readLock(getClass(), "queryReservationsAfter");
+        try
+        {
+            final Collection<Allocatable> indexed = allocs != null ? allocs : cache.getAllocatables();
+            for (Allocatable allocatable : indexed)
+            {
+                if (allocs == null && !isInFilter(allocatable, null))
+                {
+                    continue;
+                }
+                // like queryAppointments the appointments of dependent allocatables are included for requested allocatables
+                final SortedSet<Appointment> appointments = allocs != null ? getAppointments(allocatable) : appointmentBindings.getAppointments(allocatable.getReference());
+                for (Appointment appointment : AppointmentImpl.getAppointments(appointments, null, start, end, excludeExceptions))
+                {
+                    final Reservation reservation = appointment.getReservation();
+                    final String id = reservation.getId();
+                    if ((afterId != null && id.compareTo(afterId) <= 0) || candidates.containsKey(id))
+                    {
+                        continue;
+                    }
+                    if (candidates.size() >= count && id.compareTo(candidates.lastKey()) > 0)
+                    {
+                        continue;
+                    }
+                    if (matchesQuery(reservation, appointment, nonTemplates, isResourceTemplate, filters, annotationQuery))
+                    {
+                        candidates.put(id, reservation);
+                        if (candidates.size() > count)
+                        {
+                            candidates.pollLastEntry();
+                        }
+                    }
+                }
+            }
+        }
+        finally
+        {
+            lockManager.unlock(readLock);
+        }
+        return new ArrayList<>(candidates.values());
+    }
+
     private boolean containsResourceTemplate(Collection<Allocatable> allocs) {
         if ( allocs == null)
         {
@@ -837,7 +1039,9 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
 
     protected void resolveInitial(Collection<? extends Entity> entities, EntityResolver resolver) throws RaplaException
     {
+        long start = System.nanoTime();
         testResolve(entities);
+        start = logStartupPhase("Reference check", start);
 
         for (Entity entity : entities)
         {
@@ -850,7 +1054,41 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
                 ((DynamicTypeImpl) entity).setOperator(this);
             }
         }
+        start = logStartupPhase("Resolving", start);
         processUserPersonLink(entities);
+        logStartupPhase("User person link", start);
+    }
+
+    /** tests if all references of the entities can be resolved. The entities are checked in parallel, the first failure in the order of the collection is thrown.*/
+    @Override
+    protected void testResolve(Collection<? extends Entity> entities) throws EntityNotFoundException
+    {
+        EntityStore store = createTestResolveStore(entities);
+        final List<EntityReferencer> referencers = new ArrayList<>();
+        for (Entity entity : entities)
+        {
+            if (entity instanceof EntityReferencer)
+            {
+                referencers.add((EntityReferencer) entity);
+            }
+        }
+        final Map<EntityReferencer, Exception> failures = ParallelCheck.run(referencers, (referencer) -> testResolve(store, referencer));
+        for (Exception ex : failures.values())
+        {
+            if (ex instanceof EntityNotFoundException)
+            {
+                throw (EntityNotFoundException) ex;
+            }
+            throw (RuntimeException) ex;
+        }
+    }
+
+    /** logs the duration of a startup phase and returns the start time of the next phase */
+    private long logStartupPhase(String phase, long startNanos)
+    {
+        final long now = System.nanoTime();
+        getLogger().info(phase + " took " + (now - startNanos) / 1000000 + " ms");
+        return now;
     }
 
     protected Collection<Entity> migrateTemplates() throws RaplaException
@@ -968,13 +1206,18 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
      * Determines all conflicts the user can modify. if no user is passed all conflicts are returned
      */
     public Promise<Collection<Conflict>> getConflicts(User user)
+    {
+        return getConflicts(user, null, null);
+    }
+
+    public Promise<Collection<Conflict>> getConflicts(User user, Date start, Date end)
     {
         return scheduler.supply(()-> {
             checkConnected();
             RaplaLock.ReadLock readLock = lockManager.readLock(getClass(), "getConflicts for " + user);
             try {
                 Collection<Conflict> conflictList = new HashSet<>();
-                final Collection<Conflict> conflicts = conflictFinder.getConflicts(user);
+                final Collection<Conflict> conflicts = conflictFinder.getConflicts(user, start, end);
                 for (Conflict conflict : conflicts) {
                     // conflict is filled with disable/enable status from cache
                     Conflict conflictClone = cache.fillConflictDisableInformation(user, conflict);
@@ -1011,7 +1254,8 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
         }
     }
 
-    final protected void scheduleConnectedTasks(final Action command, long delay, long period)
+    /** schedules a task that runs while the operator is connected. The task type is shown in the statistics of the scheduler */
+    final protected void scheduleConnectedTasks(String taskType, final Action command, long delay, long period)
     {
         //        if (true)
         //            return;
@@ -1030,7 +1274,8 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
                 disconnectLock.unlock(lock);
             }
         };
-        io.reactivex.disposables.Disposable schedule = scheduler.schedule(task, delay,period);
+        // the tasks can wait for the database, so they should not hold a thread of the scheduler
+        final io.reactivex.disposables.Disposable schedule = scheduler.scheduleBlocking(taskType, task, delay, period);
         scheduledTasks.add(schedule);
     }
 
@@ -1060,7 +1305,8 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
 
     protected void initIndizes() throws RaplaException
     {
-        deleteUpdateSet = new DualTreeBidiMap<>();
+        long start = System.nanoTime();
+        deleteUpdateLog = new ChangeLog<>();
         externalIds = new DualHashBidiMap<>();
         // The appointment map
 
@@ -1097,7 +1343,10 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
                 externalIds.put(externalId, event.getReference());
             }
         }
+        start = logStartupPhase("External id index", start);
         appointmentBindings.initAppointmentBindings(events);
+        visibilityCache.init(alloctables);
+        start = logStartupPhase("Appointment bindings", start);
         Date today2 = today();
         AllocationMap allocationMap = new AllocationMap()
         {
@@ -1114,7 +1363,12 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
         };
         // The conflict map
         Logger logger = getLogger();
-        conflictFinder = new ConflictFinder(allocationMap, today2, logger, this, permissionController);
+        final Preferences systemPreferences = cache.getPreferencesForUserId(null);
+        final int conflictHorizonWeeks = systemPreferences != null ? systemPreferences.getEntryAsInteger(CONFLICT_HORIZON_WEEKS, ConflictFinder.MAX_CHECK_WEEKS) : ConflictFinder.MAX_CHECK_WEEKS;
+        conflictFinder = new ConflictFinder(allocationMap, today2, logger, this, permissionController, conflictHorizonWeeks);
+        final int groupCommitMillis = systemPreferences != null ? systemPreferences.getEntryAsInteger(DISPATCH_GROUP_COMMIT_MILLIS, 0) : 0;
+        groupCommit = groupCommitMillis > 0 && isGroupCommitSupported() ? new DispatchGroupCommit(groupCommitMillis, this::dispatchBatch) : null;
+        start = logStartupPhase("Conflict index", start);
 
         // if a client request changes before the start date return refresh conflict flag
         Action cleanUpConflicts = ()->
@@ -1129,7 +1383,7 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
             EntityHistory.HistoryEntry entry = history.getLatest(id);
             addToDeleteUpdate(entry);
         }
-        final Collection<Conflict> conflicts = conflictFinder.getConflicts(null);
+        final Collection<Conflict> conflicts = conflictFinder.getConflictsWithinHorizon();
         for (Conflict conflict : conflicts)
         {
             ReferenceInfo referenceInfo = conflict.getReference();
@@ -1153,12 +1407,14 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
             Date timestamp = preference.getLastChanged();
             addToDeleteUpdate(referenceInfo, timestamp, isDelete, preference);
         }
+        start = logStartupPhase("Change log", start);
         calendarModelCache.initCalendarMap();
+        logStartupPhase("Calendar models", start);
         final long delayCleanup = DateTools.MILLISECONDS_PER_HOUR;
-        scheduleConnectedTasks(cleanUpConflicts, delayCleanup, DateTools.MILLISECONDS_PER_HOUR);
+        scheduleConnectedTasks("cleanup conflicts", cleanUpConflicts, delayCleanup, DateTools.MILLISECONDS_PER_HOUR);
         final int refreshPeriod = 1000 * 20;
         final long delayRefresh = 1000;
-        scheduleConnectedTasks(()->
+        scheduleConnectedTasks("refresh", ()->
             {
                 try
                 {
@@ -1250,6 +1506,7 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
             changeStatus(LocalAbstractCachableOperator.InitStatus.Disconnected);
             cache.clearAll();
             history.clear();
+            visibilityCache.clear();
         }
         finally
         {
@@ -1308,6 +1565,7 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
     private Collection<ConflictFinder.ConflictChangeOperation> updateIndizes(UpdateResult result) throws RaplaException
     {
         calendarModelCache.synchronizeCalendars(result);
+        visibilityCache.update(result);
         final Collection<UpdateOperation> conflictChanges = new ArrayList<>();
         for (UpdateOperation op : result.getOperations())
         {
@@ -1565,7 +1823,7 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
 
     protected void addToDeleteUpdate(EntityHistory.HistoryEntry historyEntry)
     {
-        Entity current = history.getEntity(historyEntry);
+        Entity current = history.getReadOnlyEntity(historyEntry);
         final boolean isDelete = historyEntry.isDelete();
         final Date timestamp = new Date(historyEntry.getTimestamp());
         ReferenceInfo ref = historyEntry.getId();
@@ -1577,20 +1835,12 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
         final Class<? extends Entity> type = referenceInfo.getType();
         String id = referenceInfo.getId();
 
-        DeleteUpdateEntry entry = deleteUpdateSet.get(id);
-        if (entry == null)
+        DeleteUpdateEntry previous = deleteUpdateLog.get(id);
+        DeleteUpdateEntry entry = new DeleteUpdateEntry(referenceInfo, timestamp.getTime(), isDelete);
+        if (previous != null)
         {
-            entry = new DeleteUpdateEntry(referenceInfo, timestamp, isDelete);
-        }
-        else
-        {
-            DeleteUpdateEntry remove = deleteUpdateSet.remove(id);
-            entry.isDelete = isDelete;
-            entry.timestamp = timestamp;
-            if (isDelete && remove == null)
-            {
-                getLogger().warn("Can't remove entry for id " + id);
-            }
+            // users that were affected by the previous change are affected by this change too
+            entry.addPermssions(previous);
         }
         if (type == User.class && current != null)
         {
@@ -1626,7 +1876,8 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
                 entry.addUserIds(Collections.singletonList(owner.getId()));
             }
         }
-        deleteUpdateSet.put(entry.getId(), entry);
+        entry.groupMask = entry.affectedGroupIds != null ? getPermissionGroups().createGroupMask(entry.affectedGroupIds) : null;
+        deleteUpdateLog.add(entry);
     }
 
     private void addPermissions(DeleteUpdateEntry entry, ReferenceInfo<Reservation> reservation)
@@ -1639,7 +1890,7 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
         else if (reservation != null)
         {
             final String id = reservation.getId();
-            DeleteUpdateEntry deleteUpdateEntry = deleteUpdateSet.get(id);
+            DeleteUpdateEntry deleteUpdateEntry = deleteUpdateLog.get(id);
             if (deleteUpdateEntry != null)
             {
                 entry.addPermssions(deleteUpdateEntry);
@@ -1656,7 +1907,7 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
     }
     */
 
-    private boolean isAffected(DeleteUpdateEntry entry, String userId, final Collection<String> groupsIncludingParents)
+    private boolean isAffected(DeleteUpdateEntry entry, String userId, final CompiledPermissions.GroupMask groupMask)
     {
         if (entry.affectAll)
         {
@@ -1666,7 +1917,14 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
         {
             if (entry.affectedGroupIds != null)
             {
-                if (!Collections.disjoint(entry.affectedGroupIds, groupsIncludingParents))
+                CompiledPermissions.GroupMask entryMask = entry.groupMask;
+                if (entryMask == null || !entryMask.isValid())
+                {
+                    // the group numbers changed since the entry was added
+                    entryMask = getPermissionGroups().createGroupMask(entry.affectedGroupIds);
+                    entry.groupMask = entryMask;
+                }
+                if (entryMask.intersects(groupMask))
                 {
                     return true;
                 }
@@ -1682,39 +1940,17 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
         return false;
     }
 
-    class DeleteUpdateEntry implements Comparable<DeleteUpdateEntry>
+    class DeleteUpdateEntry extends ChangeLog.Entry
     {
         public boolean affectAll;
-        Date timestamp;
-        final ReferenceInfo reference;
         Set<String> affectedGroupIds;
         Set<String> affectedUserIds;
-        boolean isDelete;
+        /** bitmask of the affectedGroupIds, computed when the entry is added to the log and again when the group numbers change */
+        volatile CompiledPermissions.GroupMask groupMask;
 
-        DeleteUpdateEntry(ReferenceInfo reference, Date timestamp, boolean isDelete)
+        DeleteUpdateEntry(ReferenceInfo reference, long timestamp, boolean isDelete)
         {
-            this.isDelete = isDelete;
-            this.timestamp = timestamp;
-            this.reference = reference;
-        }
-
-        @Override
-        public int compareTo(DeleteUpdateEntry o)
-        {
-            if (o == this)
-            {
-                return 0;
-            }
-            Date time1 = this.timestamp;
-            Date time2 = o.timestamp;
-            int result = time1.compareTo(time2);
-            if (result != 0)
-            {
-                return result;
-            }
-            String deleteId = getId();
-            result = deleteId.compareTo(o.getId());
-            return result;
+            super(reference, timestamp, isDelete);
         }
 
         public void addPermssions(DeleteUpdateEntry deleteUpdateEntry)
@@ -1753,30 +1989,6 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
             affectedGroupIds.addAll(groupIds);
         }
 
-        String getId()
-        {
-            return reference.getId();
-        }
-
-        @Override
-        public boolean equals(Object o)
-        {
-            boolean equals = getId().equals(((DeleteUpdateEntry) o).getId());
-            return equals;
-        }
-
-        @Override
-        public int hashCode()
-        {
-            return getId().hashCode();
-        }
-
-        @Override
-        public String toString()
-        {
-            return reference + (isDelete ? " removed on " : "changed on ") + timestamp;
-        }
-
         private void addPermissions(EntityPermissionContainer current, Permission.AccessLevel minimumLevel)
         {
             DeleteUpdateEntry entry = this;
@@ -1886,37 +2098,25 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
     private Collection<ReferenceInfo> getEntities(User user, final Date timestamp, boolean isDelete) throws RaplaException
     {
         Assert.notNull(timestamp);
-        // we use an empty id here because the implmentation of the DeleteUpdateEntry compare compares idStrings if timestamps are equal
-        // so tailMap returns all entities with a timestamp >= timestamp
-        final String dummyId = "";
-        // we need to add +1 so that we dont get entities with the passed (guaranteed timestamp)
-        DeleteUpdateEntry fromElement = new DeleteUpdateEntry(new ReferenceInfo(dummyId, Allocatable.class), new Date(timestamp.getTime() + 1), isDelete);
-        LinkedList<ReferenceInfo> result = new LinkedList<>();
-
+        final CompiledPermissions.GroupMask groupMask = user != null ? CompiledPermissions.getGroupMask(user) : null;
+        final String userId = user != null ? user.getId() : null;
+        final boolean checkPermissions = user != null && !user.isAdmin();
+        final List<DeleteUpdateEntry> changes;
         RaplaLock.ReadLock lock = lockManager.readLock(getClass(), "getEntities for "+ user);
-        final Collection<String> groupsIncludingParents = user != null ? UserImpl.getGroupsIncludingParents(user) : null;
-        String userId = user != null ? user.getId() : null;
         try
         {
-            SortedMap<DeleteUpdateEntry, String> tailMap = deleteUpdateSet.inverseBidiMap().tailMap(fromElement);
-            Set<DeleteUpdateEntry> tailSet = tailMap.keySet();
-            for (DeleteUpdateEntry entry : tailSet)
-            {
-                if (entry.isDelete != isDelete)
-                {
-                    continue;
-                }
-                if (user == null || user.isAdmin() || isAffected(entry, userId, groupsIncludingParents))
-                {
-                    ReferenceInfo deletedReference = entry.reference;
-                    result.add(deletedReference);
-                }
-            }
+            changes = deleteUpdateLog.getChangesAfter(timestamp.getTime(),
+                    (entry) -> entry.isDelete == isDelete && (!checkPermissions || isAffected(entry, userId, groupMask)));
         }
         finally
         {
             lockManager.unlock(lock);
         }
+        List<ReferenceInfo> result = new ArrayList<>(changes.size());
+        for (DeleteUpdateEntry entry : changes)
+        {
+            result.add(entry.reference);
+        }
         return result;
     }
 
@@ -2226,13 +2426,19 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
     }
 
     private void removeOldHistory() throws RaplaException
+    {
+        Date lastUpdated = getLastRefreshed();
+        removeHistoryBefore(new Date(lastUpdated.getTime() - HISTORY_DURATION));
+    }
+
+    void removeHistoryBefore(Date date) throws RaplaException
     {
         final RaplaLock.ReadLock readLock = lockManager.readLock(getClass(), "removeOldHistory");
         try
         {
-            Date lastUpdated = getLastRefreshed();
-            Date date = new Date(lastUpdated.getTime() - HISTORY_DURATION);
             history.removeUnneeded(date);
+            // changes before the valid history are never requested, see getUpdateResult. Only the superseded changes are removed
+            deleteUpdateLog.removeBefore(date.getTime());
         }
         finally
         {
@@ -2951,23 +3157,39 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
         }
     }
 
+    /**
+     * removes the entities that fail the consistency check from the cache and the list. The entities are checked in parallel against
+     * the unmodified cache and removed in the order of the list afterwards. Because a removed entity can break the entities that reference it,
+     * the remaining entities are checked again until no entity is removed.
+     */
     protected void removeInconsistentEntities(LocalCache cache, Collection<Entity> list)
     {
-        for (Iterator iterator = list.iterator(); iterator.hasNext(); )
+        final long start = System.nanoTime();
+        List<Entity> toCheck = new ArrayList<>();
+        for (Entity entity : list)
         {
-            Entity entity = (Entity) iterator.next();
             final Class<? extends Entity> typeClass = entity.getTypeClass();
             // Don't check types and categories for inconsistencies
-            if (typeClass == DynamicType.class || typeClass == Category.class )
+            if (typeClass != DynamicType.class && typeClass != Category.class)
             {
-                continue;
+                toCheck.add(entity);
             }
-            try
+        }
+        while (!toCheck.isEmpty())
+        {
+            final Map<Entity, Exception> failures = ParallelCheck.run(toCheck, (entity) -> checkConsitency(entity, cache));
+            if (failures.isEmpty())
             {
-                checkConsitency(entity, cache);
+                break;
             }
-            catch (RaplaException | IllegalStateException e)
+            for (Map.Entry<Entity, Exception> failure : failures.entrySet())
             {
+                final Entity entity = failure.getKey();
+                final Exception e = failure.getValue();
+                if (!(e instanceof RaplaException || e instanceof IllegalStateException))
+                {
+                    throw (RuntimeException) e;
+                }
                 if (entity instanceof Conflict && e instanceof EntityNotFoundException)
                 {
                     getLogger().info("Not loading disabled conflict with id: " + entity.getId() + " appointment not found, so conflict is probably removed.");
@@ -2977,9 +3199,12 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
                     getLogger().error("Not loading entity with id: " + entity.getId(), e);
                 }
                 cache.remove(entity);
-                iterator.remove();
             }
+            final Set<Entity> removed = failures.keySet();
+            list.removeIf(removed::contains);
+            toCheck.removeIf(removed::contains);
         }
+        logStartupPhase("Consistency check", start);
     }
 
     /** Check if the objects are consistent, so that they can be safely stored. */
@@ -3227,7 +3452,7 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
 
         if (reservations.size() != 0)
         {
-            JsonParserWrapper.JsonParser gson = JsonParserWrapper.defaultJson().get();
+            EntityJsonParser gson = EntityJsonParser.get();
             getLogger().error("The following events will be removed because they have no resources or appointments: \n" + gson.toJson(reservations));
         }
         return reservationRefs;
@@ -3518,6 +3743,68 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
         return map;
     }
 
+    @Override
+    public Promise<Map<Allocatable, boolean[]>> getAvailability(Collection<Allocatable> allocatables, List<TimeInterval> slots,
+            Collection<Reservation> ignoreList)
+    {
+        return scheduler.supply(() ->
+        {
+            RaplaLock.ReadLock readLock = lockManager.readLock(getClass(), "getAvailability");
+            try
+            {
+                return getAvailabilityMap(allocatables, slots, ignoreList);
+            }
+            finally
+            {
+                lockManager.unlock(readLock);
+            }
+        });
+    }
+
+    /** for every allocatable one merged sweep over the slots sorted by start and the busy intervals of the allocatable in the range of the slots */
+    private Map<Allocatable, boolean[]> getAvailabilityMap(Collection<Allocatable> allocatables, List<TimeInterval> slots, Collection<Reservation> ignoreList)
+    {
+        final int slotCount = slots.size();
+        final long[] slotStarts = new long[slotCount];
+        final long[] slotEnds = new long[slotCount];
+        final Integer[] sorted = new Integer[slotCount];
+        long minStart = Long.MAX_VALUE;
+        long maxEnd = Long.MIN_VALUE;
+        for (int i = 0; i < slotCount; i++)
+        {
+            final TimeInterval slot = slots.get(i);
+            slotStarts[i] = slot.getStart().getTime();
+            slotEnds[i] = slot.getEnd().getTime();
+            minStart = Math.min(minStart, slotStarts[i]);
+            maxEnd = Math.max(maxEnd, slotEnds[i]);
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, (i1, i2) -> Long.compare(slotStarts[i1], slotStarts[i2]));
+        Map<Allocatable, boolean[]> result = new LinkedHashMap<>();
+        for (Allocatable allocatable : allocatables)
+        {
+            final boolean[] free = new boolean[slotCount];
+            Arrays.fill(free, true);
+            result.put(allocatable, free);
+            String annotation = allocatable.getAnnotation(ResourceAnnotations.KEY_CONFLICT_CREATION);
+            boolean holdBackConflicts = annotation != null && annotation.equals(ResourceAnnotations.VALUE_CONFLICT_CREATION_IGNORE);
+            SortedSet<Appointment> appointmentSet = getAppointments(allocatable);
+            if (holdBackConflicts || appointmentSet == null || slotCount == 0)
+            {
+                continue;
+            }
+            BusyIntervals busyIntervals = new BusyIntervals();
+            busyIntervals.addAppointments(appointmentSet, null, ignoreList, minStart, maxEnd);
+            int busyIndex = 0;
+            for (int slot : sorted)
+            {
+                busyIndex = busyIntervals.next(busyIndex, slotStarts[slot]);
+                free[slot] = !busyIntervals.overlaps(busyIndex, slotStarts[slot], slotEnds[slot]);
+            }
+        }
+        return result;
+    }
+
     @Override
     public Promise<Map<Allocatable, Map<Appointment, Collection<Appointment>>>> getAllAllocatableBindings(Collection<Allocatable> allocatables,
             Collection<Appointment> appointments, Collection<Reservation> ignoreList)
@@ -3583,38 +3870,36 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
             final Collection<Reservation> ignoreList, final Integer worktimeStartMinutes, final Integer worktimeEndMinutes, final Integer[] excludedDays,
             final Integer rowsPerHour)
     {
-        Promise<Date> promise = scheduler.supply(() ->
+        return getNextAllocatableDates(allocatables, appointment, ignoreList, worktimeStartMinutes, worktimeEndMinutes, excludedDays, rowsPerHour, 1)
+                .thenApply((dates) -> dates.isEmpty() ? null : dates.get(0));
+    }
+
+    @Override
+    public Promise<List<Date>> getNextAllocatableDates(final Collection<Allocatable> allocatables, final Appointment appointment,
+            final Collection<Reservation> ignoreList, final Integer worktimeStartMinutes, final Integer worktimeEndMinutes, final Integer[] excludedDays,
+            final Integer rowsPerHour, final int count)
+    {
+        Promise<List<Date>> promise = scheduler.supply(() ->
         {
-            RaplaLock.ReadLock readLock = lockManager.readLock(getClass(), "getNextAllocatableDate");
+            RaplaLock.ReadLock readLock = lockManager.readLock(getClass(), "getNextAllocatableDates");
             try
             {
-                Appointment newState = appointment;
-                Date firstStart = appointment.getStart();
-                boolean startDateExcluded = isExcluded(excludedDays, firstStart);
-                boolean wholeDay = appointment.isWholeDaysSet();
-                boolean inWorktime = inWorktime(appointment, worktimeStartMinutes, worktimeEndMinutes);
-                final int rowsPerHourInt = (rowsPerHour == null || rowsPerHour <= 1) ? 1 : rowsPerHour;
-                for (int i = 0; i < 366 * 24 * rowsPerHourInt; i++)
+                FreeSlotFinder finder = new FreeSlotFinder(appointment, worktimeStartMinutes, worktimeEndMinutes, excludedDays, rowsPerHour);
+                for (Allocatable allocatable : allocatables)
                 {
-                    newState = ((AppointmentImpl) newState).clone();
-                    Date start = newState.getStart();
-                    long millisToAdd = wholeDay ? DateTools.MILLISECONDS_PER_DAY : (DateTools.MILLISECONDS_PER_HOUR / rowsPerHourInt);
-                    Date newStart = new Date(start.getTime() + millisToAdd);
-                    if (!startDateExcluded && isExcluded(excludedDays, newStart))
-                    {
-                        continue;
-                    }
-                    newState.moveTo(newStart);
-                    if (!wholeDay && inWorktime && !inWorktime(newState, worktimeStartMinutes, worktimeEndMinutes))
+                    String annotation = allocatable.getAnnotation(ResourceAnnotations.KEY_CONFLICT_CREATION);
+                    boolean holdBackConflicts = annotation != null && annotation.equals(ResourceAnnotations.VALUE_CONFLICT_CREATION_IGNORE);
+                    if (holdBackConflicts)
                     {
                         continue;
                     }
-                    if (!isAllocated(allocatables, newState, ignoreList))
+                    SortedSet<Appointment> appointmentSet = getAppointments(allocatable);
+                    if (appointmentSet != null)
                     {
-                        return newStart;
+                        finder.addBusyAppointments(appointmentSet, ignoreList);
                     }
                 }
-                return null;
+                return finder.findFreeSlots(count, (candidate) -> !isAllocated(allocatables, candidate, ignoreList));
             }
             finally
             {
@@ -3624,40 +3909,14 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
         return promise;
     }
 
-    private boolean inWorktime(Appointment appointment, Integer worktimeStartMinutes, Integer worktimeEndMinutes)
-    {
-        long start = appointment.getStart().getTime();
-        int minuteOfDayStart = DateTools.getMinuteOfDay(start);
-        long end = appointment.getEnd().getTime();
-        int minuteOfDayEnd = DateTools.getMinuteOfDay(end) + (int) DateTools.countDays(start, end) * 24 * 60;
-        boolean inWorktime = (worktimeStartMinutes == null || worktimeStartMinutes <= minuteOfDayStart) && (worktimeEndMinutes == null
-                || worktimeEndMinutes >= minuteOfDayEnd);
-        return inWorktime;
-    }
-
-    private boolean isExcluded(Integer[] excludedDays, Date date)
-    {
-        Integer weekday = DateTools.getWeekday(date);
-        if (excludedDays != null)
-        {
-            for (Integer day : excludedDays)
-            {
-                if (day.equals(weekday))
-                {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    private boolean isAllocated(Collection<Allocatable> allocatables, Appointment appointment, Collection<Reservation> ignoreList) throws Exception
+    private boolean isAllocated(Collection<Allocatable> allocatables, Appointment appointment, Collection<Reservation> ignoreList)
     {
-        Map<Allocatable, Collection<Appointment>> firstAllocatableBindings = getFirstAllocatableBindingsMap(allocatables, Collections.singleton(appointment),
-                ignoreList);
-        for (Map.Entry<Allocatable, Collection<Appointment>> entry : firstAllocatableBindings.entrySet())
+        final boolean onlyFirstConflictingAppointment = true;
+        Map<Allocatable, Map<Appointment, Collection<Appointment>>> allocatableBindings = getAllocatableBindings(allocatables,
+                Collections.singleton(appointment), ignoreList, onlyFirstConflictingAppointment);
+        for (Map<Appointment, Collection<Appointment>> bindings : allocatableBindings.values())
         {
-            if (entry.getValue().size() > 0)
+            if (bindings.size() > 0)
             {
                 return true;
             }
@@ -3671,7 +3930,8 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
         RaplaLock.ReadLock readLock = lockManager.readLock(getClass(), "getVisibleEntities for " + user );
         try
         {
-            return cache.getVisibleEntities(user);
+            final Collection<Allocatable> visibleAllocatables = visibilityCache.getVisibleAllocatables(user);
+            return cache.getVisibleEntities(user, visibleAllocatables);
         }
         finally
         {
@@ -3989,7 +4249,7 @@ public abstract class LocalAbstractCachableOperator extends AbstractCachableOper
                 final EntityHistory.HistoryEntry latest = history.getLatest(update);
                 if (latest != null)
                 {
-                    oldEntity = history.getEntity(latest);
+                    oldEntity = history.getReadOnlyEntity(latest);
                 }
                 else
                 {
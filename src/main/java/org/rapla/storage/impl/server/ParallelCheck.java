@@ -0,0 +1,49 @@
+package org.rapla.storage.impl.server;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Runs a check for every element of a list in parallel on the common fork join pool. The failures are returned in the order of the list,
+ * so the removals and error messages after a startup check don't depend on the scheduling of the checks.
+ * The checks must only read shared state, e.g. resolve references in a cache that is not modified during the check.
+ */
+class ParallelCheck
+{
+    interface Check<T>
+    {
+        void check(T element) throws Exception;
+    }
+
+    private ParallelCheck()
+    {
+    }
+
+    /** returns the elements that failed the check with the thrown exception, in the order of the list */
+    static <T> Map<T, Exception> run(List<T> elements, Check<? super T> check)
+    {
+        final int size = elements.size();
+        final Exception[] failures = new Exception[size];
+        IntStream.range(0, size).parallel().forEach((i) -> {
+            try
+            {
+                check.check(elements.get(i));
+            }
+            catch (Exception ex)
+            {
+                failures[i] = ex;
+            }
+        });
+        final Map<T, Exception> result = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++)
+        {
+            if (failures[i] != null)
+            {
+                result.put(elements.get(i), failures[i]);
+            }
+        }
+        return result;
+    }
+}
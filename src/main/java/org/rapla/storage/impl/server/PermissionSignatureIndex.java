@@ -0,0 +1,286 @@
+package org.rapla.storage.impl.server;
+
+import org.rapla.entities.Entity;
+import org.rapla.entities.User;
+import org.rapla.entities.internal.UserImpl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Index of the entities a user is allowed to see, shared by all users with the same permission group signature,
+ * i.e. the sorted set of groups (including parents) a user belongs to.
+ * Every entity gets a dense slot number and visibility is stored as a bitset of slots for each signature.
+ * Entities that refer to a specific user, e.g. as owner or in a user permission, are evaluated for that user separately.
+ * Changed entities are only marked dirty and evaluated again on the next request.
+ * <p>
+ * The index assumes that the registered permission extensions only distinguish users by their id and their groups.
+ * Methods are synchronized because requests that only hold the read lock of the storage query the index concurrently.
+ */
+abstract class PermissionSignatureIndex<T extends Entity>
+{
+    /** id that is used for the signature users. It must not match the id of a real user, so no owner or user permission applies */
+    private static final String SIGNATURE_USER_ID = "rapla_visibility_signature_user";
+
+    private final Map<String, Integer> slotMap = new HashMap<>();
+    private final List<T> slots = new ArrayList<>();
+    private final List<Integer> freeSlots = new ArrayList<>();
+    private final Map<Integer, Collection<String>> referencedUsersBySlot = new HashMap<>();
+    private final Map<String, BitSet> slotsByReferencedUser = new HashMap<>();
+    private final BitSet dirty = new BitSet();
+
+    private final Map<String, SignatureEntry> signatures = new HashMap<>();
+    private final Map<String, String> userSignatures = new HashMap<>();
+
+    static class SignatureEntry
+    {
+        final User signatureUser;
+        final BitSet visible = new BitSet();
+
+        SignatureEntry(User signatureUser)
+        {
+            this.signatureUser = signatureUser;
+        }
+    }
+
+    /** returns true if the user can see the entity */
+    protected abstract boolean isVisible(T entity, User user);
+
+    /** adds the ids of all users that are explicitly referenced by the permissions of the entity */
+    protected abstract void collectReferencedUsers(T entity, Collection<String> userIds);
+
+    synchronized public void clear()
+    {
+        slotMap.clear();
+        slots.clear();
+        freeSlots.clear();
+        referencedUsersBySlot.clear();
+        slotsByReferencedUser.clear();
+        dirty.clear();
+        invalidateSignatures();
+    }
+
+    /** returns all entities the user can see. Returns all entities if user is null or an admin.*/
+    synchronized public Collection<T> getVisible(User user)
+    {
+        processDirty();
+        if (user == null || user.isAdmin())
+        {
+            List<T> result = new ArrayList<>(slotMap.size());
+            for (T entity : slots)
+            {
+                if (entity != null)
+                {
+                    result.add(entity);
+                }
+            }
+            return result;
+        }
+        SignatureEntry entry = getOrCreateSignature(user);
+        final BitSet visible = (BitSet) entry.visible.clone();
+        // entities that refer to the user directly are checked with the real user
+        final BitSet userDependent = slotsByReferencedUser.get(user.getId());
+        if (userDependent != null)
+        {
+            for (int slot = userDependent.nextSetBit(0); slot >= 0; slot = userDependent.nextSetBit(slot + 1))
+            {
+                visible.set(slot, isVisible(slots.get(slot), user));
+            }
+        }
+        List<T> result = new ArrayList<>(visible.cardinality());
+        for (int slot = visible.nextSetBit(0); slot >= 0; slot = visible.nextSetBit(slot + 1))
+        {
+            result.add(slots.get(slot));
+        }
+        return result;
+    }
+
+    /** adds or replaces the entity with the same id. The visibility of the entity is evaluated on the next request.*/
+    synchronized public void put(T entity)
+    {
+        final String id = entity.getId();
+        Integer slot = slotMap.get(id);
+        if (slot == null)
+        {
+            if (freeSlots.isEmpty())
+            {
+                slot = slots.size();
+                slots.add(entity);
+            }
+            else
+            {
+                slot = freeSlots.remove(freeSlots.size() - 1);
+                slots.set(slot, entity);
+            }
+            slotMap.put(id, slot);
+        }
+        else
+        {
+            slots.set(slot, entity);
+        }
+        dirty.set(slot);
+    }
+
+    /** marks the entity with the passed id for evaluation on the next request, e.g. because an entity it depends on has changed */
+    synchronized public void markDirty(String id)
+    {
+        final Integer slot = slotMap.get(id);
+        if (slot != null)
+        {
+            dirty.set(slot);
+        }
+    }
+
+    /** marks all entities that match the filter for evaluation on the next request */
+    synchronized public void markDirty(Predicate<T> filter)
+    {
+        for (int slot = 0; slot < slots.size(); slot++)
+        {
+            final T entity = slots.get(slot);
+            if (entity != null && filter.test(entity))
+            {
+                dirty.set(slot);
+            }
+        }
+    }
+
+    synchronized public void remove(String id)
+    {
+        final Integer slot = slotMap.remove(id);
+        if (slot == null)
+        {
+            return;
+        }
+        slots.set(slot, null);
+        dirty.clear(slot);
+        removeUserReferences(slot);
+        for (SignatureEntry entry : signatures.values())
+        {
+            entry.visible.clear(slot);
+        }
+        freeSlots.add(slot);
+    }
+
+    /** must be called when the groups of the user could have changed */
+    synchronized public void invalidateUser(String userId)
+    {
+        userSignatures.remove(userId);
+    }
+
+    /** must be called when the group hierarchy or the permissions of the types change, because all signatures could be affected */
+    synchronized public void invalidateSignatures()
+    {
+        signatures.clear();
+        userSignatures.clear();
+    }
+
+    private void processDirty()
+    {
+        if (dirty.isEmpty())
+        {
+            return;
+        }
+        for (int slot = dirty.nextSetBit(0); slot >= 0; slot = dirty.nextSetBit(slot + 1))
+        {
+            final T entity = slots.get(slot);
+            removeUserReferences(slot);
+            addUserReferences(slot, entity);
+            for (SignatureEntry entry : signatures.values())
+            {
+                entry.visible.set(slot, isVisible(entity, entry.signatureUser));
+            }
+        }
+        dirty.clear();
+    }
+
+    private void addUserReferences(int slot, T entity)
+    {
+        final Collection<String> userIds = new LinkedHashSet<>();
+        collectReferencedUsers(entity, userIds);
+        if (userIds.isEmpty())
+        {
+            return;
+        }
+        referencedUsersBySlot.put(slot, userIds);
+        for (String userId : userIds)
+        {
+            BitSet bitSet = slotsByReferencedUser.get(userId);
+            if (bitSet == null)
+            {
+                bitSet = new BitSet();
+                slotsByReferencedUser.put(userId, bitSet);
+            }
+            bitSet.set(slot);
+        }
+    }
+
+    private void removeUserReferences(int slot)
+    {
+        final Collection<String> userIds = referencedUsersBySlot.remove(slot);
+        if (userIds == null)
+        {
+            return;
+        }
+        for (String userId : userIds)
+        {
+            final BitSet bitSet = slotsByReferencedUser.get(userId);
+            if (bitSet != null)
+            {
+                bitSet.clear(slot);
+                if (bitSet.isEmpty())
+                {
+                    slotsByReferencedUser.remove(userId);
+                }
+            }
+        }
+    }
+
+    private SignatureEntry getOrCreateSignature(User user)
+    {
+        final String userId = user.getId();
+        String signature = userSignatures.get(userId);
+        if (signature == null)
+        {
+            signature = getSignature(user);
+            userSignatures.put(userId, signature);
+        }
+        SignatureEntry entry = signatures.get(signature);
+        if (entry == null)
+        {
+            entry = new SignatureEntry(createSignatureUser(user));
+            for (int slot = 0; slot < slots.size(); slot++)
+            {
+                final T entity = slots.get(slot);
+                if (entity != null && isVisible(entity, entry.signatureUser))
+                {
+                    entry.visible.set(slot);
+                }
+            }
+            signatures.put(signature, entry);
+        }
+        return entry;
+    }
+
+    static String getSignature(User user)
+    {
+        final Set<String> groups = new TreeSet<>(UserImpl.getGroupsIncludingParents(user));
+        return String.join(",", groups);
+    }
+
+    /** creates a copy of the user with the same groups but an id that is not referenced by any permission or owner*/
+    private User createSignatureUser(User user)
+    {
+        final UserImpl signatureUser = (UserImpl) user.clone();
+        signatureUser.setId(SIGNATURE_USER_ID);
+        signatureUser.setReadOnly();
+        return signatureUser;
+    }
+}
@@ -180,6 +180,47 @@ public class PermissionTest extends AbstractTestWithServer {
 
     }
 
+    @Test
+    public void testGroupPermissionsIncludeParents() throws Exception {
+        final PermissionController permissionController = DefaultPermissionControllerSupport.getController(adminFacade.getOperator());
+        Category testGroup = adminFacade.edit(adminFacade.getUserGroupsCategory().getCategory("test-group"));
+        Category subGroup = adminFacade.newCategory();
+        subGroup.setKey("test-sub-group");
+        testGroup.addCategory(subGroup);
+        adminFacade.store(testGroup);
+        testGroup = adminFacade.getUserGroupsCategory().getCategory("test-group");
+        subGroup = testGroup.getCategory("test-sub-group");
+
+        User user = adminFacade.edit(adminFacade.getUser("test"));
+        user.removeGroup(testGroup);
+        user.addGroup(subGroup);
+        adminFacade.store(user);
+        user = adminFacade.getUser("test");
+
+        Allocatable allocatable = adminFacade.newResourceDeprecated();
+        allocatable.getClassification().setValue("name", "test-allocatable");
+        allocatable.removePermission(allocatable.getPermissionList().iterator().next());
+        Permission permission = allocatable.newPermission();
+        permission.setGroup(testGroup);
+        permission.setAccessLevel(Permission.ALLOCATE);
+        allocatable.addPermission(permission);
+        adminFacade.store(allocatable);
+        allocatable = adminFacade.getPersistant(allocatable);
+        // permissions of the parent group apply to members of the sub group
+        Assert.assertTrue(permissionController.canRead(allocatable, user));
+        Assert.assertTrue(permissionController.hasPermissionToAllocate(user, allocatable));
+
+        // moving the sub group out of the test group must revoke the permission
+        Category groups = adminFacade.edit(adminFacade.getUserGroupsCategory());
+        Category editableTestGroup = groups.getCategory("test-group");
+        Category editableSubGroup = editableTestGroup.getCategory("test-sub-group");
+        editableTestGroup.removeCategory(editableSubGroup);
+        groups.addCategory(editableSubGroup);
+        adminFacade.store(groups);
+        Assert.assertFalse(permissionController.canRead(allocatable, user));
+        Assert.assertFalse(permissionController.hasPermissionToAllocate(user, allocatable));
+    }
+
     private Allocatable getTestResource() throws Exception {
         Allocatable[] all = testFacade.getAllocatables();
         for ( int i=0;i< all.length; i++ ){
@@ -0,0 +1,80 @@
+package org.rapla.client.internal;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.RaplaResources;
+import org.rapla.client.swing.internal.view.TreeItemFactorySwing;
+import org.rapla.components.i18n.client.swing.SwingBundleManager;
+import org.rapla.components.i18n.internal.AbstractBundleManager;
+import org.rapla.entities.Entity;
+import org.rapla.entities.domain.Allocatable;
+import org.rapla.entities.dynamictype.DynamicType;
+import org.rapla.entities.storage.ReferenceInfo;
+import org.rapla.facade.RaplaFacade;
+import org.rapla.facade.client.ClientFacade;
+import org.rapla.facade.internal.ModificationEventImpl;
+import org.rapla.framework.RaplaLocale;
+import org.rapla.framework.internal.RaplaLocaleImpl;
+import org.rapla.logger.Logger;
+import org.rapla.storage.UpdateResult;
+import org.rapla.test.util.RaplaTestCase;
+
+import java.util.Date;
+import java.util.HashMap;
+
+@RunWith(JUnit4.class)
+public class TreeFactoryImplTest
+{
+    RaplaFacade facade;
+    TreeFactoryImpl treeFactory;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Logger logger = RaplaTestCase.initLoger();
+        ClientFacade clientFacade = RaplaTestCase.createSimpleSimpsonsWithHomer();
+        facade = clientFacade.getRaplaFacade();
+        final AbstractBundleManager bundleManager = new SwingBundleManager(logger);
+        RaplaResources i18n = new RaplaResources(bundleManager);
+        RaplaLocale raplaLocale = new RaplaLocaleImpl(bundleManager);
+        treeFactory = new TreeFactoryImpl(clientFacade, i18n, raplaLocale, logger, new TreeItemFactorySwing(i18n));
+    }
+
+    private UpdateResult createUpdateResult()
+    {
+        final Date now = new Date();
+        return new UpdateResult(now, now, new HashMap<ReferenceInfo, Entity>(), new HashMap<ReferenceInfo, Entity>());
+    }
+
+    @Test
+    public void removedClassifiablesAreEvicted() throws Exception
+    {
+        final Allocatable[] allocatables = facade.getAllocatables();
+        Assert.assertTrue(allocatables.length > 1);
+        treeFactory.createClassifiableModel(allocatables, false);
+        final int count = treeFactory.getSortKeyCount();
+        Assert.assertTrue(count > 1);
+
+        UpdateResult updateResult = createUpdateResult();
+        final Allocatable removed = allocatables[0];
+        updateResult.addOperation(null, removed, new UpdateResult.Remove(removed.getReference()));
+        treeFactory.updateSortKeys(new ModificationEventImpl(updateResult, null));
+        Assert.assertEquals(count - 1, treeFactory.getSortKeyCount());
+    }
+
+    @Test
+    public void typeChangesClearTheSortNames() throws Exception
+    {
+        treeFactory.createClassifiableModel(facade.getAllocatables(), false);
+        Assert.assertTrue(treeFactory.getSortKeyCount() > 0);
+
+        UpdateResult updateResult = createUpdateResult();
+        final DynamicType type = facade.getAllocatables()[0].getClassification().getType();
+        updateResult.addOperation(type, type, new UpdateResult.Change(type.getReference()));
+        treeFactory.updateSortKeys(new ModificationEventImpl(updateResult, null));
+        Assert.assertEquals(0, treeFactory.getSortKeyCount());
+    }
+}
@@ -0,0 +1,84 @@
+package org.rapla.client.swing.internal.view;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.client.RaplaTreeNode;
+import org.rapla.client.swing.internal.view.TreeItemFactorySwing.NamedNodeImpl;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreeNode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+@RunWith(JUnit4.class)
+public class RaplaSwingTreeModelTest
+{
+    private RaplaTreeNode node(String name, RaplaTreeNode... children)
+    {
+        RaplaTreeNode node = new NamedNodeImpl(name, Locale.ENGLISH);
+        for (RaplaTreeNode child : children)
+        {
+            node.add(child);
+        }
+        return node;
+    }
+
+    @Test
+    public void updateKeepsUnchangedNodes()
+    {
+        RaplaTreeNode a = node("a");
+        RaplaTreeNode b = node("b");
+        RaplaTreeNode type = node("type", a, b);
+        RaplaSwingTreeModel model = new RaplaSwingTreeModel(node("", type));
+        final List<String> events = new ArrayList<>();
+        model.addTreeModelListener(new TreeModelListener()
+        {
+            public void treeNodesChanged(TreeModelEvent e)
+            {
+                events.add("changed");
+            }
+
+            public void treeNodesInserted(TreeModelEvent e)
+            {
+                events.add("inserted " + e.getChildren()[0]);
+            }
+
+            public void treeNodesRemoved(TreeModelEvent e)
+            {
+                events.add("removed " + e.getChildren()[0]);
+            }
+
+            public void treeStructureChanged(TreeModelEvent e)
+            {
+                events.add("structure");
+            }
+        });
+
+        model.update(node("", node("type", node("b"), node("c"))));
+
+        TreeNode root = (TreeNode) model.getRoot();
+        Assert.assertSame(type, root.getChildAt(0));
+        Assert.assertEquals(2, ((TreeNode) type).getChildCount());
+        Assert.assertSame(b, type.getChild(0));
+        Assert.assertEquals("c", type.getChild(1).getUserObject());
+        Assert.assertEquals("[removed a, inserted c]", events.toString());
+    }
+
+    @Test
+    public void updateMovesReorderedNodes()
+    {
+        RaplaTreeNode a = node("a");
+        RaplaTreeNode b = node("b");
+        RaplaTreeNode root = node("", a, b);
+        RaplaSwingTreeModel model = new RaplaSwingTreeModel(root);
+
+        model.update(node("", node("b"), node("a")));
+
+        Assert.assertSame(b, root.getChild(0));
+        Assert.assertSame(a, root.getChild(1));
+    }
+}
@@ -0,0 +1,142 @@
+package org.rapla.entities.tests;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.components.util.DateTools;
+import org.rapla.entities.domain.Appointment;
+import org.rapla.entities.domain.AppointmentBlock;
+import org.rapla.entities.domain.RepeatingType;
+import org.rapla.entities.domain.internal.AppointmentBlockBuffer;
+import org.rapla.entities.domain.internal.AppointmentImpl;
+import org.rapla.logger.Logger;
+import org.rapla.plugin.abstractcalendar.RaplaBuilder;
+import org.rapla.test.util.RaplaTestCase;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Compares the allocated bytes and the garbage collections of expanding repeating appointments into block objects with expanding them
+ * into an {@link AppointmentBlockBuffer}, once for the conflict calculation of five years and once for a calendar week that is split into days.
+ * The results are written to the log. This is a benchmark, so it is not part of the unit tests and has to be started manually.
+ */
+@Ignore
+@RunWith(JUnit4.class)
+public class AppointmentBlockAllocationTest
+{
+    static final int APPOINTMENTS = 2000;
+    static final int WEEKS = 260;
+    static final int ROUNDS = 20;
+
+    final Logger logger = RaplaTestCase.initLoger();
+    final long start = DateTools.cutDate(System.currentTimeMillis());
+
+    private List<Appointment> createAppointments()
+    {
+        List<Appointment> appointments = new ArrayList<>();
+        for (int i = 0; i < APPOINTMENTS; i++)
+        {
+            // every second appointment ends on the next day, so its blocks are split in the calendar
+            final long appointmentStart = start + (i % 7) * DateTools.MILLISECONDS_PER_DAY + (8 + i % 12) * DateTools.MILLISECONDS_PER_HOUR;
+            final long duration = (i % 2 == 0 ? 2 : 20) * DateTools.MILLISECONDS_PER_HOUR;
+            Appointment appointment = new AppointmentImpl(new Date(appointmentStart), new Date(appointmentStart + duration));
+            appointment.setRepeatingEnabled(true);
+            appointment.getRepeating().setType(RepeatingType.WEEKLY);
+            appointment.getRepeating().setNumber(WEEKS);
+            appointments.add(appointment);
+        }
+        return appointments;
+    }
+
+    private static long getAllocatedBytes()
+    {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long getCollectionCount()
+    {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            count += Math.max(0, bean.getCollectionCount());
+        }
+        return count;
+    }
+
+    /** runs the task and returns the allocated bytes per round */
+    private long measure(String name, Runnable task)
+    {
+        // warm up
+        task.run();
+        System.gc();
+        final long collections = getCollectionCount();
+        final long allocated = getAllocatedBytes();
+        final long time = System.currentTimeMillis();
+        for (int i = 0; i < ROUNDS; i++)
+        {
+            task.run();
+        }
+        final long bytesPerRound = (getAllocatedBytes() - allocated) / ROUNDS;
+        logger.info(name + ": " + bytesPerRound / 1024 + " KB per round, " + (getCollectionCount() - collections) + " collections, "
+                + (System.currentTimeMillis() - time) / ROUNDS + " ms per round");
+        return bytesPerRound;
+    }
+
+    @Test
+    public void expandingIntoTheBufferAllocatesLessThanBlockObjects()
+    {
+        final List<Appointment> appointments = createAppointments();
+        final long end = start + WEEKS * DateTools.MILLISECONDS_PER_WEEK;
+        final AppointmentBlockBuffer buffer = new AppointmentBlockBuffer();
+        final long objects = measure("block objects", () ->
+        {
+            List<AppointmentBlock> blocks = new ArrayList<>();
+            for (Appointment appointment : appointments)
+            {
+                appointment.createBlocks(new Date(start), new Date(end), blocks);
+            }
+        });
+        final long buffered = measure("block buffer", () ->
+        {
+            buffer.clear();
+            for (Appointment appointment : appointments)
+            {
+                ((AppointmentImpl) appointment).createBlocks(start, end, buffer, true);
+            }
+        });
+        Assert.assertTrue(buffered < objects);
+    }
+
+    @Test
+    public void splittingTheBufferAllocatesLessThanSplittingBlockObjects()
+    {
+        final List<Appointment> appointments = createAppointments();
+        final Date weekStart = new Date(start + 100 * DateTools.MILLISECONDS_PER_WEEK);
+        final Date weekEnd = new Date(weekStart.getTime() + DateTools.MILLISECONDS_PER_WEEK);
+        final long objects = measure("split block objects", () ->
+        {
+            List<AppointmentBlock> blocks = new ArrayList<>();
+            for (Appointment appointment : appointments)
+            {
+                appointment.createBlocks(weekStart, weekEnd, blocks);
+            }
+            RaplaBuilder.splitBlocks(blocks, weekStart, weekEnd, 0);
+        });
+        final long buffered = measure("split block buffer", () ->
+        {
+            AppointmentBlockBuffer blocks = new AppointmentBlockBuffer();
+            for (Appointment appointment : appointments)
+            {
+                ((AppointmentImpl) appointment).createBlocks(weekStart.getTime(), weekEnd.getTime(), blocks, true);
+            }
+            RaplaBuilder.splitBlocks(blocks, weekStart, weekEnd, 0);
+        });
+        Assert.assertTrue(buffered < objects);
+    }
+}
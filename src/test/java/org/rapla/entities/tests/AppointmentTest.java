@@ -23,6 +23,7 @@ import org.rapla.entities.domain.AppointmentBlock;
 import org.rapla.entities.domain.AppointmentStartComparator;
 import org.rapla.entities.domain.Repeating;
 import org.rapla.entities.domain.RepeatingType;
+import org.rapla.entities.domain.internal.AppointmentBlockBuffer;
 import org.rapla.entities.domain.internal.AppointmentImpl;
 import org.rapla.rest.client.internal.isodate.ISODateTimeFormat;
 
@@ -172,6 +173,38 @@ public class AppointmentTest {
         assertBlock( start, end, block);
     }
 
+    @Test
+    public void testCreateBlocksBuffer()
+    {
+        Appointment a1 = createAppointment("2017-04-26","10:00","12:0");
+        a1.setRepeatingEnabled( true);
+        final Repeating repeating = a1.getRepeating();
+        repeating.setNumber(10);
+        repeating.setType(RepeatingType.DAILY);
+        repeating.addException(createDate("2017-04-28"));
+
+        Date start = createDate("2017-04-27");
+        Date end = createDate("2020-01-01");
+        List<AppointmentBlock> blocks = new ArrayList<>();
+        a1.createBlocks(start, end, blocks);
+        AppointmentBlockBuffer buffer = new AppointmentBlockBuffer(2);
+        ((AppointmentImpl) a1).createBlocks(start.getTime(), end.getTime(), buffer, true);
+        assertEquals(blocks.size(), buffer.size());
+        assertEquals(1, buffer.getAppointmentCount());
+        for (int i = 0; i < blocks.size(); i++)
+        {
+            AppointmentBlock block = blocks.get(i);
+            assertEquals(block.getStart(), buffer.getStart(i));
+            assertEquals(block.getEnd(), buffer.getEnd(i));
+            assertEquals(a1, buffer.getAppointment(i));
+        }
+        int[] byEnd = buffer.getSortedIndices(true);
+        for (int i = 1; i < byEnd.length; i++)
+        {
+            assertTrue(buffer.getEnd(byEnd[i - 1]) <= buffer.getEnd(byEnd[i]));
+        }
+    }
+
     private void assertBlock(Date start, Date end, AppointmentBlock block)
     {
         assertEquals( "Wrong block-start",start,new Date(block.getStart()));
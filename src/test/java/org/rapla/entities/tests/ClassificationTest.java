@@ -34,9 +34,11 @@ import org.rapla.facade.RaplaFacade;
 import org.rapla.framework.RaplaException;
 import org.rapla.test.util.RaplaTestCase;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 
@@ -125,6 +127,73 @@ public class ClassificationTest  {
     	}
     }
 
+	@Test
+	public void testTypedValuesOfPersistantClassification() throws RaplaException {
+		DynamicType type =  facade.newDynamicType(DynamicTypeAnnotations.VALUE_CLASSIFICATION_TYPE_RESOURCE);
+		type.setKey("typed-type");
+		Attribute intAttribute = facade.newAttribute(AttributeType.INT);
+		intAttribute.setKey("int-attribute");
+		type.addAttribute( intAttribute );
+		Attribute dateAttribute = facade.newAttribute(AttributeType.DATE);
+		dateAttribute.setKey("date-attribute");
+		type.addAttribute( dateAttribute );
+		type.getName().setName("en", "typed-type");
+		facade.store( type );
+		type =  facade.getPersistant( type );
+
+		Classification classification = type.newClassification();
+		classification.setValue("name", "typed-resource");
+		Date date = new Date(1499990400000L);
+		classification.setValue("int-attribute", 42L);
+		classification.setValue("date-attribute", date);
+		Allocatable resource = facade.newAllocatable(classification, user);
+		facade.store( resource );
+
+		Classification persistant = facade.getPersistant(resource).getClassification();
+		Assert.assertEquals(42L, persistant.getValue("int-attribute"));
+		Date persistantDate = (Date) persistant.getValue("date-attribute");
+		Assert.assertEquals(date, persistantDate);
+		// the typed values are parsed once and shared by all reads
+		Assert.assertSame(persistantDate, persistant.getValue("date-attribute"));
+		Assert.assertSame(persistant.getValue("int-attribute"), persistant.getValue("int-attribute"));
+		Assert.assertEquals(Arrays.asList(date), new ArrayList<>(persistant.getValues(type.getAttribute("date-attribute"))));
+	}
+
+	@Test
+	public void testResolvedReferencesAreUpdated() throws RaplaException {
+		DynamicType type =  facade.newDynamicType(DynamicTypeAnnotations.VALUE_CLASSIFICATION_TYPE_RESOURCE);
+		type.setKey("reference-type");
+		Attribute referenceAttribute = facade.newAttribute(AttributeType.ALLOCATABLE);
+		referenceAttribute.setKey("reference-attribute");
+		type.addAttribute( referenceAttribute );
+		type.getName().setName("en", "reference-type");
+		facade.store( type );
+		type =  facade.getPersistant( type );
+
+		Classification referencedClassification = type.newClassification();
+		referencedClassification.setValue("name", "referenced");
+		Allocatable referenced = facade.newAllocatable(referencedClassification, user);
+		facade.store( referenced );
+		Classification classification = type.newClassification();
+		classification.setValue("name", "referencing");
+		classification.setValue("reference-attribute", facade.getPersistant(referenced));
+		Allocatable referencing = facade.newAllocatable(classification, user);
+		facade.store( referencing );
+
+		Classification persistant = facade.getPersistant(referencing).getClassification();
+		Allocatable resolved = (Allocatable) persistant.getValue("reference-attribute");
+		Assert.assertEquals(referenced, resolved);
+		Assert.assertSame(resolved, persistant.getValue("reference-attribute"));
+
+		// the stored version of the referenced resource is returned after it changed
+		Allocatable editable = facade.edit(resolved);
+		editable.getClassification().setValue("name", "renamed");
+		facade.store( editable );
+		Allocatable updated = (Allocatable) persistant.getValue("reference-attribute");
+		Assert.assertSame(facade.getPersistant(referenced), updated);
+		Assert.assertEquals("renamed", updated.getClassification().getValue("name"));
+	}
+
 }
 
 
@@ -0,0 +1,58 @@
+package org.rapla.entities.tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.entities.domain.internal.CompiledPermissions;
+import org.rapla.entities.domain.internal.PermissionGroups;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(JUnit4.class)
+public class PermissionGroupsTest
+{
+    @Test
+    public void masksOfTheSameGroupsIntersect()
+    {
+        PermissionGroups permissionGroups = new PermissionGroups();
+        final CompiledPermissions.GroupMask mask1 = permissionGroups.createGroupMask(Arrays.asList("group1", "group2"));
+        final CompiledPermissions.GroupMask mask2 = permissionGroups.createGroupMask(Collections.singleton("group2"));
+        final CompiledPermissions.GroupMask mask3 = permissionGroups.createGroupMask(Collections.singleton("group3"));
+        Assert.assertTrue(mask1.intersects(mask2));
+        Assert.assertFalse(mask1.intersects(mask3));
+        Assert.assertTrue(mask1.isValid(permissionGroups));
+    }
+
+    @Test
+    public void invalidateOutdatesMasks()
+    {
+        PermissionGroups permissionGroups = new PermissionGroups();
+        final CompiledPermissions.GroupMask oldMask = permissionGroups.createGroupMask(Arrays.asList("group1", "group2"));
+        final int version = permissionGroups.getVersion();
+        permissionGroups.invalidate();
+        Assert.assertEquals(version + 1, permissionGroups.getVersion());
+        Assert.assertFalse(oldMask.isValid());
+        // the numbers are assigned again, so group3 could get the number group1 had before
+        final CompiledPermissions.GroupMask newMask = permissionGroups.createGroupMask(Collections.singleton("group3"));
+        Assert.assertTrue(newMask.isValid());
+        Assert.assertFalse(oldMask.intersects(newMask));
+        Assert.assertTrue(oldMask.intersects(permissionGroups.createGroupMask(Collections.singleton("group2"))));
+    }
+
+    @Test
+    public void masksOfDifferentStoragesCompareGroupIds()
+    {
+        PermissionGroups permissionGroups1 = new PermissionGroups();
+        PermissionGroups permissionGroups2 = new PermissionGroups();
+        final CompiledPermissions.GroupMask mask1 = permissionGroups1.createGroupMask(Collections.singleton("group1"));
+        permissionGroups2.createGroupMask(Collections.singleton("group2"));
+        final CompiledPermissions.GroupMask mask2 = permissionGroups2.createGroupMask(Collections.singleton("group1"));
+        final CompiledPermissions.GroupMask mask3 = permissionGroups2.createGroupMask(Collections.singleton("group2"));
+        Assert.assertFalse(mask1.isValid(permissionGroups2));
+        Assert.assertTrue(mask1.intersects(mask2));
+        // group2 has the same number in the second storage as group1 in the first
+        Assert.assertFalse(mask1.intersects(mask3));
+    }
+}
@@ -0,0 +1,229 @@
+package org.rapla.facade.internal;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.components.util.DateTools;
+import org.rapla.components.util.TimeInterval;
+import org.rapla.entities.User;
+import org.rapla.entities.configuration.Preferences;
+import org.rapla.entities.domain.Allocatable;
+import org.rapla.entities.domain.Appointment;
+import org.rapla.entities.domain.RepeatingType;
+import org.rapla.entities.domain.Reservation;
+import org.rapla.entities.dynamictype.DynamicTypeAnnotations;
+import org.rapla.facade.RaplaFacade;
+import org.rapla.framework.RaplaException;
+import org.rapla.logger.Logger;
+import org.rapla.storage.StorageOperator;
+import org.rapla.test.util.RaplaTestCase;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@RunWith(JUnit4.class)
+public class CalendarModelImplCacheTest
+{
+    RaplaFacade facade;
+    Logger logger;
+    User user;
+    Allocatable resource;
+    Reservation reservation;
+    Date today;
+    // the intervals of the queries that were sent to the storage
+    final List<TimeInterval> queries = Collections.synchronizedList(new ArrayList<>());
+    StorageOperator countingOperator;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        logger = RaplaTestCase.initLoger();
+        facade = RaplaTestCase.createFacadeWithFile(logger, "/testdefault.xml");
+        user = facade.getUser("homer");
+        today = new Date(DateTools.cutDate(System.currentTimeMillis()));
+        Allocatable newResource = facade.newAllocatable(facade.getDynamicTypes(DynamicTypeAnnotations.VALUE_CLASSIFICATION_TYPE_RESOURCE)[0].newClassification(), user);
+        newResource.getClassification().setValue("name", "calendarCacheTest");
+        facade.store(newResource);
+        resource = facade.getOperator().resolve(newResource.getReference());
+
+        // one appointment per day in the first week and in the sixth week
+        Reservation newReservation = facade.newReservation(facade.getDynamicTypes(DynamicTypeAnnotations.VALUE_CLASSIFICATION_TYPE_RESERVATION)[0].newClassification(), user);
+        newReservation.getClassification().setValue("name", "calendarCacheTest");
+        for (int week : new int[] { 0, 5 })
+        {
+            for (int day = 0; day < 7; day++)
+            {
+                final Date date = DateTools.addDays(today, week * 7 + day);
+                final Date start = new Date(date.getTime() + DateTools.MILLISECONDS_PER_HOUR * 10);
+                final Date end = new Date(date.getTime() + DateTools.MILLISECONDS_PER_HOUR * 11);
+                newReservation.addAppointment(facade.newAppointmentWithUser(start, end, user));
+            }
+        }
+        newReservation.addAllocatable(resource);
+        facade.store(newReservation);
+        reservation = facade.getOperator().resolve(newReservation.getReference());
+
+        final StorageOperator operator = facade.getOperator();
+        countingOperator = (StorageOperator) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { StorageOperator.class }, (proxy, method, args) -> {
+            if (method.getName().equals("queryAppointments") && method.getParameterTypes()[5] == String.class)
+            {
+                queries.add(new TimeInterval((Date) args[2], (Date) args[3]));
+            }
+            try
+            {
+                return method.invoke(operator, args);
+            }
+            catch (InvocationTargetException e)
+            {
+                throw e.getCause();
+            }
+        });
+    }
+
+    private CalendarModelImpl createModel() throws RaplaException
+    {
+        CalendarModelImpl model = new CalendarModelImpl(Locale.getDefault(), user, countingOperator, logger);
+        model.setSelectedObjects(Collections.singleton(resource));
+        model.setCachingEnabled(true);
+        return model;
+    }
+
+    private TimeInterval days(int startDay, int endDay)
+    {
+        return new TimeInterval(DateTools.addDays(today, startDay), DateTools.addDays(today, endDay));
+    }
+
+    private Collection<Appointment> query(CalendarModelImpl model, TimeInterval interval) throws RaplaException
+    {
+        return CalendarModelImpl.getAllAppointments(RaplaTestCase.waitForWithRaplaException(model.queryAppointmentBindings(interval), 10000));
+    }
+
+    private int countQueries(TimeInterval interval)
+    {
+        return Collections.frequency(new ArrayList<>(queries), interval);
+    }
+
+    @Test
+    public void containedIntervalsAreAnsweredFromTheCache() throws RaplaException
+    {
+        CalendarModelImpl model = createModel();
+        final TimeInterval month = days(0, 30);
+        Assert.assertEquals(7, query(model, month).size());
+        Assert.assertEquals(1, countQueries(month));
+
+        final TimeInterval twoDays = days(2, 4);
+        Assert.assertEquals(2, query(model, twoDays).size());
+        Assert.assertEquals(0, countQueries(twoDays));
+
+        // the next month was prefetched with the first query
+        final TimeInterval nextMonth = days(30, 60);
+        Assert.assertEquals(7, query(model, nextMonth).size());
+        Assert.assertEquals(0, countQueries(nextMonth));
+    }
+
+    @Test
+    public void onlyIntervalsOverlappingTheInvalidateIntervalAreQueriedAgain() throws RaplaException
+    {
+        CalendarModelImpl model = createModel();
+        final TimeInterval firstWeek = days(0, 7);
+        final TimeInterval sixthWeek = days(35, 42);
+        query(model, firstWeek);
+        query(model, sixthWeek);
+
+        ModificationEventImpl evt = new ModificationEventImpl();
+        evt.setInvalidateInterval(days(1, 2));
+        evt.addChanged(reservation);
+        model.invalidateCache(evt);
+
+        Assert.assertEquals(7, query(model, firstWeek).size());
+        Assert.assertEquals(2, countQueries(firstWeek));
+        Assert.assertEquals(7, query(model, sixthWeek).size());
+        Assert.assertEquals(1, countQueries(sixthWeek));
+    }
+
+    @Test
+    public void leastRecentlyUsedIntervalsAreRemovedOverBudget() throws Exception
+    {
+        Preferences preferences = facade.edit(facade.getSystemPreferences());
+        preferences.putEntry(CalendarModelImpl.CACHE_BUDGET, 10);
+        facade.store(preferences);
+        CalendarModelImpl model = createModel();
+        final TimeInterval firstWeek = days(0, 7);
+        final TimeInterval sixthWeek = days(35, 42);
+        query(model, firstWeek);
+        query(model, sixthWeek);
+
+        // the size of an interval is known when its query is finished
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (model.getCachedIntervals().contains(firstWeek) && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        final List<TimeInterval> cachedIntervals = model.getCachedIntervals();
+        Assert.assertFalse(cachedIntervals.contains(firstWeek));
+        Assert.assertTrue(cachedIntervals.contains(sixthWeek));
+        Assert.assertEquals(7, query(model, firstWeek).size());
+        Assert.assertEquals(2, countQueries(firstWeek));
+    }
+
+    @Test
+    public void intervalsWithinBudgetAreKept() throws RaplaException
+    {
+        CalendarModelImpl model = createModel();
+        final TimeInterval firstWeek = days(0, 7);
+        final TimeInterval sixthWeek = days(35, 42);
+        query(model, firstWeek);
+        query(model, sixthWeek);
+
+        Assert.assertEquals(7, query(model, firstWeek).size());
+        Assert.assertEquals(1, countQueries(firstWeek));
+    }
+
+    @Test
+    public void filteredIntervalsMatchTheQueryOfTheOperator() throws Exception
+    {
+        // weekly from the third week on with an exception in the fourth week
+        Reservation repeating = facade.newReservation(facade.getDynamicTypes(DynamicTypeAnnotations.VALUE_CLASSIFICATION_TYPE_RESERVATION)[0].newClassification(), user);
+        repeating.getClassification().setValue("name", "calendarCacheTest");
+        final Date date = DateTools.addDays(today, 14);
+        Appointment appointment = facade.newAppointmentWithUser(new Date(date.getTime() + DateTools.MILLISECONDS_PER_HOUR * 10),
+                new Date(date.getTime() + DateTools.MILLISECONDS_PER_HOUR * 11), user);
+        appointment.setRepeatingEnabled(true);
+        appointment.getRepeating().setType(RepeatingType.WEEKLY);
+        appointment.getRepeating().setEnd(DateTools.addDays(today, 29));
+        appointment.getRepeating().addException(DateTools.addDays(today, 21));
+        repeating.addAppointment(appointment);
+        repeating.addAllocatable(resource);
+        facade.store(repeating);
+
+        CalendarModelImpl model = createModel();
+        CalendarModelImpl uncachedModel = createModel();
+        uncachedModel.setCachingEnabled(false);
+        query(model, days(0, 30));
+        // exceptions are not excluded by the query of the operator
+        Assert.assertTrue(query(uncachedModel, days(21, 22)).contains(appointment));
+        queries.clear();
+        // the interval with only the exception date and an interval without appointments
+        for (TimeInterval interval : new TimeInterval[] { days(21, 22), days(8, 9) })
+        {
+            final Map<Allocatable, Collection<Appointment>> cached = RaplaTestCase.waitForWithRaplaException(model.queryAppointmentBindings(interval), 10000);
+            final Map<Allocatable, Collection<Appointment>> uncached = RaplaTestCase
+                    .waitForWithRaplaException(uncachedModel.queryAppointmentBindings(interval), 10000);
+            // only the model without cache sends the query
+            Assert.assertEquals(1, countQueries(interval));
+            Assert.assertEquals(interval.toString(), uncached.keySet(), cached.keySet());
+            Assert.assertEquals(interval.toString(), new HashSet<>(CalendarModelImpl.getAllAppointments(uncached)),
+                    new HashSet<>(CalendarModelImpl.getAllAppointments(cached)));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.rapla.framework.internal;
+
+import io.reactivex.disposables.Disposable;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.logger.ConsoleLogger;
+import org.rapla.server.internal.TimeZoneConverterImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class DefaultSchedulerTest
+{
+    @Test
+    public void blockingTasksDontHoldSchedulerThreads() throws Exception
+    {
+        DefaultScheduler scheduler = new DefaultScheduler(new ConsoleLogger(), new TimeZoneConverterImpl(), DefaultScheduler.BLOCKING_EXECUTOR_VIRTUAL);
+        Assert.assertTrue(scheduler.isBlockingExecutorEnabled());
+        // more blocking tasks than threads of the scheduler
+        final int tasks = 10;
+        final CountDownLatch started = new CountDownLatch(tasks);
+        final CountDownLatch release = new CountDownLatch(1);
+        List<Disposable> schedules = new ArrayList<>();
+        try
+        {
+            for (int i = 0; i < tasks; i++)
+            {
+                schedules.add(scheduler.scheduleBlocking("blocking", () ->
+                {
+                    started.countDown();
+                    release.await();
+                }, 0, 100));
+            }
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(tasks, scheduler.getTaskStatistics().get("blocking").getRunning());
+
+            // the scheduler can still run other tasks
+            final CountDownLatch other = new CountDownLatch(1);
+            schedules.add(scheduler.schedule(other::countDown, 0, 1000));
+            Assert.assertTrue(other.await(5, TimeUnit.SECONDS));
+
+            // running tasks are not started again, the next periods are skipped
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (scheduler.getTaskStatistics().get("blocking").getSkipped() == 0 && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(10);
+            }
+            final DefaultScheduler.TaskStatistics statistics = scheduler.getTaskStatistics().get("blocking");
+            Assert.assertTrue(statistics.getSkipped() > 0);
+            Assert.assertEquals(tasks, statistics.getRunning());
+        }
+        finally
+        {
+            release.countDown();
+            schedules.forEach(Disposable::dispose);
+            scheduler.dispose();
+        }
+    }
+}
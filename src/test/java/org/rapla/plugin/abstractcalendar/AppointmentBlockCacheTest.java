@@ -0,0 +1,119 @@
+package org.rapla.plugin.abstractcalendar;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.components.util.DateTools;
+import org.rapla.entities.domain.Appointment;
+import org.rapla.entities.domain.RepeatingType;
+import org.rapla.entities.domain.internal.AppointmentBlockBuffer;
+import org.rapla.entities.domain.internal.AppointmentImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class AppointmentBlockCacheTest
+{
+    final long today = DateTools.cutDate(System.currentTimeMillis());
+    final Date start = new Date(today);
+    final Date end = new Date(today + 4 * DateTools.MILLISECONDS_PER_WEEK);
+
+    private Appointment createWeekly(int hour)
+    {
+        final long appointmentStart = today + hour * DateTools.MILLISECONDS_PER_HOUR;
+        final Appointment appointment = new AppointmentImpl(new Date(appointmentStart), new Date(appointmentStart + DateTools.MILLISECONDS_PER_HOUR));
+        appointment.setRepeatingEnabled(true);
+        appointment.getRepeating().setType(RepeatingType.WEEKLY);
+        appointment.getRepeating().setNumber(10);
+        return appointment;
+    }
+
+    private static List<Long> getStarts(AppointmentBlockBuffer blocks)
+    {
+        final List<Long> starts = new ArrayList<>();
+        for (int i = 0; i < blocks.size(); i++)
+        {
+            starts.add(blocks.getStart(i));
+        }
+        Collections.sort(starts);
+        return starts;
+    }
+
+    @Test
+    public void unchangedAppointmentsKeepTheirBlocks()
+    {
+        final AppointmentBlockCache cache = new AppointmentBlockCache();
+        final Appointment first = createWeekly(8);
+        final Appointment second = createWeekly(10);
+        final List<Appointment> appointments = Arrays.asList(first, second);
+        final AppointmentBlockBuffer blocks = cache.createBlocks(appointments, start, end, false);
+        Assert.assertEquals(8, blocks.size());
+        final AppointmentBlockBuffer cached = cache.entries.get(first).blocks;
+
+        final AppointmentBlockBuffer rebuilt = cache.createBlocks(appointments, start, end, false);
+        Assert.assertSame(cached, cache.entries.get(first).blocks);
+        Assert.assertEquals(getStarts(blocks), getStarts(rebuilt));
+    }
+
+    @Test
+    public void replacedAppointmentsAreExpandedAgain()
+    {
+        final AppointmentBlockCache cache = new AppointmentBlockCache();
+        final Appointment first = createWeekly(8);
+        final Appointment second = createWeekly(10);
+        cache.createBlocks(Arrays.asList(first, second), start, end, false);
+        final AppointmentBlockBuffer secondBlocks = cache.entries.get(second).blocks;
+
+        // a changed appointment is a new instance after the refresh
+        final Appointment changed = createWeekly(12);
+        final AppointmentBlockBuffer blocks = cache.createBlocks(Arrays.asList(changed, second), start, end, false);
+        Assert.assertEquals(8, blocks.size());
+        Assert.assertFalse(cache.entries.containsKey(first));
+        Assert.assertSame(secondBlocks, cache.entries.get(second).blocks);
+        Assert.assertEquals(getStarts(changed), getStarts(cache.entries.get(changed).blocks));
+    }
+
+    private List<Long> getStarts(Appointment appointment)
+    {
+        final AppointmentBlockBuffer blocks = new AppointmentBlockBuffer();
+        ((AppointmentImpl) appointment).createBlocks(start.getTime(), end.getTime(), blocks, false);
+        return getStarts(blocks);
+    }
+
+    @Test
+    public void removedAppointmentsAreDropped()
+    {
+        final AppointmentBlockCache cache = new AppointmentBlockCache();
+        final Appointment first = createWeekly(8);
+        final Appointment second = createWeekly(10);
+        cache.createBlocks(Arrays.asList(first, second), start, end, false);
+
+        final AppointmentBlockBuffer blocks = cache.createBlocks(Collections.singletonList(second), start, end, false);
+        Assert.assertEquals(4, blocks.size());
+        Assert.assertEquals(1, cache.entries.size());
+        Assert.assertFalse(cache.entries.containsKey(first));
+    }
+
+    @Test
+    public void otherIntervalsAreExpandedAgain()
+    {
+        final AppointmentBlockCache cache = new AppointmentBlockCache();
+        final Appointment appointment = createWeekly(8);
+        final List<Appointment> appointments = Collections.singletonList(appointment);
+        cache.createBlocks(appointments, start, end, false);
+        final AppointmentBlockBuffer cached = cache.entries.get(appointment).blocks;
+
+        final Date nextEnd = new Date(end.getTime() + DateTools.MILLISECONDS_PER_WEEK);
+        final AppointmentBlockBuffer blocks = cache.createBlocks(appointments, start, nextEnd, false);
+        Assert.assertEquals(5, blocks.size());
+        Assert.assertNotSame(cached, cache.entries.get(appointment).blocks);
+
+        cache.createBlocks(appointments, start, nextEnd, true);
+        Assert.assertTrue(cache.entries.get(appointment).excludeExceptions);
+    }
+}
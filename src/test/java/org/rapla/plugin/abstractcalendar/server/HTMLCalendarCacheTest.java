@@ -0,0 +1,182 @@
+package org.rapla.plugin.abstractcalendar.server;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.components.util.DateTools;
+import org.rapla.entities.User;
+import org.rapla.entities.configuration.Preferences;
+import org.rapla.entities.domain.Allocatable;
+import org.rapla.entities.domain.Reservation;
+import org.rapla.entities.dynamictype.DynamicTypeAnnotations;
+import org.rapla.facade.RaplaFacade;
+import org.rapla.framework.TypedComponentRole;
+import org.rapla.logger.Logger;
+import org.rapla.test.util.RaplaTestCase;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+@RunWith(JUnit4.class)
+public class HTMLCalendarCacheTest
+{
+    static final TypedComponentRole<String> TEST_ENTRY = new TypedComponentRole<>("org.rapla.HTMLCalendarCacheTest");
+
+    RaplaFacade facade;
+    HTMLCalendarCache cache;
+    User homer;
+    User monty;
+    Allocatable resource;
+    Allocatable otherResource;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Logger logger = RaplaTestCase.initLoger();
+        facade = RaplaTestCase.createFacadeWithFile(logger, "/testdefault.xml");
+        cache = new HTMLCalendarCache(facade, logger);
+        homer = facade.getUser("homer");
+        monty = facade.getUser("monty");
+        final Allocatable[] allocatables = facade.getAllocatables();
+        resource = allocatables[0];
+        otherResource = allocatables[1];
+    }
+
+    /** renders a page like the calendar pages do and returns the stored entry */
+    private HTMLCalendarCache.Entry render(String key, String html, Allocatable allocatable, User user)
+    {
+        Assert.assertNull(cache.get(key));
+        final int version = cache.getVersion();
+        return cache.put(key, version, html, allocatable != null ? Collections.singletonList(allocatable) : null, user);
+    }
+
+    /** the changes are detected by their timestamps, so they must be stored after the last validation */
+    private void waitForNextTimestamp() throws InterruptedException
+    {
+        Thread.sleep(10);
+    }
+
+    @Test
+    public void unchangedPagesAreReturnedFromTheCache()
+    {
+        final HTMLCalendarCache.Entry entry = render("page", "<html>page</html>", resource, homer);
+        Assert.assertSame(entry, cache.get("page"));
+        Assert.assertEquals("<html>page</html>", cache.get("page").getHtml());
+    }
+
+    @Test
+    public void pagesRenderedBeforeAChangeAreNotStored()
+    {
+        Assert.assertNull(cache.get("page"));
+        final int version = cache.getVersion();
+        cache.clear();
+        cache.put("page", version, "<html>outdated</html>", null, homer);
+        Assert.assertNull(cache.get("page"));
+    }
+
+    @Test
+    public void eTagOfTheCachedPageMatchesTheRevalidation()
+    {
+        final HTMLCalendarCache.Entry entry = render("page", "<html>page</html>", resource, homer);
+        final String eTag = cache.get("page").getETag();
+        Assert.assertEquals(entry.getETag(), eTag);
+        // a matching If-None-Match header is answered with 304 Not Modified
+        Assert.assertTrue(entry.matches(eTag));
+        Assert.assertTrue(entry.matches("\"other\", " + eTag));
+        Assert.assertTrue(entry.matches("*"));
+        Assert.assertFalse(entry.matches(null));
+        Assert.assertFalse(entry.matches("\"other\""));
+
+        final HTMLCalendarCache.Entry changed = render("changed", "<html>changed page</html>", resource, homer);
+        Assert.assertNotEquals(eTag, changed.getETag());
+        Assert.assertFalse(changed.matches(eTag));
+    }
+
+    @Test
+    public void reservationChangesRemoveThePagesOfTheirAllocatables() throws Exception
+    {
+        final HTMLCalendarCache.Entry resourcePage = render("resource", "<html>resource</html>", resource, homer);
+        final HTMLCalendarCache.Entry otherPage = render("other", "<html>other</html>", otherResource, homer);
+        render("all", "<html>all</html>", null, homer);
+        Assert.assertSame(resourcePage, cache.get("resource"));
+
+        waitForNextTimestamp();
+        final Reservation reservation = facade.newReservation(facade.getDynamicTypes(DynamicTypeAnnotations.VALUE_CLASSIFICATION_TYPE_RESERVATION)[0].newClassification(), homer);
+        reservation.getClassification().setValue("name", "cacheTest");
+        final Date start = new Date(DateTools.cutDate(System.currentTimeMillis()) + DateTools.MILLISECONDS_PER_DAY + 10 * DateTools.MILLISECONDS_PER_HOUR);
+        reservation.addAppointment(facade.newAppointmentWithUser(start, new Date(start.getTime() + DateTools.MILLISECONDS_PER_HOUR), homer));
+        reservation.addAllocatable(resource);
+        facade.store(reservation);
+
+        Assert.assertNull(cache.get("resource"));
+        Assert.assertNull(cache.get("all"));
+        Assert.assertSame(otherPage, cache.get("other"));
+    }
+
+    @Test
+    public void preferenceChangesRemoveOnlyThePagesOfTheUser() throws Exception
+    {
+        render("homer", "<html>homer</html>", resource, homer);
+        final HTMLCalendarCache.Entry montyPage = render("monty", "<html>monty</html>", resource, monty);
+
+        waitForNextTimestamp();
+        final Preferences preferences = facade.edit(facade.getPreferences(homer));
+        preferences.putEntry(TEST_ENTRY, "changed");
+        facade.store(preferences);
+
+        Assert.assertNull(cache.get("homer"));
+        Assert.assertSame(montyPage, cache.get("monty"));
+    }
+
+    @Test
+    public void systemPreferenceChangesRemoveAllPages() throws Exception
+    {
+        render("homer", "<html>homer</html>", resource, homer);
+        render("monty", "<html>monty</html>", otherResource, monty);
+
+        waitForNextTimestamp();
+        final Preferences preferences = facade.edit(facade.getSystemPreferences());
+        preferences.putEntry(TEST_ENTRY, "changed");
+        facade.store(preferences);
+
+        Assert.assertNull(cache.get("homer"));
+        Assert.assertNull(cache.get("monty"));
+    }
+
+    @Test
+    public void keysIgnoreTheDateParameters()
+    {
+        final Map<String, String[]> parameters = new HashMap<>();
+        parameters.put("user", new String[] { "homer" });
+        parameters.put("file", new String[] { "calendar" });
+        final HttpServletRequest request = createRequest(parameters);
+        final Map<String, String[]> navigated = new HashMap<>(parameters);
+        navigated.put("next", new String[] { "1" });
+        final Date day = new Date(DateTools.cutDate(System.currentTimeMillis()));
+        final String key = cache.createKey(getClass(), request, day, day);
+        Assert.assertEquals(key, cache.createKey(getClass(), createRequest(navigated), day, day));
+        Assert.assertNotEquals(key, cache.createKey(getClass(), request, DateTools.addDay(day), day));
+    }
+
+    private HttpServletRequest createRequest(Map<String, String[]> parameters)
+    {
+        return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { HttpServletRequest.class }, (proxy, method, args) ->
+        {
+            switch (method.getName())
+            {
+                case "getRequestURI":
+                    return "/rapla/calendar";
+                case "getParameterMap":
+                    return parameters;
+                default:
+                    return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,171 @@
+package org.rapla.plugin.tableview;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+@RunWith(JUnit4.class)
+public class RaplaTableModelTest
+{
+    static class Row
+    {
+        final int id;
+        final String name;
+        final Integer size;
+
+        Row(int id, String name, Integer size)
+        {
+            this.id = id;
+            this.name = name;
+            this.size = size;
+        }
+
+        @Override
+        public String toString()
+        {
+            return id + " " + name + " " + size;
+        }
+    }
+
+    static class Column implements RaplaTableColumn<Row>
+    {
+        final String name;
+        final Class<?> columnClass;
+        final Function<Row, Object> value;
+
+        Column(String name, Class<?> columnClass, Function<Row, Object> value)
+        {
+            this.name = name;
+            this.columnClass = columnClass;
+            this.value = value;
+        }
+
+        @Override
+        public String getColumnName()
+        {
+            return name;
+        }
+
+        @Override
+        public Object getValue(Row object)
+        {
+            return value.apply(object);
+        }
+
+        @Override
+        public Class<?> getColumnClass()
+        {
+            return columnClass;
+        }
+
+        @Override
+        public TableColumnType getType()
+        {
+            return columnClass.equals(String.class) ? TableColumnType.STRING : TableColumnType.INTEGER;
+        }
+
+        @Override
+        public String getHtmlValue(Row object)
+        {
+            final Object result = getValue(object);
+            return result != null ? result.toString() : "";
+        }
+    }
+
+    final Column nameColumn = new Column("name", String.class, (row) -> row.name);
+    final Column sizeColumn = new Column("size", Integer.class, (row) -> row.size);
+    final Comparator<Row> byId = (r1, r2) -> Integer.compare(r1.id, r2.id);
+
+    private List<Row> createRows()
+    {
+        // no null values, because a row with a null value is compared by the next column and the order of such rows depends on the sort algorithm
+        final String[] names = { "alpha", "Alpha", "beta", "BETA", "gamma" };
+        final Random random = new Random(42);
+        List<Row> rows = new ArrayList<>();
+        for (int id = 0; id < 200; id++)
+        {
+            rows.add(new Row(id, names[random.nextInt(names.length)], random.nextInt(4)));
+        }
+        Collections.shuffle(rows, random);
+        return rows;
+    }
+
+    /** the comparison of the rows as it was before the values were computed once per row */
+    private List<Row> sortByComparingValues(List<Row> rows, Map<RaplaTableColumn<Row>, Integer> sortDirections)
+    {
+        List<Row> result = new ArrayList<>(rows);
+        result.sort((o1, o2) -> {
+            if (o2.equals(o1))
+            {
+                return 0;
+            }
+            for (Map.Entry<RaplaTableColumn<Row>, Integer> entry : sortDirections.entrySet())
+            {
+                final RaplaTableColumn<Row> column = entry.getKey();
+                final int direction = entry.getValue();
+                final Object v1 = column.getValue(o1);
+                final Object v2 = column.getValue(o2);
+                if (v1 != null && v2 != null)
+                {
+                    if (column.getColumnClass().equals(String.class))
+                    {
+                        return String.CASE_INSENSITIVE_ORDER.compare(v1.toString(), v2.toString()) * direction;
+                    }
+                    else if (v1 instanceof Comparable)
+                    {
+                        return ((Comparable) v1).compareTo(v2) * direction;
+                    }
+                }
+            }
+            return byId.compare(o1, o2);
+        });
+        return result;
+    }
+
+    private Map<RaplaTableColumn<Row>, Integer> directions(Object... columnsAndDirections)
+    {
+        Map<RaplaTableColumn<Row>, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < columnsAndDirections.length; i += 2)
+        {
+            result.put((Column) columnsAndDirections[i], (Integer) columnsAndDirections[i + 1]);
+        }
+        return result;
+    }
+
+    @Test
+    public void orderingIsTheSameAsComparingTheValues()
+    {
+        final List<Row> rows = createRows();
+        final List<Map<RaplaTableColumn<Row>, Integer>> sortings = Arrays.asList(directions(), directions(nameColumn, 1), directions(sizeColumn, -1),
+                directions(nameColumn, -1, sizeColumn, 1), directions(sizeColumn, 1, nameColumn, 1));
+        for (Map<RaplaTableColumn<Row>, Integer> sortDirections : sortings)
+        {
+            Assert.assertEquals(sortDirections.toString(), sortByComparingValues(rows, sortDirections), RaplaTableModel.sortRows(rows, sortDirections, byId));
+        }
+    }
+
+    @Test
+    public void stringColumnsIgnoreTheCase()
+    {
+        final List<Row> rows = Arrays.asList(new Row(0, "beta", 1), new Row(1, "Gamma", 2), new Row(2, "Alpha", 3), new Row(3, "alpha", 1));
+        final List<Row> sorted = RaplaTableModel.sortRows(rows, directions(nameColumn, -1), byId);
+        final List<Integer> ids = new ArrayList<>();
+        for (Row row : sorted)
+        {
+            ids.add(row.id);
+        }
+        // rows with equal values keep their order
+        Assert.assertEquals(Arrays.asList(1, 0, 2, 3), ids);
+    }
+}
@@ -0,0 +1,145 @@
+package org.rapla.rest.server;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.entities.domain.Allocatable;
+import org.rapla.entities.domain.internal.AllocatableImpl;
+import org.rapla.framework.RaplaException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+@RunWith(JUnit4.class)
+public class EntityPageTest
+{
+    static final int ENTITIES = 250;
+
+    final NavigableMap<String, Allocatable> storage = new TreeMap<>();
+    final List<String> reads = new ArrayList<>();
+    final EntityPage.Source<Allocatable> source = (afterId, count) ->
+    {
+        reads.add(afterId);
+        final Collection<Allocatable> values = (afterId != null ? storage.tailMap(afterId, false) : storage).values();
+        final List<Allocatable> result = new ArrayList<>();
+        for (Allocatable allocatable : values)
+        {
+            if (result.size() >= count)
+            {
+                break;
+            }
+            result.add(allocatable);
+        }
+        return result;
+    };
+
+    @Before
+    public void setUp()
+    {
+        final Date now = new Date();
+        // the insertion order differs from the order of the ids
+        for (int i = ENTITIES - 1; i >= 0; i--)
+        {
+            AllocatableImpl allocatable = new AllocatableImpl(now, now);
+            allocatable.setId(String.format("a%04d", i));
+            storage.put(allocatable.getId(), allocatable);
+        }
+    }
+
+    private List<String> getIds(EntityPage<Allocatable> page) throws RaplaException
+    {
+        final List<String> ids = new ArrayList<>();
+        for (Allocatable allocatable : page.getEntities())
+        {
+            ids.add(allocatable.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void pagesFollowTheCursor() throws RaplaException
+    {
+        final List<String> ids = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do
+        {
+            final EntityPage<Allocatable> page = EntityPage.create(source, (a) -> true, cursor, 30);
+            final List<String> pageIds = getIds(page);
+            Assert.assertTrue(pageIds.size() <= 30);
+            ids.addAll(pageIds);
+            cursor = page.getNextCursor();
+            if (cursor != null)
+            {
+                Assert.assertEquals(pageIds.get(pageIds.size() - 1), cursor);
+            }
+            pages++;
+        }
+        while (cursor != null);
+        Assert.assertEquals(9, pages);
+        Assert.assertEquals(new ArrayList<>(storage.keySet()), ids);
+    }
+
+    @Test
+    public void entitiesBeforeTheCursorDontShiftThePage() throws RaplaException
+    {
+        final EntityPage<Allocatable> first = EntityPage.create(source, (a) -> true, null, 10);
+        final List<String> expected = getIds(EntityPage.create(source, (a) -> true, first.getNextCursor(), 10));
+        storage.remove("a0000");
+        storage.remove("a0005");
+        Assert.assertEquals(expected, getIds(EntityPage.create(source, (a) -> true, first.getNextCursor(), 10)));
+    }
+
+    @Test
+    public void limitCountsOnlyFilteredEntities() throws RaplaException
+    {
+        final List<String> tested = new ArrayList<>();
+        final EntityPage<Allocatable> page = EntityPage.create(source, (a) ->
+        {
+            tested.add(a.getId());
+            return a.getId().endsWith("0");
+        }, null, 3);
+        Assert.assertEquals(3, page.getEntities().size());
+        Assert.assertEquals("a0020", page.getNextCursor());
+        // the filter is tested until the first entity of the next page is found
+        Assert.assertEquals("a0030", tested.get(tested.size() - 1));
+        // the last page has no next cursor
+        final EntityPage<Allocatable> lastPage = EntityPage.create(source, (a) -> a.getId().endsWith("0"), "a0200", 10);
+        Assert.assertEquals(4, lastPage.getEntities().size());
+        Assert.assertNull(lastPage.getNextCursor());
+    }
+
+    @Test
+    public void storageIsReadInChunks() throws Exception
+    {
+        EntityPage.create(source, (a) -> true, null, 10);
+        Assert.assertEquals(1, reads.size());
+
+        reads.clear();
+        final EntityPage<Allocatable> page = EntityPage.create(source, (a) -> true, "a0009", null);
+        // without limit the entities are read when they are written
+        Assert.assertTrue(reads.isEmpty());
+        Assert.assertNull(page.getNextCursor());
+        final List<String> written = new ArrayList<>();
+        page.forEach((allocatable) -> written.add(allocatable.getId()));
+        Assert.assertEquals(ENTITIES - 10, written.size());
+        Assert.assertEquals("a0010", written.get(0));
+        // every chunk starts after the last entity of the previous chunk
+        Assert.assertEquals(3, reads.size());
+        Assert.assertEquals("a0009", reads.get(0));
+        Assert.assertEquals("a0109", reads.get(1));
+        Assert.assertEquals("a0209", reads.get(2));
+    }
+
+    @Test(expected = RaplaException.class)
+    public void limitMustBePositive() throws RaplaException
+    {
+        EntityPage.create(source, (a) -> true, null, 0);
+    }
+}
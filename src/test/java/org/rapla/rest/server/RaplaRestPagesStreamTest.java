@@ -0,0 +1,278 @@
+package org.rapla.rest.server;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.entities.Entity;
+import org.rapla.entities.User;
+import org.rapla.entities.domain.Allocatable;
+import org.rapla.entities.domain.Appointment;
+import org.rapla.entities.domain.Reservation;
+import org.rapla.entities.domain.internal.ReservationImpl;
+import org.rapla.facade.RaplaFacade;
+import org.rapla.facade.internal.CalendarModelImpl;
+import org.rapla.framework.RaplaException;
+import org.rapla.logger.Logger;
+import org.rapla.server.RemoteSession;
+import org.rapla.storage.CachableStorageOperator;
+import org.rapla.storage.PermissionController;
+import org.rapla.test.util.RaplaTestCase;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@RunWith(JUnit4.class)
+public class RaplaRestPagesStreamTest
+{
+    RaplaFacade facade;
+    CachableStorageOperator operator;
+    User user;
+    Logger logger;
+    HttpServletRequest request;
+    final Map<String, String> responseHeaders = new HashMap<>();
+    HttpServletResponse response;
+    RemoteSession session;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        logger = RaplaTestCase.initLoger();
+        facade = RaplaTestCase.createFacadeWithFile(logger, "/testdefault.xml");
+        operator = (CachableStorageOperator) facade.getOperator();
+        user = facade.getUser("homer");
+        request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { HttpServletRequest.class },
+                (proxy, method, args) -> method.getName().equals("getLocale") ? Locale.ENGLISH : null);
+        response = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { HttpServletResponse.class }, (proxy, method, args) ->
+        {
+            if (method.getName().equals("setHeader"))
+            {
+                responseHeaders.put((String) args[0], (String) args[1]);
+            }
+            return null;
+        });
+        session = new RemoteSession()
+        {
+            @Override
+            public Logger getLogger()
+            {
+                return logger;
+            }
+
+            @Override
+            public User checkAndGetUser(HttpServletRequest request)
+            {
+                return user;
+            }
+
+            @Override
+            public boolean isAuthentified(HttpServletRequest request)
+            {
+                return true;
+            }
+
+            @Override
+            public void logout()
+            {
+            }
+        };
+    }
+
+    private RaplaResourcesRestPage createResourcesPage()
+    {
+        RaplaResourcesRestPage page = new RaplaResourcesRestPage(request);
+        page.facade = facade;
+        page.operator = operator;
+        page.session = session;
+        return page;
+    }
+
+    private RaplaEventsRestPage createEventsPage()
+    {
+        RaplaEventsRestPage page = new RaplaEventsRestPage(request);
+        page.facade = facade;
+        page.operator = operator;
+        page.session = session;
+        return page;
+    }
+
+    private List<JsonObject> readLines(Response response) throws Exception
+    {
+        Assert.assertEquals(EntityPage.APPLICATION_NDJSON, response.getMediaType().toString());
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(out);
+        final List<JsonObject> result = new ArrayList<>();
+        final JsonParser parser = new JsonParser();
+        for (String line : new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n"))
+        {
+            if (!line.isEmpty())
+            {
+                result.add(parser.parse(line).getAsJsonObject());
+            }
+        }
+        return result;
+    }
+
+    private List<String> getIds(List<JsonObject> lines)
+    {
+        final List<String> ids = new ArrayList<>();
+        for (JsonObject line : lines)
+        {
+            ids.add(line.get(EntityProjection.ID).getAsString());
+        }
+        return ids;
+    }
+
+    private <T extends Entity> List<String> getReadableIds(Collection<T> entities)
+    {
+        final PermissionController permissionController = facade.getPermissionController();
+        final List<String> ids = new ArrayList<>();
+        for (T entity : entities)
+        {
+            if (entity instanceof Allocatable ? permissionController.canRead((Allocatable) entity, user) : permissionController.canRead((Reservation) entity, user))
+            {
+                ids.add(entity.getId());
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    @Test
+    public void resourcesStreamWritesTheProjectedFields() throws Exception
+    {
+        final List<String> expected = getReadableIds(operator.getAllocatables(null));
+        Assert.assertTrue(expected.size() > 2);
+        final Response response = createResourcesPage().stream(null, null, null, null, "id,name");
+        Assert.assertNull(response.getHeaderString(EntityPage.NEXT_CURSOR_HEADER));
+        final List<JsonObject> lines = readLines(response);
+        Assert.assertEquals(expected, getIds(lines));
+        for (JsonObject line : lines)
+        {
+            Assert.assertEquals(2, line.entrySet().size());
+            Assert.assertTrue(line.has(EntityProjection.NAME));
+        }
+    }
+
+    @Test
+    public void resourcesStreamPagesWithCursor() throws Exception
+    {
+        final List<String> expected = getReadableIds(operator.getAllocatables(null));
+        final RaplaResourcesRestPage page = createResourcesPage();
+        final List<String> ids = new ArrayList<>();
+        String cursor = null;
+        do
+        {
+            final Response response = page.stream(null, null, cursor, 2, null);
+            final List<JsonObject> lines = readLines(response);
+            Assert.assertTrue(lines.size() <= 2);
+            ids.addAll(getIds(lines));
+            cursor = response.getHeaderString(EntityPage.NEXT_CURSOR_HEADER);
+        }
+        while (cursor != null);
+        Assert.assertEquals(expected, ids);
+    }
+
+    @Test
+    public void eventsMatchTheAppointmentQuery() throws Exception
+    {
+        final Map<Allocatable, Collection<Appointment>> appMap = operator
+                .waitForWithRaplaException(operator.queryAppointments(null, new ArrayList<>(), null, null, null, (Map<String, String>) null), 10000);
+        final List<String> expected = getReadableIds(CalendarModelImpl.getAllReservations(appMap));
+        Assert.assertTrue(expected.size() > 1);
+        final RaplaEventsRestPage page = createEventsPage();
+
+        final List<JsonObject> lines = readLines(page.stream(null, null, null, null, null, null, null, "id,start,end,resources"));
+        Assert.assertEquals(expected, getIds(lines));
+        for (JsonObject line : lines)
+        {
+            Assert.assertEquals(4, line.entrySet().size());
+            Assert.assertTrue(line.has(EntityProjection.START));
+            Assert.assertTrue(line.get(EntityProjection.RESOURCES).isJsonArray());
+        }
+
+        // the list is paged with the cursor in the response header
+        final List<String> ids = new ArrayList<>();
+        String cursor = null;
+        do
+        {
+            responseHeaders.clear();
+            final List<ReservationImpl> events = page.list(null, null, null, null, null, cursor, 1, response);
+            Assert.assertEquals(1, events.size());
+            ids.add(events.get(0).getId());
+            cursor = responseHeaders.get(EntityPage.NEXT_CURSOR_HEADER);
+        }
+        while (cursor != null);
+        Assert.assertEquals(expected, ids);
+    }
+
+    @Test
+    public void eventsPageAcrossAFilteredQuery() throws Exception
+    {
+        final Map<Allocatable, Collection<Appointment>> allAppointments = operator
+                .waitForWithRaplaException(operator.queryAppointments(null, new ArrayList<>(), null, null, null, (Map<String, String>) null), 10000);
+        // the resource with the most events
+        Allocatable allocatable = null;
+        for (Map.Entry<Allocatable, Collection<Appointment>> entry : allAppointments.entrySet())
+        {
+            if (allocatable == null || entry.getValue().size() > allAppointments.get(allocatable).size())
+            {
+                allocatable = entry.getKey();
+            }
+        }
+        Assert.assertNotNull(allocatable);
+        final List<Date> starts = new ArrayList<>();
+        for (Appointment appointment : allAppointments.get(allocatable))
+        {
+            starts.add(appointment.getStart());
+        }
+        Collections.sort(starts);
+        // the query starts after the first appointment of the resource
+        final Date start = new Date(starts.get(0).getTime() + 1);
+        final Map<Allocatable, Collection<Appointment>> appMap = operator
+                .waitForWithRaplaException(operator.queryAppointments(null, Collections.singletonList(allocatable), start, null, null, (Map<String, String>) null),
+                        10000);
+        final List<String> expected = getReadableIds(CalendarModelImpl.getAllReservations(appMap));
+        Assert.assertFalse(expected.isEmpty());
+
+        final RaplaEventsRestPage page = createEventsPage();
+        final List<String> resources = Collections.singletonList(allocatable.getId());
+        final List<String> ids = new ArrayList<>();
+        String cursor = null;
+        do
+        {
+            responseHeaders.clear();
+            final List<ReservationImpl> events = page.list(start, null, resources, null, null, cursor, 1, response);
+            Assert.assertTrue(events.size() <= 1);
+            for (ReservationImpl event : events)
+            {
+                ids.add(event.getId());
+            }
+            cursor = responseHeaders.get(EntityPage.NEXT_CURSOR_HEADER);
+        }
+        while (cursor != null);
+        Assert.assertEquals(expected, ids);
+    }
+
+    @Test(expected = RaplaException.class)
+    public void unknownFieldsAreRejected() throws Exception
+    {
+        createEventsPage().stream(null, null, null, null, null, null, null, "id,unknown");
+    }
+}
@@ -0,0 +1,156 @@
+package org.rapla.server.internal;
+
+import org.eclipse.jetty.server.Server;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.components.util.DateTools;
+import org.rapla.components.util.TimeInterval;
+import org.rapla.entities.User;
+import org.rapla.entities.domain.Allocatable;
+import org.rapla.entities.domain.Reservation;
+import org.rapla.entities.dynamictype.DynamicTypeAnnotations;
+import org.rapla.facade.RaplaFacade;
+import org.rapla.logger.Logger;
+import org.rapla.rest.JsonParserWrapper;
+import org.rapla.rest.client.swing.HTTPConnector;
+import org.rapla.rest.client.swing.JsonRemoteConnector;
+import org.rapla.storage.dbrm.LoginCredentials;
+import org.rapla.storage.dbrm.LoginTokens;
+import org.rapla.storage.dbrm.RemoteStorage;
+import org.rapla.test.util.RaplaTestCase;
+
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+
+@RunWith(JUnit4.class)
+public class RemoteStorageAvailabilityTest
+{
+    private int port;
+    private Server server;
+    private ServerServiceImpl serviceContainer;
+    private JsonParserWrapper.JsonParser gson;
+    private String token;
+    private Allocatable resource;
+    private Date tomorrow;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Logger logger = RaplaTestCase.initLoger();
+        try (ServerSocket socket = new ServerSocket(0))
+        {
+            port = socket.getLocalPort();
+        }
+        RaplaTestCase.ServerContext context = RaplaTestCase.createServerContext(logger, "/testdefault.xml", port);
+        serviceContainer = (ServerServiceImpl) context.getServiceContainer();
+        server = context.getServer();
+        gson = JsonParserWrapper.defaultJson().get();
+        token = login();
+
+        RaplaFacade facade = serviceContainer.getFacade();
+        User user = facade.getUser("homer");
+        resource = facade.getAllocatables()[0];
+        tomorrow = DateTools.addDays(new Date(DateTools.cutDate(System.currentTimeMillis())), 1);
+        Reservation reservation = facade.newReservation(facade.getDynamicTypes(DynamicTypeAnnotations.VALUE_CLASSIFICATION_TYPE_RESERVATION)[0].newClassification(), user);
+        reservation.getClassification().setValue("name", "availabilityTest");
+        reservation.addAppointment(facade.newAppointmentWithUser(getTime(10), getTime(12), user));
+        reservation.addAllocatable(resource);
+        facade.store(reservation);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        RaplaTestCase.dispose(serviceContainer.getFacade());
+        server.stop();
+    }
+
+    private Date getTime(int hour)
+    {
+        return new Date(tomorrow.getTime() + hour * DateTools.MILLISECONDS_PER_HOUR);
+    }
+
+    @Test
+    public void availabilityOfTheRequestedSlots() throws Exception
+    {
+        final String resourceId = resource.getId();
+        final RemoteStorage.AvailabilityRequest request = new RemoteStorage.AvailabilityRequest(new String[] { resourceId },
+                Arrays.asList(new TimeInterval(getTime(14), getTime(15)), new TimeInterval(getTime(11), getTime(13)), new TimeInterval(getTime(12), getTime(13))),
+                new String[] {});
+        final RemoteStorage.AvailabilityMatrix matrix = getAvailability(request);
+
+        Assert.assertEquals(3, matrix.getSlotCount());
+        Assert.assertEquals(Collections.singleton(resourceId), matrix.getFreeBits().keySet());
+        Assert.assertTrue(matrix.isFree(resourceId, 0));
+        Assert.assertFalse(matrix.isFree(resourceId, 1));
+        // the reservation ends when the slot starts
+        Assert.assertTrue(matrix.isFree(resourceId, 2));
+    }
+
+    @Test
+    public void unknownAllocatablesAndSlotsAreRejected() throws Exception
+    {
+        final String resourceId = resource.getId();
+        final RemoteStorage.AvailabilityRequest request = new RemoteStorage.AvailabilityRequest(new String[] { resourceId },
+                Arrays.asList(new TimeInterval(getTime(14), getTime(15))), new String[] {});
+        final RemoteStorage.AvailabilityMatrix matrix = getAvailability(request);
+        try
+        {
+            matrix.isFree("notRequested", 0);
+            Assert.fail("IllegalArgumentException expected for an allocatable that was not requested");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            Assert.assertTrue(ex.getMessage(), ex.getMessage().contains("notRequested"));
+        }
+        try
+        {
+            // the bit array has room for 32 slots, but only one was requested
+            matrix.isFree(resourceId, 1);
+            Assert.fail("IllegalArgumentException expected for a slot that was not requested");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            Assert.assertTrue(ex.getMessage(), ex.getMessage().contains("Slot 1 "));
+        }
+    }
+
+    @Test
+    public void requestsWithoutAllocatablesAreRejected() throws Exception
+    {
+        final RemoteStorage.AvailabilityRequest request = new RemoteStorage.AvailabilityRequest(new String[] {},
+                Arrays.asList(new TimeInterval(getTime(14), getTime(15))), new String[] {});
+        final String result = sendAvailabilityRequest(request);
+        Assert.assertTrue(result, result.contains("at least one resource"));
+    }
+
+    private RemoteStorage.AvailabilityMatrix getAvailability(RemoteStorage.AvailabilityRequest request) throws Exception
+    {
+        return gson.fromJson(sendAvailabilityRequest(request), RemoteStorage.AvailabilityMatrix.class);
+    }
+
+    private String sendAvailabilityRequest(RemoteStorage.AvailabilityRequest request) throws Exception
+    {
+        final URL url = new URL("http://localhost:" + port + "/rapla/storage/allocatable/availability");
+        final JsonRemoteConnector.CallResult result = new HTTPConnector().sendCallWithString("POST", url, gson.toJson(request), token, "application/json",
+                new HashMap<>());
+        return result.getResult();
+    }
+
+    private String login() throws Exception
+    {
+        final String body = gson.toJson(new LoginCredentials("homer", "duffs", null));
+        final URL loginUrl = new URL("http://localhost:" + port + "/rapla/login");
+        final JsonRemoteConnector.CallResult result = new HTTPConnector().sendCallWithString("POST", loginUrl, body, null, "application/json", new HashMap<>());
+        final LoginTokens tokens = gson.fromJson(result.getResult(), LoginTokens.class);
+        return tokens.getAccessToken();
+    }
+}
@@ -0,0 +1,155 @@
+package org.rapla.server.internal;
+
+import junit.framework.TestCase;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.components.util.SerializableDateTimeFormat;
+import org.rapla.logger.Logger;
+import org.rapla.rest.JsonParserWrapper;
+import org.rapla.rest.client.swing.HTTPConnector;
+import org.rapla.rest.client.swing.JsonRemoteConnector;
+import org.rapla.storage.UpdateEvent;
+import org.rapla.storage.dbrm.LoginCredentials;
+import org.rapla.storage.dbrm.LoginTokens;
+import org.rapla.test.util.RaplaTestCase;
+
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the requests of many clients to a server with a small fixed thread pool and compares the suspended storage requests with their
+ * synchronous variants (resourcesSync, refreshSync), that block a server thread until the result is written. The throughput of both
+ * is written to the log. This is a benchmark, so it is not part of the unit tests and has to be started manually.
+ */
+@Ignore
+@RunWith(JUnit4.class)
+public class RemoteStorageLoadTest
+{
+    static final int SERVER_THREADS = 8;
+    static final int CLIENTS = 48;
+    static final int REQUESTS_PER_CLIENT = 20;
+
+    private int port;
+    private Logger logger;
+    private Server server;
+    private ServerServiceImpl serviceContainer;
+    private String token;
+    private String lastSynched;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        logger = RaplaTestCase.initLoger();
+        try (ServerSocket socket = new ServerSocket(0))
+        {
+            port = socket.getLocalPort();
+        }
+        final QueuedThreadPool threadPool = new QueuedThreadPool(SERVER_THREADS, SERVER_THREADS);
+        threadPool.setName("rapla-load");
+        RaplaTestCase.ServerContext context = RaplaTestCase.createServerContext(logger, "/testdefault.xml", port, threadPool);
+        serviceContainer = (ServerServiceImpl) context.getServiceContainer();
+        server = context.getServer();
+        token = login();
+        final String resources = send("GET", "storage/resourcesSync");
+        final UpdateEvent event = JsonParserWrapper.defaultJson().get().fromJson(resources, UpdateEvent.class);
+        lastSynched = SerializableDateTimeFormat.INSTANCE.formatTimestamp(event.getLastValidated());
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        RaplaTestCase.dispose(serviceContainer.getFacade());
+        server.stop();
+    }
+
+    @Test
+    public void testResourcesThroughput() throws Exception
+    {
+        compare("resources", "GET", "storage/resourcesSync", "storage/resources");
+    }
+
+    @Test
+    public void testRefreshThroughput() throws Exception
+    {
+        compare("refresh", "POST", "storage/refreshSync?lastSynched=" + lastSynched, "storage/refresh?lastSynched=" + lastSynched);
+    }
+
+    private void compare(String name, String method, String syncPath, String asyncPath) throws Exception
+    {
+        // warm up the server before measuring
+        TestCase.assertNotNull(send(method, syncPath));
+        TestCase.assertNotNull(send(method, asyncPath));
+
+        final long syncThroughput = measure(method, syncPath);
+        final long asyncThroughput = measure(method, asyncPath);
+        logger.info(name + ": " + CLIENTS * REQUESTS_PER_CLIENT + " requests of " + CLIENTS + " clients with " + SERVER_THREADS + " server threads. sync "
+                + syncThroughput + " requests/s, suspended " + asyncThroughput + " requests/s");
+        // suspending must not cost more than it saves
+        TestCase.assertTrue("suspended " + asyncThroughput + " requests/s, sync " + syncThroughput + " requests/s", asyncThroughput * 2 >= syncThroughput);
+    }
+
+    /** returns the requests per second */
+    private long measure(String method, String path) throws Exception
+    {
+        final ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        final List<Future<Integer>> results = new ArrayList<>();
+        final long start = System.currentTimeMillis();
+        for (int i = 0; i < CLIENTS; i++)
+        {
+            results.add(clients.submit(() -> {
+                int successful = 0;
+                for (int j = 0; j < REQUESTS_PER_CLIENT; j++)
+                {
+                    final String result = send(method, path);
+                    if (result != null && result.contains("lastValidated"))
+                    {
+                        successful++;
+                    }
+                }
+                return successful;
+            }));
+        }
+        int successful = 0;
+        for (Future<Integer> result : results)
+        {
+            successful += result.get(5, TimeUnit.MINUTES);
+        }
+        final long duration = Math.max(1, System.currentTimeMillis() - start);
+        clients.shutdown();
+        final int requests = CLIENTS * REQUESTS_PER_CLIENT;
+        TestCase.assertEquals(path, requests, successful);
+        return requests * 1000L / duration;
+    }
+
+    private String login() throws Exception
+    {
+        final JsonParserWrapper.JsonParser gson = JsonParserWrapper.defaultJson().get();
+        final String body = gson.toJson(new LoginCredentials("homer", "duffs", null));
+        final URL loginUrl = new URL("http://localhost:" + port + "/rapla/login");
+        final JsonRemoteConnector.CallResult result = new HTTPConnector().sendCallWithString("POST", loginUrl, body, null, "application/json", new HashMap<>());
+        final LoginTokens tokens = gson.fromJson(result.getResult(), LoginTokens.class);
+        return tokens.getAccessToken();
+    }
+
+    private String send(String method, String path) throws Exception
+    {
+        final URL url = new URL("http://localhost:" + port + "/rapla/" + path);
+        final Map<String, String> additionalHeaders = new HashMap<>();
+        final JsonRemoteConnector.CallResult result = new HTTPConnector().sendCallWithString(method, url, null, token, "application/json", additionalHeaders);
+        return result.getResult();
+    }
+}
@@ -0,0 +1,83 @@
+package org.rapla.storage.dbrm;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.components.util.DateTools;
+import org.rapla.entities.domain.Appointment;
+import org.rapla.entities.domain.internal.AppointmentImpl;
+import org.rapla.framework.RaplaException;
+import org.rapla.scheduler.Promise;
+import org.rapla.scheduler.ResolvedPromise;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class BindingsRequestCoalescerTest
+{
+    final long today = DateTools.cutDate(System.currentTimeMillis());
+    final BindingsRequestCoalescer<String> coalescer = new BindingsRequestCoalescer<>();
+
+    private AppointmentImpl createAppointment(String id, int startHour, int endHour)
+    {
+        AppointmentImpl appointment = new AppointmentImpl(new Date(today + startHour * DateTools.MILLISECONDS_PER_HOUR),
+                new Date(today + endHour * DateTools.MILLISECONDS_PER_HOUR));
+        appointment.setId(id);
+        return appointment;
+    }
+
+    @Test
+    public void requestsCoveredByACallShareItsPromise()
+    {
+        final List<Appointment> appointments = Arrays.asList(createAppointment("a1", 10, 11), createAppointment("a2", 12, 13));
+        final Promise<String> promise = new ResolvedPromise<>("bindings");
+        coalescer.add(new String[] { "r1", "r2", "r3" }, appointments, new String[] { "e1" }, promise);
+
+        Assert.assertSame(promise, coalescer.find(new String[] { "r3", "r1" }, appointments.subList(0, 1), new String[] { "e1" }));
+        // other ignored reservations, additional allocatables or appointments are not covered
+        Assert.assertNull(coalescer.find(new String[] { "r1" }, appointments, new String[] {}));
+        Assert.assertNull(coalescer.find(new String[] { "r1", "r4" }, appointments, new String[] { "e1" }));
+        Assert.assertNull(coalescer.find(new String[] { "r1" }, Collections.singletonList(createAppointment("a3", 10, 11)), new String[] { "e1" }));
+    }
+
+    @Test
+    public void changedAppointmentsAreNotCovered()
+    {
+        final AppointmentImpl appointment = createAppointment("a1", 10, 11);
+        coalescer.add(new String[] { "r1" }, Collections.singletonList(appointment), null, new ResolvedPromise<>("bindings"));
+        Assert.assertNotNull(coalescer.find(new String[] { "r1" }, Collections.singletonList(appointment), null));
+
+        // the call compares with the appointment as it was sent
+        appointment.moveTo(new Date(today + 14 * DateTools.MILLISECONDS_PER_HOUR));
+        Assert.assertNull(coalescer.find(new String[] { "r1" }, Collections.singletonList(appointment), null));
+        Assert.assertNotNull(coalescer.find(new String[] { "r1" }, Collections.singletonList(createAppointment("a1", 10, 11)), null));
+    }
+
+    @Test
+    public void finishedCallsExpire()
+    {
+        final List<Appointment> appointments = Collections.singletonList(createAppointment("a1", 10, 11));
+        coalescer.add(new String[] { "r1" }, appointments, null, new ResolvedPromise<>("bindings"));
+        final long now = System.currentTimeMillis();
+        Assert.assertNotNull(coalescer.find(new String[] { "r1" }, appointments, null, now + BindingsRequestCoalescer.TIME_TO_LIVE / 2));
+        Assert.assertNull(coalescer.find(new String[] { "r1" }, appointments, null, now + BindingsRequestCoalescer.TIME_TO_LIVE + 1));
+        // the expired call is removed
+        Assert.assertNull(coalescer.find(new String[] { "r1" }, appointments, null, now));
+    }
+
+    @Test
+    public void failedCallsAreRemoved()
+    {
+        final List<Appointment> appointments = Collections.singletonList(createAppointment("a1", 10, 11));
+        coalescer.add(new String[] { "r1" }, appointments, null, new ResolvedPromise<>(new RaplaException("server not reachable")));
+        Assert.assertNull(coalescer.find(new String[] { "r1" }, appointments, null));
+
+        final Promise<String> retry = new ResolvedPromise<>("bindings");
+        coalescer.add(new String[] { "r1" }, appointments, null, retry);
+        Assert.assertSame(retry, coalescer.find(new String[] { "r1" }, appointments, null));
+    }
+}
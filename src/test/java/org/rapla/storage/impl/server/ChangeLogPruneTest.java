@@ -0,0 +1,107 @@
+package org.rapla.storage.impl.server;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.entities.User;
+import org.rapla.entities.domain.Allocatable;
+import org.rapla.entities.domain.Permission;
+import org.rapla.entities.dynamictype.DynamicTypeAnnotations;
+import org.rapla.entities.storage.ReferenceInfo;
+import org.rapla.facade.RaplaFacade;
+import org.rapla.logger.Logger;
+import org.rapla.storage.UpdateOperation;
+import org.rapla.storage.UpdateResult;
+import org.rapla.test.util.RaplaTestCase;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class ChangeLogPruneTest
+{
+    RaplaFacade facade;
+    LocalAbstractCachableOperator operator;
+    User admin;
+    User monty;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Logger logger = RaplaTestCase.initLoger();
+        facade = RaplaTestCase.createFacadeWithFile(logger, "/testdefault.xml");
+        operator = (LocalAbstractCachableOperator) facade.getOperator();
+        admin = facade.getUser("homer");
+        monty = facade.getUser("monty");
+    }
+
+    private List<ReferenceInfo> getUpdatedReferences(Date since, User user) throws Exception
+    {
+        final UpdateResult updateResult = operator.getUpdateResult(since, user);
+        final List<ReferenceInfo> result = new ArrayList<>();
+        for (UpdateOperation operation : updateResult.getOperations())
+        {
+            result.add(operation.getReference());
+        }
+        return result;
+    }
+
+    @Test
+    public void revokedPermissionsAreSentAfterTheLogIsPruned() throws Exception
+    {
+        Allocatable resource = facade.newAllocatable(facade.getDynamicTypes(DynamicTypeAnnotations.VALUE_CLASSIFICATION_TYPE_RESOURCE)[0].newClassification(), admin);
+        resource.getClassification().setValue("name", "changeLogPruneTest");
+        Permission permission = resource.newPermission();
+        permission.setUser(monty);
+        permission.setAccessLevel(Permission.READ);
+        resource.addPermission(permission);
+        facade.store(resource);
+        final ReferenceInfo<Allocatable> reference = resource.getReference();
+        final Date since = operator.getLastRefreshed();
+        Assert.assertTrue(getUpdatedReferences(new Date(since.getTime() - 1), monty).contains(reference));
+
+        // removes every change that is older than the next buckets
+        operator.removeHistoryBefore(new Date(System.currentTimeMillis() + 2 * ChangeLog.BUCKET_DURATION));
+        while (System.currentTimeMillis() <= since.getTime())
+        {
+            Thread.sleep(1);
+        }
+        Allocatable editable = facade.edit(facade.getOperator().resolve(reference));
+        for (Permission p : new ArrayList<>(editable.getPermissionList()))
+        {
+            if (monty.equals(p.getUser()))
+            {
+                editable.removePermission(p);
+            }
+        }
+        facade.store(editable);
+
+        // monty could read the resource before, so the change must be sent, to let the client remove it
+        Assert.assertTrue(getUpdatedReferences(since, monty).contains(reference));
+    }
+
+    @Test
+    public void onlySupersededChangesArePruned()
+    {
+        ChangeLog<ChangeLog.Entry> log = new ChangeLog<>();
+        final ReferenceInfo<Allocatable> ref1 = new ReferenceInfo<>("r1", Allocatable.class);
+        final ReferenceInfo<Allocatable> ref2 = new ReferenceInfo<>("r2", Allocatable.class);
+        final ChangeLog.Entry latest1 = new ChangeLog.Entry(ref1, 2000, false) {};
+        final ChangeLog.Entry latest2 = new ChangeLog.Entry(ref2, 1000, false) {};
+        log.add(new ChangeLog.Entry(ref1, 1000, false) {});
+        log.add(latest2);
+        log.add(latest1);
+
+        log.removeBefore(10 * ChangeLog.BUCKET_DURATION);
+        Assert.assertEquals(2, log.size());
+        Assert.assertSame(latest1, log.get("r1"));
+        Assert.assertSame(latest2, log.get("r2"));
+        final List<ChangeLog.Entry> changes = log.getChangesAfter(0, (entry) -> true);
+        Assert.assertEquals(2, changes.size());
+        Assert.assertSame(latest2, changes.get(0));
+        Assert.assertSame(latest1, changes.get(1));
+    }
+}
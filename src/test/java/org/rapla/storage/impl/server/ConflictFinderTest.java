@@ -0,0 +1,294 @@
+package org.rapla.storage.impl.server;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.components.util.DateTools;
+import org.rapla.entities.Entity;
+import org.rapla.entities.User;
+import org.rapla.entities.domain.Allocatable;
+import org.rapla.entities.domain.Appointment;
+import org.rapla.entities.domain.RepeatingType;
+import org.rapla.entities.domain.Reservation;
+import org.rapla.entities.dynamictype.DynamicTypeAnnotations;
+import org.rapla.entities.storage.ReferenceInfo;
+import org.rapla.facade.Conflict;
+import org.rapla.facade.RaplaFacade;
+import org.rapla.framework.RaplaException;
+import org.rapla.logger.Logger;
+import org.rapla.storage.UpdateResult;
+import org.rapla.test.util.RaplaTestCase;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+@RunWith(JUnit4.class)
+public class ConflictFinderTest
+{
+    static final int HORIZON_WEEKS = 4;
+
+    RaplaFacade facade;
+    LocalAbstractCachableOperator operator;
+    Logger logger;
+    User user;
+    Allocatable resource;
+    Date today;
+    // conflicts every week from tomorrow on, so it is found within the horizon
+    Conflict repeatingConflict;
+    // conflict that only overlaps after the horizon
+    Appointment lateAppointment;
+    final SortedSet<Appointment> appointments = new TreeSet<>();
+
+    @Before
+    public void setUp() throws Exception
+    {
+        logger = RaplaTestCase.initLoger();
+        facade = RaplaTestCase.createFacadeWithFile(logger, "/testdefault.xml");
+        operator = (LocalAbstractCachableOperator) facade.getOperator();
+        user = facade.getUser("homer");
+        today = new Date(DateTools.cutDate(System.currentTimeMillis()));
+        Allocatable newResource = facade.newAllocatable(facade.getDynamicTypes(DynamicTypeAnnotations.VALUE_CLASSIFICATION_TYPE_RESOURCE)[0].newClassification(), user);
+        newResource.getClassification().setValue("name", "conflictFinderTest");
+        facade.store(newResource);
+        resource = operator.resolve(newResource.getReference());
+
+        final Date tomorrow = DateTools.addDay(today);
+        Reservation repeating1 = storeReservation(tomorrow, true);
+        Reservation repeating2 = storeReservation(tomorrow, true);
+        // 73 days are after the horizon and don't match the weekday of the repeating appointments
+        final Date lateDate = DateTools.addDays(today, 73);
+        Reservation late1 = storeReservation(lateDate, false);
+        Reservation late2 = storeReservation(lateDate, false);
+        for (Reservation reservation : new Reservation[] { repeating1, repeating2, late1, late2 })
+        {
+            Collections.addAll(appointments, reservation.getAppointments());
+        }
+        lateAppointment = late1.getAppointments()[0];
+
+        final Collection<Conflict> conflictsWithinHorizon = createConflictFinder().getConflictsWithinHorizon();
+        Assert.assertEquals(1, conflictsWithinHorizon.size());
+        repeatingConflict = conflictsWithinHorizon.iterator().next();
+    }
+
+    private Reservation storeReservation(Date date, boolean repeating) throws RaplaException
+    {
+        Reservation reservation = facade.newReservation(facade.getDynamicTypes(DynamicTypeAnnotations.VALUE_CLASSIFICATION_TYPE_RESERVATION)[0].newClassification(), user);
+        reservation.getClassification().setValue("name", "conflictFinderTest");
+        final Date start = new Date(date.getTime() + DateTools.MILLISECONDS_PER_HOUR * 10);
+        final Date end = new Date(date.getTime() + DateTools.MILLISECONDS_PER_HOUR * 12);
+        Appointment appointment = facade.newAppointmentWithUser(start, end, user);
+        if (repeating)
+        {
+            appointment.setRepeatingEnabled(true);
+            appointment.getRepeating().setType(RepeatingType.WEEKLY);
+            appointment.getRepeating().setEnd(null);
+        }
+        reservation.addAppointment(appointment);
+        reservation.addAllocatable(resource);
+        facade.store(reservation);
+        return operator.resolve(reservation.getReference());
+    }
+
+    private ConflictFinder createConflictFinder()
+    {
+        AllocationMap allocationMap = new AllocationMap()
+        {
+            @Override
+            public SortedSet<Appointment> getAppointments(Allocatable allocatable)
+            {
+                return allocatable.equals(resource) ? appointments : new TreeSet<>();
+            }
+
+            @Override
+            public Collection<Allocatable> getAllocatables()
+            {
+                return Collections.singleton(resource);
+            }
+        };
+        return new ConflictFinder(allocationMap, today, logger, operator, operator.getPermissionController(), HORIZON_WEEKS);
+    }
+
+    private Set<ReferenceInfo<Conflict>> getIds(Collection<Conflict> conflicts)
+    {
+        Set<ReferenceInfo<Conflict>> result = new HashSet<>();
+        for (Conflict conflict : conflicts)
+        {
+            result.add(conflict.getReference());
+        }
+        return result;
+    }
+
+    @Test
+    public void conflictsAfterTheHorizonAreNotCalculatedEagerly()
+    {
+        ConflictFinder conflictFinder = createConflictFinder();
+        Assert.assertEquals(Collections.singleton(repeatingConflict.getReference()), getIds(conflictFinder.getConflictsWithinHorizon()));
+        Assert.assertTrue(conflictFinder.getCalculatedPartitions(resource.getReference()).isEmpty());
+        // an interval within the horizon doesn't calculate partitions
+        final Collection<Conflict> conflicts = conflictFinder.getConflicts(null, today, DateTools.addDays(today, 7));
+        Assert.assertEquals(Collections.singleton(repeatingConflict.getReference()), getIds(conflicts));
+        Assert.assertTrue(conflictFinder.getCalculatedPartitions(resource.getReference()).isEmpty());
+    }
+
+    @Test
+    public void onlyRequestedPartitionsAreCalculated()
+    {
+        ConflictFinder conflictFinder = createConflictFinder();
+        final Date start = lateAppointment.getStart();
+        final Date end = lateAppointment.getEnd();
+        final Collection<Conflict> conflicts = conflictFinder.getConflicts(null, start, end);
+        Assert.assertEquals(2, conflicts.size());
+        Assert.assertTrue(getIds(conflicts).contains(repeatingConflict.getReference()));
+        final Long partition = ConflictFinder.getPartition(start.getTime());
+        Assert.assertEquals(Collections.singleton(partition), conflictFinder.getCalculatedPartitions(resource.getReference()));
+
+        // the calculated partition is not returned for other intervals
+        final Date otherStart = new Date(ConflictFinder.getNextPartition(partition));
+        final Collection<Conflict> otherConflicts = conflictFinder.getConflicts(null, otherStart, DateTools.addDay(otherStart));
+        Assert.assertEquals(Collections.singleton(repeatingConflict.getReference()), getIds(otherConflicts));
+        Assert.assertEquals(2, conflictFinder.getCalculatedPartitions(resource.getReference()).size());
+    }
+
+    @Test
+    public void findConflictCalculatesThePartitionsOfTheAllocatable()
+    {
+        final Conflict lateConflict = getLateConflict();
+        ConflictFinder conflictFinder = createConflictFinder();
+        Assert.assertEquals(lateConflict, conflictFinder.findConflict(lateConflict.getReference()));
+        Assert.assertFalse(conflictFinder.getCalculatedPartitions(resource.getReference()).isEmpty());
+    }
+
+    @Test
+    public void changedAllocationsUpdateThePartitions() throws RaplaException
+    {
+        ConflictFinder conflictFinder = createConflictFinder();
+        final Conflict lateConflict = getLateConflict();
+        Assert.assertTrue(getIds(conflictFinder.getConflicts(null)).contains(lateConflict.getReference()));
+        final Set<Long> calculatedPartitions = conflictFinder.getCalculatedPartitions(resource.getReference());
+        Assert.assertFalse(calculatedPartitions.isEmpty());
+
+        appointments.remove(lateAppointment);
+        LocalAbstractCachableOperator.UpdateBindingsResult bindingsResult = new LocalAbstractCachableOperator.UpdateBindingsResult();
+        bindingsResult.toUpdate.put(resource.getReference(), null);
+        final Collection<ConflictFinder.ConflictChangeOperation> changes = updateConflicts(conflictFinder, bindingsResult);
+        // the removed conflict after the horizon is sent to the clients
+        Assert.assertTrue(getRemoved(changes).contains(lateConflict.getReference()));
+        Assert.assertEquals(calculatedPartitions, conflictFinder.getCalculatedPartitions(resource.getReference()));
+        final Collection<Conflict> conflicts = conflictFinder.getConflicts(null);
+        Assert.assertEquals(Collections.singleton(repeatingConflict.getReference()), getIds(conflicts));
+        Assert.assertNull(conflictFinder.findConflict(lateConflict.getReference()));
+    }
+
+    @Test
+    public void onlyPartitionsOfTheChangedAppointmentsAreCalculatedAgain() throws RaplaException
+    {
+        ConflictFinder conflictFinder = createConflictFinder();
+        final Conflict lateConflict = getLateConflict();
+        final Long latePartition = ConflictFinder.getPartition(lateAppointment.getStart().getTime());
+        final Date otherStart = new Date(ConflictFinder.getNextPartition(latePartition));
+        conflictFinder.getConflicts(null, lateAppointment.getStart(), lateAppointment.getEnd());
+        conflictFinder.getConflicts(null, otherStart, DateTools.addDay(otherStart));
+        final Set<Long> calculatedPartitions = conflictFinder.getCalculatedPartitions(resource.getReference());
+        Assert.assertEquals(2, calculatedPartitions.size());
+
+        appointments.remove(lateAppointment);
+        LocalAbstractCachableOperator.UpdateBindingsResult bindingsResult = new LocalAbstractCachableOperator.UpdateBindingsResult();
+        AllocationChange change = new AllocationChange();
+        change.toRemove.add(lateAppointment);
+        bindingsResult.toUpdate.put(resource.getReference(), change);
+        Collection<ConflictFinder.ConflictChangeOperation> changes = updateConflicts(conflictFinder, bindingsResult);
+        Assert.assertEquals(Collections.singleton(lateConflict.getReference()), getRemoved(changes));
+        Assert.assertEquals(calculatedPartitions, conflictFinder.getCalculatedPartitions(resource.getReference()));
+
+        // the conflict is added again when the appointment is added again
+        appointments.add(lateAppointment);
+        bindingsResult = new LocalAbstractCachableOperator.UpdateBindingsResult();
+        change = new AllocationChange();
+        change.toChange.add(lateAppointment);
+        bindingsResult.toUpdate.put(resource.getReference(), change);
+        changes = updateConflicts(conflictFinder, bindingsResult);
+        boolean added = false;
+        for (ConflictFinder.ConflictChangeOperation operation : changes)
+        {
+            if (operation.getOperation() instanceof UpdateResult.Add && operation.getNewConflict().equals(lateConflict))
+            {
+                added = true;
+            }
+        }
+        Assert.assertTrue(added);
+        Assert.assertEquals(lateConflict, conflictFinder.findConflict(lateConflict.getReference()));
+    }
+
+    private Collection<ConflictFinder.ConflictChangeOperation> updateConflicts(ConflictFinder conflictFinder, LocalAbstractCachableOperator.UpdateBindingsResult bindingsResult)
+    {
+        final Date now = new Date();
+        return conflictFinder.updateConflicts(bindingsResult, new UpdateResult(now, now, new HashMap<ReferenceInfo, Entity>(), new HashMap<ReferenceInfo, Entity>()), today);
+    }
+
+    private Set<ReferenceInfo> getRemoved(Collection<ConflictFinder.ConflictChangeOperation> changes)
+    {
+        Set<ReferenceInfo> result = new HashSet<>();
+        for (ConflictFinder.ConflictChangeOperation change : changes)
+        {
+            if (change.getOperation() instanceof UpdateResult.Remove)
+            {
+                result.add(change.getOperation().getReference());
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void endedPartitionsAreEvicted()
+    {
+        ConflictFinder conflictFinder = createConflictFinder();
+        final Conflict lateConflict = getLateConflict();
+        final Date start = lateAppointment.getStart();
+        conflictFinder.getConflicts(null, start, lateAppointment.getEnd());
+        final Long partition = ConflictFinder.getPartition(start.getTime());
+        Assert.assertTrue(conflictFinder.getCalculatedPartitions(resource.getReference()).contains(partition));
+
+        final Set<ReferenceInfo<Conflict>> removed = conflictFinder.removeOldConflicts(new Date(ConflictFinder.getNextPartition(partition)));
+        Assert.assertEquals(Collections.singleton(lateConflict.getReference()), removed);
+        Assert.assertFalse(conflictFinder.getCalculatedPartitions(resource.getReference()).contains(partition));
+        Assert.assertEquals(Collections.singleton(repeatingConflict.getReference()), getIds(conflictFinder.getConflicts(null, null, null)));
+    }
+
+    @Test
+    public void pairSetContainsEachPairOnce()
+    {
+        ConflictFinder.PairSet pairs = new ConflictFinder.PairSet();
+        // more pairs than the initial table can hold, so the table is resized
+        for (long pair = 0; pair < 1000; pair++)
+        {
+            Assert.assertTrue(pairs.add(pair * 31));
+        }
+        for (long pair = 0; pair < 1000; pair++)
+        {
+            Assert.assertFalse(pairs.add(pair * 31));
+        }
+        Assert.assertTrue(pairs.add(1));
+        Assert.assertEquals(1001, pairs.size());
+    }
+
+    private Conflict getLateConflict()
+    {
+        for (Conflict conflict : createConflictFinder().getConflicts(null))
+        {
+            if (!conflict.equals(repeatingConflict))
+            {
+                return conflict;
+            }
+        }
+        Assert.fail("No conflict after the horizon found");
+        return null;
+    }
+}
@@ -0,0 +1,190 @@
+package org.rapla.storage.impl.server;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.framework.RaplaException;
+import org.rapla.storage.UpdateEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class DispatchGroupCommitTest
+{
+    final ExecutorService executor = Executors.newCachedThreadPool();
+    final List<List<UpdateEvent>> batches = Collections.synchronizedList(new ArrayList<>());
+    final Set<UpdateEvent> failingEvents = Collections.synchronizedSet(new HashSet<>());
+    final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+    final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+    volatile RaplaException commitException;
+
+    @After
+    public void tearDown()
+    {
+        releaseFirstBatch.countDown();
+        executor.shutdownNow();
+    }
+
+    /** records the batches. The first batch blocks until it is released, so that the other events can be queued */
+    private void dispatchBatch(List<DispatchGroupCommit.Request> batch) throws RaplaException
+    {
+        List<UpdateEvent> events = new ArrayList<>();
+        for (DispatchGroupCommit.Request request : batch)
+        {
+            events.add(request.getEvent());
+            if (failingEvents.contains(request.getEvent()))
+            {
+                request.setException(new RaplaException("event failed"));
+            }
+        }
+        batches.add(events);
+        if (batches.size() == 1)
+        {
+            firstBatchStarted.countDown();
+            try
+            {
+                releaseFirstBatch.await();
+            }
+            catch (InterruptedException e)
+            {
+                throw new RaplaException(e);
+            }
+        }
+        else if (commitException != null)
+        {
+            throw commitException;
+        }
+    }
+
+    private Future<Void> dispatch(DispatchGroupCommit groupCommit, UpdateEvent event)
+    {
+        return executor.submit(() ->
+        {
+            groupCommit.dispatch(event);
+            return null;
+        });
+    }
+
+    /** dispatches the first event and queues the other events while the first batch is processed */
+    private List<Future<Void>> dispatchWhileFirstBatchIsRunning(DispatchGroupCommit groupCommit, UpdateEvent first, UpdateEvent... queued) throws Exception
+    {
+        List<Future<Void>> results = new ArrayList<>();
+        results.add(dispatch(groupCommit, first));
+        Assert.assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+        for (UpdateEvent event : queued)
+        {
+            results.add(dispatch(groupCommit, event));
+        }
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (groupCommit.getPendingCount() < queued.length)
+        {
+            Assert.assertTrue("events not queued", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        releaseFirstBatch.countDown();
+        return results;
+    }
+
+    private Throwable getException(Future<Void> result) throws Exception
+    {
+        try
+        {
+            result.get(5, TimeUnit.SECONDS);
+            return null;
+        }
+        catch (ExecutionException ex)
+        {
+            return ex.getCause();
+        }
+    }
+
+    @Test
+    public void queuedEventsAreDispatchedInOneBatch() throws Exception
+    {
+        DispatchGroupCommit groupCommit = new DispatchGroupCommit(0, this::dispatchBatch);
+        UpdateEvent first = new UpdateEvent();
+        UpdateEvent event1 = new UpdateEvent();
+        UpdateEvent event2 = new UpdateEvent();
+        UpdateEvent event3 = new UpdateEvent();
+        for (Future<Void> result : dispatchWhileFirstBatchIsRunning(groupCommit, first, event1, event2, event3))
+        {
+            Assert.assertNull(getException(result));
+        }
+        Assert.assertEquals(2, batches.size());
+        Assert.assertEquals(Collections.singletonList(first), batches.get(0));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(event1, event2, event3)), new HashSet<>(batches.get(1)));
+        Assert.assertEquals(0, groupCommit.getPendingCount());
+    }
+
+    @Test
+    public void onlyTheFailedEventGetsItsException() throws Exception
+    {
+        DispatchGroupCommit groupCommit = new DispatchGroupCommit(0, this::dispatchBatch);
+        UpdateEvent first = new UpdateEvent();
+        UpdateEvent event1 = new UpdateEvent();
+        UpdateEvent failing = new UpdateEvent();
+        UpdateEvent event2 = new UpdateEvent();
+        failingEvents.add(failing);
+        final List<Future<Void>> results = dispatchWhileFirstBatchIsRunning(groupCommit, first, event1, failing, event2);
+        Assert.assertNull(getException(results.get(0)));
+        Assert.assertNull(getException(results.get(1)));
+        final Throwable exception = getException(results.get(2));
+        Assert.assertTrue(exception instanceof RaplaException);
+        Assert.assertEquals("event failed", exception.getMessage());
+        Assert.assertNull(getException(results.get(3)));
+        Assert.assertEquals(2, batches.size());
+    }
+
+    @Test
+    public void commitFailureFailsAllEventsOfTheBatch() throws Exception
+    {
+        DispatchGroupCommit groupCommit = new DispatchGroupCommit(0, this::dispatchBatch);
+        commitException = new RaplaException("commit failed");
+        UpdateEvent first = new UpdateEvent();
+        UpdateEvent event1 = new UpdateEvent();
+        UpdateEvent failing = new UpdateEvent();
+        failingEvents.add(failing);
+        final List<Future<Void>> results = dispatchWhileFirstBatchIsRunning(groupCommit, first, event1, failing);
+        // the first batch is committed
+        Assert.assertNull(getException(results.get(0)));
+        Assert.assertSame(commitException, getException(results.get(1)));
+        // an event keeps its own exception
+        Assert.assertEquals("event failed", getException(results.get(2)).getMessage());
+
+        // the next dispatch is not affected by the failed batch
+        commitException = null;
+        final UpdateEvent next = new UpdateEvent();
+        Assert.assertNull(getException(dispatch(groupCommit, next)));
+        Assert.assertEquals(Collections.singletonList(next), batches.get(batches.size() - 1));
+    }
+
+    @Test
+    public void aFullBatchIsDispatchedWithoutWaitingForTheWindow() throws Exception
+    {
+        releaseFirstBatch.countDown();
+        DispatchGroupCommit groupCommit = new DispatchGroupCommit(60000, 3, this::dispatchBatch);
+        UpdateEvent event1 = new UpdateEvent();
+        UpdateEvent event2 = new UpdateEvent();
+        UpdateEvent event3 = new UpdateEvent();
+        final List<Future<Void>> results = Arrays.asList(dispatch(groupCommit, event1), dispatch(groupCommit, event2), dispatch(groupCommit, event3));
+        for (Future<Void> result : results)
+        {
+            Assert.assertNull(getException(result));
+        }
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(event1, event2, event3)), new HashSet<>(batches.get(0)));
+    }
+}
@@ -0,0 +1,172 @@
+package org.rapla.storage.impl.server;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.components.util.DateTools;
+import org.rapla.components.util.TimeInterval;
+import org.rapla.entities.Entity;
+import org.rapla.entities.User;
+import org.rapla.entities.domain.Allocatable;
+import org.rapla.entities.domain.Appointment;
+import org.rapla.entities.domain.Permission;
+import org.rapla.entities.domain.RepeatingType;
+import org.rapla.entities.domain.RequestStatus;
+import org.rapla.entities.domain.Reservation;
+import org.rapla.entities.dynamictype.DynamicType;
+import org.rapla.entities.dynamictype.DynamicTypeAnnotations;
+import org.rapla.facade.RaplaFacade;
+import org.rapla.facade.internal.ConflictImpl;
+import org.rapla.logger.Logger;
+import org.rapla.rest.JsonParserWrapper;
+import org.rapla.storage.UpdateEvent;
+import org.rapla.test.util.RaplaTestCase;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+/** pins the json of the streaming entity adapters to the json of the reflective parser */
+@RunWith(JUnit4.class)
+public class EntityJsonParserTest
+{
+    RaplaFacade facade;
+    User admin;
+    JsonParserWrapper.JsonParser reflectiveParser;
+    EntityJsonParser parser;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Logger logger = RaplaTestCase.initLoger();
+        facade = RaplaTestCase.createFacadeWithFile(logger, "/testdefault.xml");
+        admin = facade.getUser("homer");
+        reflectiveParser = JsonParserWrapper.defaultJson().get();
+        parser = new EntityJsonParser(reflectiveParser);
+    }
+
+    /** a reservation that uses every field of the reservations, appointments and permissions */
+    private Reservation createReservation(Allocatable allocatable) throws Exception
+    {
+        final DynamicType eventType = facade.getDynamicTypes(DynamicTypeAnnotations.VALUE_CLASSIFICATION_TYPE_RESERVATION)[0];
+        final Reservation reservation = facade.newReservation(eventType.newClassification(), admin);
+        reservation.getClassification().setValue("name", "json <test> & \"quotes\"");
+        final Date start = new Date(DateTools.cutDate(System.currentTimeMillis()) + 10 * DateTools.MILLISECONDS_PER_HOUR);
+        final Appointment weekly = facade.newAppointmentWithUser(start, new Date(start.getTime() + DateTools.MILLISECONDS_PER_HOUR), admin);
+        weekly.setRepeatingEnabled(true);
+        weekly.getRepeating().setType(RepeatingType.WEEKLY);
+        weekly.getRepeating().setInterval(2);
+        weekly.getRepeating().setWeekdays(new HashSet<>(Arrays.asList(2, 4)));
+        weekly.getRepeating().setEnd(new Date(start.getTime() + 20 * DateTools.MILLISECONDS_PER_WEEK));
+        weekly.getRepeating().addException(new Date(start.getTime() + 2 * DateTools.MILLISECONDS_PER_WEEK));
+        final Appointment wholeDay = facade.newAppointmentWithUser(DateTools.cutDate(start), DateTools.addDay(DateTools.cutDate(start)), admin);
+        wholeDay.setRepeatingEnabled(true);
+        wholeDay.getRepeating().setType(RepeatingType.MONTHLY);
+        wholeDay.getRepeating().setNumber(5);
+        reservation.addAppointment(weekly);
+        reservation.addAppointment(wholeDay);
+        reservation.addAllocatable(allocatable);
+        reservation.setRestriction(allocatable, new Appointment[] { weekly });
+        reservation.setRequestStatus(allocatable, RequestStatus.REQUESTED);
+        reservation.setAnnotation("jsonTest", "value");
+        final Permission permission = reservation.newPermission();
+        permission.setUser(admin);
+        permission.setStart(start);
+        permission.setMinAdvance(1);
+        permission.setMaxAdvance(10);
+        permission.setAccessLevel(Permission.EDIT);
+        reservation.addPermission(permission);
+        return reservation;
+    }
+
+    private List<Entity> getEntities() throws Exception
+    {
+        final List<Entity> result = new ArrayList<>();
+        final Allocatable[] allocatables = facade.getAllocatables();
+        result.addAll(Arrays.asList(allocatables));
+        final List<Reservation> reservations = new ArrayList<>(
+                RaplaTestCase.waitForWithRaplaException(facade.getReservationsForAllocatable(null, null, null, null), 10000));
+        reservations.add(createReservation(allocatables[0]));
+        result.addAll(reservations);
+        for (Reservation reservation : reservations)
+        {
+            result.addAll(Arrays.asList(reservation.getAppointments()));
+        }
+        result.addAll(RaplaTestCase.waitForWithRaplaException(facade.getConflicts(), 10000));
+        final Appointment[] appointments = reservations.get(reservations.size() - 1).getAppointments();
+        result.add(new ConflictImpl(allocatables[0], appointments[0], appointments[1], new Date()));
+        return result;
+    }
+
+    private static JsonElement parse(String json)
+    {
+        return new JsonParser().parse(json);
+    }
+
+    @Test
+    public void entitiesAreWrittenLikeTheReflectiveParser() throws Exception
+    {
+        for (Entity entity : getEntities())
+        {
+            Assert.assertEquals(entity.toString(), parse(reflectiveParser.toJson(entity)), parse(parser.toJson(entity)));
+        }
+    }
+
+    @Test
+    public void entitiesAreReadLikeTheReflectiveParser() throws Exception
+    {
+        for (Entity entity : getEntities())
+        {
+            final String json = reflectiveParser.toJson(entity);
+            final Entity read = parser.fromJson(json, entity.getClass());
+            Assert.assertEquals(entity.getClass(), read.getClass());
+            Assert.assertEquals(entity.toString(), parse(json), parse(reflectiveParser.toJson(read)));
+        }
+    }
+
+    @Test
+    public void updateEventsAreWrittenAndReadLikeTheReflectiveParser() throws Exception
+    {
+        final UpdateEvent event = new UpdateEvent();
+        for (Entity entity : getEntities())
+        {
+            if (!(entity instanceof Appointment))
+            {
+                event.addStore(entity);
+            }
+        }
+        for (User user : facade.getUsers())
+        {
+            event.addStore(user);
+        }
+        event.addStore(facade.getSuperCategory());
+        event.addStore(facade.getSystemPreferences());
+        for (DynamicType type : facade.getDynamicTypes(null))
+        {
+            event.addStore(type);
+        }
+        event.putRemove(facade.getAllocatables()[1]);
+        event.setUserId(admin.getId());
+        event.setLastValidated(new Date());
+        event.setInvalidateInterval(new TimeInterval(new Date(0), new Date()));
+
+        final String json = reflectiveParser.toJson(event);
+        Assert.assertEquals(parse(json), parse(parser.toJson(event)));
+        final UpdateEvent read = parser.fromJson(new StringReader(json), UpdateEvent.class);
+        Assert.assertEquals(parse(json), parse(reflectiveParser.toJson(read)));
+    }
+
+    @Test
+    public void otherObjectsArePassedToTheReflectiveParser()
+    {
+        final TimeInterval interval = new TimeInterval(new Date(0), new Date());
+        Assert.assertEquals(reflectiveParser.toJson(interval), parser.toJson(interval));
+    }
+}
@@ -0,0 +1,96 @@
+package org.rapla.storage.impl.server;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.entities.Entity;
+import org.rapla.entities.domain.Reservation;
+import org.rapla.facade.RaplaFacade;
+import org.rapla.logger.Logger;
+import org.rapla.rest.JsonParserWrapper;
+import org.rapla.test.util.RaplaTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Compares the time of writing and reading the resources and events of the test data with the reflective parser and with the streaming
+ * adapters of the {@link EntityJsonParser}. The results are written to the log. This is a benchmark, so it is not part of the unit tests
+ * and has to be started manually.
+ */
+@Ignore
+@RunWith(JUnit4.class)
+public class EntityJsonRoundTripTest
+{
+    static final int ROUNDS = 2000;
+
+    final Logger logger = RaplaTestCase.initLoger();
+    List<Entity> entities;
+    List<String> jsons;
+    JsonParserWrapper.JsonParser reflectiveParser;
+    EntityJsonParser parser;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        RaplaFacade facade = RaplaTestCase.createFacadeWithFile(logger, "/testdefault.xml");
+        entities = new ArrayList<>();
+        entities.addAll(Arrays.asList(facade.getAllocatables()));
+        for (Reservation reservation : RaplaTestCase.waitForWithRaplaException(facade.getReservationsForAllocatable(null, null, null, null), 10000))
+        {
+            entities.add(reservation);
+        }
+        reflectiveParser = JsonParserWrapper.defaultJson().get();
+        parser = new EntityJsonParser(reflectiveParser);
+        jsons = new ArrayList<>();
+        for (Entity entity : entities)
+        {
+            jsons.add(reflectiveParser.toJson(entity));
+        }
+    }
+
+    /** writes and reads all entities in every round and returns the time per round in microseconds */
+    private long measure(String name, Function<Entity, String> toJson, BiFunction<String, Class<? extends Entity>, Entity> fromJson)
+    {
+        // warm up
+        for (int i = 0; i < ROUNDS / 10; i++)
+        {
+            roundTrip(toJson, fromJson);
+        }
+        final long time = System.nanoTime();
+        int length = 0;
+        for (int i = 0; i < ROUNDS; i++)
+        {
+            length += roundTrip(toJson, fromJson);
+        }
+        final long micros = (System.nanoTime() - time) / 1000 / ROUNDS;
+        logger.info(name + ": " + micros + " µs per round of " + entities.size() + " entities, " + length / ROUNDS + " chars");
+        return micros;
+    }
+
+    private int roundTrip(Function<Entity, String> toJson, BiFunction<String, Class<? extends Entity>, Entity> fromJson)
+    {
+        int length = 0;
+        for (int i = 0; i < entities.size(); i++)
+        {
+            final Entity entity = entities.get(i);
+            length += toJson.apply(entity).length();
+            fromJson.apply(jsons.get(i), entity.getClass());
+        }
+        return length;
+    }
+
+    @Test
+    public void streamingAdaptersAreFasterThanReflection()
+    {
+        final long reflective = measure("reflective parser", reflectiveParser::toJson, reflectiveParser::fromJson);
+        final long streaming = measure("streaming adapters", parser::toJson, parser::fromJson);
+        Assert.assertTrue(streaming < reflective);
+    }
+}
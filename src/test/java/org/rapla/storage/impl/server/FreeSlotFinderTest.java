@@ -0,0 +1,115 @@
+package org.rapla.storage.impl.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.components.util.DateTools;
+import org.rapla.entities.domain.Appointment;
+import org.rapla.entities.domain.internal.AppointmentImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+@RunWith(JUnit4.class)
+public class FreeSlotFinderTest
+{
+    final long today = DateTools.cutDate(System.currentTimeMillis());
+
+    private Appointment createAppointment(int day, int startHour, int endHour)
+    {
+        final long date = today + day * DateTools.MILLISECONDS_PER_DAY;
+        return new AppointmentImpl(new Date(date + startHour * DateTools.MILLISECONDS_PER_HOUR), new Date(date + endHour * DateTools.MILLISECONDS_PER_HOUR));
+    }
+
+    private long getTime(int day, int hour)
+    {
+        return today + day * DateTools.MILLISECONDS_PER_DAY + hour * DateTools.MILLISECONDS_PER_HOUR;
+    }
+
+    private SortedSet<Appointment> createBusyAppointments()
+    {
+        SortedSet<Appointment> busy = new TreeSet<>();
+        busy.add(createAppointment(0, 11, 13));
+        busy.add(createAppointment(0, 12, 13));
+        busy.add(createAppointment(0, 13, 14));
+        busy.add(createAppointment(1, 9, 10));
+        return busy;
+    }
+
+    @Test
+    public void overlappingBlocksAreMerged()
+    {
+        BusyIntervals busyIntervals = new BusyIntervals();
+        busyIntervals.addAppointments(createBusyAppointments(), null, Collections.emptyList(), getTime(0, 0), getTime(2, 0));
+        // adjacent blocks are not merged
+        Assert.assertEquals(3, busyIntervals.size());
+        Assert.assertEquals(getTime(0, 11), busyIntervals.getStart(0));
+        Assert.assertEquals(getTime(0, 13), busyIntervals.getEnd(0));
+        Assert.assertEquals(getTime(0, 13), busyIntervals.getStart(1));
+        Assert.assertEquals(getTime(0, 14), busyIntervals.getEnd(1));
+        Assert.assertEquals(getTime(1, 9), busyIntervals.getStart(2));
+
+        final int index = busyIntervals.next(0, getTime(0, 13));
+        Assert.assertEquals(1, index);
+        Assert.assertTrue(busyIntervals.overlaps(index, getTime(0, 13), getTime(0, 14)));
+        Assert.assertFalse(busyIntervals.overlaps(index, getTime(0, 14), getTime(0, 15)));
+        Assert.assertEquals(3, busyIntervals.next(0, getTime(1, 10)));
+    }
+
+    @Test
+    public void busyIntervalsAreSkippedWithoutCheckingTheCandidates()
+    {
+        final Appointment appointment = createAppointment(0, 10, 11);
+        FreeSlotFinder finder = new FreeSlotFinder(appointment, null, null, null, 1);
+        finder.addBusyAppointments(createBusyAppointments(), Collections.emptyList());
+        final List<Date> checked = new ArrayList<>();
+        final Date freeSlot = finder.findFreeSlot((candidate) -> {
+            checked.add(candidate.getStart());
+            return true;
+        });
+        Assert.assertEquals(new Date(getTime(0, 14)), freeSlot);
+        Assert.assertEquals(Collections.singletonList(freeSlot), checked);
+        // the passed appointment is not moved
+        Assert.assertEquals(new Date(getTime(0, 10)), appointment.getStart());
+    }
+
+    @Test
+    public void candidatesAreVerifiedAndKeptInTheWorktime()
+    {
+        final Appointment appointment = createAppointment(0, 10, 11);
+        FreeSlotFinder finder = new FreeSlotFinder(appointment, 10 * 60, 14 * 60, null, 1);
+        finder.addBusyAppointments(createBusyAppointments(), Collections.emptyList());
+        // 14:00 ends after the worktime, so the next day is searched
+        final Date rejected = new Date(getTime(1, 10));
+        final Date freeSlot = finder.findFreeSlot((candidate) -> !candidate.getStart().equals(rejected));
+        Assert.assertEquals(new Date(getTime(1, 11)), freeSlot);
+    }
+
+    @Test
+    public void severalFreeSlotsAreFoundInOneSearch()
+    {
+        final Appointment appointment = createAppointment(0, 10, 11);
+        FreeSlotFinder finder = new FreeSlotFinder(appointment, 10 * 60, 16 * 60, null, 1);
+        finder.addBusyAppointments(createBusyAppointments(), Collections.emptyList());
+        final Date rejected = new Date(getTime(0, 15));
+        final List<Date> freeSlots = finder.findFreeSlots(4, (candidate) -> !candidate.getStart().equals(rejected));
+        // the busy intervals from 11 to 14 are skipped, the rejected candidate too and the search continues on the next day
+        Assert.assertEquals(Arrays.asList(new Date(getTime(0, 14)), new Date(getTime(1, 10)), new Date(getTime(1, 11)), new Date(getTime(1, 12))),
+                freeSlots);
+        Assert.assertEquals(freeSlots.get(0), finder.findFreeSlot((candidate) -> !candidate.getStart().equals(rejected)));
+    }
+
+    @Test
+    public void noFreeSlotWithinTheSearchPeriod()
+    {
+        FreeSlotFinder finder = new FreeSlotFinder(createAppointment(0, 10, 11), null, null, null, 1);
+        Assert.assertNull(finder.findFreeSlot((candidate) -> false));
+        Assert.assertTrue(finder.findFreeSlots(3, (candidate) -> false).isEmpty());
+    }
+}
@@ -0,0 +1,87 @@
+package org.rapla.storage.impl.server;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.rapla.components.util.DateTools;
+import org.rapla.entities.Entity;
+import org.rapla.entities.User;
+import org.rapla.entities.domain.Allocatable;
+import org.rapla.entities.domain.Appointment;
+import org.rapla.entities.domain.Reservation;
+import org.rapla.entities.dynamictype.DynamicTypeAnnotations;
+import org.rapla.facade.Conflict;
+import org.rapla.facade.RaplaFacade;
+import org.rapla.facade.internal.ConflictImpl;
+import org.rapla.framework.RaplaException;
+import org.rapla.logger.Logger;
+import org.rapla.storage.LocalCache;
+import org.rapla.test.util.RaplaTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class InconsistentEntitiesTest
+{
+    RaplaFacade facade;
+    LocalAbstractCachableOperator operator;
+    User user;
+    Allocatable resource;
+    Date today;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Logger logger = RaplaTestCase.initLoger();
+        facade = RaplaTestCase.createFacadeWithFile(logger, "/testdefault.xml");
+        operator = (LocalAbstractCachableOperator) facade.getOperator();
+        user = facade.getUser("homer");
+        resource = facade.getAllocatables()[0];
+        today = new Date(DateTools.cutDate(System.currentTimeMillis()));
+    }
+
+    private Reservation createReservation(boolean withResource) throws RaplaException
+    {
+        Reservation reservation = facade.newReservation(facade.getDynamicTypes(DynamicTypeAnnotations.VALUE_CLASSIFICATION_TYPE_RESERVATION)[0].newClassification(), user);
+        reservation.getClassification().setValue("name", "inconsistentEntitiesTest");
+        final Date start = new Date(today.getTime() + DateTools.MILLISECONDS_PER_HOUR * 10);
+        final Date end = new Date(today.getTime() + DateTools.MILLISECONDS_PER_HOUR * 12);
+        reservation.addAppointment(facade.newAppointmentWithUser(start, end, user));
+        if (withResource)
+        {
+            reservation.addAllocatable(resource);
+        }
+        return reservation;
+    }
+
+    @Test
+    public void entitiesReferencingRemovedEntitiesAreRemovedInTheNextPass() throws RaplaException
+    {
+        // a reservation without resources is inconsistent
+        final Reservation inconsistent = createReservation(false);
+        final Reservation consistent = createReservation(true);
+        final Appointment appointment1 = inconsistent.getAppointments()[0];
+        final Appointment appointment2 = consistent.getAppointments()[0];
+        // the conflict is consistent until the reservation of its appointment is removed
+        final Conflict conflict = new ConflictImpl(resource, appointment1, appointment2, today);
+
+        LocalCache cache = new LocalCache(operator.getPermissionController());
+        cache.put(resource);
+        final List<Entity> list = new ArrayList<>(Arrays.asList(conflict, inconsistent, consistent));
+        cache.putAll(list);
+        Assert.assertNotNull(cache.tryResolve(conflict.getReference()));
+
+        operator.removeInconsistentEntities(cache, list);
+        Assert.assertEquals(Collections.singletonList(consistent), list);
+        Assert.assertNull(cache.tryResolve(conflict.getReference()));
+        Assert.assertNull(cache.tryResolve(inconsistent.getReference()));
+        Assert.assertNull(cache.tryResolve(appointment1.getReference()));
+        Assert.assertNotNull(cache.tryResolve(consistent.getReference()));
+    }
+}
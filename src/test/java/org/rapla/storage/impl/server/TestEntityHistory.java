@@ -6,6 +6,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.rapla.entities.domain.Allocatable;
+import org.rapla.entities.domain.internal.AllocatableImpl;
 import org.rapla.entities.storage.ReferenceInfo;
 
 import java.util.Date;
@@ -54,4 +55,20 @@ public class TestEntityHistory
         entityHistory.addHistoryEntry(ref,json, timestamp, false);
         Assert.assertEquals(entityHistory.getHistoryList(ref)+"", 1, entityHistory.getHistoryList(ref).size());
     }
+
+    @Test
+    public void readOnlyEntityIsShared()
+    {
+        final Date lastChanged = new Date();
+        final AllocatableImpl resource = new AllocatableImpl(lastChanged, lastChanged);
+        resource.setId("sharedResource");
+        final EntityHistory.HistoryEntry entry = entityHistory.addHistoryEntry(resource, lastChanged, false);
+        final Object readOnly = entityHistory.getReadOnlyEntity(entry);
+        Assert.assertSame(readOnly, entityHistory.getReadOnlyEntity(entry));
+        Assert.assertTrue(((AllocatableImpl) readOnly).isReadOnly());
+        final Object copy = entityHistory.getEntity(entry);
+        Assert.assertNotSame(readOnly, copy);
+        Assert.assertFalse(((AllocatableImpl) copy).isReadOnly());
+        Assert.assertEquals(resource.getReference(), ((AllocatableImpl) readOnly).getReference());
+    }
 }
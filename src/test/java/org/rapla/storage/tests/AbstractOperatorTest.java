@@ -14,11 +14,13 @@ package org.rapla.storage.tests;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.rapla.components.util.DateTools;
 import org.rapla.entities.Category;
 import org.rapla.entities.Entity;
 import org.rapla.entities.User;
 import org.rapla.entities.domain.Allocatable;
 import org.rapla.entities.domain.Appointment;
+import org.rapla.entities.domain.Permission;
 import org.rapla.entities.domain.Repeating;
 import org.rapla.entities.domain.Reservation;
 import org.rapla.entities.dynamictype.Attribute;
@@ -26,12 +28,18 @@ import org.rapla.entities.dynamictype.AttributeType;
 import org.rapla.entities.dynamictype.ClassificationFilter;
 import org.rapla.entities.dynamictype.DynamicType;
 import org.rapla.entities.dynamictype.DynamicTypeAnnotations;
+import org.rapla.facade.Conflict;
 import org.rapla.facade.RaplaFacade;
 import org.rapla.framework.RaplaException;
 import org.rapla.storage.CachableStorageOperator;
+import org.rapla.storage.PermissionController;
 import org.rapla.test.util.RaplaTestCase;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
 
 public abstract class AbstractOperatorTest  {
 
@@ -184,9 +192,148 @@ public abstract class AbstractOperatorTest  {
 			Assert.assertEquals(10, app.getRepeating().getNumber());
         }
     }
-}
 
+	@Test
+	public void testVisibleAllocatables() throws RaplaException {
+		RaplaFacade facade = getFacade();
+		CachableStorageOperator operator = getOperator();
+		final User owner = facade.getUser("homer");
+		assertVisibleAllocatables(operator);
+		Allocatable resource = facade.newAllocatable(facade.getDynamicTypes(DynamicTypeAnnotations.VALUE_CLASSIFICATION_TYPE_RESOURCE)[0].newClassification(), owner);
+		resource.getClassification().setValue("name", "visibilityTest");
+		for (Permission permission : new ArrayList<>(resource.getPermissionList()))
+		{
+			resource.removePermission(permission);
+		}
+		facade.store(resource);
+		assertVisibleAllocatables(operator);
+		Assert.assertTrue(getVisibleAllocatables(operator, owner).contains(resource));
+		for (User user : operator.getUsers())
+		{
+			if (!user.isAdmin() && !user.equals(owner))
+			{
+				Assert.assertFalse(getVisibleAllocatables(operator, user).contains(resource));
+			}
+		}
+		Allocatable editResource = facade.edit(resource);
+		Permission permission = editResource.newPermission();
+		permission.setAccessLevel(Permission.READ_NO_ALLOCATION);
+		editResource.addPermission(permission);
+		facade.store(editResource);
+		assertVisibleAllocatables(operator);
+		for (User user : operator.getUsers())
+		{
+			Assert.assertTrue(getVisibleAllocatables(operator, user).contains(resource));
+		}
+		facade.remove(editResource);
+		assertVisibleAllocatables(operator);
+	}
 
+	private void assertVisibleAllocatables(CachableStorageOperator operator) throws RaplaException
+	{
+		final PermissionController permissionController = operator.getPermissionController();
+		final Collection<Allocatable> allAllocatables = getVisibleAllocatables(operator, null);
+		for (User user : operator.getUsers())
+		{
+			Set<Allocatable> expected = new HashSet<>();
+			for (Allocatable allocatable : allAllocatables)
+			{
+				if (user.isAdmin() || permissionController.canReadOnlyInformation(allocatable, user))
+				{
+					expected.add(allocatable);
+				}
+			}
+			Assert.assertEquals("visible allocatables for " + user, expected, getVisibleAllocatables(operator, user));
+		}
+	}
 
+	@Test
+	public void testModifiableConflicts() throws RaplaException {
+		RaplaFacade facade = getFacade();
+		CachableStorageOperator operator = getOperator();
+		final User owner = facade.getUser("homer");
+		assertModifiableConflicts(operator);
+		Allocatable resource = facade.newAllocatable(facade.getDynamicTypes(DynamicTypeAnnotations.VALUE_CLASSIFICATION_TYPE_RESOURCE)[0].newClassification(), owner);
+		resource.getClassification().setValue("name", "conflictViewTest");
+		facade.store(resource);
+		final Date start = new Date(DateTools.cutDate(System.currentTimeMillis()) + DateTools.MILLISECONDS_PER_DAY + DateTools.MILLISECONDS_PER_HOUR * 10);
+		final Date end = new Date(start.getTime() + DateTools.MILLISECONDS_PER_HOUR * 2);
+		Reservation[] reservations = new Reservation[2];
+		for (int i = 0; i < reservations.length; i++)
+		{
+			Reservation reservation = facade.newReservation(facade.getDynamicTypes(DynamicTypeAnnotations.VALUE_CLASSIFICATION_TYPE_RESERVATION)[0].newClassification(), owner);
+			reservation.getClassification().setValue("name", "conflictViewTest");
+			reservation.addAppointment(facade.newAppointmentWithUser(start, end, owner));
+			reservation.addAllocatable(resource);
+			facade.store(reservation);
+			reservations[i] = reservation;
+		}
+		assertModifiableConflicts(operator);
 
+		// a user permission on one of the reservations allows the user to modify the conflict
+		User editor = null;
+		for (User user : operator.getUsers())
+		{
+			if (!user.isAdmin() && !user.equals(owner))
+			{
+				editor = user;
+			}
+		}
+		Assert.assertNotNull(editor);
+		Reservation editReservation = facade.edit(reservations[0]);
+		Permission permission = editReservation.newPermission();
+		permission.setUser(editor);
+		permission.setAccessLevel(Permission.EDIT);
+		editReservation.addPermission(permission);
+		facade.store(editReservation);
+		assertModifiableConflicts(operator);
+		Assert.assertFalse(getConflicts(operator, editor).isEmpty());
 
+		// without read permission on the resource the conflict can't be modified
+		Allocatable editResource = facade.edit(resource);
+		for (Permission resourcePermission : new ArrayList<>(editResource.getPermissionList()))
+		{
+			editResource.removePermission(resourcePermission);
+		}
+		facade.store(editResource);
+		assertModifiableConflicts(operator);
+		facade.removeObjects(new Entity[] { editReservation, reservations[1], editResource });
+		assertModifiableConflicts(operator);
+	}
+
+	private void assertModifiableConflicts(CachableStorageOperator operator) throws RaplaException
+	{
+		final PermissionController permissionController = operator.getPermissionController();
+		final Set<Conflict> allConflicts = getConflicts(operator, null);
+		for (User user : operator.getUsers())
+		{
+			Set<Conflict> expected = new HashSet<>();
+			for (Conflict conflict : allConflicts)
+			{
+				if (permissionController.canModify(conflict, user))
+				{
+					expected.add(conflict);
+				}
+			}
+			Assert.assertEquals("modifiable conflicts for " + user, expected, getConflicts(operator, user));
+		}
+	}
+
+	private Set<Conflict> getConflicts(CachableStorageOperator operator, User user) throws RaplaException
+	{
+		return new HashSet<>(RaplaTestCase.waitForWithRaplaException(operator.getConflicts(user), 10000));
+	}
+
+	private Set<Allocatable> getVisibleAllocatables(CachableStorageOperator operator, User user) throws RaplaException
+	{
+		Set<Allocatable> result = new HashSet<>();
+		for (Entity entity : operator.getVisibleEntities(user))
+		{
+			if (entity instanceof Allocatable)
+			{
+				result.add((Allocatable) entity);
+			}
+		}
+		return result;
+	}
+}
@@ -14,9 +14,11 @@ package org.rapla.test.util;
 
 import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlet.ServletHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.ThreadPool;
 import org.eclipse.jetty.webapp.WebAppContext;
 import org.jboss.resteasy.plugins.server.servlet.HttpServletDispatcher;
 import org.jboss.resteasy.plugins.server.servlet.ResteasyBootstrap;
@@ -155,30 +157,54 @@ public abstract class RaplaTestCase
     }
 
     public static ServerContext createServerContext( Logger logger, String xmlFile, int port) throws Exception
+    {
+        return createServerContext(logger, xmlFile, port, null);
+    }
+
+    /** creates a server that processes the requests with the passed thread pool, e.g. to measure the throughput with a fixed number of threads.
+     * If the thread pool is null the default pool of jetty is used. */
+    public static ServerContext createServerContext( Logger logger, String xmlFile, int port, ThreadPool threadPool) throws Exception
     {
         ServerContainerContext containerContext = new ServerContainerContext();
         containerContext.addFileDatasource("raplafile",getTestDataFile(xmlFile));
-        return createServerContext(logger, containerContext, port);
+        return createServerContext(logger, containerContext, port, threadPool);
     }
 
     @NotNull public static ServerContext createServerContext(Logger logger, ServerContainerContext containerContext, int port) throws Exception
+    {
+        return createServerContext(logger, containerContext, port, null);
+    }
+
+    @NotNull public static ServerContext createServerContext(Logger logger, ServerContainerContext containerContext, int port, ThreadPool threadPool) throws Exception
     {
         FileOperator.setDefaultFileIO(new VoidFileIO());
         final ServerCreator.ServerContext serverContext = ServerCreator.create(logger, containerContext);
         final ServerServiceContainer serviceContainer = serverContext.getServiceContainer();
         Injector injector = serverContext.getMembersInjector();
-        final Server server = createServer(serviceContainer, injector, port);
+        final Server server = createServer(serviceContainer, injector, port, threadPool);
         ServerContext result = new ServerContext();
         result.server =  server;
         result.container = serviceContainer;
         return result;
     }
 
-    private static Server createServer(final ServerServiceContainer serverService,Injector membersInjector,int port) throws Exception
+    private static Server createServer(final ServerServiceContainer serverService,Injector membersInjector,int port, ThreadPool threadPool) throws Exception
     {
         final ServerServiceImpl serverServiceImpl = (ServerServiceImpl) serverService;
         File webappFolder = new File("test");
-        Server jettyServer = new Server(port);
+        final Server jettyServer;
+        if (threadPool != null)
+        {
+            jettyServer = new Server(threadPool);
+            // one acceptor and one selector, so the remaining threads of the pool process the requests
+            ServerConnector connector = new ServerConnector(jettyServer, 1, 1);
+            connector.setPort(port);
+            jettyServer.addConnector(connector);
+        }
+        else
+        {
+            jettyServer = new Server(port);
+        }
         String contextPath = "rapla";
         WebAppContext context = new WebAppContext(jettyServer, contextPath, "/");
         //        context.addFilter(org.rapla.server.HTTPMethodOverrideFilter.class, "/rapla/*", null);
@@ -205,6 +231,8 @@ public abstract class RaplaTestCase
             }
         };
         final FilterHolder holder = new FilterHolder(filter);
+        // the rest services suspend requests that return a promise
+        holder.setAsyncSupported(true);
         context.addFilter(holder, "/*", EnumSet.allOf(DispatcherType.class));
         context.setInitParameter("resteasy.servlet.mapping.prefix", "/rapla");
         context.setInitParameter("resteasy.use.builtin.providers", "false");
@@ -214,6 +242,7 @@ public abstract class RaplaTestCase
 
         final ServletHolder servletHolder = new ServletHolder(HttpServletDispatcher.class);
         servletHolder.setServlet(new HttpServletDispatcher());
+        servletHolder.setAsyncSupported(true);
         context.addServlet(servletHolder, "/rapla/*");
         jettyServer.start();
         Handler[] childHandlers = context.getChildHandlersByClass(ServletHandler.class);